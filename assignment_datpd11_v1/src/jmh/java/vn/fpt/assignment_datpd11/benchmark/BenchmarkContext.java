@@ -0,0 +1,105 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import vn.fpt.assignment_datpd11.AssignmentDatpd11Application;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.repository.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Khởi tạo ứng dụng Spring đầy đủ cho benchmark
+ * 
+ * Mỗi context dùng một database H2 trong bộ nhớ (chế độ MySQL) và một thư mục tạm riêng,
+ * được xóa khi đóng context. Cấu hình được truyền qua tham số dòng lệnh để ghi đè
+ * application.properties (MySQL).
+ */
+public final class BenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path storageDir;
+
+    private BenchmarkContext(ConfigurableApplicationContext context, Path storageDir) {
+        this.context = context;
+        this.storageDir = storageDir;
+    }
+
+    /**
+     * Khởi động ứng dụng với database nhúng và thư mục lưu trữ tạm
+     * 
+     * @param extraArgs Tham số cấu hình bổ sung dạng "--key=value"
+     * @return BenchmarkContext đã khởi động
+     * @throws IOException nếu không tạo được thư mục tạm
+     */
+    public static BenchmarkContext start(String... extraArgs) throws IOException {
+        Path storageDir = Files.createTempDirectory("mini-drive-bench-");
+        String database = "bench_" + UUID.randomUUID().toString().replace("-", "");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AssignmentDatpd11Application.class)
+                .logStartupInfo(false)
+                .run(Stream.concat(Stream.of(
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.mail.mock.enabled=true",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--file.storage.path=" + storageDir.resolve("files"),
+                        "--file.storage.temp.path=" + storageDir.resolve("temp")
+                ), Arrays.stream(extraArgs)).toArray(String[]::new));
+        return new BenchmarkContext(context, storageDir);
+    }
+
+    /**
+     * Lấy bean từ context
+     * 
+     * @param type Kiểu của bean
+     * @return Bean tương ứng
+     */
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Tạo người dùng mẫu
+     * 
+     * @param email Email của người dùng
+     * @return Người dùng đã được lưu
+     */
+    public User createUser(String email) {
+        User user = User.builder()
+                .email(email)
+                .password("benchmark")
+                .fullName("Benchmark " + email)
+                .build();
+        return getBean(UserRepository.class).save(user);
+    }
+
+    /**
+     * Dừng ứng dụng và xóa thư mục tạm
+     * 
+     * @throws IOException nếu có lỗi khi xóa thư mục tạm
+     */
+    @Override
+    public void close() throws IOException {
+        context.close();
+        try (Stream<Path> paths = Files.walk(storageDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.service.FileService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark chuyển đổi FileItem sang FileItemResponse (FileService.mapToResponse)
+ * 
+ * Đo chi phí chuyển đổi một trang kết quả gồm {pageSize} item đã nằm trong bộ nhớ
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileMappingBenchmark {
+
+    @Param({"50", "1000"})
+    private int pageSize;
+
+    private FileService fileService;
+
+    private List<FileItem> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // mapToResponse does not use any injected dependency
+        fileService = new FileService();
+
+        User owner = User.builder()
+                .id(1L)
+                .email("owner@example.com")
+                .fullName("Owner")
+                .build();
+        FileItem parent = FileItem.builder()
+                .id(1L)
+                .name("parent")
+                .type(FileItem.FileType.FOLDER)
+                .path("/")
+                .owner(owner)
+                .build();
+
+        items = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            items.add(FileItem.builder()
+                    .id(i + 2L)
+                    .name("file_" + i + ".txt")
+                    .type(FileItem.FileType.FILE)
+                    .fileSize(1024L * i)
+                    .mimeType("text/plain")
+                    .parent(parent)
+                    .path("/1/")
+                    .owner(owner)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void mapPage(Blackhole blackhole) {
+        for (FileItem item : items) {
+            FileItemResponse response = fileService.mapToResponse(item);
+            blackhole.consume(response);
+        }
+    }
+}
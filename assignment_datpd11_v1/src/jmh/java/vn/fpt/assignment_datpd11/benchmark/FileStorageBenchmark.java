@@ -0,0 +1,82 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.repository.StoredBlobRepository;
+import vn.fpt.assignment_datpd11.service.FileStorageService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark cho FileStorageService.saveFile
+ * 
+ * - unique: mỗi lần lưu là một nội dung mới (ghi file, tính SHA-256, tạo blob)
+ * - duplicate: nội dung đã tồn tại (chỉ tăng refCount, file tạm bị xóa)
+ * 
+ * Các blob được tạo ra bị xóa sau mỗi iteration để dung lượng đĩa không tăng mãi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class FileStorageBenchmark {
+
+    @Param({"4096", "262144"})
+    private int size;
+
+    private BenchmarkContext context;
+
+    private FileStorageService fileStorageService;
+
+    private StoredBlobRepository storedBlobRepository;
+
+    private byte[] content;
+
+    private MockMultipartFile duplicateFile;
+
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        fileStorageService = context.getBean(FileStorageService.class);
+        storedBlobRepository = context.getBean(StoredBlobRepository.class);
+
+        content = new byte[size];
+        new Random(42).nextBytes(content);
+        duplicateFile = new MockMultipartFile("file", "duplicate.bin", "application/octet-stream", content.clone());
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteBlobs() throws IOException {
+        for (StoredBlob blob : storedBlobRepository.findAll()) {
+            Files.deleteIfExists(Paths.get(blob.getStoragePath()));
+        }
+        storedBlobRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public StoredBlob saveUnique() throws IOException {
+        // Change the first bytes so every call stores new content
+        byte[] data = content.clone();
+        ByteBuffer.wrap(data).putLong(++counter);
+        return fileStorageService.saveFile(new MockMultipartFile("file", "unique.bin", "application/octet-stream", data));
+    }
+
+    @Benchmark
+    public StoredBlob saveDuplicate() throws IOException {
+        return fileStorageService.saveFile(duplicateFile);
+    }
+}
@@ -0,0 +1,102 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.service.AsyncDownloadService;
+import vn.fpt.assignment_datpd11.service.FileService;
+import vn.fpt.assignment_datpd11.service.FileStorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark tạo file zip cho thư mục (AsyncDownloadService.writeFolderZip)
+ * 
+ * Cây thư mục giả lập: một thư mục gốc chứa {folders} thư mục con,
+ * mỗi thư mục con chứa {filesPerFolder} file kích thước {fileSize} bytes.
+ * Nội dung là dữ liệu ngẫu nhiên (không nén được) hoặc văn bản (nén tốt).
+ * Dữ liệu zip được ghi vào một OutputStream bỏ đi để chỉ đo chi phí đọc và nén.
+ * Với archiveCache=true, từ lần thứ hai archive được lấy lại từ ArchiveCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class FolderZipBenchmark {
+
+    @Param({"10"})
+    private int folders;
+
+    @Param({"100"})
+    private int filesPerFolder;
+
+    @Param({"16384"})
+    private int fileSize;
+
+    @Param({"random", "text"})
+    private String content;
+
+    @Param({"false", "true"})
+    private boolean archiveCache;
+
+    private BenchmarkContext context;
+
+    private AsyncDownloadService asyncDownloadService;
+
+    private FileItem root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start("--download.archive-cache.enabled=" + archiveCache);
+        asyncDownloadService = context.getBean(AsyncDownloadService.class);
+        FileService fileService = context.getBean(FileService.class);
+        FileStorageService fileStorageService = context.getBean(FileStorageService.class);
+
+        User owner = context.createUser("zip@example.com");
+        root = fileService.getFileItem(fileService.createFolder("root", null, owner.getId()).getId());
+
+        Random random = new Random(42);
+        for (int i = 0; i < folders; i++) {
+            FileItem folder = fileService.getFileItem(
+                    fileService.createFolder("folder_" + i, root.getId().toString(), owner.getId()).getId());
+            for (int j = 0; j < filesPerFolder; j++) {
+                StoredBlob blob = fileStorageService.storeContent(new ByteArrayInputStream(newContent(random, i, j)));
+                fileService.createFileItem("file_" + j + ".bin", "application/octet-stream", blob, folder, owner);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public void writeFolderZip() throws IOException {
+        asyncDownloadService.writeFolderZip(root, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Tạo nội dung cho một file (mỗi file khác nhau để không bị khử trùng lặp)
+     */
+    private byte[] newContent(Random random, int folder, int file) {
+        byte[] data = new byte[fileSize];
+        if (content.equals("random")) {
+            random.nextBytes(data);
+        } else {
+            byte[] line = ("folder " + folder + " file " + file + " lorem ipsum dolor sit amet\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            for (int k = 0; k < data.length; k++) {
+                data[k] = line[k % line.length];
+            }
+        }
+        return data;
+    }
+}
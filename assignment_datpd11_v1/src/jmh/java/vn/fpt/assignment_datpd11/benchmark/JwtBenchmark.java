@@ -0,0 +1,53 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.security.JwtTokenProvider;
+import vn.fpt.assignment_datpd11.security.UserPrincipal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark tạo và xác thực JWT token (JwtTokenProvider)
+ * 
+ * Không cần khởi động Spring: provider được cấu hình trực tiếp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    private User user;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "secret",
+                "benchmark-secret-key-with-at-least-thirty-two-characters");
+        ReflectionTestUtils.setField(jwtTokenProvider, "expiration", 3_600_000L);
+        jwtTokenProvider.init();
+
+        user = User.builder()
+                .id(1L)
+                .email("bench@example.com")
+                .build();
+        token = jwtTokenProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken(user);
+    }
+
+    @Benchmark
+    public UserPrincipal parsePrincipal() {
+        return jwtTokenProvider.parsePrincipal(token);
+    }
+}
@@ -0,0 +1,104 @@
+package vn.fpt.assignment_datpd11.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.FilePermission;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.service.FileService;
+import vn.fpt.assignment_datpd11.service.FileStorageService;
+import vn.fpt.assignment_datpd11.service.PermissionCache;
+import vn.fpt.assignment_datpd11.service.PermissionService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark kiểm tra quyền truy cập (PermissionService.hasAccess)
+ * 
+ * Một file nằm sâu {depth} cấp thư mục; người dùng được chia sẻ có quyền VIEW
+ * trên thư mục gốc (quyền kế thừa). Đo với cache được giữ nguyên hoặc bị xóa trước mỗi lần gọi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class PermissionBenchmark {
+
+    @Param({"1", "8", "32"})
+    private int depth;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private BenchmarkContext context;
+
+    private PermissionService permissionService;
+
+    private PermissionCache permissionCache;
+
+    private Long ownerId;
+
+    private Long granteeId;
+
+    private Long strangerId;
+
+    private Long fileId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        permissionService = context.getBean(PermissionService.class);
+        permissionCache = context.getBean(PermissionCache.class);
+        FileService fileService = context.getBean(FileService.class);
+        FileStorageService fileStorageService = context.getBean(FileStorageService.class);
+
+        User owner = context.createUser("owner@example.com");
+        ownerId = owner.getId();
+        granteeId = context.createUser("grantee@example.com").getId();
+        strangerId = context.createUser("stranger@example.com").getId();
+
+        Long rootId = fileService.createFolder("level_0", null, ownerId).getId();
+        Long parentId = rootId;
+        for (int i = 1; i < depth; i++) {
+            parentId = fileService.createFolder("level_" + i, parentId.toString(), ownerId).getId();
+        }
+        StoredBlob blob = fileStorageService.storeContent(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        FileItem file = fileService.createFileItem("leaf.txt", "text/plain", blob,
+                fileService.getFileItem(parentId), owner);
+        fileId = file.getId();
+
+        permissionService.shareFile(rootId, granteeId, FilePermission.PermissionLevel.VIEW);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean owner() {
+        resetCache();
+        return permissionService.hasAccess(ownerId, fileId, false);
+    }
+
+    @Benchmark
+    public boolean inheritedGrant() {
+        resetCache();
+        return permissionService.hasAccess(granteeId, fileId, false);
+    }
+
+    @Benchmark
+    public boolean noAccess() {
+        resetCache();
+        return permissionService.hasAccess(strangerId, fileId, false);
+    }
+
+    private void resetCache() {
+        if (!cached) {
+            permissionCache.clear();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một mục (file hoặc thư mục) cần ghi vào file zip
+ */
+@Getter
+@AllArgsConstructor
+public class ArchiveEntry {
+    /**
+     * Đường dẫn của mục trong file zip (thư mục kết thúc bằng "/")
+     */
+    private final String name;
+
+    /**
+     * Nguồn nội dung, chỉ được mở khi archiver bắt đầu ghi mục (null nếu là thư mục hoặc file không có nội dung)
+     */
+    private final ArchiveSource source;
+
+    /**
+     * Thời điểm sửa đổi lần cuối ghi vào zip (có thể null)
+     */
+    private final LocalDateTime lastModified;
+
+    /**
+     * MIME type của file, dùng để chọn phương thức nén (null nếu là thư mục hoặc không rõ)
+     */
+    private final String mimeType;
+
+    /**
+     * Kích thước dự kiến của file (bytes), dùng để báo cáo tiến độ (0 nếu là thư mục)
+     */
+    private final long size;
+
+    /**
+     * Kiểm tra mục có phải là thư mục không
+     * 
+     * @return true nếu là thư mục
+     */
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+}
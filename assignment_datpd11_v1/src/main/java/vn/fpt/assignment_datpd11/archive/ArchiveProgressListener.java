@@ -0,0 +1,19 @@
+package vn.fpt.assignment_datpd11.archive;
+
+/**
+ * Nhận thông báo tiến độ trong lúc ghi file zip
+ * 
+ * Được gọi trên luồng điều phối của ParallelZipArchiver sau mỗi khối dữ liệu
+ * và mỗi mục đã ghi xong, nên cài đặt cần nhanh và không chặn.
+ */
+@FunctionalInterface
+public interface ArchiveProgressListener {
+
+    /**
+     * Cập nhật tiến độ
+     * 
+     * @param bytesProcessed Tổng số bytes dữ liệu gốc đã ghi vào archive
+     * @param entriesProcessed Tổng số mục (file và thư mục) đã ghi xong
+     */
+    void onProgress(long bytesProcessed, int entriesProcessed);
+}
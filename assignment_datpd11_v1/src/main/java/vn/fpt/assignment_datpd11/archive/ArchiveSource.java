@@ -0,0 +1,67 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Nguồn nội dung của một file trong archive
+ * 
+ * ParallelZipArchiver chỉ mở nguồn khi bắt đầu chia khối file đó và đóng ngay sau khi
+ * ghi xong mục, nên nội dung ở nơi lưu trữ từ xa được tải về từng file một thay vì
+ * tải cả thư mục trước khi ghi byte đầu tiên.
+ */
+@FunctionalInterface
+public interface ArchiveSource {
+
+    /**
+     * Mở file cục bộ chứa nội dung (tải về nếu nội dung nằm ở nơi lưu trữ từ xa)
+     * 
+     * @return File đã mở; phải được đóng sau khi đọc xong
+     * @throws IOException nếu có lỗi khi lấy nội dung
+     */
+    Opened open() throws IOException;
+
+    /**
+     * Tạo nguồn từ một file cục bộ có sẵn
+     * 
+     * @param path File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file được nén khi lưu trữ (BlockCompressedFile)
+     * @return ArchiveSource không cần dọn dẹp khi đóng
+     */
+    static ArchiveSource of(Path path, boolean compressed) {
+        return () -> new Opened(path, compressed, null);
+    }
+
+    /**
+     * File cục bộ của một nguồn đã mở
+     */
+    @Getter
+    @AllArgsConstructor
+    class Opened implements Closeable {
+        /**
+         * File nguồn trên đĩa (null nếu không tồn tại)
+         */
+        private final Path path;
+
+        /**
+         * true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile) và phải được giải nén khi đọc
+         */
+        private final boolean compressed;
+
+        /**
+         * Dọn dẹp khi đóng, ví dụ xóa bản sao tạm (có thể null)
+         */
+        private final Closeable cleanup;
+
+        @Override
+        public void close() throws IOException {
+            if (cleanup != null) {
+                cleanup.close();
+            }
+        }
+    }
+}
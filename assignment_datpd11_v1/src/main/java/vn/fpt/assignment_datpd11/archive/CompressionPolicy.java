@@ -0,0 +1,175 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Chọn phương thức lưu (STORED hoặc DEFLATE) cho từng file trong archive
+ * 
+ * Quy tắc:
+ * - MIME type thuộc danh sách dữ liệu đã nén sẵn (ảnh JPEG/PNG, video, audio nén,
+ *   zip, pdf, tài liệu Office...) được lưu STORED vì DEFLATE gần như không giảm kích thước
+ * - text/*, JSON, XML, JavaScript... luôn được nén DEFLATE
+ * - MIME type khác hoặc không rõ: lấy mẫu một đoạn dữ liệu ở giữa file và tính entropy
+ *   Shannon; entropy gần 8 bit/byte nghĩa là dữ liệu không nén được thêm nữa
+ * - File nhỏ hơn kích thước mẫu luôn được nén vì chi phí không đáng kể
+ * - File được nén khi lưu trữ (BlockCompressedFile) chắc chắn nén được nên luôn dùng DEFLATE
+ */
+@Component
+public class CompressionPolicy {
+
+    /**
+     * Danh sách MIME type được lưu STORED, phân tách bằng dấu phẩy
+     * Hỗ trợ ký tự đại diện ở cuối, ví dụ "video/*"
+     */
+    @Value("${download.zip.stored-mime-types:image/jpeg,image/png,image/gif,image/webp,image/heic,image/avif,video/*,audio/mpeg,audio/aac,audio/ogg,audio/mp4,audio/flac,application/zip,application/gzip,application/x-gzip,application/x-7z-compressed,application/x-rar-compressed,application/vnd.rar,application/x-bzip2,application/x-xz,application/zstd,application/pdf,application/epub+zip,application/java-archive,application/vnd.openxmlformats-officedocument.*}")
+    private String storedMimeTypes;
+
+    /**
+     * Số bytes lấy mẫu để tính entropy khi MIME type không rõ (0 để tắt lấy mẫu)
+     */
+    @Value("${download.zip.entropy-sample-bytes:32768}")
+    private int entropySampleBytes;
+
+    /**
+     * Ngưỡng entropy (bit/byte) từ đó dữ liệu được coi là không nén được
+     */
+    @Value("${download.zip.entropy-threshold:7.5}")
+    private double entropyThreshold;
+
+    /**
+     * Các MIME type luôn được nén, không cần lấy mẫu
+     */
+    private static final List<String> COMPRESSIBLE_TYPES = Arrays.asList(
+            "text/*", "application/json", "application/xml", "application/javascript",
+            "application/x-ndjson", "application/sql", "image/svg+xml", "image/bmp");
+
+    private List<String> storedPatterns;
+
+    /**
+     * Chọn phương thức lưu cho một file
+     * 
+     * @param mimeType MIME type của file (có thể null)
+     * @param source File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile)
+     * @param size Kích thước file
+     * @return ZipArchiveWriter.METHOD_STORED hoặc ZipArchiveWriter.METHOD_DEFLATED
+     */
+    public int chooseMethod(String mimeType, Path source, boolean compressed, long size) {
+        if (size == 0 || source == null) {
+            return ZipArchiveWriter.METHOD_DEFLATED;
+        }
+
+        String type = normalize(mimeType);
+        if (type != null) {
+            if (matchesAny(type, COMPRESSIBLE_TYPES)) {
+                return ZipArchiveWriter.METHOD_DEFLATED;
+            }
+            if (matchesAny(type, storedPatterns)) {
+                return ZipArchiveWriter.METHOD_STORED;
+            }
+        }
+
+        if (compressed) {
+            // Only compressible content is compressed at rest
+            return ZipArchiveWriter.METHOD_DEFLATED;
+        }
+
+        // Unknown content - let a sample of the data decide
+        if (entropySampleBytes <= 0 || size < entropySampleBytes) {
+            return ZipArchiveWriter.METHOD_DEFLATED;
+        }
+        try {
+            return sampleEntropy(source, size) >= entropyThreshold
+                    ? ZipArchiveWriter.METHOD_STORED
+                    : ZipArchiveWriter.METHOD_DEFLATED;
+        } catch (IOException e) {
+            // The block readers will report the real error
+            return ZipArchiveWriter.METHOD_DEFLATED;
+        }
+    }
+
+    /**
+     * Tính entropy Shannon (bit/byte) của một đoạn dữ liệu ở giữa file
+     * Đoạn giữa được chọn để tránh phần header thường có entropy thấp của nhiều định dạng
+     * 
+     * @param source File nguồn
+     * @param size Kích thước file
+     * @return Entropy trong khoảng 0..8
+     * @throws IOException nếu có lỗi khi đọc file
+     */
+    private double sampleEntropy(Path source, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entropySampleBytes);
+        long position = (size - entropySampleBytes) / 2;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        }
+
+        int length = buffer.position();
+        if (length == 0) {
+            return 0;
+        }
+        int[] counts = new int[256];
+        byte[] data = buffer.array();
+        for (int i = 0; i < length; i++) {
+            counts[data[i] & 0xff]++;
+        }
+        double entropy = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / length;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * Phân tích danh sách MIME type cấu hình một lần khi khởi tạo
+     */
+    @PostConstruct
+    public void init() {
+        storedPatterns = Arrays.stream(storedMimeTypes.split(","))
+                .map(this::normalize)
+                .filter(t -> t != null)
+                .collect(Collectors.toList());
+    }
+
+    private boolean matchesAny(String type, List<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*")
+                    ? type.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : type.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chuẩn hóa MIME type: bỏ tham số (ví dụ "; charset=utf-8"), chữ thường
+     */
+    private String normalize(String mimeType) {
+        if (mimeType == null) {
+            return null;
+        }
+        int semicolon = mimeType.indexOf(';');
+        String type = (semicolon >= 0 ? mimeType.substring(0, semicolon) : mimeType).trim().toLowerCase(Locale.ROOT);
+        return type.isEmpty() ? null : type;
+    }
+}
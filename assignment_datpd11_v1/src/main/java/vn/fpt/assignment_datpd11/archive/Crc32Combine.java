@@ -0,0 +1,83 @@
+package vn.fpt.assignment_datpd11.archive;
+
+/**
+ * Ghép CRC-32 của hai khối dữ liệu liên tiếp mà không cần đọc lại dữ liệu
+ * 
+ * Hiện thực theo crc32_combine của zlib (nhân ma trận trên GF(2)),
+ * cho phép mỗi worker tự tính CRC của khối mình nén.
+ */
+final class Crc32Combine {
+
+    private static final int GF2_DIM = 32;
+
+    private Crc32Combine() {
+    }
+
+    /**
+     * Tính CRC-32 của dữ liệu A nối với B
+     * 
+     * @param crc1 CRC-32 của khối A
+     * @param crc2 CRC-32 của khối B
+     * @param len2 Độ dài (bytes) của khối B
+     * @return CRC-32 của A nối với B
+     */
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[GF2_DIM];
+        long[] odd = new long[GF2_DIM];
+
+        // Operator for one zero bit in odd
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // Operators for two and four zero bits
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply len2 zeros to crc1 (first square puts the operator for one zero byte in even)
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.storage.BlockCompressedFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Tạo file zip với việc nén song song trên nhiều luồng
+ * 
+ * Cách hoạt động (tương tự pigz):
+ * - Mỗi file được chia thành các khối (block) cố định; file nhỏ là một khối
+ * - Mỗi khối được nén độc lập trên thread pool zipExecutor, dùng 32 KB cuối của khối
+ *   trước làm từ điển nên tỉ lệ nén gần như không đổi so với nén tuần tự
+ * - Các khối không phải cuối được kết thúc bằng SYNC_FLUSH, nên ghép nối tiếp nhau
+ *   vẫn là một luồng DEFLATE hợp lệ
+ * - Luồng điều phối nhận kết quả theo đúng thứ tự, ghép CRC-32 và ghi vào archive
+ * 
+ * File có dữ liệu đã nén sẵn (theo CompressionPolicy) được lưu STORED: một worker tính
+ * CRC-32 của cả file trước để ghi vào local header, các khối chỉ được đọc và ghi nguyên văn.
+ * 
+ * Số khối đang xử lý của mỗi archive bị giới hạn, nên bộ nhớ sử dụng không phụ thuộc
+ * vào kích thước thư mục.
+ * 
+ * File nguồn được nén khi lưu trữ (BlockCompressedFile) được đọc qua bảng chỉ mục khối,
+ * nên archive luôn chứa dữ liệu gốc và mỗi worker chỉ giải nén phần mình cần.
+ * 
+ * Nguồn của mỗi file (ArchiveSource) chỉ được mở khi bắt đầu chia khối file đó và được
+ * đóng ngay sau khi mục được ghi xong: với nơi lưu trữ từ xa, byte đầu tiên được gửi đi
+ * sau khi tải file đầu tiên, và chỉ các file trong cửa sổ đang xử lý chiếm chỗ trên đĩa.
+ */
+@Component
+public class ParallelZipArchiver {
+
+    /**
+     * Kích thước từ điển DEFLATE (cửa sổ 32 KB)
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * Kích thước bộ đệm ghi ra OutputStream đích
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    @Qualifier("zipExecutor")
+    private AsyncTaskExecutor zipExecutor;
+
+    @Autowired
+    private CompressionPolicy compressionPolicy;
+
+    /**
+     * Mức nén DEFLATE từ 0 (không nén) đến 9 (nén tối đa), -1 là mặc định của zlib
+     */
+    @Value("${download.zip.compression-level:-1}")
+    private int compressionLevel;
+
+    /**
+     * Kích thước mỗi khối nén (bytes)
+     */
+    @Value("${download.zip.block-size:1048576}")
+    private int blockSize;
+
+    /**
+     * Số khối tối đa đang được nén cùng lúc cho một archive
+     */
+    @Value("${download.zip.max-in-flight-blocks:16}")
+    private int maxInFlightBlocks;
+
+    /**
+     * Deflater (raw DEFLATE) của mỗi worker, được tái sử dụng giữa các khối
+     * Mức nén được cố định khi tạo để không phải đổi tham số giữa chừng
+     */
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(compressionLevel, true));
+
+    /**
+     * Kết quả nén một khối
+     */
+    private static class CompressedBlock {
+        byte[] data;
+        int length;
+        long crc;
+        long inputLength;
+    }
+
+    /**
+     * Một đơn vị công việc theo thứ tự ghi: một thư mục hoặc một khối của file
+     */
+    private static class Unit {
+        ArchiveEntry entry;
+        ArchiveSource.Opened source;
+        long fileSize;
+        boolean first;
+        boolean last;
+        int method;
+        Future<CompressedBlock> result;
+        Future<CompressedBlock> storedChecksum;
+    }
+
+    /**
+     * Ghi toàn bộ các mục vào file zip
+     * 
+     * @param entries Danh sách mục theo thứ tự ghi (thư mục cha đứng trước mục con)
+     * @param out OutputStream đích; không bị đóng sau khi ghi xong
+     * @throws IOException nếu có lỗi khi đọc file nguồn hoặc ghi dữ liệu
+     */
+    public void write(List<ArchiveEntry> entries, OutputStream out) throws IOException {
+        write(entries, out, null);
+    }
+
+    /**
+     * Ghi toàn bộ các mục vào file zip và báo cáo tiến độ
+     * 
+     * @param entries Danh sách mục theo thứ tự ghi (thư mục cha đứng trước mục con)
+     * @param out OutputStream đích; không bị đóng sau khi ghi xong
+     * @param listener Nhận tiến độ sau mỗi khối và mỗi mục đã ghi (có thể null)
+     * @throws IOException nếu có lỗi khi đọc file nguồn hoặc ghi dữ liệu
+     */
+    public void write(List<ArchiveEntry> entries, OutputStream out, ArchiveProgressListener listener) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
+        ZipArchiveWriter writer = new ZipArchiveWriter(buffered);
+        Deque<Unit> window = new ArrayDeque<>();
+        // Sources are opened and closed in entry order
+        Deque<ArchiveSource.Opened> openSources = new ArrayDeque<>();
+
+        try {
+            int next = 0;
+            long nextOffset = 0;
+            long currentSize = 0;
+            int currentMethod = ZipArchiveWriter.METHOD_DEFLATED;
+            ArchiveSource.Opened currentSource = null;
+
+            long crc = 0;
+            long compressedSize = 0;
+            long size = 0;
+
+            long bytesProcessed = 0;
+            int entriesProcessed = 0;
+
+            while (next < entries.size() || !window.isEmpty()) {
+                // Keep the worker pool busy up to the in-flight limit
+                while (next < entries.size() && window.size() < maxInFlightBlocks) {
+                    ArchiveEntry entry = entries.get(next);
+                    Unit unit = new Unit();
+                    unit.entry = entry;
+                    if (entry.isDirectory()) {
+                        next++;
+                    } else {
+                        long offset = nextOffset;
+                        if (offset == 0) {
+                            currentSource = entry.getSource() != null ? entry.getSource().open() : null;
+                            if (currentSource != null) {
+                                openSources.addLast(currentSource);
+                            }
+                            currentSize = sizeOf(pathOf(currentSource), isCompressed(currentSource));
+                            currentMethod = compressionPolicy.chooseMethod(entry.getMimeType(),
+                                    pathOf(currentSource), isCompressed(currentSource), currentSize);
+                        }
+                        Path source = pathOf(currentSource);
+                        boolean compressed = isCompressed(currentSource);
+                        int length = (int) Math.min(blockSize, currentSize - offset);
+                        unit.fileSize = currentSize;
+                        unit.first = offset == 0;
+                        unit.last = offset + length >= currentSize;
+                        unit.method = currentMethod;
+                        unit.source = currentSource;
+                        boolean last = unit.last;
+                        if (currentMethod == ZipArchiveWriter.METHOD_STORED) {
+                            if (unit.first) {
+                                long expectedSize = currentSize;
+                                unit.storedChecksum = zipExecutor.submit(() -> checksum(source, compressed, expectedSize));
+                            }
+                            unit.result = zipExecutor.submit(() -> readBlock(source, compressed, offset, length));
+                        } else {
+                            unit.result = zipExecutor.submit(() -> compressBlock(source, compressed, offset, length, last));
+                        }
+                        if (last) {
+                            next++;
+                            nextOffset = 0;
+                        } else {
+                            nextOffset = offset + length;
+                        }
+                    }
+                    window.addLast(unit);
+                }
+
+                // Write finished work strictly in archive order
+                Unit unit = window.removeFirst();
+                if (unit.entry.isDirectory()) {
+                    writer.writeDirectory(unit.entry.getName(), unit.entry.getLastModified());
+                    entriesProcessed++;
+                    if (listener != null) {
+                        listener.onProgress(bytesProcessed, entriesProcessed);
+                    }
+                    continue;
+                }
+
+                if (unit.first) {
+                    if (unit.method == ZipArchiveWriter.METHOD_STORED) {
+                        // STORED header needs the checksum of the whole file up front
+                        CompressedBlock checksum = await(unit.storedChecksum);
+                        writer.putStoredEntry(unit.entry.getName(), unit.entry.getLastModified(),
+                                checksum.crc, checksum.inputLength);
+                    } else {
+                        writer.putEntry(unit.entry.getName(), unit.entry.getLastModified(),
+                                ZipArchiveWriter.METHOD_DEFLATED, unit.fileSize);
+                    }
+                    crc = 0;
+                    compressedSize = 0;
+                    size = 0;
+                }
+                CompressedBlock block = await(unit.result);
+                writer.writeData(block.data, 0, block.length);
+                crc = Crc32Combine.combine(crc, block.crc, block.inputLength);
+                compressedSize += block.length;
+                size += block.inputLength;
+                bytesProcessed += block.inputLength;
+                if (unit.last) {
+                    writer.closeEntry(crc, compressedSize, size);
+                    entriesProcessed++;
+                    if (unit.source != null) {
+                        // Every read of this entry has completed
+                        openSources.removeFirstOccurrence(unit.source);
+                        closeQuietly(unit.source);
+                    }
+                }
+                if (listener != null) {
+                    listener.onProgress(bytesProcessed, entriesProcessed);
+                }
+            }
+
+            writer.finish();
+        } finally {
+            // Stop outstanding work if writing failed part way
+            for (Unit unit : window) {
+                if (unit.result != null) {
+                    unit.result.cancel(true);
+                }
+                if (unit.storedChecksum != null) {
+                    unit.storedChecksum.cancel(true);
+                }
+            }
+            for (ArchiveSource.Opened source : openSources) {
+                closeQuietly(source);
+            }
+        }
+    }
+
+    private static Path pathOf(ArchiveSource.Opened source) {
+        return source != null ? source.getPath() : null;
+    }
+
+    private static boolean isCompressed(ArchiveSource.Opened source) {
+        return source != null && source.isCompressed();
+    }
+
+    /**
+     * Đóng nguồn đã mở, chỉ ghi log nếu lỗi (archive vẫn hợp lệ)
+     */
+    private static void closeQuietly(ArchiveSource.Opened source) {
+        try {
+            source.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error closing archive source " + source.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Nén một khối của file (chạy trên worker)
+     * 
+     * @param source File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile)
+     * @param offset Vị trí bắt đầu của khối trong file
+     * @param length Độ dài khối
+     * @param last true nếu là khối cuối của file
+     * @return Dữ liệu đã nén cùng CRC-32 của khối
+     * @throws IOException nếu có lỗi khi đọc file
+     */
+    private CompressedBlock compressBlock(Path source, boolean compressed, long offset, int length, boolean last)
+            throws IOException {
+        int dictionaryLength = (int) Math.min(DICTIONARY_SIZE, offset);
+        byte[] input = new byte[dictionaryLength + length];
+        int inputLength = readFully(source, compressed, offset - dictionaryLength, input);
+        if (inputLength < dictionaryLength) {
+            // File shrank while archiving - nothing left to compress in this block
+            dictionaryLength = 0;
+            inputLength = 0;
+        }
+        int dataLength = inputLength - dictionaryLength;
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(input, dictionaryLength, dataLength);
+
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionaryLength > 0) {
+            deflater.setDictionary(input, 0, dictionaryLength);
+        }
+        deflater.setInput(input, dictionaryLength, dataLength);
+
+        byte[] output = new byte[Math.max(64, dataLength + dataLength / 1000 + 64)];
+        int produced = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (produced == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                produced += deflater.deflate(output, produced, output.length - produced);
+            }
+        } else {
+            // SYNC_FLUSH is complete once the output buffer is no longer filled
+            int n;
+            do {
+                if (produced == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                n = deflater.deflate(output, produced, output.length - produced, Deflater.SYNC_FLUSH);
+                produced += n;
+            } while (produced == output.length);
+        }
+
+        CompressedBlock block = new CompressedBlock();
+        block.data = output;
+        block.length = produced;
+        block.crc = crc32.getValue();
+        block.inputLength = dataLength;
+        return block;
+    }
+
+    /**
+     * Đọc nguyên văn một khối của file lưu STORED (chạy trên worker)
+     * 
+     * @param source File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile)
+     * @param offset Vị trí bắt đầu của khối trong file
+     * @param length Độ dài khối
+     * @return Dữ liệu của khối cùng CRC-32 của khối
+     * @throws IOException nếu có lỗi khi đọc file
+     */
+    private CompressedBlock readBlock(Path source, boolean compressed, long offset, int length) throws IOException {
+        byte[] data = new byte[length];
+        int dataLength = readFully(source, compressed, offset, data);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, dataLength);
+
+        CompressedBlock block = new CompressedBlock();
+        block.data = data;
+        block.length = dataLength;
+        block.crc = crc32.getValue();
+        block.inputLength = dataLength;
+        return block;
+    }
+
+    /**
+     * Tính CRC-32 của cả file lưu STORED (chạy trên worker)
+     * Chỉ đọc tối đa size bytes để khớp với các khối đã được chia
+     * 
+     * @param source File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile)
+     * @param size Kích thước file tại thời điểm chia khối
+     * @return CRC-32 và số bytes đã đọc (không có dữ liệu)
+     * @throws IOException nếu có lỗi khi đọc file
+     */
+    private CompressedBlock checksum(Path source, boolean compressed, long size) throws IOException {
+        CRC32 crc32 = new CRC32();
+        long total = 0;
+        if (compressed && source != null) {
+            byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+            try (BlockCompressedFile file = BlockCompressedFile.open(source)) {
+                while (total < size) {
+                    int n = file.read(total, buffer, 0, (int) Math.min(buffer.length, size - total));
+                    if (n < 0) {
+                        break;
+                    }
+                    crc32.update(buffer, 0, n);
+                    total += n;
+                }
+            } catch (NoSuchFileException e) {
+                // File removed while archiving - treat as empty
+                total = 0;
+                crc32.reset();
+            }
+        } else if (source != null) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(OUTPUT_BUFFER_SIZE, Math.max(1, size)));
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                while (total < size) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), size - total));
+                    int n = channel.read(buffer, total);
+                    if (n < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    crc32.update(buffer);
+                    total += n;
+                }
+            } catch (NoSuchFileException e) {
+                // File removed while archiving - treat as empty
+                total = 0;
+                crc32.reset();
+            }
+        }
+
+        CompressedBlock block = new CompressedBlock();
+        block.crc = crc32.getValue();
+        block.inputLength = total;
+        return block;
+    }
+
+    /**
+     * Đọc dữ liệu từ file theo vị trí cho đến khi đầy bộ đệm hoặc hết file
+     * 
+     * @param source File nguồn (null nếu không tồn tại)
+     * @param compressed true nếu file nguồn được nén khi lưu trữ (BlockCompressedFile)
+     * @param position Vị trí bắt đầu đọc
+     * @param target Bộ đệm đích
+     * @return Số bytes đọc được (0 nếu file không tồn tại)
+     * @throws IOException nếu có lỗi khi đọc file
+     */
+    private int readFully(Path source, boolean compressed, long position, byte[] target) throws IOException {
+        if (source == null || target.length == 0) {
+            return 0;
+        }
+        if (compressed) {
+            try (BlockCompressedFile file = BlockCompressedFile.open(source)) {
+                int n = file.read(position, target, 0, target.length);
+                return Math.max(n, 0);
+            } catch (NoSuchFileException e) {
+                return 0;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(target);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // File removed while archiving - treat as empty
+            return 0;
+        }
+        return buffer.position();
+    }
+
+    private long sizeOf(Path source, boolean compressed) throws IOException {
+        if (source == null || !Files.exists(source)) {
+            return 0;
+        }
+        if (compressed) {
+            try (BlockCompressedFile file = BlockCompressedFile.open(source)) {
+                return file.size();
+            }
+        }
+        return Files.size(source);
+    }
+
+    private CompressedBlock await(Future<CompressedBlock> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing archive");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to compress archive entry", cause);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi file zip ở mức định dạng (local header, dữ liệu, data descriptor, central directory)
+ * 
+ * Khác với ZipOutputStream, lớp này nhận dữ liệu đã được nén sẵn (raw deflate),
+ * nên việc nén có thể được thực hiện song song ở nơi khác.
+ * Hỗ trợ ZIP64 cho file lớn, archive lớn hơn 4 GB và hơn 65535 mục.
+ * 
+ * Lớp này không thread-safe; chỉ một luồng được ghi vào tại một thời điểm.
+ */
+public class ZipArchiveWriter {
+
+    /**
+     * Phương thức nén DEFLATE
+     */
+    public static final int METHOD_DEFLATED = 8;
+
+    /**
+     * Phương thức lưu không nén (STORED)
+     */
+    public static final int METHOD_STORED = 0;
+
+    private static final long LOCAL_HEADER_SIG = 0x04034b50L;
+    private static final long DATA_DESCRIPTOR_SIG = 0x08074b50L;
+    private static final long CENTRAL_HEADER_SIG = 0x02014b50L;
+    private static final long ZIP64_END_SIG = 0x06064b50L;
+    private static final long ZIP64_LOCATOR_SIG = 0x07064b50L;
+    private static final long END_SIG = 0x06054b50L;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+    private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+    /**
+     * File lớn hơn ngưỡng này được ghi ở dạng ZIP64 ngay từ local header
+     * (chừa khoảng dư vì dữ liệu nén có thể lớn hơn dữ liệu gốc một chút)
+     */
+    private static final long ZIP64_ENTRY_THRESHOLD = 0xF0000000L;
+
+    /**
+     * Thông tin của một mục, dùng để ghi central directory khi kết thúc
+     */
+    private static class CentralEntry {
+        byte[] name;
+        int method;
+        int flags;
+        long dosTime;
+        long crc;
+        long compressedSize;
+        long size;
+        long offset;
+        boolean zip64;
+        boolean directory;
+    }
+
+    private final OutputStream out;
+
+    private final List<CentralEntry> entries = new ArrayList<>();
+
+    private CentralEntry current;
+
+    private long written;
+
+    private boolean finished;
+
+    /**
+     * @param out OutputStream đích (nên có bộ đệm); không bị đóng khi kết thúc
+     */
+    public ZipArchiveWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Ghi một mục thư mục
+     * 
+     * @param name Đường dẫn thư mục trong zip (kết thúc bằng "/")
+     * @param lastModified Thời điểm sửa đổi (có thể null)
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void writeDirectory(String name, LocalDateTime lastModified) throws IOException {
+        ensureOpen();
+        CentralEntry entry = new CentralEntry();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.method = METHOD_STORED;
+        entry.flags = FLAG_UTF8;
+        entry.dosTime = toDosTime(lastModified);
+        entry.offset = written;
+        entry.directory = true;
+
+        writeLocalHeader(entry, 0, 0, 0);
+        entries.add(entry);
+    }
+
+    /**
+     * Bắt đầu một mục file; dữ liệu được ghi tiếp bằng writeData và kết thúc bằng closeEntry
+     * CRC và kích thước được ghi sau dữ liệu trong data descriptor
+     * 
+     * @param name Đường dẫn file trong zip
+     * @param lastModified Thời điểm sửa đổi (có thể null)
+     * @param method METHOD_DEFLATED hoặc METHOD_STORED
+     * @param expectedSize Kích thước dữ liệu gốc dự kiến, dùng để quyết định ghi dạng ZIP64
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void putEntry(String name, LocalDateTime lastModified, int method, long expectedSize) throws IOException {
+        ensureOpen();
+        if (current != null) {
+            throw new IllegalStateException("Previous entry is not closed");
+        }
+        CentralEntry entry = new CentralEntry();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.method = method;
+        entry.flags = FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+        entry.dosTime = toDosTime(lastModified);
+        entry.offset = written;
+        entry.zip64 = expectedSize >= ZIP64_ENTRY_THRESHOLD;
+
+        writeLocalHeader(entry, 0, 0, 0);
+        current = entry;
+    }
+
+    /**
+     * Bắt đầu một mục STORED đã biết trước CRC và kích thước
+     * CRC và kích thước được ghi ngay trong local header, không dùng data descriptor
+     * (một số trình đọc, ví dụ ZipInputStream, không chấp nhận mục STORED có data descriptor).
+     * Dữ liệu gốc được ghi tiếp bằng writeData và kết thúc bằng closeEntry với đúng các giá trị này.
+     * 
+     * @param name Đường dẫn file trong zip
+     * @param lastModified Thời điểm sửa đổi (có thể null)
+     * @param crc CRC-32 của dữ liệu
+     * @param size Kích thước dữ liệu
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void putStoredEntry(String name, LocalDateTime lastModified, long crc, long size) throws IOException {
+        ensureOpen();
+        if (current != null) {
+            throw new IllegalStateException("Previous entry is not closed");
+        }
+        CentralEntry entry = new CentralEntry();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.method = METHOD_STORED;
+        entry.flags = FLAG_UTF8;
+        entry.dosTime = toDosTime(lastModified);
+        entry.offset = written;
+        entry.zip64 = size >= ZIP64_MAGIC;
+        entry.crc = crc;
+        entry.compressedSize = size;
+        entry.size = size;
+
+        writeLocalHeader(entry, crc, size, size);
+        current = entry;
+    }
+
+    /**
+     * Ghi dữ liệu (đã nén theo phương thức của mục) của mục hiện tại
+     * 
+     * @param data Mảng dữ liệu
+     * @param off Vị trí bắt đầu
+     * @param len Số bytes
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void writeData(byte[] data, int off, int len) throws IOException {
+        if (current == null) {
+            throw new IllegalStateException("No entry is open");
+        }
+        out.write(data, off, len);
+        written += len;
+    }
+
+    /**
+     * Kết thúc mục hiện tại và ghi data descriptor
+     * Với mục bắt đầu bằng putStoredEntry, chỉ kiểm tra giá trị khớp với local header
+     * 
+     * @param crc CRC-32 của dữ liệu gốc
+     * @param compressedSize Kích thước dữ liệu đã ghi
+     * @param size Kích thước dữ liệu gốc
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void closeEntry(long crc, long compressedSize, long size) throws IOException {
+        if (current == null) {
+            throw new IllegalStateException("No entry is open");
+        }
+        if (!current.zip64 && (compressedSize >= ZIP64_MAGIC || size >= ZIP64_MAGIC)) {
+            throw new IOException("Entry grew beyond 4 GB without ZIP64 header");
+        }
+        if ((current.flags & FLAG_DATA_DESCRIPTOR) == 0) {
+            // Values were written up front - the data must match them exactly
+            if (current.crc != crc || current.compressedSize != compressedSize || current.size != size) {
+                throw new IOException("File changed while archiving: "
+                        + new String(current.name, StandardCharsets.UTF_8));
+            }
+            entries.add(current);
+            current = null;
+            return;
+        }
+        current.crc = crc;
+        current.compressedSize = compressedSize;
+        current.size = size;
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(24);
+        writeInt(buf, DATA_DESCRIPTOR_SIG);
+        writeInt(buf, crc);
+        if (current.zip64) {
+            writeLong(buf, compressedSize);
+            writeLong(buf, size);
+        } else {
+            writeInt(buf, compressedSize);
+            writeInt(buf, size);
+        }
+        writeRaw(buf);
+
+        entries.add(current);
+        current = null;
+    }
+
+    /**
+     * Ghi central directory và phần kết thúc của file zip
+     * OutputStream đích được flush nhưng không bị đóng
+     * 
+     * @throws IOException nếu có lỗi khi ghi
+     */
+    public void finish() throws IOException {
+        ensureOpen();
+        if (current != null) {
+            throw new IllegalStateException("Last entry is not closed");
+        }
+
+        long centralOffset = written;
+        for (CentralEntry entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long centralSize = written - centralOffset;
+        int count = entries.size();
+
+        boolean zip64End = count >= ZIP64_MAGIC_SHORT || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(98);
+        if (zip64End) {
+            long zip64EndOffset = written;
+            writeInt(buf, ZIP64_END_SIG);
+            writeLong(buf, 44);
+            writeShort(buf, VERSION_ZIP64);
+            writeShort(buf, VERSION_ZIP64);
+            writeInt(buf, 0);
+            writeInt(buf, 0);
+            writeLong(buf, count);
+            writeLong(buf, count);
+            writeLong(buf, centralSize);
+            writeLong(buf, centralOffset);
+
+            writeInt(buf, ZIP64_LOCATOR_SIG);
+            writeInt(buf, 0);
+            writeLong(buf, zip64EndOffset);
+            writeInt(buf, 1);
+        }
+
+        writeInt(buf, END_SIG);
+        writeShort(buf, 0);
+        writeShort(buf, 0);
+        writeShort(buf, Math.min(count, ZIP64_MAGIC_SHORT));
+        writeShort(buf, Math.min(count, ZIP64_MAGIC_SHORT));
+        writeInt(buf, Math.min(centralSize, ZIP64_MAGIC));
+        writeInt(buf, Math.min(centralOffset, ZIP64_MAGIC));
+        writeShort(buf, 0);
+        writeRaw(buf);
+
+        out.flush();
+        finished = true;
+    }
+
+    /**
+     * Lấy tổng số bytes đã ghi
+     * 
+     * @return Số bytes đã ghi
+     */
+    public long getBytesWritten() {
+        return written;
+    }
+
+    private void writeLocalHeader(CentralEntry entry, long crc, long compressedSize, long size) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(30 + entry.name.length + 20);
+        writeInt(buf, LOCAL_HEADER_SIG);
+        writeShort(buf, entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        writeShort(buf, entry.flags);
+        writeShort(buf, entry.method);
+        writeInt(buf, entry.dosTime);
+        writeInt(buf, crc);
+        writeInt(buf, entry.zip64 ? ZIP64_MAGIC : compressedSize);
+        writeInt(buf, entry.zip64 ? ZIP64_MAGIC : size);
+        writeShort(buf, entry.name.length);
+        writeShort(buf, entry.zip64 ? 20 : 0);
+        buf.write(entry.name);
+        if (entry.zip64) {
+            // Zero when the real sizes follow in the data descriptor
+            writeShort(buf, ZIP64_EXTRA_ID);
+            writeShort(buf, 16);
+            writeLong(buf, size);
+            writeLong(buf, compressedSize);
+        }
+        writeRaw(buf);
+    }
+
+    private void writeCentralHeader(CentralEntry entry) throws IOException {
+        boolean sizeOverflow = entry.size >= ZIP64_MAGIC;
+        boolean compressedOverflow = entry.compressedSize >= ZIP64_MAGIC;
+        boolean offsetOverflow = entry.offset >= ZIP64_MAGIC;
+        int extraLength = (sizeOverflow ? 8 : 0) + (compressedOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+        boolean zip64 = entry.zip64 || extraLength > 0;
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(46 + entry.name.length + 28);
+        writeInt(buf, CENTRAL_HEADER_SIG);
+        writeShort(buf, VERSION_ZIP64);
+        writeShort(buf, zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        writeShort(buf, entry.flags);
+        writeShort(buf, entry.method);
+        writeInt(buf, entry.dosTime);
+        writeInt(buf, entry.crc);
+        writeInt(buf, compressedOverflow ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(buf, sizeOverflow ? ZIP64_MAGIC : entry.size);
+        writeShort(buf, entry.name.length);
+        writeShort(buf, extraLength > 0 ? extraLength + 4 : 0);
+        writeShort(buf, 0);
+        writeShort(buf, 0);
+        writeShort(buf, 0);
+        writeInt(buf, entry.directory ? DIRECTORY_ATTRIBUTE : 0);
+        writeInt(buf, offsetOverflow ? ZIP64_MAGIC : entry.offset);
+        buf.write(entry.name);
+        if (extraLength > 0) {
+            // Only the overflowing fields are present, in this fixed order
+            writeShort(buf, ZIP64_EXTRA_ID);
+            writeShort(buf, extraLength);
+            if (sizeOverflow) {
+                writeLong(buf, entry.size);
+            }
+            if (compressedOverflow) {
+                writeLong(buf, entry.compressedSize);
+            }
+            if (offsetOverflow) {
+                writeLong(buf, entry.offset);
+            }
+        }
+        writeRaw(buf);
+    }
+
+    private void writeRaw(ByteArrayOutputStream buf) throws IOException {
+        buf.writeTo(out);
+        written += buf.size();
+    }
+
+    private void ensureOpen() {
+        if (finished) {
+            throw new IllegalStateException("Archive is already finished");
+        }
+    }
+
+    /**
+     * Chuyển thời gian sang định dạng MS-DOS (ngày ở 16 bit cao, giờ ở 16 bit thấp)
+     */
+    private static long toDosTime(LocalDateTime time) {
+        if (time == null) {
+            time = LocalDateTime.now();
+        }
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        long date = ((long) (time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+        long clock = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+        return (date << 16) | clock;
+    }
+
+    private static void writeShort(ByteArrayOutputStream buf, int v) {
+        buf.write(v & 0xff);
+        buf.write((v >>> 8) & 0xff);
+    }
+
+    private static void writeInt(ByteArrayOutputStream buf, long v) {
+        buf.write((int) (v & 0xff));
+        buf.write((int) ((v >>> 8) & 0xff));
+        buf.write((int) ((v >>> 16) & 0xff));
+        buf.write((int) ((v >>> 24) & 0xff));
+    }
+
+    private static void writeLong(ByteArrayOutputStream buf, long v) {
+        writeInt(buf, v & 0xFFFFFFFFL);
+        writeInt(buf, v >>> 32);
+    }
+}
@@ -1,5 +1,6 @@
 package vn.fpt.assignment_datpd11.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -11,7 +12,9 @@ import java.util.concurrent.Executor;
  * Cấu hình cho xử lý bất đồng bộ (async processing)
  * 
  * Cung cấp thread pool để xử lý các tác vụ bất đồng bộ như:
- * - Tạo file zip cho download thư mục
+ * - Nén song song các khối dữ liệu của file zip (zipExecutor)
+ * - Chạy các job tạo file zip thư mục (downloadExecutor)
+ * - Xóa file vật lý khi dọn thùng rác (purgeExecutor)
  * - Các tác vụ nặng khác
  */
 @Configuration
@@ -38,5 +41,65 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
 
+    /**
+     * Bean thread pool dùng để nén song song các khối dữ liệu khi tạo file zip
+     * 
+     * Cấu hình:
+     * - Số thread: download.zip.threads (mặc định bằng số CPU)
+     * - Hàng đợi không giới hạn: mỗi archive tự giới hạn số khối đang xử lý
+     * 
+     * @param threads Số thread nén (0 hoặc âm để dùng số CPU)
+     * @return AsyncTaskExecutor dùng cho việc nén
+     */
+    @Bean(name = "zipExecutor")
+    public ThreadPoolTaskExecutor zipExecutor(@Value("${download.zip.threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("zip-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bean thread pool chạy các job tạo file zip thư mục (DownloadJobScheduler)
+     * 
+     * Hàng đợi thực sự nằm trong database (DownloadRequest PENDING); scheduler chỉ gửi job
+     * khi còn slot trống nên pool chỉ cần đủ thread cho số job chạy cùng lúc
+     * 
+     * @param maxConcurrentJobs Số job tạo zip tối đa chạy cùng lúc
+     * @return AsyncTaskExecutor dùng cho các job tạo zip
+     */
+    @Bean(name = "downloadExecutor")
+    public ThreadPoolTaskExecutor downloadExecutor(
+            @Value("${download.scheduler.max-concurrent-jobs:4}") int maxConcurrentJobs) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(maxConcurrentJobs);
+        executor.setThreadNamePrefix("download-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bean thread pool xóa song song các file vật lý khi dọn thùng rác (FileCleanupTask)
+     * 
+     * Xóa file chủ yếu chờ I/O (đĩa hoặc request tới S3) nên số thread có thể lớn hơn số CPU.
+     * Hàng đợi không giới hạn: tác vụ dọn dẹp tự giới hạn số file đang chờ xóa.
+     * 
+     * @param threads Số thread xóa file
+     * @return AsyncTaskExecutor dùng cho việc xóa file
+     */
+    @Bean(name = "purgeExecutor")
+    public ThreadPoolTaskExecutor purgeExecutor(@Value("${file.cleanup.purge.delete-threads:8}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("purge-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,60 @@
+package vn.fpt.assignment_datpd11.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.entity.IdGenerators;
+
+import java.util.List;
+
+/**
+ * Đồng bộ bảng cấp phát ID với dữ liệu hiện có khi ứng dụng khởi động
+ * 
+ * Các bảng được chuyển từ ID tự động tăng sang cấp phát theo bảng (IdGenerators) có thể
+ * đã chứa dữ liệu; giá trị tiếp theo của mỗi bộ sinh ID được nâng lên trên ID lớn nhất
+ * hiện có để ID mới không bao giờ trùng. Giá trị chỉ tăng, không bao giờ giảm.
+ */
+@Component
+public class IdGeneratorInitializer {
+
+    /**
+     * Các bảng dùng bộ sinh ID theo bảng (tên bảng cũng là tên bộ sinh ID)
+     */
+    private static final List<String> TABLES = List.of("file_items", "file_permissions");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chỉ để bảo đảm Hibernate đã tạo/cập nhật schema trước khi đồng bộ
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Nâng giá trị tiếp theo của từng bộ sinh ID lên trên ID lớn nhất hiện có
+     */
+    @PostConstruct
+    public void init() {
+        for (String table : TABLES) {
+            // The pooled optimizer hands out (next_val - allocationSize, next_val], so stay a full block ahead
+            Long floor = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(id), 0) + ? + 1 FROM " + table,
+                    Long.class, IdGenerators.ALLOCATION_SIZE);
+
+            int updated = jdbcTemplate.update(
+                    "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN
+                            + " = GREATEST(" + IdGenerators.VALUE_COLUMN + ", ?) WHERE "
+                            + IdGenerators.NAME_COLUMN + " = ?",
+                    floor, table);
+            if (updated == 0) {
+                jdbcTemplate.update(
+                        "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", "
+                                + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)",
+                        table, floor);
+            }
+        }
+    }
+}
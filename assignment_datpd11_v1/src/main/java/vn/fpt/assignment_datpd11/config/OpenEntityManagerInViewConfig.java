@@ -0,0 +1,40 @@
+package vn.fpt.assignment_datpd11.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Cấu hình Open EntityManager in View cho các request web
+ * 
+ * Thay cho cấu hình mặc định của Spring Boot (spring.jpa.open-in-view=false) để loại trừ
+ * các endpoint upload nội dung thô và upload theo từng phần: EntityManager mở suốt request
+ * sẽ giữ kết nối database từ lần truy vấn đầu tiên cho tới khi đọc xong body hoặc ghép xong
+ * file, có thể mất nhiều phút với file lớn.
+ */
+@Configuration
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    /**
+     * Các endpoint đọc body dạng luồng hoặc ghép file lớn, không dùng chung EntityManager của request
+     */
+    private static final String[] STREAMING_UPLOAD_PATHS = {"/api/v1/files/content", "/api/v1/files/uploads/**"};
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Đăng ký interceptor mở EntityManager cho mỗi request (trừ các endpoint upload dạng luồng)
+     * 
+     * @param registry InterceptorRegistry để đăng ký interceptor
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns(STREAMING_UPLOAD_PATHS);
+    }
+}
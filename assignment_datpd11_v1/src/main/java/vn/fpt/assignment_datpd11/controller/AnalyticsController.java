@@ -6,10 +6,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import vn.fpt.assignment_datpd11.dto.response.ApiResponse;
+import vn.fpt.assignment_datpd11.dto.response.MimeUsageResponse;
 import vn.fpt.assignment_datpd11.dto.response.UsageStatsResponse;
-import vn.fpt.assignment_datpd11.repository.UserRepository;
+import vn.fpt.assignment_datpd11.security.UserPrincipal;
 import vn.fpt.assignment_datpd11.service.AnalyticsService;
 
+import java.util.List;
+
 /**
  * Controller xử lý các request liên quan đến thống kê và phân tích
  * 
@@ -23,9 +26,6 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     /**
      * Lấy ID của người dùng từ Authentication object
      * 
@@ -33,10 +33,7 @@ public class AnalyticsController {
      * @return ID của người dùng
      */
     private Long getUserId(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"))
-                .getId();
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
     }
 
     /**
@@ -62,5 +59,23 @@ public class AnalyticsController {
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
-}
 
+    /**
+     * Lấy mức sử dụng storage của người dùng theo từng loại MIME
+     * 
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa danh sách mức sử dụng theo loại MIME
+     */
+    @GetMapping("/usage/by-mime")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<List<MimeUsageResponse>>> getUsageByMimeType(Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            List<MimeUsageResponse> usage = analyticsService.getUsageByMimeType(userId);
+            return ResponseEntity.ok(ApiResponse.success(usage));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -11,11 +11,14 @@ import vn.fpt.assignment_datpd11.entity.User;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
 import vn.fpt.assignment_datpd11.repository.FilePermissionRepository;
 import vn.fpt.assignment_datpd11.repository.UserRepository;
+import vn.fpt.assignment_datpd11.service.UsageService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Controller dùng cho mục đích debug và testing
@@ -41,6 +44,9 @@ public class DebugController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UsageService usageService;
+
     /**
      * Tạo dữ liệu mẫu cho hệ thống (dùng cho testing)
      * 
@@ -63,12 +69,15 @@ public class DebugController {
                         .password(passwordEncoder.encode("password123"))
                         .fullName("User " + i)
                         .build();
-                users.add(userRepository.save(user));
+                users.add(user);
             }
+            users = userRepository.saveAll(users);
 
             // Each user creates ~1000 files (total ~10,000 files)
             // Structure: 1 root folder + 10 subfolders + 100 files per subfolder = 1 + 10 + 1000 = 1011 items per user
             // Total: 10 users * 1011 = 10,110 items (close to 10,000)
+            // Ids are assigned on persist (table generator), so children can take their parent's path
+            // right away and every level is written with batched inserts
             Random random = new Random();
             List<FileItem> allFiles = new ArrayList<>();
 
@@ -77,62 +86,77 @@ public class DebugController {
                 FileItem rootFolder = FileItem.builder()
                         .name("Root_" + user.getEmail())
                         .type(FileItem.FileType.FOLDER)
+                        .path("/")
                         .owner(user)
                         .isDeleted(false)
                         .build();
                 rootFolder = fileItemRepository.save(rootFolder);
                 allFiles.add(rootFolder);
 
-                // Create subfolders and files
+                // Create subfolders
+                List<FileItem> subFolders = new ArrayList<>();
                 for (int i = 0; i < 10; i++) {
-                    FileItem subFolder = FileItem.builder()
+                    subFolders.add(FileItem.builder()
                             .name("Folder_" + i)
                             .type(FileItem.FileType.FOLDER)
                             .parent(rootFolder)
+                            .path(rootFolder.childPath())
                             .owner(user)
                             .isDeleted(false)
-                            .build();
-                    subFolder = fileItemRepository.save(subFolder);
-                    allFiles.add(subFolder);
+                            .build());
+                }
+                subFolders = fileItemRepository.saveAll(subFolders);
+                allFiles.addAll(subFolders);
 
-                    // Create files in each subfolder (100 files per subfolder)
+                // Create files in each subfolder (100 files per subfolder)
+                List<FileItem> files = new ArrayList<>();
+                for (int i = 0; i < subFolders.size(); i++) {
+                    FileItem subFolder = subFolders.get(i);
                     for (int j = 0; j < 100; j++) {
-                        FileItem file = FileItem.builder()
+                        files.add(FileItem.builder()
                                 .name("file_" + i + "_" + j + ".txt")
                                 .type(FileItem.FileType.FILE)
                                 .parent(subFolder)
+                                .path(subFolder.childPath())
                                 .owner(user)
                                 .fileSize((long) (random.nextInt(1000000) + 1000))
                                 .mimeType("text/plain")
                                 .filePath("/mock/path/" + user.getId() + "/file_" + i + "_" + j + ".txt")
                                 .isDeleted(false)
-                                .build();
-                        file = fileItemRepository.save(file);
-                        allFiles.add(file);
+                                .build());
                     }
                 }
+                allFiles.addAll(fileItemRepository.saveAll(files));
+            }
+
+            // Rebuild usage summaries from the generated rows
+            for (User user : users) {
+                usageService.recompute(user.getId());
             }
 
-            // Share 10% of files randomly
+            // Share 10% of files randomly (at most one permission per file and user)
             int shareCount = (int) (allFiles.size() * 0.1);
+            Set<String> shared = new HashSet<>();
+            List<FilePermission> permissions = new ArrayList<>();
             for (int i = 0; i < shareCount; i++) {
                 FileItem file = allFiles.get(random.nextInt(allFiles.size()));
                 User owner = file.getOwner();
                 User targetUser = users.get(random.nextInt(users.size()));
                 
-                if (!targetUser.getId().equals(owner.getId())) {
+                if (!targetUser.getId().equals(owner.getId())
+                        && shared.add(file.getId() + ":" + targetUser.getId())) {
                     FilePermission.PermissionLevel permission = random.nextBoolean() 
                         ? FilePermission.PermissionLevel.VIEW 
                         : FilePermission.PermissionLevel.EDIT;
                     
-                    FilePermission filePermission = FilePermission.builder()
+                    permissions.add(FilePermission.builder()
                             .fileItem(file)
                             .user(targetUser)
                             .permissionLevel(permission)
-                            .build();
-                    filePermissionRepository.save(filePermission);
+                            .build());
                 }
             }
+            filePermissionRepository.saveAll(permissions);
 
             return ResponseEntity.ok(ApiResponse.success(
                 "Generated system with " + users.size() + " users and " + allFiles.size() + " files/folders (~10,000 files)"
@@ -1,9 +1,11 @@
 package vn.fpt.assignment_datpd11.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -11,18 +13,33 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import vn.fpt.assignment_datpd11.dto.request.CreateFolderRequest;
 import vn.fpt.assignment_datpd11.dto.response.ApiResponse;
+import vn.fpt.assignment_datpd11.dto.response.CursorPageResponse;
+import vn.fpt.assignment_datpd11.dto.response.DownloadQueueResponse;
 import vn.fpt.assignment_datpd11.dto.response.DownloadResponse;
 import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
 import vn.fpt.assignment_datpd11.entity.FileItem;
-import vn.fpt.assignment_datpd11.repository.UserRepository;
+import vn.fpt.assignment_datpd11.security.UserPrincipal;
+import vn.fpt.assignment_datpd11.service.AsyncDownloadService;
 import vn.fpt.assignment_datpd11.service.DownloadService;
 import vn.fpt.assignment_datpd11.service.FileService;
+import vn.fpt.assignment_datpd11.service.FileStorageService;
 import vn.fpt.assignment_datpd11.service.PermissionService;
+import vn.fpt.assignment_datpd11.service.ZeroCopyFileSender;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -31,10 +48,13 @@ import java.util.List;
  * Endpoints:
  * - POST /api/v1/files (multipart/form-data) - Upload file
  * - POST /api/v1/files (application/json) - Tạo thư mục
+ * - PUT /api/v1/files/content?name=&parentId= - Upload một file dạng nội dung thô (không qua multipart)
  * - GET /api/v1/files - Tìm kiếm file
- * - GET /api/v1/files/{id}/download - Tải xuống file/thư mục
+ * - GET /api/v1/files/{id}/download - Tải xuống file/thư mục (stream=true để zip thư mục trực tiếp)
  * - POST /api/v1/files/{id}/download - Khởi tạo tải xuống thư mục
+ * - GET /api/v1/files/downloads/queue - Số liệu hàng đợi tạo file zip
  * - GET /api/v1/files/downloads/{requestId} - Kiểm tra trạng thái tải xuống
+ * - GET /api/v1/files/downloads/{requestId}/events - Theo dõi tiến độ tải xuống (Server-Sent Events)
  * - GET /api/v1/files/downloads/{requestId}/file - Tải file zip
  * - DELETE /api/v1/files/{id} - Xóa file/thư mục
  */
@@ -52,7 +72,13 @@ public class FileController {
     private PermissionService permissionService;
 
     @Autowired
-    private UserRepository userRepository;
+    private AsyncDownloadService asyncDownloadService;
+
+    @Autowired
+    private ZeroCopyFileSender zeroCopyFileSender;
+
+    @Autowired
+    private FileStorageService fileStorageService;
 
     /**
      * Lấy ID của người dùng từ Authentication object
@@ -61,10 +87,7 @@ public class FileController {
      * @return ID của người dùng
      */
     private Long getUserId(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"))
-                .getId();
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
     }
 
     /**
@@ -91,6 +114,42 @@ public class FileController {
         }
     }
 
+    /**
+     * Upload một file với nội dung thô trong body
+     * 
+     * Body được ghi thẳng vào blob store trong lúc nhận, không qua file tạm của multipart,
+     * nên phù hợp cho file lớn. Loại MIME lấy từ header Content-Type.
+     * 
+     * @param name Tên file
+     * @param parentId ID của thư mục cha (tùy chọn)
+     * @param contentType Header Content-Type (tùy chọn)
+     * @param checksum Header X-Content-SHA256 (tùy chọn), mã băm SHA-256 dạng hex để kiểm tra nội dung
+     * @param body Nội dung file
+     * @param request HttpServletRequest (lấy Content-Length làm kích thước dự kiến)
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa thông tin file đã upload
+     */
+    @PutMapping("/content")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<FileItemResponse>> uploadContent(
+            @RequestParam("name") String name,
+            @RequestParam(value = "parentId", required = false) String parentId,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(value = "X-Content-SHA256", required = false) String checksum,
+            InputStream body,
+            HttpServletRequest request,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            FileItemResponse response = fileService.uploadContent(
+                    body, name, contentType, checksum, request.getContentLengthLong(), parentId, userId);
+            return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * Tạo thư mục mới
      * 
@@ -143,45 +202,143 @@ public class FileController {
         }
     }
 
+    /**
+     * Tìm kiếm file và thư mục có phân trang theo con trỏ
+     * 
+     * Tìm trong cả file sở hữu và file được chia sẻ; mọi điều kiện lọc được thực hiện
+     * trong database. Dùng nextCursor của trang trước làm tham số cursor để lấy trang tiếp theo.
+     * 
+     * @param q Từ khóa tìm kiếm trong tên (tùy chọn)
+     * @param type Loại: "FILE", "FOLDER" hoặc MIME type (tùy chọn)
+     * @param mimeType Loại MIME cụ thể (tùy chọn)
+     * @param parentId ID của thư mục cha (tùy chọn)
+     * @param fromSize Kích thước tối thiểu (bytes, tùy chọn)
+     * @param toSize Kích thước tối đa (bytes, tùy chọn)
+     * @param sort Trường sắp xếp: createdAt, name hoặc size (mặc định createdAt)
+     * @param direction Chiều sắp xếp: asc hoặc desc (mặc định desc)
+     * @param limit Số lượng item mỗi trang (tùy chọn)
+     * @param cursor Con trỏ của trang tiếp theo (tùy chọn)
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa một trang kết quả và con trỏ của trang tiếp theo
+     */
+    @GetMapping("/search")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileItemResponse>>> searchFilesPage(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @RequestParam(value = "parentId", required = false) String parentId,
+            @RequestParam(value = "fromSize", required = false) Long fromSize,
+            @RequestParam(value = "toSize", required = false) Long toSize,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            CursorPageResponse<FileItemResponse> page = fileService.searchFilesPage(
+                    userId, q, type, mimeType, parentId, fromSize, toSize, sort, direction, limit, cursor);
+            return ResponseEntity.ok(ApiResponse.success(page));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * Tải xuống file hoặc thư mục
      * 
-     * - Nếu là file: trả về file trực tiếp
-     * - Nếu là thư mục: khởi tạo yêu cầu tải xuống bất đồng bộ và trả về requestId
+     * - Nếu là file: trả về file trực tiếp, hỗ trợ Range (một hoặc nhiều đoạn)
+     *   và conditional GET (ETag/Last-Modified, trả về 304 nếu không thay đổi);
+     *   toàn bộ file được gửi bằng sendfile (zero-copy) khi container hỗ trợ
+     * - Nếu là thư mục và stream=true: nén và ghi file zip trực tiếp vào response
+     * - Nếu là thư mục (mặc định): khởi tạo yêu cầu tải xuống bất đồng bộ và trả về requestId
      * 
      * @param id ID của file/thư mục cần tải xuống
+     * @param stream true để tải thư mục dạng zip streaming thay vì tạo yêu cầu bất đồng bộ
+     * @param ifRange Header If-Range (tùy chọn), chỉ trả về một phần khi file chưa thay đổi
+     * @param request HTTP request (dùng để giao file cho sendfile của container)
+     * @param webRequest WebRequest (dùng để kiểm tra conditional GET trước khi dùng sendfile)
      * @param authentication Authentication object từ Spring Security
-     * @return ResponseEntity chứa file hoặc DownloadResponse với requestId
+     * @return ResponseEntity chứa file, luồng zip hoặc DownloadResponse với requestId
      */
     @GetMapping("/{id}/download")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> downloadFile(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<?> downloadFile(
+            @PathVariable Long id,
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            HttpServletRequest request,
+            WebRequest webRequest,
+            Authentication authentication) {
         try {
             Long userId = getUserId(authentication);
             FileItem fileItem = fileService.getFileItem(id);
 
-            if (!permissionService.hasAccess(userId, id, false)) {
+            if (!permissionService.hasAccess(userId, fileItem, false)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(ApiResponse.error("No permission to download this file"));
             }
 
             if (fileItem.getType() == FileItem.FileType.FILE) {
                 // Direct file download
-                File file = new File(fileItem.getFilePath());
-                if (!file.exists()) {
+                Path localPath = fileItem.getFilePath() != null
+                    ? fileStorageService.getLocalPath(fileItem.getFilePath())
+                    : null;
+                if (localPath == null) {
                     return ResponseEntity.notFound().build();
                 }
+                File file = localPath.toFile();
+                // Compressed blobs are decoded on the fly; the length is that of the original content
+                Resource resource = fileStorageService.toResource(fileItem, localPath);
 
-                Resource resource = new FileSystemResource(file);
                 String contentType = fileItem.getMimeType() != null 
                     ? fileItem.getMimeType() 
                     : "application/octet-stream";
+                String eTag = buildETag(fileItem);
+                Instant lastModified = fileItem.getUpdatedAt() != null
+                    ? fileItem.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant()
+                    : Instant.ofEpochMilli(file.lastModified());
 
-                return ResponseEntity.ok()
+                ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
                         .contentType(MediaType.parseMediaType(contentType))
                         .header(HttpHeaders.CONTENT_DISPOSITION, 
                                 "attachment; filename=\"" + fileItem.getName() + "\"")
-                        .body(resource);
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .eTag(eTag)
+                        .lastModified(lastModified)
+                        .cacheControl(CacheControl.noCache().cachePrivate());
+
+                if (!isIfRangeSatisfied(ifRange, eTag, lastModified)) {
+                    // Representation changed since the client's partial copy - send it whole
+                    StreamingResponseBody body = out -> {
+                        try (InputStream in = resource.getInputStream()) {
+                            in.transferTo(out);
+                        }
+                    };
+                    return builder.contentLength(resource.contentLength()).body(body);
+                }
+
+                if (resource instanceof FileSystemResource && zeroCopyFileSender.canSend(request, file)) {
+                    // Answer conditional GETs before the container takes over the body
+                    if (webRequest.checkNotModified(eTag, lastModified.toEpochMilli())) {
+                        return null;
+                    }
+                    return builder.contentLength(zeroCopyFileSender.prepare(request, file)).build();
+                }
+
+                // Spring answers If-None-Match/If-Modified-Since with 304 and
+                // serves single and multi-range requests (206) for Resource bodies
+                return builder.body(resource);
+            } else if (stream) {
+                // Folder download - stream zip directly to the client
+                StreamingResponseBody body = out -> asyncDownloadService.writeFolderZip(fileItem, out);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/zip"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, 
+                                "attachment; filename=\"" + fileItem.getName() + ".zip\"")
+                        .body(body);
             } else {
                 // Folder download - initiate async
                 DownloadResponse response = downloadService.initiateFolderDownload(id, userId);
@@ -219,6 +376,23 @@ public class FileController {
         }
     }
 
+    /**
+     * Lấy số liệu hàng đợi tạo file zip thư mục
+     * 
+     * @return ResponseEntity chứa DownloadQueueResponse
+     */
+    @GetMapping("/downloads/queue")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<DownloadQueueResponse>> getDownloadQueue() {
+        try {
+            DownloadQueueResponse response = downloadService.getQueueStats();
+            return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * Kiểm tra trạng thái của yêu cầu tải xuống
      * 
@@ -237,29 +411,98 @@ public class FileController {
         }
     }
 
+    /**
+     * Theo dõi tiến độ của yêu cầu tải xuống qua Server-Sent Events
+     * 
+     * Sự kiện "progress" chứa DownloadResponse với phần trăm, số bytes/mục đã xử lý và ETA;
+     * sự kiện "complete" chứa trạng thái cuối (READY kèm downloadUrl hoặc FAILED) rồi kết nối được đóng
+     * 
+     * @param requestId ID của yêu cầu tải xuống (UUID)
+     * @return ResponseEntity chứa SseEmitter gửi các sự kiện tiến độ (404 nếu yêu cầu không tồn tại)
+     */
+    @GetMapping(value = "/downloads/{requestId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SseEmitter> streamDownloadProgress(@PathVariable String requestId) {
+        try {
+            SseEmitter emitter = downloadService.subscribeProgress(requestId);
+            return ResponseEntity.ok(emitter);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Tải xuống file zip đã được tạo
+     * File được gửi bằng sendfile (zero-copy) khi container hỗ trợ và request không có Range
      * 
      * @param requestId ID của yêu cầu tải xuống (UUID)
+     * @param request HTTP request (dùng để giao file cho sendfile của container)
      * @return ResponseEntity chứa file zip
      */
     @GetMapping("/downloads/{requestId}/file")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Resource> downloadZipFile(@PathVariable String requestId) {
+    public ResponseEntity<Resource> downloadZipFile(@PathVariable String requestId, HttpServletRequest request) {
         try {
             File zipFile = downloadService.getDownloadFile(requestId);
-            Resource resource = new FileSystemResource(zipFile);
 
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
                     .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + zipFile.getName() + "\"")
-                    .body(resource);
+                            "attachment; filename=\"" + downloadService.getDownloadFileName(requestId) + "\"");
+            if (zeroCopyFileSender.canSend(request, zipFile)) {
+                return builder.contentLength(zeroCopyFileSender.prepare(request, zipFile)).build();
+            }
+            return builder.body(new FileSystemResource(zipFile));
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Tạo ETag cho file
+     * 
+     * - File lưu qua blob store: dùng mã băm nội dung (ETag mạnh)
+     * - File lưu theo cách cũ: kết hợp ID, kích thước và thời điểm cập nhật
+     * 
+     * @param fileItem File cần tạo ETag
+     * @return ETag đã được đặt trong dấu ngoặc kép
+     */
+    private String buildETag(FileItem fileItem) {
+        if (fileItem.getContentHash() != null) {
+            return "\"" + fileItem.getContentHash() + "\"";
+        }
+        long updated = fileItem.getUpdatedAt() != null
+            ? fileItem.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+            : 0L;
+        return "\"" + fileItem.getId() + "-" + fileItem.getFileSize() + "-" + updated + "\"";
+    }
+
+    /**
+     * Kiểm tra điều kiện If-Range
+     * 
+     * Range chỉ được áp dụng khi If-Range khớp chính xác với ETag (so sánh mạnh)
+     * hoặc với thời điểm Last-Modified hiện tại
+     * 
+     * @param ifRange Giá trị header If-Range (có thể null)
+     * @param eTag ETag hiện tại của file
+     * @param lastModified Thời điểm cập nhật hiện tại của file
+     * @return true nếu không có If-Range hoặc điều kiện thỏa mãn
+     */
+    private boolean isIfRangeSatisfied(String ifRange, String eTag, Instant lastModified) {
+        if (ifRange == null || ifRange.isEmpty()) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return date.toEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
     /**
      * Xóa file hoặc thư mục (soft delete)
      * 
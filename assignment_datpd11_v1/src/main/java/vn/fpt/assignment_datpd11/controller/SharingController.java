@@ -9,7 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import vn.fpt.assignment_datpd11.dto.request.ShareRequest;
 import vn.fpt.assignment_datpd11.dto.response.ApiResponse;
 import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
-import vn.fpt.assignment_datpd11.repository.UserRepository;
+import vn.fpt.assignment_datpd11.security.UserPrincipal;
 import vn.fpt.assignment_datpd11.service.SharingService;
 
 import java.util.List;
@@ -28,9 +28,6 @@ public class SharingController {
     @Autowired
     private SharingService sharingService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     /**
      * Lấy ID của người dùng từ Authentication object
      * 
@@ -38,10 +35,7 @@ public class SharingController {
      * @return ID của người dùng
      */
     private Long getUserId(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"))
-                .getId();
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
     }
 
     /**
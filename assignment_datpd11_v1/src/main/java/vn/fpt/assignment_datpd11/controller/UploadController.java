@@ -0,0 +1,161 @@
+package vn.fpt.assignment_datpd11.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import vn.fpt.assignment_datpd11.dto.request.CreateUploadSessionRequest;
+import vn.fpt.assignment_datpd11.dto.response.ApiResponse;
+import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
+import vn.fpt.assignment_datpd11.dto.response.UploadSessionResponse;
+import vn.fpt.assignment_datpd11.security.UserPrincipal;
+import vn.fpt.assignment_datpd11.service.UploadSessionService;
+
+import java.io.InputStream;
+
+/**
+ * Controller xử lý các request upload file lớn theo từng phần
+ * 
+ * Endpoints:
+ * - POST /api/v1/files/uploads - Tạo phiên upload
+ * - PUT /api/v1/files/uploads/{sessionId}/chunks/{index} - Upload một phần (raw body)
+ * - GET /api/v1/files/uploads/{sessionId} - Kiểm tra các phần đã nhận
+ * - POST /api/v1/files/uploads/{sessionId}/commit - Ghép các phần và tạo file
+ * - DELETE /api/v1/files/uploads/{sessionId} - Hủy phiên upload
+ */
+@RestController
+@RequestMapping("/api/v1/files/uploads")
+public class UploadController {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    /**
+     * Lấy ID của người dùng từ Authentication object
+     * 
+     * @param authentication Authentication object từ Spring Security
+     * @return ID của người dùng
+     */
+    private Long getUserId(Authentication authentication) {
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+
+    /**
+     * Tạo phiên upload mới
+     * 
+     * @param request Thông tin file cần upload
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa sessionId, kích thước mỗi phần và tổng số phần
+     */
+    @PostMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createSession(
+            @Valid @RequestBody CreateUploadSessionRequest request,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            UploadSessionResponse response = uploadSessionService.createSession(request, userId);
+            return ResponseEntity.ok(ApiResponse.success("Upload session created successfully", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload một phần của file
+     * 
+     * Nội dung phần được gửi trực tiếp trong body (application/octet-stream)
+     * Các phần có thể được gửi theo thứ tự bất kỳ hoặc song song
+     * 
+     * @param sessionId ID của phiên upload
+     * @param index Số thứ tự của phần (bắt đầu từ 0)
+     * @param body Nội dung của phần
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa thông báo thành công
+     */
+    @PutMapping("/{sessionId}/chunks/{index}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<Void>> uploadChunk(
+            @PathVariable String sessionId,
+            @PathVariable int index,
+            InputStream body,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            uploadSessionService.uploadChunk(sessionId, index, body, userId);
+            return ResponseEntity.ok(ApiResponse.success("Chunk uploaded successfully", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Lấy trạng thái phiên upload và danh sách các phần đã nhận
+     * 
+     * @param sessionId ID của phiên upload
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa thông tin phiên upload
+     */
+    @GetMapping("/{sessionId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getSession(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            UploadSessionResponse response = uploadSessionService.getSession(sessionId, userId);
+            return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Commit phiên upload: ghép các phần thành file hoàn chỉnh và tạo FileItem
+     * 
+     * @param sessionId ID của phiên upload
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa thông tin file đã tạo
+     */
+    @PostMapping("/{sessionId}/commit")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<FileItemResponse>> commitSession(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            FileItemResponse response = uploadSessionService.commitSession(sessionId, userId);
+            return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Hủy phiên upload và xóa các phần đã nhận
+     * 
+     * @param sessionId ID của phiên upload
+     * @param authentication Authentication object từ Spring Security
+     * @return ResponseEntity chứa thông báo thành công
+     */
+    @DeleteMapping("/{sessionId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<Void>> abortSession(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            Long userId = getUserId(authentication);
+            uploadSessionService.abortSession(sessionId, userId);
+            return ResponseEntity.ok(ApiResponse.success("Upload session aborted", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package vn.fpt.assignment_datpd11.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * DTO chứa thông tin yêu cầu tạo phiên upload theo từng phần
+ * 
+ * Được sử dụng trong endpoint POST /api/v1/files/uploads
+ */
+@Data
+public class CreateUploadSessionRequest {
+    /**
+     * Tên file sẽ được tạo sau khi commit (bắt buộc)
+     */
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    /**
+     * Tổng kích thước file tính bằng bytes (bắt buộc)
+     */
+    @NotNull(message = "Total size is required")
+    @PositiveOrZero(message = "Total size must not be negative")
+    private Long totalSize;
+
+    /**
+     * Loại MIME của file (tùy chọn)
+     */
+    private String mimeType;
+
+    /**
+     * ID của thư mục cha (tùy chọn)
+     * Nếu null hoặc rỗng, file sẽ được tạo ở root
+     */
+    private String parentId;
+
+    /**
+     * Kích thước mỗi phần tính bằng bytes (tùy chọn)
+     * Nếu không có, sử dụng giá trị mặc định của server
+     */
+    @Positive(message = "Chunk size must be positive")
+    private Long chunkSize;
+}
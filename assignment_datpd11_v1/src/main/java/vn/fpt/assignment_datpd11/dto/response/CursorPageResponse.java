@@ -0,0 +1,42 @@
+package vn.fpt.assignment_datpd11.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO chứa một trang kết quả phân trang theo con trỏ (keyset pagination)
+ * 
+ * Để lấy trang tiếp theo, client gửi lại giá trị nextCursor trong tham số cursor
+ * 
+ * @param <T> Kiểu dữ liệu của các phần tử trong trang
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+    /**
+     * Danh sách phần tử của trang hiện tại
+     */
+    private List<T> items;
+
+    /**
+     * Con trỏ để lấy trang tiếp theo
+     * null nếu không còn trang nào
+     */
+    private String nextCursor;
+
+    /**
+     * Cờ cho biết còn trang tiếp theo hay không
+     */
+    private boolean hasMore;
+
+    /**
+     * Số lượng phần tử tối đa của mỗi trang
+     */
+    private int limit;
+}
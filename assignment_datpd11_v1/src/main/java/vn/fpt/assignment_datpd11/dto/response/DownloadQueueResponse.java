@@ -0,0 +1,67 @@
+package vn.fpt.assignment_datpd11.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO chứa số liệu hàng đợi tạo file zip thư mục
+ * 
+ * Được sử dụng trong endpoint GET /api/v1/files/downloads/queue
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DownloadQueueResponse {
+    /**
+     * Số yêu cầu đang chờ (PENDING)
+     */
+    private Long pendingRequests;
+
+    /**
+     * Số job đang chờ (số khóa archive khác nhau trong các yêu cầu PENDING)
+     */
+    private Long pendingJobs;
+
+    /**
+     * Số yêu cầu đang được xử lý (PROCESSING)
+     */
+    private Long processingRequests;
+
+    /**
+     * Thời gian chờ của yêu cầu cũ nhất trong hàng đợi (giây)
+     */
+    private Long oldestPendingSeconds;
+
+    /**
+     * Số job đang chạy trên instance này
+     */
+    private Integer runningJobs;
+
+    /**
+     * Số job lớn đang chạy (vượt ngưỡng job nhỏ)
+     */
+    private Integer runningLargeJobs;
+
+    /**
+     * Tổng kích thước ước lượng của các job đang chạy (bytes)
+     */
+    private Long runningBytes;
+
+    /**
+     * Số người dùng đang có job chạy
+     */
+    private Integer activeUsers;
+
+    /**
+     * Số job tối đa chạy cùng lúc
+     */
+    private Integer maxConcurrentJobs;
+
+    /**
+     * Số job tối đa của một người dùng chạy cùng lúc
+     */
+    private Integer perUserLimit;
+}
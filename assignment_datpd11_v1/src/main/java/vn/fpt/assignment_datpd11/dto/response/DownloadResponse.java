@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
  * Được sử dụng trong các endpoint:
  * - POST /api/v1/files/{id}/download (khởi tạo tải xuống)
  * - GET /api/v1/files/downloads/{requestId} (kiểm tra trạng thái)
+ * - GET /api/v1/files/downloads/{requestId}/events (dữ liệu của các sự kiện SSE)
  */
 @Data
 @NoArgsConstructor
@@ -38,5 +39,34 @@ public class DownloadResponse {
      * Thông báo lỗi (chỉ có khi status = FAILED)
      */
     private String errorMessage;
-}
 
+    /**
+     * Số bytes dữ liệu đã ghi vào file zip (chỉ có khi status = PROCESSING)
+     */
+    private Long bytesProcessed;
+
+    /**
+     * Tổng số bytes dữ liệu cần ghi (chỉ có khi status = PROCESSING)
+     */
+    private Long totalBytes;
+
+    /**
+     * Số file/thư mục đã ghi vào file zip (chỉ có khi status = PROCESSING)
+     */
+    private Integer entriesProcessed;
+
+    /**
+     * Tổng số file/thư mục cần ghi (chỉ có khi status = PROCESSING)
+     */
+    private Integer totalEntries;
+
+    /**
+     * Phần trăm hoàn thành (0-100)
+     */
+    private Integer percent;
+
+    /**
+     * Thời gian còn lại ước tính (giây), dựa trên tốc độ xử lý từ lúc bắt đầu
+     */
+    private Long etaSeconds;
+}
@@ -0,0 +1,37 @@
+package vn.fpt.assignment_datpd11.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO chứa mức sử dụng storage của người dùng cho một loại MIME
+ * 
+ * Được sử dụng trong endpoint GET /api/v1/analytics/usage/by-mime
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MimeUsageResponse {
+    /**
+     * Loại MIME ("unknown" nếu file không có thông tin MIME)
+     */
+    private String mimeType;
+
+    /**
+     * Số lượng file thuộc loại MIME này
+     */
+    private Long fileCount;
+
+    /**
+     * Tổng dung lượng tính bằng bytes
+     */
+    private Long totalSize;
+
+    /**
+     * Tổng dung lượng đã được định dạng (ví dụ: "1.5 GB", "500 MB")
+     */
+    private String totalSizeFormatted;
+}
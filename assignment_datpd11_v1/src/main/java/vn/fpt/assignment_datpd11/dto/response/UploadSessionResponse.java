@@ -0,0 +1,56 @@
+package vn.fpt.assignment_datpd11.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO chứa thông tin về phiên upload theo từng phần
+ * 
+ * Được sử dụng trong các endpoint:
+ * - POST /api/v1/files/uploads (tạo phiên upload)
+ * - GET /api/v1/files/uploads/{sessionId} (kiểm tra các phần đã nhận để tiếp tục upload)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    /**
+     * ID duy nhất của phiên upload (UUID)
+     */
+    private String sessionId;
+
+    /**
+     * Tên file sẽ được tạo
+     */
+    private String fileName;
+
+    /**
+     * Tổng kích thước file tính bằng bytes
+     */
+    private Long totalSize;
+
+    /**
+     * Kích thước mỗi phần tính bằng bytes
+     */
+    private Long chunkSize;
+
+    /**
+     * Tổng số phần cần upload
+     */
+    private Integer totalChunks;
+
+    /**
+     * Danh sách số thứ tự các phần đã nhận (bắt đầu từ 0)
+     */
+    private List<Integer> receivedChunks;
+
+    /**
+     * Trạng thái của phiên upload: ACTIVE, COMMITTED, ABORTED
+     */
+    private String status;
+}
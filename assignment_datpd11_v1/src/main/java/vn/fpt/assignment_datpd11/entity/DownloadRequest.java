@@ -15,9 +15,15 @@ import java.time.LocalDateTime;
  * - Theo dõi trạng thái xử lý (PENDING, PROCESSING, READY, FAILED)
  * - Lưu đường dẫn đến file zip đã tạo
  * - Lưu thông tin lỗi nếu quá trình xử lý thất bại
+ * 
+ * Các yêu cầu ở trạng thái PENDING chính là hàng đợi của DownloadJobScheduler,
+ * nên hàng đợi vẫn còn nguyên sau khi khởi động lại server.
  */
 @Entity
-@Table(name = "download_requests")
+@Table(name = "download_requests", indexes = {
+    @Index(name = "idx_download_requests_archive_key", columnList = "archive_key, status"),
+    @Index(name = "idx_download_requests_queue", columnList = "status, estimated_size, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -55,6 +61,20 @@ public class DownloadRequest {
     @Column(nullable = false)
     private DownloadStatus status;
 
+    /**
+     * Khóa archive (ID thư mục + dấu vân tay cây con) tại thời điểm yêu cầu
+     * Các yêu cầu cùng khóa dùng chung một lần tạo file zip
+     */
+    @Column(name = "archive_key")
+    private String archiveKey;
+
+    /**
+     * Tổng kích thước dữ liệu của thư mục (bytes) tại thời điểm yêu cầu
+     * Dùng để ưu tiên các job nhỏ trong hàng đợi
+     */
+    @Column(name = "estimated_size")
+    private Long estimatedSize;
+
     /**
      * Đường dẫn đến file zip đã được tạo
      * Chỉ có giá trị khi status = READY
@@ -69,6 +89,19 @@ public class DownloadRequest {
     @Column(name = "error_message")
     private String errorMessage;
 
+    /**
+     * Node đang chạy job của yêu cầu (download.scheduler.node-id), null nếu chưa được nhận
+     */
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    /**
+     * Hạn thuê của job đang chạy; node chạy job gia hạn định kỳ,
+     * quá hạn nghĩa là node đã dừng và job được đưa trở lại hàng đợi
+     */
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
     /**
      * Thời điểm yêu cầu được tạo
      */
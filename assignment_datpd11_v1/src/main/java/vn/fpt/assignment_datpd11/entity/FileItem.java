@@ -5,8 +5,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,17 +21,27 @@ import java.util.List;
  * - Trạng thái xóa (soft delete)
  */
 @Entity
-@Table(name = "file_items")
+@Table(name = "file_items", indexes = {
+    @Index(name = "idx_file_items_path", columnList = "path"),
+    @Index(name = "idx_file_items_created", columnList = "created_at, id"),
+    @Index(name = "idx_file_items_name", columnList = "name, id"),
+    @Index(name = "idx_file_items_size", columnList = "file_size, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class FileItem {
     /**
-     * ID duy nhất của file/thư mục (tự động tăng)
+     * ID duy nhất của file/thư mục
+     * Cấp phát theo khối từ bảng id_generators (thay vì tự động tăng) để Hibernate
+     * gộp được nhiều câu lệnh INSERT thành một lô (JDBC batching)
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "file_item_id")
+    @TableGenerator(name = "file_item_id", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "file_items", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -53,10 +65,11 @@ public class FileItem {
     private String filePath;
 
     /**
-     * Kích thước file tính bằng bytes
-     * Chỉ có giá trị khi type = FILE
+     * Kích thước file tính bằng bytes (không được để trống)
+     * Thư mục luôn có kích thước 0, để sắp xếp theo kích thước dùng trực tiếp được index
      */
-    @Column(name = "file_size")
+    @ColumnDefault("0")
+    @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
     /**
@@ -66,6 +79,13 @@ public class FileItem {
     @Column(name = "mime_type")
     private String mimeType;
 
+    /**
+     * Mã băm SHA-256 của nội dung file, trỏ đến StoredBlob chứa dữ liệu
+     * Chỉ có giá trị khi type = FILE và file được lưu qua blob store
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     /**
      * Thư mục cha chứa file/thư mục này
      * null nếu là file/thư mục ở root
@@ -75,6 +95,14 @@ public class FileItem {
     @JoinColumn(name = "parent_id")
     private FileItem parent;
 
+    /**
+     * Đường dẫn vật chất hóa: ID của các thư mục tổ tiên từ root đến thư mục cha
+     * Ví dụ: "/" nếu ở root, "/1/5/" nếu nằm trong thư mục 5 (thư mục 5 nằm trong thư mục 1)
+     * Cho phép lấy toàn bộ con cháu (LIKE theo tiền tố) hoặc tổ tiên bằng một truy vấn có index
+     */
+    @Column(name = "path", length = 512)
+    private String path;
+
     /**
      * Danh sách các file và thư mục con
      * Chỉ có giá trị khi type = FOLDER
@@ -134,6 +162,34 @@ public class FileItem {
         FOLDER
     }
 
+    /**
+     * Tính đường dẫn vật chất hóa cho các item con trực tiếp của item này
+     * Đồng thời là tiền tố đường dẫn của toàn bộ con cháu
+     * 
+     * @return Đường dẫn dạng "{path}{id}/"
+     */
+    public String childPath() {
+        return (path != null ? path : "/") + id + "/";
+    }
+
+    /**
+     * Lấy danh sách ID của các thư mục tổ tiên từ đường dẫn vật chất hóa
+     * 
+     * @return Danh sách ID từ root đến thư mục cha (rỗng nếu ở root hoặc chưa có path)
+     */
+    public List<Long> ancestorIds() {
+        List<Long> ids = new ArrayList<>();
+        if (path == null) {
+            return ids;
+        }
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                ids.add(Long.parseLong(part));
+            }
+        }
+        return ids;
+    }
+
     /**
      * Tự động thiết lập thời gian tạo, cập nhật và trạng thái xóa khi entity được lưu lần đầu
      */
@@ -144,6 +200,9 @@ public class FileItem {
         if (isDeleted == null) {
             isDeleted = false;
         }
+        if (fileSize == null) {
+            fileSize = 0L;
+        }
     }
 
     /**
@@ -28,10 +28,15 @@ import java.time.LocalDateTime;
 @Builder
 public class FilePermission {
     /**
-     * ID duy nhất của quyền truy cập (tự động tăng)
+     * ID duy nhất của quyền truy cập
+     * Cấp phát theo khối từ bảng id_generators (thay vì tự động tăng) để Hibernate
+     * gộp được nhiều câu lệnh INSERT thành một lô (JDBC batching)
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "file_permission_id")
+    @TableGenerator(name = "file_permission_id", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "file_permissions", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     /**
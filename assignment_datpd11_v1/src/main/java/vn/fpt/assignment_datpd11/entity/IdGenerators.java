@@ -0,0 +1,35 @@
+package vn.fpt.assignment_datpd11.entity;
+
+/**
+ * Hằng số của bảng cấp phát ID dùng chung cho các entity được ghi theo lô
+ * 
+ * Mỗi entity có một dòng trong bảng id_generators (sequence_name = tên bảng dữ liệu).
+ * Hibernate lấy mỗi lần một khối ALLOCATION_SIZE ID và cấp phát trong bộ nhớ, nên ID
+ * có sẵn ngay khi persist và các câu lệnh INSERT được gộp lô (IDENTITY buộc Hibernate
+ * phải chạy từng INSERT ngay lập tức để đọc ID sinh ra).
+ */
+public final class IdGenerators {
+
+    /**
+     * Tên bảng cấp phát ID
+     */
+    public static final String TABLE = "id_generators";
+
+    /**
+     * Cột chứa tên bộ sinh ID (tên bảng dữ liệu)
+     */
+    public static final String NAME_COLUMN = "sequence_name";
+
+    /**
+     * Cột chứa giá trị tiếp theo
+     */
+    public static final String VALUE_COLUMN = "next_val";
+
+    /**
+     * Số ID được cấp trong mỗi lần đọc bảng (nên bằng hibernate.jdbc.batch_size)
+     */
+    public static final int ALLOCATION_SIZE = 100;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,110 @@
+package vn.fpt.assignment_datpd11.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho một khối nội dung (blob) được lưu trữ theo địa chỉ nội dung
+ * 
+ * Mỗi nội dung file chỉ được lưu một lần trên đĩa, định danh bằng mã băm SHA-256:
+ * - Nhiều FileItem có cùng nội dung sẽ dùng chung một blob
+ * - Số lượng tham chiếu (refCount) cho biết có bao nhiêu FileItem đang dùng blob
+ * - Khi refCount về 0, blob và file vật lý được xóa
+ */
+@Entity
+@Table(name = "stored_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredBlob {
+    /**
+     * Mã băm SHA-256 (dạng hex) của nội dung, đồng thời là khóa chính
+     */
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String hash;
+
+    /**
+     * Đường dẫn vật lý đến file blob trên hệ thống (không được để trống)
+     * Cấu trúc: {storagePath}/blobs/{2 ký tự đầu}/{2 ký tự tiếp}/{hash}-{thế hệ}[.mdz nếu được nén theo khối]
+     * Mỗi lần nội dung được lưu lại (sau khi blob cũ đã bị giải phóng) có một location mới
+     */
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    /**
+     * Kích thước nội dung tính bằng bytes (không được để trống)
+     */
+    @Column(nullable = false)
+    private Long size;
+
+    /**
+     * Dung lượng thực tế trên nơi lưu trữ (bytes), nhỏ hơn size nếu blob được nén
+     * Null với các blob được lưu trước khi có nén
+     */
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    /**
+     * Định dạng lưu trữ của nội dung
+     * Null với các blob được lưu trước khi định dạng được ghi nhận
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "codec", length = 20)
+    private Codec codec;
+
+    /**
+     * Số lượng FileItem đang tham chiếu đến blob này (không được để trống)
+     */
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    /**
+     * Thời điểm blob được tạo
+     */
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * Thời điểm blob được cập nhật lần cuối
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Định dạng lưu trữ của blob
+     */
+    public enum Codec {
+        /**
+         * Lưu nguyên văn
+         */
+        NONE,
+        /**
+         * Nén DEFLATE theo khối (BlockCompressedFile)
+         */
+        BLOCK_DEFLATE
+    }
+
+    /**
+     * Tự động thiết lập thời gian tạo và cập nhật khi entity được lưu lần đầu
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Tự động cập nhật thời gian cập nhật mỗi khi entity được chỉnh sửa
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,129 @@
+package vn.fpt.assignment_datpd11.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity đại diện cho một phiên upload file theo từng phần (chunked upload)
+ * 
+ * Được sử dụng để upload file lớn theo nhiều phần:
+ * - Client tạo phiên với tên file, kích thước và kích thước mỗi phần
+ * - Các phần được gửi lên theo thứ tự bất kỳ, có thể song song và gửi lại khi lỗi
+ * - Khi commit, các phần được ghép thành file hoàn chỉnh và tạo FileItem
+ */
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+    /**
+     * ID duy nhất của phiên upload (UUID)
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String sessionId;
+
+    /**
+     * Người dùng tạo phiên upload (không được để trống)
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    /**
+     * Thư mục cha sẽ chứa file sau khi commit
+     * null nếu file được upload vào root
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    private FileItem parent;
+
+    /**
+     * Tên file (không được để trống)
+     */
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    /**
+     * Loại MIME của file
+     */
+    @Column(name = "mime_type")
+    private String mimeType;
+
+    /**
+     * Tổng kích thước file tính bằng bytes (không được để trống)
+     */
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    /**
+     * Kích thước mỗi phần tính bằng bytes (phần cuối có thể nhỏ hơn)
+     */
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    /**
+     * Tổng số phần cần upload
+     */
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks;
+
+    /**
+     * Trạng thái của phiên upload (không được để trống)
+     * Mặc định là ACTIVE khi tạo mới
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UploadStatus status;
+
+    /**
+     * Thời điểm phiên upload được tạo
+     */
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * Thời điểm phiên upload được cập nhật lần cuối
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Enum định nghĩa trạng thái của phiên upload
+     */
+    public enum UploadStatus {
+        /** Đang nhận các phần */
+        ACTIVE,
+        /** Đã ghép file và tạo FileItem */
+        COMMITTED,
+        /** Đã hủy hoặc hết hạn */
+        ABORTED
+    }
+
+    /**
+     * Tự động thiết lập thời gian tạo, cập nhật và trạng thái khi entity được lưu lần đầu
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) {
+            status = UploadStatus.ACTIVE;
+        }
+    }
+
+    /**
+     * Tự động cập nhật thời gian cập nhật mỗi khi entity được chỉnh sửa
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
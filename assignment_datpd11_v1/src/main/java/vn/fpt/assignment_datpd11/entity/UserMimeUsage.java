@@ -0,0 +1,54 @@
+package vn.fpt.assignment_datpd11.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity lưu mức sử dụng storage của một người dùng theo từng loại MIME
+ * 
+ * Mỗi cặp (người dùng, loại MIME) có đúng một bản ghi.
+ * File không có loại MIME được gộp vào loại "unknown".
+ */
+@Entity
+@Table(name = "user_mime_usage", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_mime_usage", columnNames = {"user_id", "mime_type"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserMimeUsage {
+    /**
+     * ID duy nhất của bản ghi (tự động tăng)
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * ID của người dùng (không được để trống)
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * Loại MIME (không được để trống)
+     */
+    @Column(name = "mime_type", nullable = false)
+    private String mimeType;
+
+    /**
+     * Số lượng file thuộc loại MIME này (không được để trống)
+     */
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount;
+
+    /**
+     * Tổng dung lượng các file thuộc loại MIME này tính bằng bytes (không được để trống)
+     */
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes;
+}
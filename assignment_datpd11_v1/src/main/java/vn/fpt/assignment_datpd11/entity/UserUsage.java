@@ -0,0 +1,55 @@
+package vn.fpt.assignment_datpd11.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity lưu tổng hợp mức sử dụng storage của một người dùng
+ * 
+ * Được cập nhật tăng/giảm trong cùng transaction với thao tác tạo hoặc xóa file,
+ * nên việc đọc thống kê chỉ cần tra cứu theo khóa chính.
+ * Chỉ tính các file/thư mục chưa bị xóa.
+ */
+@Entity
+@Table(name = "user_usage")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserUsage {
+    /**
+     * ID của người dùng, đồng thời là khóa chính
+     */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Số lượng file (không được để trống)
+     */
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount;
+
+    /**
+     * Số lượng thư mục (không được để trống)
+     */
+    @Column(name = "folder_count", nullable = false)
+    private Long folderCount;
+
+    /**
+     * Tổng dung lượng các file tính bằng bytes (không được để trống)
+     */
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes;
+
+    /**
+     * Thời điểm số liệu được cập nhật lần cuối
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package vn.fpt.assignment_datpd11.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi một file/thư mục bị xóa (soft delete)
+ */
+@Getter
+@AllArgsConstructor
+public class FileDeletedEvent {
+    /**
+     * ID của file/thư mục đã bị xóa
+     */
+    private final Long fileId;
+}
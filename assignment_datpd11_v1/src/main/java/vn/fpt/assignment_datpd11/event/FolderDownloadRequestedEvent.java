@@ -0,0 +1,21 @@
+package vn.fpt.assignment_datpd11.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi một yêu cầu tải xuống thư mục cần tạo file zip
+ */
+@Getter
+@AllArgsConstructor
+public class FolderDownloadRequestedEvent {
+    /**
+     * Khóa archive (ID thư mục + dấu vân tay cây con)
+     */
+    private final String archiveKey;
+
+    /**
+     * ID của thư mục cần zip
+     */
+    private final Long folderId;
+}
@@ -0,0 +1,24 @@
+package vn.fpt.assignment_datpd11.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sự kiện phát ra khi quyền truy cập của một người dùng trên file/thư mục thay đổi
+ * 
+ * Vì quyền trên thư mục được kế thừa bởi cả cây con, người nhận sự kiện
+ * cần coi mọi quyết định đã lưu của người dùng này là không còn hợp lệ
+ */
+@Getter
+@AllArgsConstructor
+public class PermissionChangedEvent {
+    /**
+     * ID của file/thư mục được chia sẻ
+     */
+    private final Long fileId;
+
+    /**
+     * ID của người dùng có quyền thay đổi
+     */
+    private final Long userId;
+}
@@ -1,9 +1,17 @@
 package vn.fpt.assignment_datpd11.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import vn.fpt.assignment_datpd11.entity.DownloadRequest;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,5 +29,156 @@ public interface DownloadRequestRepository extends JpaRepository<DownloadRequest
      * @return Optional chứa DownloadRequest nếu tìm thấy, empty nếu không
      */
     Optional<DownloadRequest> findByRequestId(String requestId);
-}
 
+    /**
+     * Cập nhật trạng thái của mọi yêu cầu cùng khóa archive đang ở một trong các trạng thái cho trước
+     * Dùng để gắn tất cả yêu cầu đang chờ vào kết quả của một lần tạo file zip
+     * Tham gia transaction hiện tại nếu có, nếu không thì tự commit ngay
+     * 
+     * @param archiveKey Khóa archive
+     * @param fromStatuses Các trạng thái được phép cập nhật
+     * @param status Trạng thái mới
+     * @param zipFilePath Đường dẫn file zip (null nếu chưa có)
+     * @param errorMessage Thông báo lỗi (null nếu không có)
+     * @param now Thời điểm cập nhật
+     * @return Số yêu cầu được cập nhật
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.status = :status, d.zipFilePath = :zipFilePath, " +
+           "d.errorMessage = :errorMessage, d.updatedAt = :now " +
+           "WHERE d.archiveKey = :archiveKey AND d.status IN :fromStatuses")
+    int updateStatusByArchiveKey(@Param("archiveKey") String archiveKey,
+                                 @Param("fromStatuses") Collection<DownloadRequest.DownloadStatus> fromStatuses,
+                                 @Param("status") DownloadRequest.DownloadStatus status,
+                                 @Param("zipFilePath") String zipFilePath,
+                                 @Param("errorMessage") String errorMessage,
+                                 @Param("now") LocalDateTime now);
+
+    /**
+     * Lấy các yêu cầu đang chờ theo thứ tự ưu tiên: job nhỏ trước, cùng kích thước thì yêu cầu cũ trước
+     * 
+     * @param status Trạng thái cần lấy (PENDING)
+     * @param pageable Giới hạn số lượng
+     * @return Danh sách yêu cầu theo thứ tự ưu tiên
+     */
+    @Query("SELECT d FROM DownloadRequest d WHERE d.status = :status AND d.archiveKey IS NOT NULL " +
+           "ORDER BY d.estimatedSize, d.createdAt")
+    List<DownloadRequest> findQueue(@Param("status") DownloadRequest.DownloadStatus status, Pageable pageable);
+
+    /**
+     * Nhận mọi yêu cầu đang chờ của một khóa archive cho một node
+     * Chỉ một node nhận được (điều kiện status = PENDING), các node khác nhận 0
+     * 
+     * @param archiveKey Khóa archive
+     * @param nodeId ID của node nhận job
+     * @param leaseExpiresAt Hạn thuê ban đầu
+     * @param now Thời điểm cập nhật
+     * @return Số yêu cầu được nhận
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.status = 'PROCESSING', d.claimedBy = :nodeId, " +
+           "d.leaseExpiresAt = :leaseExpiresAt, d.updatedAt = :now " +
+           "WHERE d.archiveKey = :archiveKey AND d.status = 'PENDING'")
+    int claim(@Param("archiveKey") String archiveKey,
+              @Param("nodeId") String nodeId,
+              @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Gia hạn thuê cho các job đang chạy trên một node
+     * 
+     * @param archiveKeys Khóa archive của các job đang chạy
+     * @param nodeId ID của node
+     * @param leaseExpiresAt Hạn thuê mới
+     * @return Số yêu cầu được gia hạn
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.leaseExpiresAt = :leaseExpiresAt " +
+           "WHERE d.archiveKey IN :archiveKeys AND d.claimedBy = :nodeId AND d.status = 'PROCESSING'")
+    int renewLeases(@Param("archiveKeys") Collection<String> archiveKeys,
+                    @Param("nodeId") String nodeId,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Đưa trở lại hàng đợi các job bị gián đoạn khi một node khởi động:
+     * job của chính node đó (đã dừng cùng node) và job đã hết hạn thuê
+     * 
+     * @param nodeId ID của node đang khởi động
+     * @param now Thời điểm hiện tại
+     * @return Số yêu cầu được đưa trở lại hàng đợi
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.status = 'PENDING', d.claimedBy = NULL, d.leaseExpiresAt = NULL, " +
+           "d.updatedAt = :now WHERE d.status = 'PROCESSING' AND (d.claimedBy = :nodeId OR d.claimedBy IS NULL " +
+           "OR d.leaseExpiresAt IS NULL OR d.leaseExpiresAt < :now)")
+    int requeueInterrupted(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    /**
+     * Đưa trở lại hàng đợi các job đã hết hạn thuê (node chạy job đã dừng mà không khởi động lại)
+     * 
+     * @param now Thời điểm hiện tại
+     * @return Số yêu cầu được đưa trở lại hàng đợi
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.status = 'PENDING', d.claimedBy = NULL, d.leaseExpiresAt = NULL, " +
+           "d.updatedAt = :now WHERE d.status = 'PROCESSING' AND d.leaseExpiresAt < :now")
+    int requeueExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu thất bại các yêu cầu chưa hoàn tất được tạo trước khi có archiveKey (dữ liệu cũ)
+     * 
+     * @param statuses Các trạng thái chưa hoàn tất
+     * @param errorMessage Thông báo lỗi
+     * @param now Thời điểm cập nhật
+     * @return Số yêu cầu được cập nhật
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DownloadRequest d SET d.status = 'FAILED', d.errorMessage = :errorMessage, d.updatedAt = :now " +
+           "WHERE d.archiveKey IS NULL AND d.status IN :statuses")
+    int failWithoutArchiveKey(@Param("statuses") Collection<DownloadRequest.DownloadStatus> statuses,
+                              @Param("errorMessage") String errorMessage,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Đếm số yêu cầu theo trạng thái
+     * 
+     * @param status Trạng thái
+     * @return Số yêu cầu
+     */
+    long countByStatus(DownloadRequest.DownloadStatus status);
+
+    /**
+     * Đếm số job (khóa archive khác nhau) theo trạng thái
+     * 
+     * @param status Trạng thái
+     * @return Số khóa archive khác nhau
+     */
+    @Query("SELECT COUNT(DISTINCT d.archiveKey) FROM DownloadRequest d WHERE d.status = :status")
+    long countArchiveKeysByStatus(@Param("status") DownloadRequest.DownloadStatus status);
+
+    /**
+     * Lấy thời điểm tạo của yêu cầu cũ nhất theo trạng thái
+     * 
+     * @param status Trạng thái
+     * @return Thời điểm tạo (null nếu không có yêu cầu nào)
+     */
+    @Query("SELECT MIN(d.createdAt) FROM DownloadRequest d WHERE d.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") DownloadRequest.DownloadStatus status);
+
+    /**
+     * Xóa các yêu cầu tải xuống của nhiều file/thư mục bằng một câu lệnh
+     * Dùng khi các file/thư mục bị xóa vĩnh viễn
+     * 
+     * @param fileIds Danh sách ID của file/thư mục
+     * @return Số yêu cầu đã bị xóa
+     */
+    @Modifying
+    @Query("DELETE FROM DownloadRequest d WHERE d.fileItem.id IN :fileIds")
+    int deleteByFileItemIds(@Param("fileIds") Collection<Long> fileIds);
+}
@@ -1,11 +1,15 @@
 package vn.fpt.assignment_datpd11.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import vn.fpt.assignment_datpd11.entity.FileItem;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +18,10 @@ import java.util.Optional;
  * 
  * Cung cấp các phương thức truy vấn database cho file và thư mục
  * Kế thừa từ JpaRepository để có sẵn các phương thức CRUD cơ bản
+ * và FileItemRepositoryCustom cho các truy vấn tìm kiếm động
  */
 @Repository
-public interface FileItemRepository extends JpaRepository<FileItem, Long> {
+public interface FileItemRepository extends JpaRepository<FileItem, Long>, FileItemRepositoryCustom {
     /**
      * Tìm tất cả file/thư mục con của một thư mục cha (chưa bị xóa)
      * 
@@ -60,7 +65,7 @@ public interface FileItemRepository extends JpaRepository<FileItem, Long> {
                                 @Param("type") FileItem.FileType type);
     
     /**
-     * Tìm file theo khoảng kích thước
+     * Tìm file theo khoảng kích thước (chỉ file, thư mục có kích thước 0 không được tính)
      * 
      * @param userId ID của người sở hữu
      * @param fromSize Kích thước tối thiểu (bytes)
@@ -68,7 +73,7 @@ public interface FileItemRepository extends JpaRepository<FileItem, Long> {
      * @return Danh sách file thỏa mãn điều kiện kích thước
      */
     @Query("SELECT f FROM FileItem f WHERE f.owner.id = :userId AND f.isDeleted = false " +
-           "AND f.fileSize >= :fromSize AND f.fileSize <= :toSize")
+           "AND f.type = 'FILE' AND f.fileSize >= :fromSize AND f.fileSize <= :toSize")
     List<FileItem> findBySizeRange(@Param("userId") Long userId,
                                     @Param("fromSize") Long fromSize,
                                     @Param("toSize") Long toSize);
@@ -84,16 +89,70 @@ public interface FileItemRepository extends JpaRepository<FileItem, Long> {
     List<FileItem> findSharedWithUser(@Param("userId") Long userId);
     
     /**
-     * Tìm tất cả file/thư mục đã bị xóa trước một ngày cụ thể
-     * Dùng để cleanup các file đã xóa quá lâu
+     * Lấy một trang các file/thư mục đã bị xóa trước một ngày cụ thể (phân trang theo ID)
+     * Dùng để cleanup các file đã xóa quá lâu mà không nạp toàn bộ vào bộ nhớ
      * 
      * @param cutoffDate Ngày cắt (chỉ lấy file xóa trước ngày này)
-     * @return Danh sách file/thư mục đã bị xóa
+     * @param afterId Chỉ lấy item có ID lớn hơn giá trị này (ID cuối của trang trước, 0 cho trang đầu)
+     * @param pageable Số lượng item tối đa (dùng PageRequest.of(0, size))
+     * @return Danh sách item đã bị xóa, theo thứ tự ID
      */
-    @Query("SELECT f FROM FileItem f WHERE f.isDeleted = true " +
-           "AND f.deletedAt < :cutoffDate")
-    List<FileItem> findDeletedBefore(@Param("cutoffDate") java.time.LocalDateTime cutoffDate);
+    @Query("SELECT new vn.fpt.assignment_datpd11.repository.PurgeItem(f.id, f.type, f.path, f.isDeleted, " +
+           "f.owner.id, f.fileSize, f.mimeType, f.contentHash, f.filePath) FROM FileItem f " +
+           "WHERE f.isDeleted = true AND f.deletedAt < :cutoffDate AND f.id > :afterId ORDER BY f.id")
+    List<PurgeItem> findExpiredTrash(@Param("cutoffDate") java.time.LocalDateTime cutoffDate,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    /**
+     * Lấy một lô ID con cháu của một thư mục để xóa vĩnh viễn, item sâu nhất trước
+     * Item con luôn có path dài hơn thư mục cha, nên xóa theo thứ tự này không bao giờ
+     * để lại item nào mà thư mục cha đã bị xóa
+     * 
+     * @param pathPrefix Tiền tố đường dẫn của con cháu (childPath() của thư mục)
+     * @param pageable Số lượng item tối đa (dùng PageRequest.of(0, size))
+     * @return Danh sách ID, theo độ sâu giảm dần
+     */
+    @Query("SELECT f.id FROM FileItem f WHERE f.path LIKE CONCAT(:pathPrefix, '%') " +
+           "ORDER BY LENGTH(f.path) DESC, f.id")
+    List<Long> findPurgeBatch(@Param("pathPrefix") String pathPrefix, Pageable pageable);
+
+    /**
+     * Nạp thông tin cần cho việc xóa vĩnh viễn của các item
+     * 
+     * @param ids Danh sách ID
+     * @return Các item còn tồn tại trong danh sách, item sâu nhất trước
+     */
+    @Query("SELECT new vn.fpt.assignment_datpd11.repository.PurgeItem(f.id, f.type, f.path, f.isDeleted, " +
+           "f.owner.id, f.fileSize, f.mimeType, f.contentHash, f.filePath) FROM FileItem f " +
+           "WHERE f.id IN :ids ORDER BY LENGTH(f.path) DESC, f.id")
+    List<PurgeItem> findPurgeItems(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Xóa vĩnh viễn nhiều item bằng một câu lệnh, item sâu nhất trước
+     * (ràng buộc khóa ngoại parent_id được kiểm tra theo từng dòng)
+     * 
+     * @param ids Danh sách ID cần xóa
+     * @return Số item đã bị xóa
+     */
+    @Modifying
+    @Query(value = "DELETE FROM file_items WHERE id IN (:ids) ORDER BY LENGTH(path) DESC, id",
+           nativeQuery = true)
+    int deleteAllChildFirst(@Param("ids") Collection<Long> ids);
     
+    /**
+     * Lấy một trang đường dẫn vật lý của file lưu theo cách cũ (không qua blob store, kể cả
+     * file đã bị xóa mềm, phân trang theo ID); file trong blob store dùng location của StoredBlob
+     * Dùng khi thu gom blob mồ côi
+     * 
+     * @param afterId Chỉ lấy item có ID lớn hơn giá trị này (0 cho trang đầu)
+     * @param pageable Số lượng tối đa (dùng PageRequest.of(0, size))
+     * @return Danh sách [id, filePath], theo thứ tự ID
+     */
+    @Query("SELECT f.id, f.filePath FROM FileItem f WHERE f.filePath IS NOT NULL AND f.contentHash IS NULL " +
+           "AND f.id > :afterId ORDER BY f.id")
+    List<Object[]> findFilePathsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
     /**
      * Tính tổng dung lượng storage của một người dùng
      * 
@@ -103,5 +162,78 @@ public interface FileItemRepository extends JpaRepository<FileItem, Long> {
     @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileItem f WHERE f.owner.id = :userId " +
            "AND f.isDeleted = false AND f.type = 'FILE'")
     Long getTotalSizeByOwner(@Param("userId") Long userId);
-}
 
+    /**
+     * Tổng hợp số lượng và dung lượng các item chưa bị xóa của người dùng theo loại
+     * 
+     * @param userId ID của người dùng
+     * @return Mỗi dòng gồm: loại (FileType), số lượng, tổng dung lượng
+     */
+    @Query("SELECT f.type, COUNT(f), COALESCE(SUM(f.fileSize), 0) FROM FileItem f " +
+           "WHERE f.owner.id = :userId AND f.isDeleted = false GROUP BY f.type")
+    List<Object[]> aggregateUsageByType(@Param("userId") Long userId);
+
+    /**
+     * Tổng hợp số lượng và dung lượng các file chưa bị xóa của người dùng theo loại MIME
+     * 
+     * @param userId ID của người dùng
+     * @return Mỗi dòng gồm: loại MIME (có thể null), số lượng, tổng dung lượng
+     */
+    @Query("SELECT f.mimeType, COUNT(f), COALESCE(SUM(f.fileSize), 0) FROM FileItem f " +
+           "WHERE f.owner.id = :userId AND f.isDeleted = false AND f.type = 'FILE' GROUP BY f.mimeType")
+    List<Object[]> aggregateUsageByMime(@Param("userId") Long userId);
+
+    /**
+     * Tìm toàn bộ con cháu (chưa bị xóa) của một thư mục bằng một truy vấn
+     * Trả về FileNode thay cho entity nên không có item nào được đưa vào persistence context
+     * Kết quả được sắp xếp theo path nên thư mục cha luôn đứng trước các item con
+     * 
+     * @param pathPrefix Tiền tố đường dẫn của con cháu (FileItem.childPath() của thư mục)
+     * @return Danh sách tất cả file/thư mục con cháu
+     */
+    @Query("SELECT new vn.fpt.assignment_datpd11.repository.FileNode(f.id, f.parent.id, f.name, f.type, " +
+           "f.path, f.fileSize, f.mimeType, f.filePath, f.contentHash, b.codec, f.updatedAt) FROM FileItem f " +
+           "LEFT JOIN StoredBlob b ON b.hash = f.contentHash " +
+           "WHERE f.path LIKE CONCAT(:pathPrefix, '%') AND f.isDeleted = false ORDER BY f.path, f.id")
+    List<FileNode> findSubtreeNodes(@Param("pathPrefix") String pathPrefix);
+
+    /**
+     * Tổng hợp trạng thái cây con của một thư mục (dùng làm dấu vân tay cho cache archive)
+     * 
+     * @param pathPrefix Tiền tố đường dẫn của con cháu (FileItem.childPath() của thư mục)
+     * @return Một dòng gồm [số item, tổng ID, tổng kích thước, thời điểm cập nhật mới nhất]
+     */
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.id), 0), COALESCE(SUM(f.fileSize), 0), MAX(f.updatedAt) " +
+           "FROM FileItem f WHERE f.path LIKE CONCAT(:pathPrefix, '%') AND f.isDeleted = false")
+    List<Object[]> summarizeSubtree(@Param("pathPrefix") String pathPrefix);
+
+    /**
+     * Thiết lập path cho các item ở root chưa có path (dữ liệu cũ)
+     * 
+     * @return Số dòng được cập nhật
+     */
+    @Modifying
+    @Query("UPDATE FileItem f SET f.path = '/' WHERE f.parent IS NULL AND f.path IS NULL")
+    int initRootPaths();
+
+    /**
+     * Tìm các item chưa có path nhưng thư mục cha đã có path (dữ liệu cũ)
+     * Dùng để điền path lần lượt theo từng cấp của cây thư mục
+     * 
+     * @param pageable Giới hạn số lượng item mỗi lần
+     * @return Danh sách item kèm thư mục cha
+     */
+    @Query("SELECT f FROM FileItem f JOIN FETCH f.parent p WHERE f.path IS NULL AND p.path IS NOT NULL")
+    List<FileItem> findWithoutPath(Pageable pageable);
+
+    /**
+     * Đặt kích thước 0 cho một lô item chưa có kích thước (thư mục của dữ liệu cũ)
+     * 
+     * @param limit Số lượng item tối đa được cập nhật
+     * @return Số dòng được cập nhật
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE file_items SET file_size = 0 WHERE file_size IS NULL LIMIT :limit", nativeQuery = true)
+    int fillMissingFileSizes(@Param("limit") int limit);
+}
@@ -0,0 +1,29 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import vn.fpt.assignment_datpd11.entity.FileItem;
+
+import java.util.List;
+
+/**
+ * Các truy vấn FileItem được xây dựng động (không thể khai báo bằng @Query)
+ * 
+ * Được hiện thực bởi FileItemRepositoryImpl và gộp vào FileItemRepository
+ */
+public interface FileItemRepositoryCustom {
+    /**
+     * Tìm kiếm file/thư mục người dùng truy cập được (sở hữu hoặc được chia sẻ,
+     * kể cả kế thừa từ thư mục tổ tiên) bằng một câu truy vấn duy nhất
+     * 
+     * Phân trang theo keyset: chỉ trả về các item đứng sau (afterValue, afterId)
+     * theo thứ tự sắp xếp, nên chi phí mỗi trang không phụ thuộc vị trí trang.
+     * 
+     * @param userId ID của người dùng thực hiện tìm kiếm
+     * @param criteria Điều kiện lọc và sắp xếp
+     * @param afterValue Giá trị trường sắp xếp của item cuối trang trước (null nếu là trang đầu)
+     * @param afterId ID của item cuối trang trước (null nếu là trang đầu)
+     * @param limit Số lượng item tối đa (null nếu không giới hạn)
+     * @return Danh sách file/thư mục kèm thông tin người sở hữu
+     */
+    List<FileItem> searchAccessible(Long userId, FileSearchCriteria criteria,
+                                    Object afterValue, Long afterId, Integer limit);
+}
@@ -0,0 +1,100 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hiện thực các truy vấn động của FileItemRepository
+ * 
+ * Chỉ những điều kiện thực sự được truyền vào mới xuất hiện trong câu truy vấn,
+ * giúp database tận dụng được index thay vì dạng (:param IS NULL OR ...)
+ */
+public class FileItemRepositoryImpl implements FileItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FileItem> searchAccessible(Long userId, FileSearchCriteria criteria,
+                                           Object afterValue, Long afterId, Integer limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT f FROM FileItem f JOIN FETCH f.owner o WHERE f.isDeleted = false " +
+                "AND (o.id = :userId OR EXISTS (SELECT p.id FROM FilePermission p " +
+                "WHERE p.user.id = :userId AND (p.fileItem.id = f.id " +
+                "OR f.path LIKE CONCAT(p.fileItem.path, p.fileItem.id, '/%'))))");
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", userId);
+
+        if (criteria.getName() != null && !criteria.getName().isEmpty()) {
+            jpql.append(" AND f.name LIKE :name");
+            params.put("name", "%" + criteria.getName() + "%");
+        }
+        if (criteria.getType() != null) {
+            jpql.append(" AND f.type = :type");
+            params.put("type", criteria.getType());
+        }
+        if (criteria.getMimeType() != null) {
+            jpql.append(" AND f.mimeType = :mimeType");
+            params.put("mimeType", criteria.getMimeType());
+        }
+        if (criteria.getParentId() != null) {
+            jpql.append(" AND f.parent.id = :parentId");
+            params.put("parentId", criteria.getParentId());
+        }
+        if (criteria.getFromSize() != null || criteria.getToSize() != null) {
+            // Folders are stored with size 0, but a size filter only applies to files
+            jpql.append(" AND f.type = :fileType");
+            params.put("fileType", FileItem.FileType.FILE);
+        }
+        if (criteria.getFromSize() != null) {
+            jpql.append(" AND f.fileSize >= :fromSize");
+            params.put("fromSize", criteria.getFromSize());
+        }
+        if (criteria.getToSize() != null) {
+            jpql.append(" AND f.fileSize <= :toSize");
+            params.put("toSize", criteria.getToSize());
+        }
+
+        String sortExpression = sortExpression(criteria.getSort());
+        String direction = criteria.isAscending() ? "ASC" : "DESC";
+        if (afterValue != null && afterId != null) {
+            // Keyset condition: rows strictly after the last row of the previous page
+            String op = criteria.isAscending() ? ">" : "<";
+            jpql.append(" AND (").append(sortExpression).append(" ").append(op).append(" :afterValue")
+                    .append(" OR (").append(sortExpression).append(" = :afterValue")
+                    .append(" AND f.id ").append(op).append(" :afterId))");
+            params.put("afterValue", afterValue);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY ").append(sortExpression).append(" ").append(direction)
+                .append(", f.id ").append(direction);
+
+        TypedQuery<FileItem> query = entityManager.createQuery(jpql.toString(), FileItem.class);
+        params.forEach(query::setParameter);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Lấy biểu thức JPQL của trường sắp xếp
+     * 
+     * @param sort Trường sắp xếp
+     * @return Biểu thức JPQL
+     */
+    private String sortExpression(FileSearchCriteria.SortField sort) {
+        return switch (sort) {
+            case NAME -> "f.name";
+            // Non-null (folders are 0), so the (file_size, id) index serves both the order and the keyset
+            case SIZE -> "f.fileSize";
+            default -> "f.createdAt";
+        };
+    }
+}
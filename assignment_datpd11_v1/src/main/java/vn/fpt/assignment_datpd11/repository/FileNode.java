@@ -0,0 +1,94 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import lombok.Getter;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bản chiếu (projection) gọn nhẹ của một file/thư mục, dùng khi cần duyệt cả cây con
+ * 
+ * Được tạo trực tiếp từ câu truy vấn (không phải entity được quản lý), nên việc nạp
+ * cây con rất lớn không làm persistence context phình to và không gây lazy loading.
+ * Danh sách con được SubtreeLoader điền sau khi nạp.
+ */
+@Getter
+public class FileNode {
+    private final Long id;
+
+    /**
+     * ID của thư mục cha (null nếu ở root)
+     */
+    private final Long parentId;
+
+    private final String name;
+
+    private final FileItem.FileType type;
+
+    /**
+     * Đường dẫn vật chất hóa của thư mục cha (ví dụ: "/1/5/")
+     */
+    private final String path;
+
+    private final Long fileSize;
+
+    private final String mimeType;
+
+    /**
+     * Đường dẫn vật lý đến file trên hệ thống (null nếu là thư mục)
+     */
+    private final String filePath;
+
+    /**
+     * Mã băm nội dung (null nếu là thư mục hoặc file lưu trước khi có blob store)
+     */
+    private final String contentHash;
+
+    /**
+     * Định dạng lưu trữ của blob (null nếu không có blob hoặc blob chưa ghi nhận định dạng)
+     */
+    private final StoredBlob.Codec codec;
+
+    private final LocalDateTime updatedAt;
+
+    /**
+     * Các item con trực tiếp (chưa bị xóa), theo thứ tự ID
+     */
+    private final List<FileNode> children = new ArrayList<>();
+
+    public FileNode(Long id, Long parentId, String name, FileItem.FileType type, String path,
+                    Long fileSize, String mimeType, String filePath, String contentHash,
+                    StoredBlob.Codec codec, LocalDateTime updatedAt) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.type = type;
+        this.path = path;
+        this.fileSize = fileSize;
+        this.mimeType = mimeType;
+        this.filePath = filePath;
+        this.contentHash = contentHash;
+        this.codec = codec;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Tạo node từ một entity đã nạp (dùng làm gốc của cây con)
+     * Định dạng lưu trữ không được nạp (gốc của cây con là thư mục)
+     * 
+     * @param item FileItem entity
+     * @return FileNode tương ứng, chưa có con
+     */
+    public static FileNode of(FileItem item) {
+        return new FileNode(item.getId(), item.getParent() != null ? item.getParent().getId() : null,
+                item.getName(), item.getType(), item.getPath(), item.getFileSize(), item.getMimeType(),
+                item.getFilePath(), item.getContentHash(), null, item.getUpdatedAt());
+    }
+
+    public boolean isFolder() {
+        return type == FileItem.FileType.FOLDER;
+    }
+}
@@ -1,11 +1,13 @@
 package vn.fpt.assignment_datpd11.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import vn.fpt.assignment_datpd11.entity.FilePermission;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +43,16 @@ public interface FilePermissionRepository extends JpaRepository<FilePermission,
      * @return Danh sách quyền truy cập
      */
     List<FilePermission> findByUserId(Long userId);
+
+    /**
+     * Tìm quyền truy cập của một người dùng trên một tập file/thư mục
+     * Dùng để lấy cùng lúc quyền trên một item và các thư mục tổ tiên của nó
+     * 
+     * @param userId ID của người dùng
+     * @param fileIds Danh sách ID file/thư mục
+     * @return Danh sách quyền truy cập tìm thấy
+     */
+    List<FilePermission> findByUserIdAndFileItemIdIn(Long userId, Collection<Long> fileIds);
     
     /**
      * Tìm tất cả quyền truy cập của một file và các file con (đệ quy)
@@ -58,5 +70,14 @@ public interface FilePermissionRepository extends JpaRepository<FilePermission,
      * @param fileId ID của file
      */
     void deleteByFileItemId(Long fileId);
-}
 
+    /**
+     * Xóa tất cả quyền truy cập của nhiều file bằng một câu lệnh
+     * 
+     * @param fileIds Danh sách ID của file
+     * @return Số quyền đã bị xóa
+     */
+    @Modifying
+    @Query("DELETE FROM FilePermission fp WHERE fp.fileItem.id IN :fileIds")
+    int deleteByFileItemIds(@Param("fileIds") Collection<Long> fileIds);
+}
@@ -0,0 +1,66 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+
+/**
+ * Điều kiện tìm kiếm file/thư mục, được chuyển toàn bộ xuống câu truy vấn SQL
+ * 
+ * Các trường null được bỏ qua (không lọc theo trường đó)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileSearchCriteria {
+    /**
+     * Trường dùng để sắp xếp kết quả
+     */
+    public enum SortField {
+        CREATED_AT, NAME, SIZE
+    }
+
+    /**
+     * Từ khóa tìm kiếm trong tên
+     */
+    private String name;
+
+    /**
+     * Loại: FILE hoặc FOLDER
+     */
+    private FileItem.FileType type;
+
+    /**
+     * Loại MIME chính xác (ví dụ: image/png)
+     */
+    private String mimeType;
+
+    /**
+     * ID của thư mục cha
+     */
+    private Long parentId;
+
+    /**
+     * Kích thước tối thiểu (bytes)
+     */
+    private Long fromSize;
+
+    /**
+     * Kích thước tối đa (bytes)
+     */
+    private Long toSize;
+
+    /**
+     * Trường sắp xếp (mặc định CREATED_AT)
+     */
+    @Builder.Default
+    private SortField sort = SortField.CREATED_AT;
+
+    /**
+     * true nếu sắp xếp tăng dần, false nếu giảm dần
+     */
+    private boolean ascending;
+}
@@ -0,0 +1,67 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import lombok.Getter;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+
+/**
+ * Bản chiếu (projection) của một file/thư mục sắp bị xóa vĩnh viễn
+ * 
+ * Chỉ chứa các cột cần cho việc xóa: đường dẫn để mở rộng cây con, thông tin người sở hữu
+ * và dung lượng để cập nhật số liệu sử dụng, mã băm/location để giải phóng nội dung.
+ * Được tạo trực tiếp từ câu truy vấn nên việc xóa hàng triệu item không nạp entity nào.
+ */
+@Getter
+public class PurgeItem {
+    private final Long id;
+
+    private final FileItem.FileType type;
+
+    /**
+     * Đường dẫn vật chất hóa của thư mục cha (ví dụ: "/1/5/")
+     */
+    private final String path;
+
+    /**
+     * Item đã bị xóa mềm chưa (item con của thư mục bị xóa vẫn có giá trị false)
+     */
+    private final boolean deleted;
+
+    private final Long ownerId;
+
+    private final Long fileSize;
+
+    private final String mimeType;
+
+    /**
+     * Mã băm nội dung (null với file lưu theo cách cũ)
+     */
+    private final String contentHash;
+
+    private final String filePath;
+
+    public PurgeItem(Long id, FileItem.FileType type, String path, Boolean deleted, Long ownerId,
+                     Long fileSize, String mimeType, String contentHash, String filePath) {
+        this.id = id;
+        this.type = type;
+        this.path = path;
+        this.deleted = Boolean.TRUE.equals(deleted);
+        this.ownerId = ownerId;
+        this.fileSize = fileSize;
+        this.mimeType = mimeType;
+        this.contentHash = contentHash;
+        this.filePath = filePath;
+    }
+
+    public boolean isFolder() {
+        return type == FileItem.FileType.FOLDER;
+    }
+
+    /**
+     * Tiền tố đường dẫn của các item con cháu (giống FileItem.childPath())
+     * 
+     * @return Đường dẫn vật chất hóa của các item con trực tiếp
+     */
+    public String childPath() {
+        return (path != null ? path : "/") + id + "/";
+    }
+}
@@ -0,0 +1,120 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface cho entity StoredBlob
+ * 
+ * Cung cấp các phương thức truy vấn database cho blob lưu trữ theo địa chỉ nội dung
+ * Kế thừa từ JpaRepository với key là String (mã băm SHA-256)
+ */
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+    /**
+     * Tăng số lượng tham chiếu của blob lên 1
+     * 
+     * @param hash Mã băm của blob
+     * @return Số dòng được cập nhật (0 nếu blob chưa tồn tại)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1 WHERE b.hash = :hash")
+    int incrementRefCount(@Param("hash") String hash);
+
+    /**
+     * Tạo blob mới với refCount = 1, hoặc tăng refCount lên 1 nếu blob đã tồn tại
+     * Một câu lệnh duy nhất nên hai upload đồng thời cùng nội dung không thể cùng chèn
+     * (lỗi trùng khóa chính); blob đã tồn tại giữ nguyên location cũ
+     * 
+     * @param hash Mã băm của blob
+     * @param storagePath Location của nội dung vừa được lưu
+     * @param size Kích thước nội dung (bytes)
+     * @param storedSize Dung lượng thực tế trên nơi lưu trữ (bytes)
+     * @param codec Tên định dạng lưu trữ (StoredBlob.Codec)
+     * @return 1 nếu blob được tạo mới, 2 nếu blob đã tồn tại và được tăng refCount
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stored_blobs (content_hash, storage_path, size, stored_size, codec, ref_count, created_at, updated_at) " +
+                   "VALUES (:hash, :storagePath, :size, :storedSize, :codec, 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int insertOrIncrementRefCount(@Param("hash") String hash,
+                                  @Param("storagePath") String storagePath,
+                                  @Param("size") long size,
+                                  @Param("storedSize") long storedSize,
+                                  @Param("codec") String codec);
+
+    /**
+     * Giảm số lượng tham chiếu của blob đi 1
+     * 
+     * @param hash Mã băm của blob
+     * @return Số dòng được cập nhật (0 nếu blob không tồn tại)
+     */
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash")
+    int decrementRefCount(@Param("hash") String hash);
+
+    /**
+     * Xóa blob nếu không còn được tham chiếu
+     * Điều kiện refCount được kiểm tra ngay trong câu lệnh xóa, nên blob vừa được
+     * upload đồng thời tăng refCount sẽ không bị xóa
+     * 
+     * @param hash Mã băm của blob
+     * @return Số dòng bị xóa (0 nếu blob không tồn tại hoặc vẫn còn tham chiếu)
+     */
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    /**
+     * Lấy location của blob trực tiếp từ database (không qua entity đã nạp trong persistence context)
+     * 
+     * @param hash Mã băm của blob
+     * @return Location của blob, rỗng nếu blob không tồn tại
+     */
+    @Query("SELECT b.storagePath FROM StoredBlob b WHERE b.hash = :hash")
+    Optional<String> findStoragePath(@Param("hash") String hash);
+
+    /**
+     * Giảm số lượng tham chiếu của blob đi một số lượng cho trước
+     * Dùng khi xóa vĩnh viễn nhiều file cùng nội dung trong một lô
+     * 
+     * @param hash Mã băm của blob
+     * @param count Số tham chiếu bị giải phóng
+     * @return Số dòng được cập nhật (0 nếu blob không tồn tại)
+     */
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - :count WHERE b.hash = :hash")
+    int decrementRefCount(@Param("hash") String hash, @Param("count") long count);
+
+    /**
+     * Tìm các blob không còn được tham chiếu trong một tập mã băm
+     * 
+     * @param hashes Danh sách mã băm
+     * @return Các blob có refCount <= 0
+     */
+    @Query("SELECT b FROM StoredBlob b WHERE b.hash IN :hashes AND b.refCount <= 0")
+    List<StoredBlob> findUnreferenced(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Lấy một trang location của blob (phân trang theo mã băm), dùng khi thu gom blob mồ côi
+     * 
+     * @param afterHash Chỉ lấy blob có mã băm lớn hơn giá trị này ("" cho trang đầu)
+     * @param pageable Số lượng tối đa (dùng PageRequest.of(0, size))
+     * @return Danh sách [hash, storagePath], theo thứ tự mã băm
+     */
+    @Query("SELECT b.hash, b.storagePath FROM StoredBlob b WHERE b.hash > :afterHash ORDER BY b.hash")
+    List<Object[]> findLocationsAfter(@Param("afterHash") String afterHash, Pageable pageable);
+}
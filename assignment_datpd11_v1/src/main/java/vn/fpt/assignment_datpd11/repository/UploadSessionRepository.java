@@ -0,0 +1,91 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.entity.UploadSession;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface cho entity UploadSession
+ * 
+ * Cung cấp các phương thức truy vấn database cho phiên upload theo từng phần
+ * Kế thừa từ JpaRepository với key là String (UUID sessionId)
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    /**
+     * Tìm các phiên upload theo trạng thái và chưa được cập nhật từ một thời điểm
+     * Dùng để dọn dẹp các phiên upload bị bỏ dở
+     * 
+     * @param status Trạng thái của phiên upload
+     * @param cutoff Thời điểm cắt (chỉ lấy phiên cập nhật trước thời điểm này)
+     * @return Danh sách phiên upload
+     */
+    List<UploadSession> findByStatusAndUpdatedAtBefore(UploadSession.UploadStatus status, LocalDateTime cutoff);
+
+    /**
+     * Cập nhật thời điểm hoạt động cuối của một phiên upload đang hoạt động
+     * Gọi mỗi khi nhận một phần, để phiên đang upload không bị coi là bỏ dở
+     * 
+     * @param sessionId ID của phiên upload
+     * @param now Thời điểm cập nhật
+     * @return Số phiên được cập nhật (0 nếu phiên không còn hoạt động)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.updatedAt = :now WHERE s.sessionId = :sessionId AND s.status = 'ACTIVE'")
+    int touchActive(@Param("sessionId") String sessionId, @Param("now") LocalDateTime now);
+
+    /**
+     * Đánh dấu một phiên upload đang hoạt động là đã commit
+     * Điều kiện trạng thái nằm trong câu lệnh, nên hai request commit (hoặc commit và hủy)
+     * đồng thời chỉ có một request thành công
+     * 
+     * @param sessionId ID của phiên upload
+     * @param now Thời điểm cập nhật
+     * @return Số phiên được cập nhật (0 nếu phiên không còn hoạt động)
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = 'COMMITTED', s.updatedAt = :now " +
+           "WHERE s.sessionId = :sessionId AND s.status = 'ACTIVE'")
+    int markCommitted(@Param("sessionId") String sessionId, @Param("now") LocalDateTime now);
+
+    /**
+     * Lấy ID các phiên upload đang hoạt động có thư mục đích nằm trong danh sách
+     * 
+     * @param parentIds Danh sách ID của thư mục
+     * @return Danh sách sessionId
+     */
+    @Query("SELECT s.sessionId FROM UploadSession s WHERE s.parent.id IN :parentIds AND s.status = 'ACTIVE'")
+    List<String> findActiveSessionIdsByParentIds(@Param("parentIds") Collection<Long> parentIds);
+
+    /**
+     * Hủy các phiên upload đang hoạt động có thư mục đích nằm trong danh sách
+     * (thư mục bị xóa vĩnh viễn nên không còn nơi để tạo file)
+     * 
+     * @param parentIds Danh sách ID của thư mục
+     * @param now Thời điểm cập nhật
+     * @return Số phiên bị hủy
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = 'ABORTED', s.updatedAt = :now " +
+           "WHERE s.parent.id IN :parentIds AND s.status = 'ACTIVE'")
+    int abortByParentIds(@Param("parentIds") Collection<Long> parentIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Gỡ thư mục đích khỏi các phiên upload (khi thư mục bị xóa vĩnh viễn)
+     * 
+     * @param parentIds Danh sách ID của thư mục
+     * @return Số phiên được cập nhật
+     */
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.parent = NULL WHERE s.parent.id IN :parentIds")
+    int detachFromParents(@Param("parentIds") Collection<Long> parentIds);
+}
@@ -0,0 +1,54 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.fpt.assignment_datpd11.entity.UserMimeUsage;
+
+import java.util.List;
+
+/**
+ * Repository interface cho entity UserMimeUsage
+ * 
+ * Cung cấp các phương thức truy vấn và cập nhật mức sử dụng theo loại MIME
+ */
+@Repository
+public interface UserMimeUsageRepository extends JpaRepository<UserMimeUsage, Long> {
+    /**
+     * Lấy mức sử dụng theo loại MIME của người dùng, sắp xếp theo dung lượng giảm dần
+     * 
+     * @param userId ID của người dùng
+     * @return Danh sách mức sử dụng theo loại MIME
+     */
+    List<UserMimeUsage> findByUserIdOrderByTotalBytesDesc(Long userId);
+
+    /**
+     * Cộng dồn thay đổi vào mức sử dụng của một loại MIME (tạo mới nếu chưa có)
+     * 
+     * @param userId ID của người dùng
+     * @param mimeType Loại MIME
+     * @param files Số file thay đổi (có thể âm)
+     * @param bytes Dung lượng thay đổi (có thể âm)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_mime_usage (user_id, mime_type, file_count, total_bytes) " +
+                   "VALUES (:userId, :mimeType, :files, :bytes) " +
+                   "ON DUPLICATE KEY UPDATE file_count = file_count + VALUES(file_count), " +
+                   "total_bytes = total_bytes + VALUES(total_bytes)",
+           nativeQuery = true)
+    void addDelta(@Param("userId") Long userId,
+                  @Param("mimeType") String mimeType,
+                  @Param("files") long files,
+                  @Param("bytes") long bytes);
+
+    /**
+     * Xóa toàn bộ mức sử dụng theo loại MIME của người dùng
+     * 
+     * @param userId ID của người dùng
+     */
+    @Modifying
+    @Query("DELETE FROM UserMimeUsage m WHERE m.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,67 @@
+package vn.fpt.assignment_datpd11.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.fpt.assignment_datpd11.entity.UserUsage;
+
+import java.util.List;
+
+/**
+ * Repository interface cho entity UserUsage
+ * 
+ * Cung cấp các phương thức cập nhật tăng/giảm số liệu sử dụng storage
+ * Kế thừa từ JpaRepository với key là ID người dùng
+ */
+@Repository
+public interface UserUsageRepository extends JpaRepository<UserUsage, Long> {
+    /**
+     * Cộng dồn thay đổi vào số liệu sử dụng của người dùng
+     * 
+     * @param userId ID của người dùng
+     * @param files Số file thay đổi (có thể âm)
+     * @param folders Số thư mục thay đổi (có thể âm)
+     * @param bytes Dung lượng thay đổi (có thể âm)
+     * @return Số dòng được cập nhật (0 nếu người dùng chưa có bản ghi)
+     */
+    @Modifying
+    @Query("UPDATE UserUsage u SET u.fileCount = u.fileCount + :files, " +
+           "u.folderCount = u.folderCount + :folders, u.totalBytes = u.totalBytes + :bytes, " +
+           "u.updatedAt = CURRENT_TIMESTAMP WHERE u.userId = :userId")
+    int addDelta(@Param("userId") Long userId,
+                 @Param("files") long files,
+                 @Param("folders") long folders,
+                 @Param("bytes") long bytes);
+
+    /**
+     * Ghi đè số liệu sử dụng của người dùng (tạo mới nếu chưa có)
+     * 
+     * @param userId ID của người dùng
+     * @param files Tổng số file
+     * @param folders Tổng số thư mục
+     * @param bytes Tổng dung lượng
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_usage (user_id, file_count, folder_count, total_bytes, updated_at) " +
+                   "VALUES (:userId, :files, :folders, :bytes, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE file_count = VALUES(file_count), folder_count = VALUES(folder_count), " +
+                   "total_bytes = VALUES(total_bytes), updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    void upsert(@Param("userId") Long userId,
+                @Param("files") long files,
+                @Param("folders") long folders,
+                @Param("bytes") long bytes);
+
+    /**
+     * Lấy danh sách ID người dùng đã có bản ghi, theo thứ tự tăng dần (dùng cho đối soát)
+     * 
+     * @param afterUserId Chỉ lấy ID lớn hơn giá trị này
+     * @param pageable Giới hạn số lượng
+     * @return Danh sách ID người dùng
+     */
+    @Query("SELECT u.userId FROM UserUsage u WHERE u.userId > :afterUserId ORDER BY u.userId")
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+}
@@ -1,41 +1,53 @@
 package vn.fpt.assignment_datpd11.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import vn.fpt.assignment_datpd11.repository.UserRepository;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Filter xử lý xác thực JWT token cho mỗi request
  * 
  * Quy trình:
  * 1. Kiểm tra header Authorization có chứa JWT token không
- * 2. Trích xuất và xác thực token
- * 3. Nếu hợp lệ, thiết lập Authentication vào SecurityContext
+ * 2. Parse và xác thực token một lần, tạo UserPrincipal từ các claim
+ * 3. Nếu hợp lệ, thiết lập Authentication (principal là UserPrincipal) vào SecurityContext
  * 4. Cho phép request tiếp tục
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    /**
+     * Quyền mặc định của mọi người dùng đã xác thực
+     */
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserRepository userRepository;
 
     /**
      * Xử lý xác thực JWT token cho mỗi request
      * 
+     * Token chỉ được parse và xác thực chữ ký một lần; ID người dùng được đọc
+     * từ claim uid nên không cần truy vấn database. Chỉ token cũ (không có uid)
+     * mới cần tra cứu người dùng theo email.
+     * 
      * @param request HTTP request
      * @param response HTTP response
      * @param filterChain Filter chain để tiếp tục xử lý request
@@ -46,24 +58,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        userEmail = jwtTokenProvider.extractUsername(jwt);
-
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if (jwtTokenProvider.validateToken(jwt, userDetails)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserPrincipal principal = resolvePrincipal(authHeader.substring(7));
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        AUTHORITIES
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -71,5 +78,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
 
+    /**
+     * Tạo UserPrincipal từ token
+     * 
+     * @param jwt JWT token
+     * @return UserPrincipal, hoặc null nếu token không hợp lệ hoặc người dùng không tồn tại
+     */
+    private UserPrincipal resolvePrincipal(String jwt) {
+        UserPrincipal principal;
+        try {
+            principal = jwtTokenProvider.parsePrincipal(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Invalid or expired token - continue unauthenticated
+            return null;
+        }
+        if (principal.getEmail() == null) {
+            return null;
+        }
+        if (principal.getId() != null) {
+            return principal;
+        }
+
+        // Token issued before the uid claim existed
+        return userRepository.findByEmail(principal.getEmail())
+                .map(user -> new UserPrincipal(user.getId(), user.getEmail()))
+                .orElse(null);
+    }
+}
@@ -1,11 +1,14 @@
 package vn.fpt.assignment_datpd11.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.entity.User;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
@@ -18,10 +21,9 @@ import java.util.function.Function;
  * Component xử lý JWT token
  * 
  * Cung cấp các chức năng:
- * - Tạo JWT token từ thông tin người dùng
+ * - Tạo JWT token từ thông tin người dùng (kèm ID người dùng)
+ * - Xác thực token và tạo principal bằng một lần parse
  * - Trích xuất thông tin từ token
- * - Xác thực token
- * - Kiểm tra token hết hạn
  */
 @Component
 public class JwtTokenProvider {
@@ -39,12 +41,45 @@ public class JwtTokenProvider {
     private Long expiration;
 
     /**
-     * Tạo SecretKey từ secret string
+     * Tên claim chứa ID của người dùng
+     */
+    private static final String USER_ID_CLAIM = "uid";
+
+    /**
+     * Khóa ký token, được tạo một lần khi khởi động
+     */
+    private SecretKey signingKey;
+
+    /**
+     * Parser JWT đã cấu hình khóa xác thực, được tạo một lần và dùng chung (thread-safe)
+     */
+    private JwtParser parser;
+
+    /**
+     * Khởi tạo khóa ký và parser từ secret string
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    /**
+     * Xác thực token và tạo UserPrincipal bằng một lần parse
+     * 
+     * Chữ ký và thời hạn được kiểm tra trong lúc parse.
+     * Token cũ không có claim uid sẽ trả về principal với id null.
      * 
-     * @return SecretKey để ký và xác thực token
+     * @param token JWT token
+     * @return UserPrincipal chứa ID và email của người dùng
+     * @throws JwtException nếu token không hợp lệ hoặc đã hết hạn
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    public UserPrincipal parsePrincipal(String token) {
+        Claims claims = extractAllClaims(token);
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return new UserPrincipal(userId != null ? userId.longValue() : null, claims.getSubject());
     }
 
     /**
@@ -86,38 +121,27 @@ public class JwtTokenProvider {
      * @return Claims object chứa tất cả thông tin trong token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
     /**
-     * Kiểm tra token đã hết hạn chưa
-     * 
-     * @param token JWT token
-     * @return true nếu token đã hết hạn, false nếu chưa
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Tạo JWT token từ thông tin người dùng
+     * Tạo JWT token cho người dùng, kèm ID người dùng trong claim uid
      * 
-     * @param userDetails Thông tin người dùng từ Spring Security
+     * @param user Người dùng cần tạo token
      * @return JWT token string
      */
-    public String generateToken(UserDetails userDetails) {
+    public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername());
+        claims.put(USER_ID_CLAIM, user.getId());
+        return createToken(claims, user.getEmail());
     }
 
     /**
      * Tạo JWT token với claims và subject
      * 
-     * @param claims Các claims bổ sung (hiện tại không sử dụng)
+     * @param claims Các claims bổ sung (ví dụ: uid)
      * @param subject Subject của token (email của người dùng)
      * @return JWT token string
      */
@@ -127,24 +151,7 @@ public class JwtTokenProvider {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
-
-    /**
-     * Xác thực JWT token
-     * 
-     * Kiểm tra:
-     * - Username trong token khớp với username của UserDetails
-     * - Token chưa hết hạn
-     * 
-     * @param token JWT token cần xác thực
-     * @param userDetails Thông tin người dùng từ Spring Security
-     * @return true nếu token hợp lệ, false nếu không
-     */
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
 }
-
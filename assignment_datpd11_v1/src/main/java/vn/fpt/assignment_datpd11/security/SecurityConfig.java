@@ -1,5 +1,6 @@
 package vn.fpt.assignment_datpd11.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -82,6 +83,7 @@ public class SecurityConfig {
      * 
      * Các quy tắc:
      * - Cho phép truy cập công khai: /api/v1/auth/** và /api/v1/debug/**
+     * - Cho phép async dispatch (request đã được xác thực trước khi bắt đầu streaming response)
      * - Yêu cầu xác thực cho tất cả các endpoint khác
      * - Sử dụng JWT authentication filter
      * - Tắt CSRF (vì sử dụng JWT)
@@ -98,6 +100,7 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/api/v1/debug/**").permitAll()
                 .anyRequest().authenticated()
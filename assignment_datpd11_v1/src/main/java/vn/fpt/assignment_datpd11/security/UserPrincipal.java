@@ -0,0 +1,36 @@
+package vn.fpt.assignment_datpd11.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.Principal;
+
+/**
+ * Thông tin người dùng đã xác thực, được tạo trực tiếp từ JWT token
+ * 
+ * Được đặt làm principal của Authentication trong SecurityContext
+ * để controller lấy ID người dùng mà không cần truy vấn database
+ */
+@Getter
+@AllArgsConstructor
+public class UserPrincipal implements Principal {
+    /**
+     * ID của người dùng
+     */
+    private final Long id;
+
+    /**
+     * Email của người dùng (được sử dụng làm username)
+     */
+    private final String email;
+
+    /**
+     * Tên của principal, chính là email của người dùng
+     * 
+     * @return Email của người dùng
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -2,56 +2,72 @@ package vn.fpt.assignment_datpd11.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import vn.fpt.assignment_datpd11.dto.response.MimeUsageResponse;
 import vn.fpt.assignment_datpd11.dto.response.UsageStatsResponse;
-import vn.fpt.assignment_datpd11.entity.FileItem;
-import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.entity.UserUsage;
+import vn.fpt.assignment_datpd11.repository.UserMimeUsageRepository;
 
 import java.text.DecimalFormat;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Service xử lý các nghiệp vụ liên quan đến thống kê và phân tích
  * 
  * Cung cấp các chức năng:
  * - Tính toán thống kê sử dụng storage của người dùng
+ * - Thống kê dung lượng theo loại MIME
  * - Định dạng kích thước file (bytes sang KB, MB, GB, ...)
  */
 @Service
 public class AnalyticsService {
 
     @Autowired
-    private FileItemRepository fileItemRepository;
+    private UsageService usageService;
+
+    @Autowired
+    private UserMimeUsageRepository userMimeUsageRepository;
 
     /**
      * Lấy thống kê sử dụng storage của người dùng
      * 
+     * Đọc từ bản ghi tổng hợp được duy trì bởi UsageService (một lần tra cứu theo khóa chính)
+     * 
      * @param userId ID của người dùng
      * @return UsageStatsResponse chứa tổng số file, thư mục và dung lượng sử dụng
      */
     public UsageStatsResponse getUsageStats(Long userId) {
-        List<FileItem> userFiles = fileItemRepository.findByOwnerIdAndIsDeletedFalse(userId);
-        
-        long totalFiles = userFiles.stream()
-                .filter(f -> f.getType() == FileItem.FileType.FILE)
-                .count();
-        
-        long totalFolders = userFiles.stream()
-                .filter(f -> f.getType() == FileItem.FileType.FOLDER)
-                .count();
-        
-        Long totalSize = fileItemRepository.getTotalSizeByOwner(userId);
-        if (totalSize == null) {
-            totalSize = 0L;
-        }
+        UserUsage usage = usageService.getUsage(userId);
 
         return UsageStatsResponse.builder()
-                .totalFiles(totalFiles)
-                .totalFolders(totalFolders)
-                .totalSize(totalSize)
-                .totalSizeFormatted(formatFileSize(totalSize))
+                .totalFiles(usage.getFileCount())
+                .totalFolders(usage.getFolderCount())
+                .totalSize(usage.getTotalBytes())
+                .totalSizeFormatted(formatFileSize(usage.getTotalBytes()))
                 .build();
     }
 
+    /**
+     * Lấy mức sử dụng storage của người dùng theo từng loại MIME
+     * 
+     * @param userId ID của người dùng
+     * @return Danh sách mức sử dụng theo loại MIME, sắp xếp theo dung lượng giảm dần
+     */
+    public List<MimeUsageResponse> getUsageByMimeType(Long userId) {
+        // Make sure the summary (and its MIME breakdown) has been built
+        usageService.getUsage(userId);
+
+        return userMimeUsageRepository.findByUserIdOrderByTotalBytesDesc(userId).stream()
+                .filter(m -> m.getFileCount() > 0)
+                .map(m -> MimeUsageResponse.builder()
+                        .mimeType(m.getMimeType())
+                        .fileCount(m.getFileCount())
+                        .totalSize(m.getTotalBytes())
+                        .totalSizeFormatted(formatFileSize(m.getTotalBytes()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
     /**
      * Định dạng kích thước file từ bytes sang đơn vị lớn hơn (KB, MB, GB, ...)
      * 
@@ -0,0 +1,297 @@
+package vn.fpt.assignment_datpd11.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Bộ nhớ đệm các file zip thư mục đã tạo, dùng chung giữa các yêu cầu tải xuống
+ * 
+ * Khóa của archive gồm ID thư mục và dấu vân tay (fingerprint) của cây con:
+ * tên và thời điểm cập nhật của thư mục, số lượng item, tổng ID, tổng kích thước
+ * và thời điểm cập nhật mới nhất của các item con cháu (chưa bị xóa).
+ * Thêm, xóa, di chuyển, đổi tên hay cập nhật bất kỳ item nào trong cây đều làm khóa thay đổi,
+ * nên archive cũ không bao giờ được dùng lại cho nội dung mới.
+ * 
+ * Các file được lưu tại {tempPath}/archives/{key}.zip và bị loại bỏ theo LRU khi tổng
+ * kích thước vượt quá giới hạn. Archive được dùng gần đây (trong khoảng thời gian giữ tối thiểu)
+ * không bị loại bỏ để link tải xuống đã trả về cho client vẫn còn hiệu lực.
+ */
+@Service
+public class ArchiveCache {
+
+    private static final String ARCHIVE_SUFFIX = ".zip";
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    /**
+     * Đường dẫn thư mục tạm (đọc từ application.properties)
+     */
+    @Value("${file.storage.temp.path}")
+    private String tempPath;
+
+    /**
+     * Bật/tắt việc dùng lại archive (khi tắt, archive vẫn được quản lý và loại bỏ như bình thường)
+     */
+    @Value("${download.archive-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Tổng kích thước tối đa của các archive trong cache (bytes)
+     */
+    @Value("${download.archive-cache.max-bytes:10737418240}")
+    private long maxBytes;
+
+    /**
+     * Thời gian tối thiểu (phút) giữ một archive kể từ lần sử dụng cuối
+     */
+    @Value("${download.archive-cache.min-retention-minutes:60}")
+    private long minRetentionMinutes;
+
+    /**
+     * Archive trong cache theo thứ tự truy cập (cũ nhất ở đầu)
+     */
+    private final LinkedHashMap<String, CachedArchive> archives = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    /**
+     * Một archive trong cache
+     */
+    private static class CachedArchive {
+        final Path path;
+        final long size;
+        long lastUsed;
+
+        CachedArchive(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * Nạp lại danh sách archive còn trên đĩa khi khởi động và xóa các file tạm dở dang
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Path dir = getArchiveDir();
+            Files.createDirectories(dir);
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(dir)) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingLong(this::lastModified));
+
+            synchronized (this) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(ARCHIVE_SUFFIX)) {
+                        String key = fileName.substring(0, fileName.length() - ARCHIVE_SUFFIX.length());
+                        long size = Files.size(file);
+                        archives.put(key, new CachedArchive(file, size, lastModified(file)));
+                        totalBytes += size;
+                    } else {
+                        // Leftover from an archive that was being built when the server stopped
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            evict();
+        } catch (IOException e) {
+            System.err.println("Error loading archive cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Khóa archive cùng tổng kích thước dữ liệu của cây con tại cùng thời điểm
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Fingerprint {
+        /**
+         * Khóa archive dạng "{folderId}-{hex}"
+         */
+        private final String key;
+
+        /**
+         * Tổng kích thước các file trong cây con (bytes), dùng để ước lượng chi phí tạo zip
+         */
+        private final long totalBytes;
+    }
+
+    /**
+     * Tính khóa cache cho trạng thái hiện tại của thư mục
+     * 
+     * @param folder Thư mục cần zip
+     * @return Khóa dạng hex
+     */
+    public String computeKey(FileItem folder) {
+        return computeFingerprint(folder).getKey();
+    }
+
+    /**
+     * Tính khóa cache và kích thước ước lượng của thư mục
+     * Chỉ dùng một truy vấn tổng hợp trên cây con theo đường dẫn vật chất hóa
+     * 
+     * @param folder Thư mục cần zip
+     * @return Fingerprint của cây con
+     */
+    public Fingerprint computeFingerprint(FileItem folder) {
+        List<Object[]> rows = fileItemRepository.summarizeSubtree(folder.childPath());
+        Object[] summary = rows.isEmpty() ? new Object[4] : rows.get(0);
+
+        String fingerprint = folder.getId() + "|" + folder.getName() + "|" + folder.getUpdatedAt()
+                + "|" + summary[0] + "|" + summary[1] + "|" + summary[2] + "|" + summary[3];
+        long totalBytes = summary[2] != null ? ((Number) summary[2]).longValue() : 0;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return new Fingerprint(folder.getId() + "-" + HexFormat.of().formatHex(hash, 0, 16), totalBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Lấy archive trong cache theo khóa
+     * 
+     * @param key Khóa archive
+     * @return Đường dẫn file zip, hoặc null nếu chưa có trong cache
+     */
+    public synchronized Path get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedArchive archive = archives.get(key);
+        if (archive == null) {
+            return null;
+        }
+        if (!Files.exists(archive.path)) {
+            // Removed from disk behind our back
+            archives.remove(key);
+            totalBytes -= archive.size;
+            return null;
+        }
+        archive.lastUsed = System.currentTimeMillis();
+        return archive.path;
+    }
+
+    /**
+     * Đánh dấu một archive vừa được sử dụng (ví dụ: khi client tải file zip đã sẵn sàng)
+     * 
+     * @param path Đường dẫn file zip
+     */
+    public synchronized void touch(Path path) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(ARCHIVE_SUFFIX)) {
+            get(fileName.substring(0, fileName.length() - ARCHIVE_SUFFIX.length()));
+        }
+    }
+
+    /**
+     * Tạo file tạm trong thư mục cache để ghi archive mới
+     * 
+     * @return Đường dẫn file tạm
+     * @throws IOException nếu có lỗi khi tạo thư mục
+     */
+    public Path createTempFile() throws IOException {
+        Path dir = getArchiveDir();
+        Files.createDirectories(dir);
+        return dir.resolve(UUID.randomUUID() + ".part");
+    }
+
+    /**
+     * Đưa một archive vừa tạo xong vào cache
+     * Nếu archive cùng khóa đã có (được tạo song song), file mới bị xóa và dùng bản đã có
+     * 
+     * @param key Khóa archive
+     * @param builtFile File tạm chứa archive hoàn chỉnh
+     * @return Đường dẫn file zip trong cache
+     * @throws IOException nếu có lỗi khi di chuyển file
+     */
+    public Path put(String key, Path builtFile) throws IOException {
+        Path target = getArchiveDir().resolve(key + ARCHIVE_SUFFIX);
+        synchronized (this) {
+            Path existing = get(key);
+            if (existing != null) {
+                Files.deleteIfExists(builtFile);
+                return existing;
+            }
+            Files.move(builtFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            CachedArchive replaced = archives.remove(key);
+            if (replaced != null) {
+                totalBytes -= replaced.size;
+            }
+            long size = Files.size(target);
+            archives.put(key, new CachedArchive(target, size, System.currentTimeMillis()));
+            totalBytes += size;
+        }
+        evict();
+        return target;
+    }
+
+    /**
+     * Loại bỏ các archive ít được dùng nhất cho đến khi tổng kích thước nằm trong giới hạn
+     * Archive được dùng trong khoảng thời gian giữ tối thiểu không bị loại bỏ
+     * 
+     * Đọc file đang mở vẫn tiếp tục được sau khi file bị xóa, nên việc loại bỏ
+     * không làm gián đoạn các lượt tải đang diễn ra
+     */
+    public synchronized void evict() {
+        long retainAfter = System.currentTimeMillis() - minRetentionMinutes * 60_000L;
+        Iterator<Map.Entry<String, CachedArchive>> it = archives.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            CachedArchive archive = it.next().getValue();
+            if (archive.lastUsed >= retainAfter) {
+                // Entries are in access order - everything after this one is newer
+                break;
+            }
+            try {
+                Files.deleteIfExists(archive.path);
+            } catch (IOException e) {
+                System.err.println("Error evicting archive " + archive.path + ": " + e.getMessage());
+                continue;
+            }
+            it.remove();
+            totalBytes -= archive.size;
+        }
+    }
+
+    private Path getArchiveDir() {
+        return Paths.get(tempPath, "archives");
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -1,31 +1,33 @@
 package vn.fpt.assignment_datpd11.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.archive.ArchiveEntry;
+import vn.fpt.assignment_datpd11.archive.ArchiveSource;
+import vn.fpt.assignment_datpd11.archive.ParallelZipArchiver;
 import vn.fpt.assignment_datpd11.entity.DownloadRequest;
 import vn.fpt.assignment_datpd11.entity.FileItem;
 import vn.fpt.assignment_datpd11.repository.DownloadRequestRepository;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.FileNode;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Service xử lý tải xuống thư mục bất đồng bộ
  * 
  * Cung cấp các chức năng:
- * - Tạo file zip từ thư mục và tất cả file con (xử lý bất đồng bộ)
+ * - Tạo file zip từ thư mục và tất cả file con (chạy trên DownloadJobScheduler, nén song song)
+ * - Ghi file zip trực tiếp ra OutputStream (dùng cho tải xuống dạng streaming)
+ * - Dùng lại archive đã tạo trong ArchiveCache khi nội dung thư mục không thay đổi
  * - Cập nhật trạng thái yêu cầu tải xuống
+ * - Một lần tạo zip hoàn tất mọi yêu cầu cùng khóa archive
  */
 @Service
 public class AsyncDownloadService {
@@ -36,96 +38,152 @@ public class AsyncDownloadService {
     @Autowired
     private FileItemRepository fileItemRepository;
 
+    @Autowired
+    private SubtreeLoader subtreeLoader;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ParallelZipArchiver parallelZipArchiver;
+
+    @Autowired
+    private ArchiveCache archiveCache;
+
+    @Autowired
+    private DownloadProgressTracker downloadProgressTracker;
+
     /**
-     * Đường dẫn thư mục tạm để lưu file zip (đọc từ application.properties)
+     * Trạng thái của yêu cầu chưa có kết quả
      */
-    @Value("${file.storage.temp.path}")
-    private String tempPath;
+    private static final List<DownloadRequest.DownloadStatus> ACTIVE_STATUSES = List.of(
+            DownloadRequest.DownloadStatus.PENDING, DownloadRequest.DownloadStatus.PROCESSING);
 
     /**
-     * Xử lý tải xuống thư mục bất đồng bộ
+     * Tạo file zip cho mọi yêu cầu cùng khóa archive
+     * Được gọi bởi DownloadJobScheduler trên thread pool riêng, sau khi các yêu cầu
+     * cùng khóa đã được chuyển sang PROCESSING
      * 
      * Quy trình:
-     * 1. Cập nhật trạng thái thành PROCESSING
-     * 2. Tạo file zip từ thư mục và tất cả file con
-     * 3. Lưu đường dẫn file zip
-     * 4. Cập nhật trạng thái thành READY
-     * 5. Nếu có lỗi, cập nhật trạng thái thành FAILED
+     * 1. Tạo file zip từ thư mục và tất cả file con (hoặc lấy lại từ cache)
+     * 2. Cập nhật tất cả yêu cầu cùng khóa (kể cả yêu cầu mới đến trong lúc nén) thành READY
+     * 3. Nếu có lỗi, cập nhật tất cả yêu cầu cùng khóa thành FAILED
      * 
-     * @param requestId ID của yêu cầu tải xuống
+     * Tiến độ (bytes và số mục đã ghi) được báo cho DownloadProgressTracker trong suốt quá trình nén.
+     * Mỗi lần cập nhật trạng thái được commit ngay, không giữ khóa dòng trong suốt quá trình nén.
+     * 
+     * @param archiveKey Khóa archive
+     * @param folderId ID của thư mục cần zip
      */
-    @Async
-    @Transactional
-    public void processFolderDownload(String requestId) {
-        DownloadRequest request = downloadRequestRepository.findByRequestId(requestId)
-                .orElseThrow(() -> new RuntimeException("Download request not found"));
-
+    public void processFolderDownload(String archiveKey, Long folderId) {
         try {
-            request.setStatus(DownloadRequest.DownloadStatus.PROCESSING);
-            downloadRequestRepository.save(request);
+            FileItem folder = fileItemRepository.findByIdAndIsDeletedFalse(folderId)
+                    .orElseThrow(() -> new RuntimeException("Folder not found"));
+            Path zipPath = createZipFile(folder, archiveKey);
 
-            FileItem folder = request.getFileItem();
-            Path zipPath = createZipFile(folder);
-
-            request.setZipFilePath(zipPath.toString());
-            request.setStatus(DownloadRequest.DownloadStatus.READY);
-            downloadRequestRepository.save(request);
+            downloadRequestRepository.updateStatusByArchiveKey(archiveKey, ACTIVE_STATUSES,
+                    DownloadRequest.DownloadStatus.READY, zipPath.toString(), null, LocalDateTime.now());
+            downloadProgressTracker.finish(archiveKey, DownloadRequest.DownloadStatus.READY, null);
         } catch (Exception e) {
-            request.setStatus(DownloadRequest.DownloadStatus.FAILED);
-            request.setErrorMessage(e.getMessage());
-            downloadRequestRepository.save(request);
+            downloadRequestRepository.updateStatusByArchiveKey(archiveKey, ACTIVE_STATUSES,
+                    DownloadRequest.DownloadStatus.FAILED, null, e.getMessage(), LocalDateTime.now());
+            downloadProgressTracker.finish(archiveKey, DownloadRequest.DownloadStatus.FAILED, e.getMessage());
         }
     }
 
     /**
-     * Tạo file zip từ thư mục
+     * Lấy file zip của thư mục từ cache, hoặc tạo mới và đưa vào cache
+     * 
+     * Khóa cache được tính trước khi đọc cây thư mục, nên thay đổi xảy ra trong lúc nén
+     * sẽ làm lần yêu cầu sau tạo archive mới thay vì dùng bản cũ.
      * 
      * @param folder Thư mục cần zip
-     * @return Đường dẫn đến file zip đã tạo
+     * @param key Khóa archive của thư mục
+     * @return Đường dẫn đến file zip
      * @throws IOException nếu có lỗi khi tạo file zip
      */
-    private Path createZipFile(FileItem folder) throws IOException {
-        Path tempDir = Paths.get(tempPath);
-        if (!Files.exists(tempDir)) {
-            Files.createDirectories(tempDir);
+    private Path createZipFile(FileItem folder, String key) throws IOException {
+        Path cached = archiveCache.get(key);
+        if (cached != null) {
+            return cached;
         }
 
-        String zipFileName = folder.getName() + "_" + UUID.randomUUID() + ".zip";
-        Path zipPath = tempDir.resolve(zipFileName);
+        List<ArchiveEntry> entries = collectEntries(folder, folder.getName() + "/");
+        downloadProgressTracker.start(key, entries.stream().mapToLong(ArchiveEntry::getSize).sum(), entries.size());
 
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()))) {
-            addFolderToZip(folder, zos, folder.getName() + "/");
+        Path tempFile = archiveCache.createTempFile();
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            parallelZipArchiver.write(entries, out,
+                    (bytes, count) -> downloadProgressTracker.update(key, bytes, count));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
         }
+        return archiveCache.put(key, tempFile);
+    }
 
-        return zipPath;
+    /**
+     * Ghi nội dung zip của thư mục trực tiếp vào một OutputStream
+     * 
+     * Nếu archive của đúng trạng thái hiện tại đã có trong cache thì gửi lại file đó.
+     * Nếu chưa, cây thư mục được lấy bằng một truy vấn, nội dung các file được nén song song
+     * bởi ParallelZipArchiver và gửi đi ngay, không ghi ra thư mục tạm: tải một thư mục lớn
+     * một lần không chiếm thêm dung lượng đĩa. Chỉ archive tạo bởi yêu cầu bất đồng bộ
+     * (createZipFile) được đưa vào cache. OutputStream không bị đóng sau khi ghi xong.
+     * 
+     * @param folder Thư mục cần zip
+     * @param out OutputStream đích (ví dụ: output của HTTP response)
+     * @throws IOException nếu có lỗi khi đọc file hoặc ghi dữ liệu
+     */
+    public void writeFolderZip(FileItem folder, OutputStream out) throws IOException {
+        Path cached = archiveCache.get(archiveCache.computeKey(folder));
+        if (cached != null) {
+            Files.copy(cached, out);
+            return;
+        }
+
+        parallelZipArchiver.write(collectEntries(folder, folder.getName() + "/"), out);
     }
 
     /**
-     * Thêm thư mục và tất cả file con vào zip (đệ quy)
+     * Lấy danh sách mục zip của thư mục và tất cả file con
      * 
-     * @param folder Thư mục cần thêm
-     * @param zos ZipOutputStream để ghi file
+     * Toàn bộ cây con được SubtreeLoader nạp bằng một truy vấn dưới dạng FileNode,
+     * không tạo entity được quản lý, rồi duyệt theo thứ tự trước nên thư mục cha
+     * luôn được ghi trước các item con.
+     * Nội dung các file chưa được lấy ở bước này: ParallelZipArchiver mở nguồn của từng file
+     * khi bắt đầu ghi file đó (xem openSource).
+     * 
+     * @param folder Thư mục cần zip
      * @param basePath Đường dẫn cơ sở trong zip
-     * @throws IOException nếu có lỗi khi ghi file
+     * @return Danh sách mục theo thứ tự ghi
      */
-    private void addFolderToZip(FileItem folder, ZipOutputStream zos, String basePath) throws IOException {
-        List<FileItem> children = fileItemRepository.findByParentIdAndIsDeletedFalse(folder.getId());
-        
-        for (FileItem item : children) {
-            String entryPath = basePath + item.getName();
-            
-            if (item.getType() == FileItem.FileType.FOLDER) {
-                zos.putNextEntry(new ZipEntry(entryPath + "/"));
-                zos.closeEntry();
-                addFolderToZip(item, zos, entryPath + "/");
+    private List<ArchiveEntry> collectEntries(FileItem folder, String basePath) {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        subtreeLoader.walk(subtreeLoader.load(folder), (node, relativePath) -> {
+            String entryPath = basePath + relativePath;
+            if (node.isFolder()) {
+                entries.add(new ArchiveEntry(entryPath + "/", null, node.getUpdatedAt(), null, 0));
             } else {
-                zos.putNextEntry(new ZipEntry(entryPath));
-                if (item.getFilePath() != null && Files.exists(Paths.get(item.getFilePath()))) {
-                    Files.copy(Paths.get(item.getFilePath()), zos);
-                }
-                zos.closeEntry();
+                ArchiveSource source = node.getFilePath() != null ? () -> openSource(node) : null;
+                entries.add(new ArchiveEntry(entryPath, source, node.getUpdatedAt(), node.getMimeType(),
+                        node.getFileSize() != null ? node.getFileSize() : 0));
             }
-        }
+        });
+        return entries;
     }
-}
 
+    /**
+     * Mở file cục bộ để nén một file vào archive
+     * Blob ở nơi lưu trữ từ xa được tải về một file tạm, bị xóa khi archiver ghi xong mục
+     * 
+     * @param node File cần nén
+     * @return Nguồn đã mở; file không tồn tại được ghi thành mục rỗng
+     * @throws IOException nếu có lỗi khi tải blob
+     */
+    private ArchiveSource.Opened openSource(FileNode node) throws IOException {
+        FileStorageService.LocalCopy copy = fileStorageService.openLocalCopy(node.getFilePath());
+        boolean compressed = fileStorageService.isCompressed(node.getContentHash(), node.getCodec(), copy.getPath());
+        return new ArchiveSource.Opened(copy.getPath(), compressed, copy);
+    }
+}
@@ -3,7 +3,6 @@ package vn.fpt.assignment_datpd11.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,7 +11,6 @@ import vn.fpt.assignment_datpd11.dto.request.RegisterRequest;
 import vn.fpt.assignment_datpd11.dto.response.AuthResponse;
 import vn.fpt.assignment_datpd11.entity.User;
 import vn.fpt.assignment_datpd11.repository.UserRepository;
-import vn.fpt.assignment_datpd11.security.CustomUserDetailsService;
 import vn.fpt.assignment_datpd11.security.JwtTokenProvider;
 
 /**
@@ -37,9 +35,6 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
-    @Autowired
-    private CustomUserDetailsService userDetailsService;
-
     /**
      * Đăng ký tài khoản người dùng mới
      * 
@@ -67,8 +62,7 @@ public class AuthService {
 
         user = userRepository.save(user);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String token = jwtTokenProvider.generateToken(userDetails);
+        String token = jwtTokenProvider.generateToken(user);
 
         return AuthResponse.builder()
                 .token(token)
@@ -95,12 +89,11 @@ public class AuthService {
                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
         );
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getEmail());
-        String token = jwtTokenProvider.generateToken(userDetails);
-
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        String token = jwtTokenProvider.generateToken(user);
+
         return AuthResponse.builder()
                 .token(token)
                 .email(user.getEmail())
@@ -0,0 +1,317 @@
+package vn.fpt.assignment_datpd11.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import vn.fpt.assignment_datpd11.dto.response.DownloadQueueResponse;
+import vn.fpt.assignment_datpd11.entity.DownloadRequest;
+import vn.fpt.assignment_datpd11.event.FolderDownloadRequestedEvent;
+import vn.fpt.assignment_datpd11.repository.DownloadRequestRepository;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bộ lập lịch các job tạo file zip thư mục
+ * 
+ * - Hàng đợi được lưu trong database: mọi DownloadRequest ở trạng thái PENDING đang chờ xử lý,
+ *   nên job không bị mất khi khởi động lại server
+ * - Ưu tiên job nhỏ: hàng đợi được sắp xếp theo kích thước ước lượng, sau đó theo thời điểm tạo
+ * - Công bằng: mỗi người dùng chỉ có tối đa perUserLimit job chạy cùng lúc
+ * - Một số slot được dành riêng cho job nhỏ, nên job nhỏ không phải chờ sau các archive rất lớn
+ * - Mỗi khóa archive chỉ có một job; các yêu cầu cùng khóa được hoàn tất cùng nhau
+ * - Nhiều instance dùng chung hàng đợi: job được nhận kèm ID node và hạn thuê, node chạy job
+ *   gia hạn định kỳ; job chỉ được đưa lại hàng đợi khi node của nó khởi động lại hoặc hết hạn thuê
+ * 
+ * Job chạy trên thread pool downloadExecutor riêng và chỉ được gửi vào khi còn slot trống,
+ * nên không bao giờ bị từ chối vì hàng đợi của thread pool đầy.
+ */
+@Service
+public class DownloadJobScheduler {
+
+    @Autowired
+    private DownloadRequestRepository downloadRequestRepository;
+
+    @Autowired
+    private AsyncDownloadService asyncDownloadService;
+
+    @Autowired
+    @Qualifier("downloadExecutor")
+    private AsyncTaskExecutor downloadExecutor;
+
+    /**
+     * Số job tạo zip tối đa chạy cùng lúc
+     */
+    @Value("${download.scheduler.max-concurrent-jobs:4}")
+    private int maxConcurrentJobs;
+
+    /**
+     * Số job tối đa của một người dùng chạy cùng lúc
+     */
+    @Value("${download.scheduler.per-user-limit:1}")
+    private int perUserLimit;
+
+    /**
+     * Job có kích thước ước lượng không vượt quá ngưỡng này được coi là job nhỏ (bytes)
+     */
+    @Value("${download.scheduler.small-job-threshold-bytes:104857600}")
+    private long smallJobThresholdBytes;
+
+    /**
+     * Số slot chỉ dành cho job nhỏ
+     */
+    @Value("${download.scheduler.reserved-small-slots:1}")
+    private int reservedSmallSlots;
+
+    /**
+     * Số yêu cầu đọc từ đầu hàng đợi mỗi lần chọn job
+     */
+    @Value("${download.scheduler.scan-size:200}")
+    private int scanSize;
+
+    /**
+     * ID của node này, phải khác nhau giữa các instance (mặc định: tên máy)
+     */
+    @Value("${download.scheduler.node-id:}")
+    private String nodeId;
+
+    /**
+     * Thời hạn thuê của job đang chạy (giây); được gia hạn mỗi lần quét hàng đợi
+     */
+    @Value("${download.scheduler.lease-seconds:120}")
+    private long leaseSeconds;
+
+    /**
+     * Job đang chạy theo khóa archive
+     */
+    private final Map<String, RunningJob> runningJobs = new HashMap<>();
+
+    /**
+     * Số job đang chạy của mỗi người dùng
+     */
+    private final Map<Long, Integer> runningPerUser = new HashMap<>();
+
+    /**
+     * Thông tin một job đang chạy
+     */
+    private static class RunningJob {
+        final Long userId;
+        final boolean large;
+        final long estimatedSize;
+
+        RunningJob(Long userId, boolean large, long estimatedSize) {
+            this.userId = userId;
+            this.large = large;
+            this.estimatedSize = estimatedSize;
+        }
+    }
+
+    /**
+     * Xác định ID của node khi chưa được cấu hình
+     */
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                nodeId = UUID.randomUUID().toString();
+            }
+        }
+    }
+
+    /**
+     * Khôi phục hàng đợi khi khởi động
+     * 
+     * - Job PROCESSING của chính node này (dừng cùng server) hoặc đã hết hạn thuê được đưa trở lại PENDING;
+     *   job đang chạy trên instance khác vẫn được gia hạn nên không bị động tới
+     * - Yêu cầu cũ chưa có archiveKey không thể gộp hay xếp hàng nên được đánh dấu FAILED
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverQueue() {
+        LocalDateTime now = LocalDateTime.now();
+        downloadRequestRepository.failWithoutArchiveKey(
+                List.of(DownloadRequest.DownloadStatus.PENDING, DownloadRequest.DownloadStatus.PROCESSING),
+                "Download request expired, please request it again", now);
+        int requeued = downloadRequestRepository.requeueInterrupted(nodeId, now);
+        if (requeued > 0) {
+            System.out.println("Requeued " + requeued + " interrupted download requests");
+        }
+        dispatch();
+    }
+
+    /**
+     * Chọn job ngay khi có yêu cầu tải xuống mới được commit
+     * Transaction tạo yêu cầu đã commit nên được tạm ngưng: mỗi lần nhận job tự commit ngay
+     * 
+     * @param event Sự kiện yêu cầu tải xuống thư mục
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onFolderDownloadRequested(FolderDownloadRequestedEvent event) {
+        dispatch();
+    }
+
+    /**
+     * Quét hàng đợi định kỳ (phòng trường hợp bỏ lỡ sự kiện hoặc yêu cầu từ instance khác)
+     * 
+     * Đồng thời gia hạn thuê cho các job đang chạy trên node này và đưa trở lại hàng đợi
+     * các job đã hết hạn thuê của node đã dừng.
+     */
+    @Scheduled(fixedDelayString = "${download.scheduler.poll-interval-ms:5000}")
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> running;
+        synchronized (this) {
+            running = new ArrayList<>(runningJobs.keySet());
+        }
+        if (!running.isEmpty()) {
+            downloadRequestRepository.renewLeases(running, nodeId, now.plusSeconds(leaseSeconds));
+        }
+        int requeued = downloadRequestRepository.requeueExpired(now);
+        if (requeued > 0) {
+            System.out.println("Requeued " + requeued + " download requests with an expired lease");
+        }
+        dispatch();
+    }
+
+    /**
+     * Khởi chạy các job đang chờ cho đến khi hết slot hoặc hết job đủ điều kiện
+     * 
+     * Với mỗi slot trống, chọn yêu cầu đầu tiên trong hàng đợi (nhỏ trước, cũ trước) thỏa mãn:
+     * khóa archive chưa có job đang chạy, người dùng chưa đạt giới hạn, và nếu là job lớn
+     * thì vẫn còn slot ngoài các slot dành cho job nhỏ.
+     */
+    public synchronized void dispatch() {
+        while (runningJobs.size() < maxConcurrentJobs) {
+            List<DownloadRequest> queue = downloadRequestRepository.findQueue(
+                    DownloadRequest.DownloadStatus.PENDING, PageRequest.of(0, scanSize));
+            DownloadRequest next = queue.stream()
+                    .filter(this::canStart)
+                    .findFirst()
+                    .orElse(null);
+            if (next == null) {
+                return;
+            }
+
+            String archiveKey = next.getArchiveKey();
+            Long folderId = next.getFileItem().getId();
+            long estimatedSize = next.getEstimatedSize() != null ? next.getEstimatedSize() : 0;
+
+            // Claim every waiting request for this archive
+            LocalDateTime now = LocalDateTime.now();
+            int claimed = downloadRequestRepository.claim(archiveKey, nodeId, now.plusSeconds(leaseSeconds), now);
+            if (claimed == 0) {
+                continue;
+            }
+
+            RunningJob job = new RunningJob(next.getUser().getId(), isLarge(estimatedSize), estimatedSize);
+            runningJobs.put(archiveKey, job);
+            runningPerUser.merge(job.userId, 1, Integer::sum);
+            try {
+                downloadExecutor.execute(() -> runJob(archiveKey, folderId));
+            } catch (TaskRejectedException e) {
+                // Executor is shutting down - put the requests back for the next start
+                finishJob(archiveKey);
+                downloadRequestRepository.updateStatusByArchiveKey(archiveKey,
+                        List.of(DownloadRequest.DownloadStatus.PROCESSING),
+                        DownloadRequest.DownloadStatus.PENDING, null, null, LocalDateTime.now());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lấy số liệu hàng đợi tải xuống
+     * 
+     * @return DownloadQueueResponse chứa số yêu cầu/job đang chờ và đang chạy
+     */
+    public DownloadQueueResponse getQueueStats() {
+        LocalDateTime oldestPending = downloadRequestRepository
+                .findOldestCreatedAt(DownloadRequest.DownloadStatus.PENDING);
+
+        DownloadQueueResponse.DownloadQueueResponseBuilder builder = DownloadQueueResponse.builder()
+                .pendingRequests(downloadRequestRepository.countByStatus(DownloadRequest.DownloadStatus.PENDING))
+                .pendingJobs(downloadRequestRepository.countArchiveKeysByStatus(DownloadRequest.DownloadStatus.PENDING))
+                .processingRequests(downloadRequestRepository.countByStatus(DownloadRequest.DownloadStatus.PROCESSING))
+                .oldestPendingSeconds(oldestPending != null
+                        ? Duration.between(oldestPending, LocalDateTime.now()).getSeconds()
+                        : 0L)
+                .maxConcurrentJobs(maxConcurrentJobs)
+                .perUserLimit(perUserLimit);
+
+        synchronized (this) {
+            builder.runningJobs(runningJobs.size())
+                    .runningLargeJobs((int) runningJobs.values().stream().filter(job -> job.large).count())
+                    .runningBytes(runningJobs.values().stream().mapToLong(job -> job.estimatedSize).sum())
+                    .activeUsers(runningPerUser.size());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Chạy một job trên downloadExecutor, giải phóng slot và chọn job tiếp theo khi xong
+     */
+    private void runJob(String archiveKey, Long folderId) {
+        try {
+            asyncDownloadService.processFolderDownload(archiveKey, folderId);
+        } finally {
+            finishJob(archiveKey);
+            try {
+                dispatch();
+            } catch (Exception e) {
+                // The periodic poll will pick the queue up again
+                System.err.println("Error dispatching download jobs: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void finishJob(String archiveKey) {
+        RunningJob job = runningJobs.remove(archiveKey);
+        if (job != null) {
+            runningPerUser.computeIfPresent(job.userId, (userId, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Kiểm tra yêu cầu có thể được khởi chạy ngay không
+     */
+    private boolean canStart(DownloadRequest request) {
+        if (runningJobs.containsKey(request.getArchiveKey())) {
+            // Its job is already running and will complete it
+            return false;
+        }
+        if (runningPerUser.getOrDefault(request.getUser().getId(), 0) >= perUserLimit) {
+            return false;
+        }
+        long estimatedSize = request.getEstimatedSize() != null ? request.getEstimatedSize() : 0;
+        if (isLarge(estimatedSize)) {
+            long runningLarge = runningJobs.values().stream().filter(job -> job.large).count();
+            // At least one slot always stays open to large jobs
+            return runningLarge < Math.max(1, maxConcurrentJobs - reservedSmallSlots);
+        }
+        return true;
+    }
+
+    private boolean isLarge(long estimatedSize) {
+        return estimatedSize > smallJobThresholdBytes;
+    }
+}
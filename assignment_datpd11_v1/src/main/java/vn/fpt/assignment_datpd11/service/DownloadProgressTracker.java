@@ -0,0 +1,274 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import vn.fpt.assignment_datpd11.dto.response.DownloadResponse;
+import vn.fpt.assignment_datpd11.entity.DownloadRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Theo dõi tiến độ các job tạo file zip và đẩy tiến độ tới client qua Server-Sent Events
+ * 
+ * - Tiến độ (bytes, số mục đã ghi) được lưu trong bộ nhớ theo khóa archive,
+ *   job chỉ cập nhật vài trường nên không làm chậm việc nén
+ * - Việc gửi sự kiện được thực hiện định kỳ trên luồng riêng, nên client chậm
+ *   không làm chậm job tạo zip
+ * - Khi job kết thúc, mỗi client nhận sự kiện "complete" kèm trạng thái cuối rồi đóng kết nối
+ * - Kết quả của job đã kết thúc chỉ áp dụng cho yêu cầu được tạo trước khi job kết thúc:
+ *   yêu cầu mới cùng khóa archive (xếp hàng lại sau một lần thất bại) không nhận kết quả cũ
+ */
+@Service
+public class DownloadProgressTracker {
+
+    /**
+     * Tên sự kiện tiến độ
+     */
+    public static final String EVENT_PROGRESS = "progress";
+
+    /**
+     * Tên sự kiện kết thúc (trạng thái READY hoặc FAILED)
+     */
+    public static final String EVENT_COMPLETE = "complete";
+
+    /**
+     * Thời gian giữ kết quả của job đã kết thúc cho client đăng ký muộn (mili giây)
+     */
+    private static final long FINISHED_RETENTION_MS = 60_000;
+
+    /**
+     * Thời gian tối đa của một kết nối SSE (mili giây)
+     */
+    @Value("${download.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    /**
+     * Tiến độ của các job đang chạy hoặc vừa kết thúc, theo khóa archive
+     */
+    private final Map<String, Progress> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Các client đang theo dõi
+     */
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Tiến độ của một job
+     */
+    private static class Progress {
+        final long totalBytes;
+        final int totalEntries;
+        final long startedAt = System.currentTimeMillis();
+        volatile long bytesProcessed;
+        volatile int entriesProcessed;
+        volatile DownloadRequest.DownloadStatus finalStatus;
+        volatile String errorMessage;
+        volatile LocalDateTime finishedAt;
+
+        Progress(long totalBytes, int totalEntries) {
+            this.totalBytes = totalBytes;
+            this.totalEntries = totalEntries;
+        }
+    }
+
+    /**
+     * Một client đang theo dõi tiến độ của một yêu cầu tải xuống
+     */
+    private static class Subscriber {
+        final String requestId;
+        final String archiveKey;
+        final LocalDateTime requestCreatedAt;
+        final SseEmitter emitter;
+        long lastBytesSent = -1;
+
+        Subscriber(DownloadRequest request, SseEmitter emitter) {
+            this.requestId = request.getRequestId();
+            this.archiveKey = request.getArchiveKey();
+            this.requestCreatedAt = request.getCreatedAt();
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Bắt đầu theo dõi một job
+     * 
+     * @param archiveKey Khóa archive
+     * @param totalBytes Tổng số bytes dữ liệu cần ghi
+     * @param totalEntries Tổng số mục cần ghi
+     */
+    public void start(String archiveKey, long totalBytes, int totalEntries) {
+        jobs.put(archiveKey, new Progress(totalBytes, totalEntries));
+    }
+
+    /**
+     * Cập nhật tiến độ của job (gọi từ luồng tạo zip)
+     * 
+     * @param archiveKey Khóa archive
+     * @param bytesProcessed Số bytes đã ghi
+     * @param entriesProcessed Số mục đã ghi
+     */
+    public void update(String archiveKey, long bytesProcessed, int entriesProcessed) {
+        Progress progress = jobs.get(archiveKey);
+        if (progress != null) {
+            progress.bytesProcessed = bytesProcessed;
+            progress.entriesProcessed = entriesProcessed;
+        }
+    }
+
+    /**
+     * Ghi nhận job đã kết thúc; các client sẽ nhận sự kiện "complete" ở lần gửi kế tiếp
+     * 
+     * @param archiveKey Khóa archive
+     * @param status READY hoặc FAILED
+     * @param errorMessage Thông báo lỗi (null nếu thành công)
+     */
+    public void finish(String archiveKey, DownloadRequest.DownloadStatus status, String errorMessage) {
+        Progress progress = jobs.computeIfAbsent(archiveKey, key -> new Progress(0, 0));
+        progress.errorMessage = errorMessage;
+        progress.finishedAt = LocalDateTime.now();
+        progress.finalStatus = status;
+    }
+
+    /**
+     * Bỏ kết quả của job đã kết thúc khi một yêu cầu mới cùng khóa archive được xếp hàng
+     * (job đang chạy được giữ nguyên: nó sẽ hoàn tất cả yêu cầu mới)
+     * 
+     * @param archiveKey Khóa archive
+     */
+    public void discardFinished(String archiveKey) {
+        jobs.computeIfPresent(archiveKey, (key, progress) -> progress.finalStatus != null ? null : progress);
+    }
+
+    /**
+     * Bổ sung thông tin tiến độ vào DownloadResponse của một yêu cầu đang xử lý
+     * 
+     * @param request Yêu cầu tải xuống
+     * @param response DownloadResponse cần bổ sung
+     */
+    public void fillProgress(DownloadRequest request, DownloadResponse response) {
+        fillProgress(find(request.getArchiveKey(), request.getCreatedAt()), response);
+    }
+
+    private void fillProgress(Progress progress, DownloadResponse response) {
+        if (progress == null) {
+            return;
+        }
+        long bytes = progress.bytesProcessed;
+        response.setBytesProcessed(bytes);
+        response.setTotalBytes(progress.totalBytes);
+        response.setEntriesProcessed(progress.entriesProcessed);
+        response.setTotalEntries(progress.totalEntries);
+        if (progress.totalBytes > 0) {
+            response.setPercent((int) Math.min(100, bytes * 100 / progress.totalBytes));
+        } else if (progress.totalEntries > 0) {
+            response.setPercent(Math.min(100, progress.entriesProcessed * 100 / progress.totalEntries));
+        }
+        if (bytes > 0 && progress.totalBytes > bytes) {
+            long elapsed = System.currentTimeMillis() - progress.startedAt;
+            response.setEtaSeconds((long) ((double) elapsed * (progress.totalBytes - bytes) / bytes / 1000));
+        }
+    }
+
+    /**
+     * Đăng ký một client theo dõi tiến độ
+     * 
+     * @param request Yêu cầu tải xuống
+     * @param current Trạng thái hiện tại của yêu cầu (gửi ngay cho client)
+     * @return SseEmitter dùng làm response
+     * @throws IOException nếu không gửi được trạng thái ban đầu
+     */
+    public SseEmitter subscribe(DownloadRequest request, DownloadResponse current) throws IOException {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        boolean terminal = DownloadRequest.DownloadStatus.READY.name().equals(current.getStatus())
+                || DownloadRequest.DownloadStatus.FAILED.name().equals(current.getStatus());
+        if (terminal || request.getArchiveKey() == null) {
+            emitter.send(SseEmitter.event().name(EVENT_COMPLETE).data(current));
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(request, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        emitter.send(SseEmitter.event().name(EVENT_PROGRESS).data(current));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Gửi tiến độ mới cho các client và đóng kết nối của các job đã kết thúc
+     * Chạy định kỳ (mặc định mỗi giây); chỉ gửi khi tiến độ thay đổi
+     */
+    @Scheduled(fixedDelayString = "${download.progress.push-interval-ms:1000}")
+    public void push() {
+        for (Subscriber subscriber : subscribers) {
+            Progress progress = find(subscriber.archiveKey, subscriber.requestCreatedAt);
+            if (progress == null) {
+                // Still queued - nothing new to report
+                continue;
+            }
+            try {
+                if (progress.finalStatus != null) {
+                    DownloadResponse response = DownloadResponse.builder()
+                            .requestId(subscriber.requestId)
+                            .status(progress.finalStatus.name())
+                            .errorMessage(progress.errorMessage)
+                            .build();
+                    if (progress.finalStatus == DownloadRequest.DownloadStatus.READY) {
+                        response.setDownloadUrl(DownloadService.downloadUrl(subscriber.requestId));
+                        response.setPercent(100);
+                    }
+                    subscriber.emitter.send(SseEmitter.event().name(EVENT_COMPLETE).data(response));
+                    subscribers.remove(subscriber);
+                    subscriber.emitter.complete();
+                } else if (progress.bytesProcessed != subscriber.lastBytesSent) {
+                    DownloadResponse response = DownloadResponse.builder()
+                            .requestId(subscriber.requestId)
+                            .status(DownloadRequest.DownloadStatus.PROCESSING.name())
+                            .build();
+                    fillProgress(progress, response);
+                    subscriber.lastBytesSent = response.getBytesProcessed();
+                    subscriber.emitter.send(SseEmitter.event().name(EVENT_PROGRESS).data(response));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client disconnected
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+
+        // Forget finished jobs once late subscribers had a chance to see the result
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(FINISHED_RETENTION_MS));
+        jobs.values().removeIf(progress -> progress.finalStatus != null && progress.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Tìm tiến độ áp dụng cho một yêu cầu
+     * Job đã kết thúc trước khi yêu cầu được tạo là kết quả cũ của cùng khóa archive, không phải của yêu cầu này
+     * 
+     * @param archiveKey Khóa archive của yêu cầu
+     * @param requestCreatedAt Thời điểm yêu cầu được tạo
+     * @return Tiến độ, hoặc null nếu job của yêu cầu chưa bắt đầu
+     */
+    private Progress find(String archiveKey, LocalDateTime requestCreatedAt) {
+        Progress progress = archiveKey != null ? jobs.get(archiveKey) : null;
+        if (progress == null) {
+            return null;
+        }
+        LocalDateTime finishedAt = progress.finishedAt;
+        if (progress.finalStatus != null && finishedAt != null && requestCreatedAt != null
+                && finishedAt.isBefore(requestCreatedAt)) {
+            return null;
+        }
+        return progress;
+    }
+}
@@ -1,25 +1,35 @@
 package vn.fpt.assignment_datpd11.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import vn.fpt.assignment_datpd11.dto.response.DownloadQueueResponse;
 import vn.fpt.assignment_datpd11.dto.response.DownloadResponse;
 import vn.fpt.assignment_datpd11.entity.DownloadRequest;
 import vn.fpt.assignment_datpd11.entity.FileItem;
 import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.event.FolderDownloadRequestedEvent;
 import vn.fpt.assignment_datpd11.repository.DownloadRequestRepository;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
 import vn.fpt.assignment_datpd11.repository.UserRepository;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Service xử lý các nghiệp vụ liên quan đến tải xuống file/thư mục
  * 
  * Cung cấp các chức năng:
  * - Khởi tạo yêu cầu tải xuống thư mục (tạo file zip bất đồng bộ)
- * - Kiểm tra trạng thái yêu cầu tải xuống
+ * - Kiểm tra trạng thái yêu cầu tải xuống (kèm phần trăm và thời gian còn lại)
+ * - Theo dõi tiến độ qua Server-Sent Events
  * - Lấy file zip đã tạo
+ * - Dùng lại archive trong ArchiveCache nếu thư mục không thay đổi kể từ lần zip trước
+ * - Gộp các yêu cầu đồng thời cho cùng một cây thư mục vào một job tạo zip
+ * - Lấy số liệu hàng đợi tải xuống
  */
 @Service
 public class DownloadService {
@@ -37,15 +47,25 @@ public class DownloadService {
     private PermissionService permissionService;
 
     @Autowired
-    private AsyncDownloadService asyncDownloadService;
+    private ArchiveCache archiveCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DownloadJobScheduler downloadJobScheduler;
+
+    @Autowired
+    private DownloadProgressTracker downloadProgressTracker;
 
     /**
      * Khởi tạo yêu cầu tải xuống thư mục
      * 
      * Quy trình:
      * 1. Kiểm tra thư mục tồn tại và người dùng có quyền truy cập
-     * 2. Tạo DownloadRequest với trạng thái PENDING
-     * 3. Bắt đầu xử lý bất đồng bộ (tạo file zip)
+     * 2. Nếu archive của trạng thái hiện tại đã có trong cache: tạo DownloadRequest ở trạng thái READY
+     * 3. Nếu chưa: tạo DownloadRequest với trạng thái PENDING (kèm kích thước ước lượng) để
+     *    DownloadJobScheduler xếp hàng; yêu cầu cùng archive với job đang chạy được hoàn tất cùng job đó
      * 4. Trả về requestId để client có thể theo dõi trạng thái
      * 
      * @param folderId ID của thư mục cần tải xuống
@@ -62,23 +82,43 @@ public class DownloadService {
             throw new RuntimeException("Item is not a folder");
         }
 
-        if (!permissionService.hasAccess(userId, folderId, false)) {
+        if (!permissionService.hasAccess(userId, folder, false)) {
             throw new RuntimeException("No permission to download this folder");
         }
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        ArchiveCache.Fingerprint fingerprint = archiveCache.computeFingerprint(folder);
+        String archiveKey = fingerprint.getKey();
+        Path cached = archiveCache.get(archiveKey);
+        if (cached != null) {
+            // Same subtree was zipped before - no need to build it again
+            DownloadRequest request = downloadRequestRepository.save(DownloadRequest.builder()
+                    .fileItem(folder)
+                    .user(user)
+                    .status(DownloadRequest.DownloadStatus.READY)
+                    .archiveKey(archiveKey)
+                    .estimatedSize(fingerprint.getTotalBytes())
+                    .zipFilePath(cached.toString())
+                    .build());
+            return getDownloadStatus(request.getRequestId());
+        }
+
         DownloadRequest request = DownloadRequest.builder()
                 .fileItem(folder)
                 .user(user)
                 .status(DownloadRequest.DownloadStatus.PENDING)
+                .archiveKey(archiveKey)
+                .estimatedSize(fingerprint.getTotalBytes())
                 .build();
 
         request = downloadRequestRepository.save(request);
+        // A result kept from an earlier job with this key belongs to the older requests only
+        downloadProgressTracker.discardFinished(archiveKey);
 
-        // Start async processing
-        asyncDownloadService.processFolderDownload(request.getRequestId());
+        // Queue the request - DownloadJobScheduler picks it up once committed
+        eventPublisher.publishEvent(new FolderDownloadRequestedEvent(archiveKey, folder.getId()));
 
         return DownloadResponse.builder()
                 .requestId(request.getRequestId())
@@ -86,28 +126,81 @@ public class DownloadService {
                 .build();
     }
 
+    /**
+     * Lấy số liệu hàng đợi tải xuống
+     * 
+     * @return DownloadQueueResponse chứa số liệu hàng đợi
+     */
+    public DownloadQueueResponse getQueueStats() {
+        return downloadJobScheduler.getQueueStats();
+    }
+
     /**
      * Lấy trạng thái của yêu cầu tải xuống
      * 
      * @param requestId ID của yêu cầu tải xuống
-     * @return DownloadResponse chứa trạng thái và downloadUrl (nếu đã sẵn sàng)
+     * @return DownloadResponse chứa trạng thái, tiến độ (nếu đang xử lý) và downloadUrl (nếu đã sẵn sàng)
      * @throws RuntimeException nếu yêu cầu không tồn tại
      */
     public DownloadResponse getDownloadStatus(String requestId) {
         DownloadRequest request = downloadRequestRepository.findByRequestId(requestId)
                 .orElseThrow(() -> new RuntimeException("Download request not found"));
 
+        return toResponse(request);
+    }
+
+    /**
+     * Mở kết nối Server-Sent Events để nhận tiến độ của yêu cầu tải xuống
+     * 
+     * Client nhận ngay trạng thái hiện tại, sau đó các sự kiện "progress" khi tiến độ thay đổi
+     * và một sự kiện "complete" (READY kèm downloadUrl, hoặc FAILED kèm errorMessage)
+     * trước khi kết nối được đóng. Thay thế việc gọi lặp lại getDownloadStatus.
+     * 
+     * @param requestId ID của yêu cầu tải xuống
+     * @return SseEmitter dùng làm response
+     * @throws IOException nếu không gửi được trạng thái ban đầu
+     * @throws RuntimeException nếu yêu cầu không tồn tại
+     */
+    public SseEmitter subscribeProgress(String requestId) throws IOException {
+        DownloadRequest request = downloadRequestRepository.findByRequestId(requestId)
+                .orElseThrow(() -> new RuntimeException("Download request not found"));
+        return downloadProgressTracker.subscribe(request, toResponse(request));
+    }
+
+    /**
+     * Tạo URL tải file zip của một yêu cầu
+     * 
+     * @param requestId ID của yêu cầu tải xuống
+     * @return URL dạng /api/v1/files/downloads/{requestId}/file
+     */
+    static String downloadUrl(String requestId) {
+        return "/api/v1/files/downloads/" + requestId + "/file";
+    }
+
+    /**
+     * Chuyển DownloadRequest sang DownloadResponse, kèm tiến độ nếu đang xử lý
+     * 
+     * @param request Yêu cầu tải xuống
+     * @return DownloadResponse
+     */
+    private DownloadResponse toResponse(DownloadRequest request) {
         String downloadUrl = null;
         if (request.getStatus() == DownloadRequest.DownloadStatus.READY) {
-            downloadUrl = "/api/v1/files/downloads/" + requestId + "/file";
+            downloadUrl = downloadUrl(request.getRequestId());
         }
 
-        return DownloadResponse.builder()
+        DownloadResponse response = DownloadResponse.builder()
                 .requestId(request.getRequestId())
                 .status(request.getStatus().name())
                 .downloadUrl(downloadUrl)
                 .errorMessage(request.getErrorMessage())
                 .build();
+        if (request.getStatus() == DownloadRequest.DownloadStatus.PROCESSING) {
+            downloadProgressTracker.fillProgress(request, response);
+        } else if (request.getStatus() == DownloadRequest.DownloadStatus.READY) {
+            response.setPercent(100);
+        }
+        return response;
     }
 
     /**
@@ -115,7 +208,7 @@ public class DownloadService {
      * 
      * @param requestId ID của yêu cầu tải xuống
      * @return File object trỏ đến file zip
-     * @throws RuntimeException nếu yêu cầu không tồn tại hoặc chưa sẵn sàng
+     * @throws RuntimeException nếu yêu cầu không tồn tại, chưa sẵn sàng hoặc file zip đã bị loại khỏi cache
      */
     public File getDownloadFile(String requestId) {
         DownloadRequest request = downloadRequestRepository.findByRequestId(requestId)
@@ -125,7 +218,27 @@ public class DownloadService {
             throw new RuntimeException("Download is not ready");
         }
 
-        return new File(request.getZipFilePath());
+        File file = new File(request.getZipFilePath());
+        if (!file.exists()) {
+            throw new RuntimeException("Download has expired, please request it again");
+        }
+        archiveCache.touch(file.toPath());
+        return file;
+    }
+
+    /**
+     * Lấy tên file zip hiển thị cho client (tên thư mục + ".zip")
+     * File trong cache được đặt tên theo khóa nên không dùng trực tiếp tên file trên đĩa
+     * 
+     * @param requestId ID của yêu cầu tải xuống
+     * @return Tên file zip
+     * @throws RuntimeException nếu yêu cầu không tồn tại
+     */
+    @Transactional(readOnly = true)
+    public String getDownloadFileName(String requestId) {
+        DownloadRequest request = downloadRequestRepository.findByRequestId(requestId)
+                .orElseThrow(() -> new RuntimeException("Download request not found"));
+        return request.getFileItem().getName() + ".zip";
     }
 }
 
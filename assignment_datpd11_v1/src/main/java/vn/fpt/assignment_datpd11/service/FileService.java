@@ -1,18 +1,29 @@
 package vn.fpt.assignment_datpd11.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import vn.fpt.assignment_datpd11.dto.response.CursorPageResponse;
 import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
 import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
 import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.event.FileDeletedEvent;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.FileSearchCriteria;
 import vn.fpt.assignment_datpd11.repository.UserRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,6 +32,7 @@ import java.util.stream.Collectors;
  * 
  * Cung cấp các chức năng:
  * - Upload file
+ * - Tạo FileItem từ nội dung đã lưu trong blob store
  * - Tạo thư mục
  * - Tìm kiếm file
  * - Xóa file (soft delete)
@@ -41,6 +53,33 @@ public class FileService {
     @Autowired
     private PermissionService permissionService;
 
+    @Autowired
+    private UsageService usageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Kích thước tối đa của một file upload dạng nội dung thô (bytes)
+     */
+    @Value("${file.upload.max-content-size:104857600}")
+    private long maxContentSize;
+
+    /**
+     * Số lượng item mặc định của mỗi trang tìm kiếm
+     */
+    @Value("${file.search.default-limit:50}")
+    private int searchDefaultLimit;
+
+    /**
+     * Số lượng item tối đa của mỗi trang tìm kiếm
+     */
+    @Value("${file.search.max-limit:200}")
+    private int searchMaxLimit;
+
     /**
      * Upload một hoặc nhiều file vào hệ thống
      * 
@@ -56,37 +95,132 @@ public class FileService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        FileItem parent = null;
-        if (parentId != null && !parentId.isEmpty()) {
-            parent = fileItemRepository.findByIdAndIsDeletedFalse(Long.parseLong(parentId))
-                    .orElseThrow(() -> new RuntimeException("Parent folder not found"));
-            if (!permissionService.hasAccess(userId, parent.getId(), true)) {
-                throw new RuntimeException("No permission to access parent folder");
-            }
+        FileItem parent = resolveParentFolder(parentId, userId);
+
+        List<FileItem> fileItems = new ArrayList<>();
+        for (MultipartFile file : files) {
+            StoredBlob blob = fileStorageService.saveFile(file);
+            fileItems.add(buildFileItem(file.getOriginalFilename(), file.getContentType(), blob, parent, user));
         }
 
+        // Ids come from the pooled table generator, so the inserts go out in JDBC batches
+        fileItems = fileItemRepository.saveAll(fileItems);
+        usageService.recordCreated(fileItems);
+
         List<FileItemResponse> responses = new ArrayList<>();
-        for (MultipartFile file : files) {
-            String filePath = fileStorageService.saveFile(file, userId);
-            
-            FileItem fileItem = FileItem.builder()
-                    .name(file.getOriginalFilename())
-                    .type(FileItem.FileType.FILE)
-                    .filePath(filePath)
-                    .fileSize(file.getSize())
-                    .mimeType(file.getContentType())
-                    .parent(parent)
-                    .owner(user)
-                    .isDeleted(false)
-                    .build();
-
-            fileItem = fileItemRepository.save(fileItem);
+        for (FileItem fileItem : fileItems) {
             responses.add(mapToResponse(fileItem));
         }
-
         return responses;
     }
 
+    /**
+     * Upload một file từ nội dung thô của request (không qua multipart)
+     * 
+     * Body được ghi thẳng vào blob store trong lúc đọc, đồng thời tính kích thước và mã băm,
+     * nên dữ liệu chỉ được ghi xuống đĩa một lần (multipart ghi ra file tạm của container
+     * rồi mới sao chép vào blob store).
+     * Thư mục cha và quyền được kiểm tra trước khi đọc body.
+     * 
+     * Body có thể mất nhiều phút để đọc hết, nên phương thức không chạy trong transaction:
+     * mỗi bước ngắn (kiểm tra, ghi nhận blob, tạo FileItem) tự commit và trả kết nối database
+     * ngay, không giữ kết nối trong lúc đọc body.
+     * Nếu không tạo được FileItem, tham chiếu tới blob vừa lưu được giải phóng.
+     * 
+     * @param body Nội dung file
+     * @param name Tên file
+     * @param contentType Loại MIME của file (có thể null)
+     * @param expectedHash Mã băm SHA-256 (hex) do client gửi kèm để kiểm tra (có thể null)
+     * @param sizeHint Kích thước body theo header Content-Length, -1 nếu chưa biết
+     * @param parentId ID của thư mục cha (có thể null để upload vào root)
+     * @param userId ID của người dùng upload
+     * @return Thông tin file đã upload
+     * @throws IOException nếu có lỗi khi lưu file hoặc nội dung vượt quá kích thước cho phép
+     * @throws RuntimeException nếu tên file không hợp lệ, thư mục cha không tồn tại, không có quyền
+     *                          hoặc mã băm không khớp
+     */
+    public FileItemResponse uploadContent(InputStream body, String name, String contentType, String expectedHash,
+                                          long sizeHint, String parentId, Long userId) throws IOException {
+        if (name == null || name.isBlank() || name.contains("/") || name.contains("\\")) {
+            throw new RuntimeException("Invalid file name");
+        }
+        if (sizeHint > maxContentSize) {
+            throw new RuntimeException("Content exceeds maximum allowed size of " + maxContentSize + " bytes");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        FileItem parent = resolveParentFolder(parentId, userId);
+
+        StoredBlob blob = fileStorageService.storeContent(body, maxContentSize, expectedHash, contentType, sizeHint);
+        FileItem fileItem;
+        try {
+            fileItem = transactionTemplate.execute(status -> createFileItem(name, contentType, blob, parent, user));
+        } catch (RuntimeException e) {
+            // The blob reference was already committed on its own
+            fileStorageService.releaseBlob(blob.getHash());
+            throw e;
+        }
+        return mapToResponse(fileItem);
+    }
+
+    /**
+     * Tạo FileItem cho nội dung đã được lưu trong blob store
+     * 
+     * Dùng chung cho upload multipart và commit phiên upload theo từng phần
+     * 
+     * @param name Tên file
+     * @param mimeType Loại MIME của file (có thể null)
+     * @param blob Blob chứa nội dung file
+     * @param parent Thư mục cha (có thể null nếu ở root)
+     * @param owner Người sở hữu file
+     * @return FileItem đã được lưu
+     */
+    @Transactional
+    public FileItem createFileItem(String name, String mimeType, StoredBlob blob, FileItem parent, User owner) {
+        FileItem fileItem = fileItemRepository.save(buildFileItem(name, mimeType, blob, parent, owner));
+        usageService.recordCreated(fileItem);
+        return fileItem;
+    }
+
+    /**
+     * Dựng FileItem (chưa lưu) cho nội dung đã được lưu trong blob store
+     */
+    private FileItem buildFileItem(String name, String mimeType, StoredBlob blob, FileItem parent, User owner) {
+        return FileItem.builder()
+                .name(name)
+                .type(FileItem.FileType.FILE)
+                .filePath(blob.getStoragePath())
+                .contentHash(blob.getHash())
+                .fileSize(blob.getSize())
+                .mimeType(mimeType)
+                .parent(parent)
+                .path(parent != null ? parent.childPath() : "/")
+                .owner(owner)
+                .isDeleted(false)
+                .build();
+    }
+
+    /**
+     * Tìm thư mục cha và kiểm tra người dùng có quyền ghi vào thư mục đó
+     * 
+     * @param parentId ID của thư mục cha (null hoặc rỗng nghĩa là root)
+     * @param userId ID của người dùng
+     * @return Thư mục cha, hoặc null nếu là root
+     * @throws RuntimeException nếu thư mục cha không tồn tại hoặc không có quyền truy cập
+     */
+    public FileItem resolveParentFolder(String parentId, Long userId) {
+        if (parentId == null || parentId.isEmpty()) {
+            return null;
+        }
+        FileItem parent = fileItemRepository.findByIdAndIsDeletedFalse(Long.parseLong(parentId))
+                .orElseThrow(() -> new RuntimeException("Parent folder not found"));
+        if (!permissionService.hasAccess(userId, parent, true)) {
+            throw new RuntimeException("No permission to access parent folder");
+        }
+        return parent;
+    }
+
     /**
      * Tạo một thư mục mới
      * 
@@ -101,24 +235,19 @@ public class FileService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        FileItem parent = null;
-        if (parentId != null && !parentId.isEmpty()) {
-            parent = fileItemRepository.findByIdAndIsDeletedFalse(Long.parseLong(parentId))
-                    .orElseThrow(() -> new RuntimeException("Parent folder not found"));
-            if (!permissionService.hasAccess(userId, parent.getId(), true)) {
-                throw new RuntimeException("No permission to access parent folder");
-            }
-        }
+        FileItem parent = resolveParentFolder(parentId, userId);
 
         FileItem folder = FileItem.builder()
                 .name(name)
                 .type(FileItem.FileType.FOLDER)
                 .parent(parent)
+                .path(parent != null ? parent.childPath() : "/")
                 .owner(user)
                 .isDeleted(false)
                 .build();
 
         folder = fileItemRepository.save(folder);
+        usageService.recordCreated(folder);
         return mapToResponse(folder);
     }
 
@@ -127,7 +256,9 @@ public class FileService {
      * 
      * Tìm kiếm trong:
      * - File/thư mục thuộc sở hữu của người dùng
-     * - File/thư mục được chia sẻ cho người dùng
+     * - File/thư mục được chia sẻ cho người dùng (kể cả kế thừa từ thư mục cha)
+     * 
+     * Toàn bộ điều kiện lọc được thực hiện trong một câu truy vấn SQL
      * 
      * @param userId ID của người dùng
      * @param q Từ khóa tìm kiếm trong tên (có thể null)
@@ -139,79 +270,66 @@ public class FileService {
      */
     public List<FileItemResponse> searchFiles(Long userId, String q, String type, String parentId, 
                                              Long fromSize, Long toSize) {
-        List<FileItem> files = new ArrayList<>();
-        
-        // Determine if type is FILE/FOLDER enum or MIME type
-        FileItem.FileType fileType = null;
-        String mimeType = null;
-        if (type != null && !type.isEmpty()) {
-            try {
-                fileType = FileItem.FileType.valueOf(type);
-            } catch (IllegalArgumentException e) {
-                // Not FILE or FOLDER, treat as MIME type
-                mimeType = type;
-            }
-        }
-        
-        final FileItem.FileType finalFileType = fileType;
-        final String finalMimeType = mimeType;
-        
-        Long parentIdLong = null;
-        if (parentId != null && !parentId.isEmpty()) {
-            try {
-                parentIdLong = Long.parseLong(parentId);
-            } catch (NumberFormatException e) {
-                // Invalid parentId, ignore
-            }
-        }
-        
-        // Normalize q - if empty string, treat as null
-        String searchQuery = (q != null && q.isEmpty()) ? null : q;
-        
-        List<FileItem> ownedFiles = fileItemRepository.searchFiles(userId, parentIdLong, searchQuery, finalFileType);
-        files.addAll(ownedFiles);
-        
-        // Search in shared files
-        List<FileItem> sharedFiles = fileItemRepository.findSharedWithUser(userId);
-        if (q != null && !q.isEmpty()) {
-            sharedFiles = sharedFiles.stream()
-                    .filter(f -> f.getName().contains(q))
-                    .collect(Collectors.toList());
-        }
-        if (finalFileType != null) {
-            sharedFiles = sharedFiles.stream()
-                    .filter(f -> f.getType() == finalFileType)
-                    .collect(Collectors.toList());
-        }
-        if (finalMimeType != null) {
-            sharedFiles = sharedFiles.stream()
-                    .filter(f -> f.getMimeType() != null && f.getMimeType().equals(finalMimeType))
-                    .collect(Collectors.toList());
-        }
-        files.addAll(sharedFiles);
-        
-        // Filter by MIME type for owned files if specified
-        if (finalMimeType != null) {
-            files = files.stream()
-                    .filter(f -> f.getMimeType() != null && f.getMimeType().equals(finalMimeType))
-                    .collect(Collectors.toList());
-        }
-        
-        // Filter by size if provided
-        if (fromSize != null || toSize != null) {
-            long from = fromSize != null ? fromSize : 0;
-            long to = toSize != null ? toSize : Long.MAX_VALUE;
-            files = files.stream()
-                    .filter(f -> f.getFileSize() != null && f.getFileSize() >= from && f.getFileSize() <= to)
-                    .collect(Collectors.toList());
-        }
-        
-        return files.stream()
+        FileSearchCriteria criteria = buildCriteria(q, type, null, parentId, fromSize, toSize);
+        return fileItemRepository.searchAccessible(userId, criteria, null, null, null).stream()
                 .map(this::mapToResponse)
-                .distinct()
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Tìm kiếm file và thư mục có phân trang theo con trỏ (keyset pagination)
+     * 
+     * Mỗi trang chỉ đọc tối đa limit + 1 dòng nhờ điều kiện keyset, nên chi phí
+     * không phụ thuộc vào tổng số kết quả hay vị trí của trang.
+     * 
+     * @param userId ID của người dùng
+     * @param q Từ khóa tìm kiếm trong tên (có thể null)
+     * @param type Loại: "FILE", "FOLDER", hoặc MIME type cụ thể (có thể null)
+     * @param mimeType Loại MIME cụ thể (có thể null)
+     * @param parentId ID của thư mục cha (có thể null)
+     * @param fromSize Kích thước tối thiểu (bytes, có thể null)
+     * @param toSize Kích thước tối đa (bytes, có thể null)
+     * @param sort Trường sắp xếp: "createdAt", "name" hoặc "size" (mặc định createdAt)
+     * @param direction Chiều sắp xếp: "asc" hoặc "desc" (mặc định desc)
+     * @param limit Số lượng item mỗi trang (có thể null)
+     * @param cursor Con trỏ nhận được từ trang trước (null nếu là trang đầu)
+     * @return Trang kết quả kèm con trỏ của trang tiếp theo
+     * @throws RuntimeException nếu tham số sắp xếp hoặc con trỏ không hợp lệ
+     */
+    public CursorPageResponse<FileItemResponse> searchFilesPage(Long userId, String q, String type, String mimeType,
+                                                                String parentId, Long fromSize, Long toSize,
+                                                                String sort, String direction,
+                                                                Integer limit, String cursor) {
+        FileSearchCriteria criteria = buildCriteria(q, type, mimeType, parentId, fromSize, toSize);
+        criteria.setSort(parseSortField(sort));
+        criteria.setAscending("asc".equalsIgnoreCase(direction));
+
+        int pageSize = limit == null || limit <= 0 ? searchDefaultLimit : Math.min(limit, searchMaxLimit);
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor, criteria);
+            afterId = parseCursorId(parts[2]);
+            afterValue = parseSortValue(criteria.getSort(), parts[3]);
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<FileItem> rows = fileItemRepository.searchAccessible(userId, criteria, afterValue, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        String nextCursor = hasMore ? encodeCursor(criteria, rows.get(rows.size() - 1)) : null;
+        return CursorPageResponse.<FileItemResponse>builder()
+                .items(rows.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .limit(pageSize)
+                .build();
+    }
+
     /**
      * Xóa file hoặc thư mục (soft delete)
      * 
@@ -226,13 +344,16 @@ public class FileService {
         FileItem fileItem = fileItemRepository.findByIdAndIsDeletedFalse(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (!permissionService.hasAccess(userId, fileId, true)) {
+        if (!permissionService.hasAccess(userId, fileItem, true)) {
             throw new RuntimeException("No permission to delete this file");
         }
 
         fileItem.setIsDeleted(true);
         fileItem.setDeletedAt(LocalDateTime.now());
         fileItemRepository.save(fileItem);
+        usageService.recordDeleted(fileItem);
+
+        eventPublisher.publishEvent(new FileDeletedEvent(fileItem.getId()));
     }
 
     /**
@@ -247,6 +368,165 @@ public class FileService {
                 .orElseThrow(() -> new RuntimeException("File not found"));
     }
 
+    /**
+     * Điền path cho một lô item chưa có path (dữ liệu được tạo trước khi có path)
+     * 
+     * Item ở root được cập nhật bằng một câu lệnh; các item khác chỉ được xử lý
+     * khi thư mục cha đã có path, nên cần gọi lặp lại cho đến khi trả về 0
+     * 
+     * @param batchSize Số lượng item tối đa được xử lý
+     * @return Số item đã được cập nhật
+     */
+    @Transactional
+    public int backfillPaths(int batchSize) {
+        int updated = fileItemRepository.initRootPaths();
+        List<FileItem> items = fileItemRepository.findWithoutPath(PageRequest.of(0, batchSize));
+        for (FileItem item : items) {
+            item.setPath(item.getParent().childPath());
+        }
+        return updated + items.size();
+    }
+
+    /**
+     * Tạo điều kiện tìm kiếm từ các tham số của request
+     * 
+     * @param q Từ khóa tìm kiếm trong tên
+     * @param type "FILE", "FOLDER" hoặc MIME type
+     * @param mimeType Loại MIME cụ thể
+     * @param parentId ID của thư mục cha dạng chuỗi
+     * @param fromSize Kích thước tối thiểu
+     * @param toSize Kích thước tối đa
+     * @return FileSearchCriteria tương ứng
+     */
+    private FileSearchCriteria buildCriteria(String q, String type, String mimeType, String parentId,
+                                             Long fromSize, Long toSize) {
+        FileSearchCriteria criteria = FileSearchCriteria.builder()
+                .name(q)
+                .mimeType(mimeType)
+                .fromSize(fromSize)
+                .toSize(toSize)
+                .build();
+
+        // Determine if type is FILE/FOLDER enum or MIME type
+        if (type != null && !type.isEmpty()) {
+            try {
+                criteria.setType(FileItem.FileType.valueOf(type));
+            } catch (IllegalArgumentException e) {
+                // Not FILE or FOLDER, treat as MIME type
+                criteria.setMimeType(type);
+            }
+        }
+
+        if (parentId != null && !parentId.isEmpty()) {
+            try {
+                criteria.setParentId(Long.parseLong(parentId));
+            } catch (NumberFormatException e) {
+                // Invalid parentId, ignore
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Chuyển tên trường sắp xếp sang SortField
+     * 
+     * @param sort "createdAt", "name" hoặc "size" (null sẽ dùng createdAt)
+     * @return SortField tương ứng
+     * @throws RuntimeException nếu tên trường không hợp lệ
+     */
+    private FileSearchCriteria.SortField parseSortField(String sort) {
+        if (sort == null || sort.isEmpty() || sort.equals("createdAt")) {
+            return FileSearchCriteria.SortField.CREATED_AT;
+        }
+        if (sort.equals("name")) {
+            return FileSearchCriteria.SortField.NAME;
+        }
+        if (sort.equals("size")) {
+            return FileSearchCriteria.SortField.SIZE;
+        }
+        throw new RuntimeException("Invalid sort field: " + sort);
+    }
+
+    /**
+     * Mã hóa con trỏ từ item cuối cùng của trang
+     * Định dạng trước khi mã hóa Base64: {sort}|{direction}|{id}|{giá trị trường sắp xếp}
+     * 
+     * @param criteria Điều kiện tìm kiếm (chứa trường và chiều sắp xếp)
+     * @param last Item cuối cùng của trang
+     * @return Con trỏ dạng Base64 an toàn cho URL
+     */
+    private String encodeCursor(FileSearchCriteria criteria, FileItem last) {
+        String value = switch (criteria.getSort()) {
+            case NAME -> last.getName();
+            case SIZE -> String.valueOf(last.getFileSize());
+            default -> last.getCreatedAt().toString();
+        };
+        String raw = criteria.getSort() + "|" + (criteria.isAscending() ? "ASC" : "DESC") + "|"
+                + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã con trỏ và kiểm tra con trỏ khớp với cách sắp xếp hiện tại
+     * 
+     * @param cursor Con trỏ dạng Base64
+     * @param criteria Điều kiện tìm kiếm hiện tại
+     * @return Mảng 4 phần tử: sort, direction, id, giá trị trường sắp xếp
+     * @throws RuntimeException nếu con trỏ không hợp lệ hoặc không khớp
+     */
+    private String[] decodeCursor(String cursor, FileSearchCriteria criteria) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (parts.length != 4) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (!parts[0].equals(criteria.getSort().name())
+                || !parts[1].equals(criteria.isAscending() ? "ASC" : "DESC")) {
+            throw new RuntimeException("Cursor does not match sort order");
+        }
+        return parts;
+    }
+
+    /**
+     * Chuyển ID trong con trỏ về kiểu Long
+     * 
+     * @param value ID dạng chuỗi
+     * @return ID của item cuối cùng của trang trước
+     * @throws RuntimeException nếu ID không hợp lệ
+     */
+    private Long parseCursorId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Chuyển giá trị trường sắp xếp trong con trỏ về đúng kiểu dữ liệu
+     * 
+     * @param sort Trường sắp xếp
+     * @param value Giá trị dạng chuỗi
+     * @return Giá trị đã chuyển kiểu
+     * @throws RuntimeException nếu giá trị không hợp lệ
+     */
+    private Object parseSortValue(FileSearchCriteria.SortField sort, String value) {
+        try {
+            return switch (sort) {
+                case NAME -> value;
+                case SIZE -> Long.parseLong(value);
+                default -> LocalDateTime.parse(value);
+            };
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
     /**
      * Chuyển đổi FileItem entity sang FileItemResponse DTO
      * 
@@ -258,7 +538,7 @@ public class FileService {
                 .id(fileItem.getId())
                 .name(fileItem.getName())
                 .type(fileItem.getType().name())
-                .fileSize(fileItem.getFileSize())
+                .fileSize(fileItem.getType() == FileItem.FileType.FILE ? fileItem.getFileSize() : null)
                 .mimeType(fileItem.getMimeType())
                 .parentId(fileItem.getParent() != null ? fileItem.getParent().getId() : null)
                 .ownerEmail(fileItem.getOwner().getEmail())
@@ -1,29 +1,76 @@
 package vn.fpt.assignment_datpd11.service;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.repository.StoredBlobRepository;
+import vn.fpt.assignment_datpd11.storage.BlockCompressedFile;
+import vn.fpt.assignment_datpd11.storage.BlockCompressedOutputStream;
+import vn.fpt.assignment_datpd11.storage.BlockCompressedResource;
+import vn.fpt.assignment_datpd11.storage.StorageBackend;
+import vn.fpt.assignment_datpd11.storage.StorageCompressionPolicy;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 /**
  * Service xử lý lưu trữ file trên hệ thống
  * 
+ * Nội dung file được lưu theo địa chỉ nội dung (content-addressed):
+ * mã băm SHA-256 được tính trong lúc ghi, mỗi nội dung chỉ lưu một lần
+ * và được đếm tham chiếu qua StoredBlob.
+ * Nơi lưu blob do StorageBackend quyết định (đĩa cục bộ hoặc dịch vụ tương thích S3).
+ * Nội dung văn bản (theo StorageCompressionPolicy) được nén theo khối ngay trong lúc ghi
+ * và giải nén trong suốt khi đọc (xem toResource).
+ * 
  * Cung cấp các chức năng:
- * - Lưu file upload vào thư mục của người dùng
- * - Lấy file từ đường dẫn
+ * - Lưu file upload (loại bỏ trùng lặp theo nội dung)
+ * - Giải phóng blob khi file bị xóa vĩnh viễn
+ * - Lấy file cục bộ của blob (tải về bản sao cục bộ nếu blob nằm ở nơi lưu trữ từ xa)
+ * - Lấy file cục bộ cho một lần đọc (bản sao tạm bị xóa ngay khi đọc xong)
  * - Xóa file khỏi hệ thống
  * - Đảm bảo thư mục lưu trữ tồn tại
  */
 @Service
 public class FileStorageService {
 
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageCompressionPolicy compressionPolicy;
+
     /**
      * Đường dẫn thư mục lưu trữ file (đọc từ application.properties)
      */
@@ -31,28 +78,228 @@ public class FileStorageService {
     private String storagePath;
 
     /**
-     * Lưu file upload vào hệ thống
-     * 
-     * File được lưu với tên duy nhất (UUID + tên gốc) trong thư mục của người dùng
-     * Cấu trúc: {storagePath}/{userId}/{UUID}_{originalFilename}
+     * Đường dẫn thư mục tạm (đọc từ application.properties)
+     */
+    @Value("${file.storage.temp.path}")
+    private String tempPath;
+
+    /**
+     * Thời gian giữ bản sao cục bộ của blob từ xa kể từ lần dùng cuối (giờ)
+     */
+    @Value("${file.storage.local-copy-ttl-hours:24}")
+    private long localCopyTtlHours;
+
+    /**
+     * Lưu file upload vào blob store
      * 
      * @param file File cần lưu
-     * @param userId ID của người dùng upload
-     * @return Đường dẫn đầy đủ đến file đã lưu
+     * @return StoredBlob chứa nội dung file (mới tạo hoặc đã tồn tại)
      * @throws IOException nếu có lỗi khi tạo thư mục hoặc lưu file
      */
-    public String saveFile(MultipartFile file, Long userId) throws IOException {
-        String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-        Path userDir = Paths.get(storagePath, userId.toString());
-        
-        if (!Files.exists(userDir)) {
-            Files.createDirectories(userDir);
+    @Transactional
+    public StoredBlob saveFile(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return storeContent(in, -1, null, file.getContentType(), file.getSize());
+        }
+    }
+
+    /**
+     * Lưu nội dung từ một InputStream vào blob store
+     * 
+     * Quy trình:
+     * 1. Ghi dữ liệu ra file tạm, đồng thời tính mã băm SHA-256
+     * 2. Nếu blob cùng mã băm đã tồn tại: tăng refCount và xóa file tạm
+     * 3. Nếu chưa tồn tại: giao file tạm cho StorageBackend dưới một location mới
+     *    (mặc định di chuyển vào {storagePath}/blobs/{ab}/{cd}/{hash}-{thế hệ}), rồi tạo blob
+     *    hoặc tăng refCount trong một câu lệnh (upload đồng thời cùng nội dung không bị trùng khóa);
+     *    nếu upload khác đã tạo blob trước, bản vừa lưu không được dùng và bị xóa ngay
+     * 4. Nếu transaction của caller bị rollback: xóa nội dung vừa lưu của blob mới tạo
+     * 
+     * Location không bao giờ được dùng lại: việc xóa file của một blob đã giải phóng (chạy sau
+     * khi commit, có thể trễ) không thể xóa nhầm nội dung vừa được upload lại.
+     * 
+     * Phương thức không tự mở transaction: gọi ngoài transaction thì không giữ kết nối
+     * database trong lúc đọc luồng, mỗi câu lệnh tự commit; gọi trong transaction thì các
+     * câu lệnh tham gia transaction đó.
+     * 
+     * @param in Luồng dữ liệu cần lưu (không bị đóng bởi phương thức này)
+     * @return StoredBlob chứa nội dung
+     * @throws IOException nếu có lỗi khi ghi file
+     */
+    public StoredBlob storeContent(InputStream in) throws IOException {
+        return storeContent(in, -1, null, null, -1);
+    }
+
+    /**
+     * Lưu nội dung từ một InputStream vào blob store, có giới hạn kích thước và kiểm tra checksum
+     * 
+     * Dữ liệu chỉ được ghi một lần: file tạm nằm cùng ổ đĩa với blob store
+     * nên bước cuối chỉ là đổi tên, không sao chép lại.
+     * Nếu loại nội dung nén được, dữ liệu được nén theo khối trong lúc ghi; mã băm và
+     * kích thước luôn tính trên dữ liệu gốc.
+     * 
+     * @param in Luồng dữ liệu cần lưu (không bị đóng bởi phương thức này)
+     * @param maxSize Kích thước tối đa cho phép (bytes), -1 nếu không giới hạn
+     * @param expectedHash Mã băm SHA-256 (hex) mà client gửi kèm, null nếu không kiểm tra
+     * @param mimeType Loại MIME của nội dung (có thể null), dùng để quyết định có nén không
+     * @param sizeHint Kích thước dự kiến (bytes), -1 nếu chưa biết
+     * @return StoredBlob chứa nội dung
+     * @throws IOException nếu có lỗi khi ghi file hoặc dữ liệu vượt quá kích thước cho phép
+     * @throws RuntimeException nếu mã băm không khớp với expectedHash
+     */
+    public StoredBlob storeContent(InputStream in, long maxSize, String expectedHash,
+                                   String mimeType, long sizeHint) throws IOException {
+        Path tempDir = getBlobRoot().resolve(".tmp");
+        Files.createDirectories(tempDir);
+        Path tempFile = Files.createTempFile(tempDir, "upload-", ".part");
+
+        MessageDigest digest = newDigest();
+        InputStream source = new DigestInputStream(maxSize >= 0 ? new LimitedInputStream(in, maxSize) : in, digest);
+        boolean compress = compressionPolicy.shouldCompress(mimeType, sizeHint);
+        long size;
+        long storedSize;
+        try {
+            if (compress) {
+                try (OutputStream out = new BlockCompressedOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tempFile)),
+                        compressionPolicy.getBlockSize(), compressionPolicy.getLevel())) {
+                    size = source.transferTo(out);
+                }
+                storedSize = Files.size(tempFile);
+            } else {
+                size = Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                storedSize = size;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        if (expectedHash != null && !expectedHash.equalsIgnoreCase(hash)) {
+            Files.deleteIfExists(tempFile);
+            throw new RuntimeException("Checksum mismatch: content was corrupted in transit");
+        }
+
+        // Same content already stored - only add a reference
+        if (storedBlobRepository.incrementRefCount(hash) > 0) {
+            Files.deleteIfExists(tempFile);
+            return storedBlobRepository.findById(hash)
+                    .orElseThrow(() -> new RuntimeException("Blob not found"));
+        }
+
+        String key = hash + "-" + newGeneration() + (compress ? BlockCompressedFile.SUFFIX : "");
+        String location;
+        try {
+            location = storageBackend.put(key, tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        StoredBlob.Codec codec = compress ? StoredBlob.Codec.BLOCK_DEFLATE : StoredBlob.Codec.NONE;
+        if (storedBlobRepository.insertOrIncrementRefCount(hash, location, size, storedSize, codec.name()) == 1) {
+            deleteOnRollback(location);
+        } else {
+            // A concurrent upload of the same content created the row since the check above
+            deleteQuietly(location);
+        }
+        return storedBlobRepository.findById(hash)
+                .orElseThrow(() -> new RuntimeException("Blob not found"));
+    }
+
+    /**
+     * Tạo hậu tố thế hệ cho location của một lần lưu nội dung
+     * 
+     * @return 16 ký tự hex ngẫu nhiên
+     */
+    private static String newGeneration() {
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Xóa nội dung vừa lưu nếu transaction tạo blob bị rollback
+     * Nội dung đã nằm ở location cuối trước khi commit, nên nếu không xóa sẽ thành blob mồ côi.
+     * Location chỉ thuộc về lần lưu này nên được xóa mà không cần kiểm tra lại database.
+     * 
+     * @param location Location của nội dung vừa lưu
+     */
+    private void deleteOnRollback(String location) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteQuietly(location);
+                }
+            }
+        });
+    }
+
+    /**
+     * Xóa nội dung tại một location, chỉ ghi log nếu lỗi (file sót lại được thu gom blob mồ côi xử lý)
+     * 
+     * @param location Location cần xóa
+     */
+    private void deleteQuietly(String location) {
+        try {
+            storageBackend.delete(location);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error deleting unused blob " + location + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Giải phóng một tham chiếu tới blob, xóa blob khi không còn tham chiếu
+     * Dùng trực tiếp khi nội dung đã lưu nhưng không tạo được file tham chiếu tới nó
+     * 
+     * Dòng blob chỉ bị xóa khi refCount vẫn <= 0 tại thời điểm xóa (một upload đồng thời
+     * vừa tăng refCount thì blob được giữ lại). File vật lý chỉ bị xóa sau khi transaction
+     * commit, nên rollback không để lại dòng blob trỏ tới file đã mất.
+     * 
+     * @param hash Mã băm của blob
+     */
+    @Transactional
+    public void releaseBlob(String hash) {
+        storedBlobRepository.decrementRefCount(hash);
+        String location = storedBlobRepository.findStoragePath(hash).orElse(null);
+        if (location != null && storedBlobRepository.deleteIfUnreferenced(hash) > 0) {
+            deleteAfterCommit(location);
+        }
+    }
+
+    /**
+     * Xóa nội dung của một blob đã giải phóng sau khi transaction commit
+     * Gọi ngoài transaction thì xóa ngay.
+     * 
+     * @param location Location của blob
+     */
+    private void deleteAfterCommit(String location) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteReleased(location);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteReleased(location);
+            }
+        });
+    }
+
+    /**
+     * Xóa file của blob đã giải phóng (kèm bản sao cục bộ), chỉ ghi log nếu lỗi
+     * 
+     * @param location Location của blob
+     */
+    private void deleteReleased(String location) {
+        try {
+            deleteFile(location);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error deleting released blob " + location + ": " + e.getMessage());
         }
-        
-        Path filePath = userDir.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        return filePath.toString();
     }
 
     /**
@@ -65,16 +312,172 @@ public class FileStorageService {
         return new File(filePath);
     }
 
+    /**
+     * Lấy file cục bộ chứa nội dung của một blob
+     * 
+     * - Blob trên đĩa cục bộ: trả về đường dẫn trực tiếp
+     * - Blob ở nơi lưu trữ từ xa: tải về một bản sao cục bộ trong {tempPath}/blob-copies
+     *   (dùng lại cho các lần đọc sau), cho phép Range, sendfile và đọc song song khi tạo zip
+     * 
+     * @param location Location của blob (FileItem.filePath)
+     * @return Đường dẫn file cục bộ, hoặc null nếu blob không tồn tại
+     * @throws IOException nếu có lỗi khi tải blob
+     */
+    public Path getLocalPath(String location) throws IOException {
+        Path local = storageBackend.localPath(location);
+        if (local != null) {
+            return Files.exists(local) ? local : null;
+        }
+
+        // Blobs never change, so a copy keyed by location stays valid until evicted
+        Path copy = getLocalCopyPath(location);
+        if (Files.exists(copy)) {
+            Files.setLastModifiedTime(copy, FileTime.fromMillis(System.currentTimeMillis()));
+            return copy;
+        }
+        Files.createDirectories(copy.getParent());
+        Path part = Files.createTempFile(copy.getParent(), "copy-", ".part");
+        try {
+            if (!download(location, part)) {
+                return null;
+            }
+            Files.move(part, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+        return copy;
+    }
+
+    /**
+     * Lấy file cục bộ của blob để đọc một lần (ví dụ: nén vào archive)
+     * 
+     * - Blob trên đĩa cục bộ, hoặc blob từ xa đã có bản sao cục bộ: dùng trực tiếp file đó
+     * - Blob từ xa chưa có bản sao: tải về một file tạm chỉ dành cho lần đọc này và xóa khi đóng,
+     *   nên đọc lần lượt cả một thư mục lớn không để lại bản sao của cả thư mục như getLocalPath
+     * 
+     * @param location Location của blob (FileItem.filePath)
+     * @return LocalCopy phải được đóng sau khi đọc xong; getPath() là null nếu blob không tồn tại
+     * @throws IOException nếu có lỗi khi tải blob
+     */
+    public LocalCopy openLocalCopy(String location) throws IOException {
+        Path local = storageBackend.localPath(location);
+        if (local != null) {
+            return new LocalCopy(Files.exists(local) ? local : null, false);
+        }
+
+        Path copy = getLocalCopyPath(location);
+        if (Files.exists(copy)) {
+            Files.setLastModifiedTime(copy, FileTime.fromMillis(System.currentTimeMillis()));
+            return new LocalCopy(copy, false);
+        }
+        // Keep the block-compressed suffix so the temporary file is read in the right format
+        Files.createDirectories(copy.getParent());
+        Path temp = Files.createTempFile(copy.getParent(), "read-",
+                location.endsWith(BlockCompressedFile.SUFFIX) ? BlockCompressedFile.SUFFIX : ".part");
+        try {
+            if (!download(location, temp)) {
+                Files.deleteIfExists(temp);
+                return new LocalCopy(null, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new LocalCopy(temp, true);
+    }
+
+    /**
+     * Tải nội dung của blob từ StorageBackend vào một file cục bộ
+     * 
+     * @param location Location của blob
+     * @param target File đích (bị ghi đè)
+     * @return false nếu blob không tồn tại
+     * @throws IOException nếu có lỗi khi tải blob
+     */
+    private boolean download(String location, Path target) throws IOException {
+        try (InputStream in = storageBackend.open(location)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tạo Resource đọc dữ liệu gốc của một file
+     * 
+     * - Blob nén theo khối: BlockCompressedResource giải nén trong suốt, hỗ trợ Range
+     * - File thường: FileSystemResource
+     * 
+     * @param fileItem File cần đọc
+     * @param localPath Đường dẫn file cục bộ (kết quả của getLocalPath)
+     * @return Resource chứa dữ liệu gốc
+     */
+    public Resource toResource(FileItem fileItem, Path localPath) {
+        StoredBlob.Codec codec = fileItem.getContentHash() != null
+                ? storedBlobRepository.findById(fileItem.getContentHash()).map(StoredBlob::getCodec).orElse(null)
+                : null;
+        return isCompressed(fileItem.getContentHash(), codec, localPath)
+                ? new BlockCompressedResource(localPath)
+                : new FileSystemResource(localPath);
+    }
+
+    /**
+     * Kiểm tra nội dung của một file có được nén theo khối không
+     * 
+     * - File không thuộc blob store (không có contentHash) không bao giờ được giải nén,
+     *   dù tên file gốc có hậu tố .mdz
+     * - Blob đã ghi nhận định dạng: theo StoredBlob.codec
+     * - Blob lưu trước khi định dạng được ghi nhận: theo hậu tố và magic ở header và footer
+     * 
+     * @param contentHash Mã băm nội dung của file (có thể null)
+     * @param codec Định dạng lưu trữ của blob (có thể null)
+     * @param localPath Đường dẫn file cục bộ (có thể null)
+     * @return true nếu phải giải nén khi đọc
+     */
+    public boolean isCompressed(String contentHash, StoredBlob.Codec codec, Path localPath) {
+        if (contentHash == null || localPath == null) {
+            return false;
+        }
+        if (codec != null) {
+            return codec == StoredBlob.Codec.BLOCK_DEFLATE;
+        }
+        return BlockCompressedFile.isCompressedFormat(localPath);
+    }
+
+    /**
+     * Xóa các bản sao cục bộ của blob từ xa không được dùng trong khoảng thời gian giữ
+     * 
+     * @return Số bản sao đã xóa
+     * @throws IOException nếu có lỗi khi duyệt thư mục
+     */
+    public int evictLocalCopies() throws IOException {
+        Path dir = getLocalCopyDir();
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - localCopyTtlHours * 3_600_000L;
+        int evicted = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
     /**
      * Xóa file khỏi hệ thống
      * 
-     * @param filePath Đường dẫn đến file cần xóa
+     * @param filePath Location của file cần xóa (đường dẫn cục bộ hoặc location của StorageBackend)
      * @throws IOException nếu có lỗi khi xóa file
      */
     public void deleteFile(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        if (Files.exists(path)) {
-            Files.delete(path);
+        storageBackend.delete(filePath);
+        if (storageBackend.localPath(filePath) == null) {
+            Files.deleteIfExists(getLocalCopyPath(filePath));
         }
     }
 
@@ -90,5 +493,113 @@ public class FileStorageService {
             Files.createDirectories(storageDir);
         }
     }
-}
 
+    /**
+     * Lấy thư mục gốc chứa các blob
+     * 
+     * @return Đường dẫn {storagePath}/blobs
+     */
+    private Path getBlobRoot() {
+        return Paths.get(storagePath, "blobs");
+    }
+
+    /**
+     * Lấy thư mục chứa bản sao cục bộ của blob từ xa
+     * 
+     * @return Đường dẫn {tempPath}/blob-copies
+     */
+    private Path getLocalCopyDir() {
+        return Paths.get(tempPath, "blob-copies");
+    }
+
+    /**
+     * Tính đường dẫn bản sao cục bộ của một blob từ xa
+     * Giữ hậu tố của blob nén theo khối để bản sao vẫn được đọc đúng định dạng
+     * 
+     * @param location Location của blob
+     * @return Đường dẫn {tempPath}/blob-copies/{sha256(location)}[.mdz]
+     */
+    private Path getLocalCopyPath(String location) {
+        String suffix = location.endsWith(BlockCompressedFile.SUFFIX) ? BlockCompressedFile.SUFFIX : "";
+        return getLocalCopyDir().resolve(sha256Hex(location) + suffix);
+    }
+
+    private String sha256Hex(String value) {
+        return HexFormat.of().formatHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * File cục bộ chứa nội dung của blob cho một lần đọc (kết quả của openLocalCopy)
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class LocalCopy implements Closeable {
+        /**
+         * File cục bộ (null nếu blob không tồn tại)
+         */
+        private final Path path;
+
+        /**
+         * true nếu file được tải về riêng cho lần đọc này và bị xóa khi đóng
+         */
+        private final boolean temporary;
+
+        @Override
+        public void close() throws IOException {
+            if (temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * InputStream báo lỗi khi số bytes đọc được vượt quá giới hạn
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        private void advance(long n) throws IOException {
+            count += n;
+            if (count > maxSize) {
+                throw new IOException("Content exceeds maximum allowed size of " + maxSize + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Tạo MessageDigest SHA-256
+     * 
+     * @return MessageDigest mới
+     */
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package vn.fpt.assignment_datpd11.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.StoredBlobRepository;
+import vn.fpt.assignment_datpd11.storage.BloomFilter;
+import vn.fpt.assignment_datpd11.storage.StorageBackend;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Thu gom blob mồ côi theo kiểu mark-and-sweep
+ * 
+ * - Mark: đọc dần toàn bộ location được database tham chiếu (stored_blobs.storage_path và
+ *   file_items.file_path của file lưu theo cách cũ, theo từng trang) vào một Bloom filter
+ * - Sweep: duyệt dần toàn bộ blob của StorageBackend; blob không có trong filter chắc chắn
+ *   không được tham chiếu (Bloom filter không có âm tính giả) và là blob mồ côi, ví dụ do
+ *   transaction upload bị lỗi sau khi nội dung đã được ghi
+ * - Kiểm tra ngược: location trong database không có trong filter của lần duyệt được kiểm
+ *   tra lại bằng exists() và báo cáo nếu file thực sự bị mất
+ * 
+ * Bộ nhớ chỉ phụ thuộc kích thước hai filter (khoảng 10 bit mỗi location với tỉ lệ dương tính
+ * giả 1%). Blob dương tính giả chỉ bị giữ lại; hạt giống băm đổi mỗi lần chạy nên lần sau
+ * sẽ được thu gom. Blob mới hơn min-age không bao giờ bị xóa vì transaction tạo ra nó có thể
+ * chưa commit. Việc duyệt và xóa đều bị giới hạn tốc độ để không gây đột biến I/O.
+ * Mặc định chỉ báo cáo (dry-run), không xóa.
+ */
+@Service
+public class OrphanBlobCollector {
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    /**
+     * Chỉ báo cáo blob mồ côi, không xóa
+     */
+    @Value("${file.storage.gc.dry-run:true}")
+    private boolean dryRun;
+
+    /**
+     * Tuổi tối thiểu của blob có thể bị thu gom (giờ)
+     */
+    @Value("${file.storage.gc.min-age-hours:24}")
+    private long minAgeHours;
+
+    /**
+     * Tỉ lệ dương tính giả của Bloom filter
+     */
+    @Value("${file.storage.gc.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    /**
+     * Số blob tối đa được duyệt mỗi giây (0 = không giới hạn)
+     */
+    @Value("${file.storage.gc.max-scan-per-second:2000}")
+    private int maxScanPerSecond;
+
+    /**
+     * Số thao tác xóa/kiểm tra tồn tại tối đa mỗi giây (0 = không giới hạn)
+     */
+    @Value("${file.storage.gc.max-deletes-per-second:50}")
+    private int maxDeletesPerSecond;
+
+    /**
+     * Số location đọc từ database mỗi truy vấn
+     */
+    @Value("${file.storage.gc.page-size:10000}")
+    private int pageSize;
+
+    /**
+     * Số location tối đa được ghi ra log cho mỗi loại (mồ côi, bị mất)
+     */
+    @Value("${file.storage.gc.report-limit:100}")
+    private int reportLimit;
+
+    /**
+     * Chạy một lần thu gom
+     * 
+     * @return Báo cáo kết quả
+     * @throws IOException nếu có lỗi khi duyệt backend
+     */
+    public GcReport collect() throws IOException {
+        GcReport report = new GcReport(dryRun);
+        long seed = ThreadLocalRandom.current().nextLong();
+        long expected = storedBlobRepository.count() + fileItemRepository.count();
+
+        // Mark
+        BloomFilter referenced = new BloomFilter(expected, falsePositiveRate, seed);
+        forEachReferencedLocation(location -> {
+            referenced.put(location);
+            report.referenced++;
+        });
+        if (report.referenced == 0) {
+            // An empty (or wrong) database would make every blob look orphaned
+            System.out.println("Orphan blob GC skipped: database references no blobs");
+            return report;
+        }
+
+        // Sweep
+        BloomFilter stored = new BloomFilter(expected, falsePositiveRate, seed);
+        Instant cutoff = Instant.now().minus(Duration.ofHours(minAgeHours));
+        RateLimiter scanLimiter = new RateLimiter(maxScanPerSecond);
+        RateLimiter deleteLimiter = new RateLimiter(maxDeletesPerSecond);
+        storageBackend.walk((location, size, lastModified) -> {
+            scanLimiter.acquire();
+            report.scanned++;
+            stored.put(location);
+            if (referenced.mightContain(location) || lastModified.isAfter(cutoff)) {
+                return;
+            }
+            report.orphans++;
+            report.orphanBytes += size;
+            if (report.orphans <= reportLimit) {
+                System.out.println("Orphan blob" + (dryRun ? "" : " (deleting)") + ": " + location
+                        + " (" + size + " bytes, modified " + lastModified + ")");
+            }
+            if (!dryRun) {
+                deleteLimiter.acquire();
+                try {
+                    storageBackend.delete(location);
+                    report.deleted++;
+                } catch (IOException e) {
+                    System.err.println("Error deleting orphan blob " + location + ": " + e.getMessage());
+                }
+            }
+        });
+
+        // Referenced locations the walk did not see: confirm before reporting (rows may be newer than the walk)
+        forEachReferencedLocation(location -> {
+            if (stored.mightContain(location)) {
+                return;
+            }
+            deleteLimiter.acquire();
+            try {
+                if (!storageBackend.exists(location)) {
+                    report.missing++;
+                    if (report.missing <= reportLimit) {
+                        System.out.println("Missing blob referenced by database: " + location);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error checking blob " + location + ": " + e.getMessage());
+            }
+        });
+
+        System.out.println("Orphan blob GC finished: " + report.summary()
+                + ", filter memory " + (referenced.sizeInBytes() + stored.sizeInBytes()) / (1024 * 1024) + " MB");
+        return report;
+    }
+
+    /**
+     * Đọc dần toàn bộ location được database tham chiếu (dạng chuẩn), mỗi trang một truy vấn
+     */
+    private void forEachReferencedLocation(Consumer<String> consumer) {
+        String afterHash = "";
+        List<Object[]> blobs;
+        do {
+            blobs = storedBlobRepository.findLocationsAfter(afterHash, PageRequest.of(0, pageSize));
+            for (Object[] row : blobs) {
+                consumer.accept(storageBackend.canonicalLocation((String) row[1]));
+                afterHash = (String) row[0];
+            }
+        } while (blobs.size() == pageSize);
+
+        long afterId = 0;
+        List<Object[]> files;
+        do {
+            files = fileItemRepository.findFilePathsAfter(afterId, PageRequest.of(0, pageSize));
+            for (Object[] row : files) {
+                consumer.accept(storageBackend.canonicalLocation((String) row[1]));
+                afterId = (Long) row[0];
+            }
+        } while (files.size() == pageSize);
+    }
+
+    /**
+     * Kết quả một lần thu gom blob mồ côi
+     */
+    @Getter
+    public static class GcReport {
+        private final boolean dryRun;
+        private long referenced;
+        private long scanned;
+        private long orphans;
+        private long orphanBytes;
+        private long deleted;
+        private long missing;
+
+        GcReport(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public String summary() {
+            return (dryRun ? "[dry-run] " : "") + referenced + " referenced locations, " + scanned + " blobs scanned, "
+                    + orphans + " orphans (" + orphanBytes + " bytes), " + deleted + " deleted, "
+                    + missing + " missing";
+        }
+    }
+
+    /**
+     * Giới hạn tốc độ đơn giản: giãn đều các lần gọi acquire() theo số lần mỗi giây
+     */
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        RateLimiter(int permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? 1_000_000_000L / permitsPerSecond : 0;
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (next > now) {
+                LockSupport.parkNanos(next - now);
+            }
+            next = Math.max(next, now) + intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import vn.fpt.assignment_datpd11.event.FileDeletedEvent;
+import vn.fpt.assignment_datpd11.event.PermissionChangedEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ nhớ đệm trong tiến trình cho quyết định quyền truy cập
+ * 
+ * - Khóa là cặp (userId, fileId), giá trị là mức quyền hiệu lực đã tính
+ * - Giới hạn số phần tử (loại bỏ phần tử ít được dùng nhất - LRU) và thời gian sống (TTL)
+ * - Bị vô hiệu hóa khi có sự kiện chia sẻ hoặc xóa file sau khi transaction commit
+ * 
+ * Mỗi lần vô hiệu hóa tăng số thế hệ; kết quả được tính từ dữ liệu đọc trước
+ * lần vô hiệu hóa gần nhất sẽ không được lưu vào cache.
+ */
+@Component
+public class PermissionCache {
+
+    /**
+     * Mức quyền hiệu lực của người dùng trên một file/thư mục
+     */
+    public enum Level {
+        NONE, VIEW, EDIT;
+
+        /**
+         * Kiểm tra mức quyền có đáp ứng yêu cầu không
+         * 
+         * @param requireEdit true nếu cần quyền EDIT
+         * @return true nếu đủ quyền
+         */
+        public boolean allows(boolean requireEdit) {
+            return requireEdit ? this == EDIT : this != NONE;
+        }
+    }
+
+    private record Key(Long userId, Long fileId) {
+    }
+
+    private record Entry(Level level, long expiresAt) {
+    }
+
+    @Value("${permission.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${permission.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Lấy mức quyền đã lưu
+     * 
+     * @param userId ID của người dùng
+     * @param fileId ID của file/thư mục
+     * @return Mức quyền, hoặc null nếu chưa có hoặc đã hết hạn
+     */
+    public synchronized Level get(Long userId, Long fileId) {
+        Key key = new Key(userId, fileId);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.level();
+    }
+
+    /**
+     * Lấy số thế hệ hiện tại, cần đọc trước khi truy vấn database
+     * 
+     * @return Số thế hệ
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Lưu mức quyền vào cache
+     * Bỏ qua nếu đã có lần vô hiệu hóa xảy ra kể từ thế hệ được truyền vào
+     * 
+     * @param userId ID của người dùng
+     * @param fileId ID của file/thư mục
+     * @param level Mức quyền đã tính
+     * @param readGeneration Số thế hệ đọc được trước khi truy vấn database
+     */
+    public synchronized void put(Long userId, Long fileId, Level level, long readGeneration) {
+        if (readGeneration != generation.get()) {
+            return;
+        }
+        entries.put(new Key(userId, fileId), new Entry(level, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    /**
+     * Vô hiệu hóa toàn bộ quyết định của người dùng khi quyền của họ thay đổi
+     * (quyền thư mục ảnh hưởng đến cả cây con nên không thể chỉ xóa một khóa)
+     * 
+     * @param event Sự kiện thay đổi quyền
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPermissionChanged(PermissionChangedEvent event) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> key.userId().equals(event.getUserId()));
+    }
+
+    /**
+     * Vô hiệu hóa các quyết định trên file/thư mục vừa bị xóa
+     * 
+     * @param event Sự kiện xóa file
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFileDeleted(FileDeletedEvent event) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> key.fileId().equals(event.getFileId()));
+    }
+
+    /**
+     * Xóa toàn bộ cache
+     */
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+}
@@ -1,15 +1,25 @@
 package vn.fpt.assignment_datpd11.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import vn.fpt.assignment_datpd11.entity.FileItem;
 import vn.fpt.assignment_datpd11.entity.FilePermission;
 import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.event.PermissionChangedEvent;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
 import vn.fpt.assignment_datpd11.repository.FilePermissionRepository;
 import vn.fpt.assignment_datpd11.repository.UserRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service xử lý các nghiệp vụ liên quan đến quyền truy cập file
@@ -17,7 +27,7 @@ import java.util.List;
  * Cung cấp các chức năng:
  * - Kiểm tra quyền truy cập của người dùng đối với file
  * - Chia sẻ file/thư mục cho người dùng khác
- * - Chia sẻ đệ quy cho thư mục (bao gồm tất cả file con)
+ * - Kế thừa quyền từ thư mục tổ tiên (một lần chia sẻ thư mục áp dụng cho cả cây con)
  */
 @Service
 public class PermissionService {
@@ -31,12 +41,21 @@ public class PermissionService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PermissionCache permissionCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Kiểm tra người dùng có quyền truy cập file/thư mục không
      * 
      * Quy tắc:
      * - Người sở hữu luôn có quyền truy cập đầy đủ
      * - Người được chia sẻ có quyền tùy theo mức độ (VIEW hoặc EDIT)
+     * - Quyền được kế thừa: quyền trên một thư mục áp dụng cho toàn bộ cây con
+     * 
+     * Kết quả được lấy từ PermissionCache nếu có, khi đó không cần truy vấn database
      * 
      * @param userId ID của người dùng cần kiểm tra
      * @param fileId ID của file/thư mục
@@ -45,34 +64,110 @@ public class PermissionService {
      * @throws RuntimeException nếu file không tồn tại
      */
     public boolean hasAccess(Long userId, Long fileId, boolean requireEdit) {
+        PermissionCache.Level cached = permissionCache.get(userId, fileId);
+        if (cached != null) {
+            return cached.allows(requireEdit);
+        }
+
+        long generation = permissionCache.currentGeneration();
         FileItem fileItem = fileItemRepository.findByIdAndIsDeletedFalse(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        // Owner has full access
-        if (fileItem.getOwner().getId().equals(userId)) {
-            return true;
+        PermissionCache.Level level = resolveLevel(userId, fileItem);
+        permissionCache.put(userId, fileId, level, generation);
+        return level.allows(requireEdit);
+    }
+
+    /**
+     * Kiểm tra người dùng có quyền truy cập một file/thư mục đã được tải sẵn
+     * Dùng khi caller đã có entity để tránh tải lại cùng một dòng dữ liệu
+     * 
+     * @param userId ID của người dùng cần kiểm tra
+     * @param fileItem File/thư mục cần kiểm tra
+     * @param requireEdit true nếu cần quyền EDIT, false nếu chỉ cần VIEW
+     * @return true nếu có quyền truy cập, false nếu không
+     */
+    public boolean hasAccess(Long userId, FileItem fileItem, boolean requireEdit) {
+        PermissionCache.Level cached = permissionCache.get(userId, fileItem.getId());
+        if (cached != null) {
+            return cached.allows(requireEdit);
         }
 
-        // Check permissions
-        FilePermission permission = filePermissionRepository
-                .findByFileItemIdAndUserId(fileId, userId)
-                .orElse(null);
+        long generation = permissionCache.currentGeneration();
+        PermissionCache.Level level = resolveLevel(userId, fileItem);
+        permissionCache.put(userId, fileItem.getId(), level, generation);
+        return level.allows(requireEdit);
+    }
 
-        if (permission == null) {
-            return false;
+    /**
+     * Kiểm tra quyền truy cập của người dùng trên nhiều file/thư mục cùng lúc
+     * 
+     * Các item chưa có trong cache được tải bằng một truy vấn, quyền trên
+     * tất cả item và tổ tiên của chúng được lấy bằng một truy vấn nữa.
+     * File không tồn tại hoặc đã bị xóa được coi là không có quyền.
+     * 
+     * @param userId ID của người dùng cần kiểm tra
+     * @param fileIds Danh sách ID file/thư mục
+     * @param requireEdit true nếu cần quyền EDIT, false nếu chỉ cần VIEW
+     * @return Map từ ID file sang kết quả kiểm tra
+     */
+    public Map<Long, Boolean> hasAccess(Long userId, Collection<Long> fileIds, boolean requireEdit) {
+        Map<Long, Boolean> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long fileId : fileIds) {
+            PermissionCache.Level cached = permissionCache.get(userId, fileId);
+            if (cached != null) {
+                result.put(fileId, cached.allows(requireEdit));
+            } else {
+                result.put(fileId, false);
+                missing.add(fileId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
         }
 
-        if (requireEdit) {
-            return permission.getPermissionLevel() == FilePermission.PermissionLevel.EDIT;
+        long generation = permissionCache.currentGeneration();
+        List<FileItem> items = fileItemRepository.findAllById(missing).stream()
+                .filter(f -> !Boolean.TRUE.equals(f.getIsDeleted()))
+                .collect(Collectors.toList());
+
+        // One permission lookup for every item that is not owned by the user
+        Set<Long> lookupIds = new HashSet<>();
+        for (FileItem item : items) {
+            if (!item.getOwner().getId().equals(userId)) {
+                lookupIds.addAll(getSelfAndAncestorIds(item));
+            }
+        }
+        Map<Long, FilePermission.PermissionLevel> grants = new HashMap<>();
+        if (!lookupIds.isEmpty()) {
+            for (FilePermission permission : filePermissionRepository.findByUserIdAndFileItemIdIn(userId, lookupIds)) {
+                grants.merge(permission.getFileItem().getId(), permission.getPermissionLevel(),
+                        (a, b) -> a == FilePermission.PermissionLevel.EDIT ? a : b);
+            }
         }
 
-        return true;
+        for (FileItem item : items) {
+            PermissionCache.Level level;
+            if (item.getOwner().getId().equals(userId)) {
+                level = PermissionCache.Level.EDIT;
+            } else {
+                level = toLevel(getSelfAndAncestorIds(item).stream()
+                        .map(grants::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+            }
+            permissionCache.put(userId, item.getId(), level, generation);
+            result.put(item.getId(), level.allows(requireEdit));
+        }
+        return result;
     }
 
     /**
-     * Chia sẻ file/thư mục cho một người dùng
+     * Chia sẻ file/thư mục cho người dùng
      * 
-     * Nếu là thư mục, sẽ chia sẻ đệ quy cho tất cả file và thư mục con
+     * Chỉ ghi một bản ghi quyền trên chính item; với thư mục, quyền được kế thừa
+     * bởi toàn bộ file/thư mục con (kể cả các item được tạo sau này)
      * Nếu quyền đã tồn tại, sẽ cập nhật mức độ quyền
      * 
      * @param fileId ID của file/thư mục cần chia sẻ
@@ -84,22 +179,6 @@ public class PermissionService {
         FileItem fileItem = fileItemRepository.findByIdAndIsDeletedFalse(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        // If it's a folder, apply recursively
-        if (fileItem.getType() == FileItem.FileType.FOLDER) {
-            shareFolderRecursive(fileItem, targetUserId, permissionLevel);
-        } else {
-            shareSingleFile(fileItem, targetUserId, permissionLevel);
-        }
-    }
-
-    /**
-     * Chia sẻ một file đơn lẻ cho người dùng
-     * 
-     * @param fileItem File cần chia sẻ
-     * @param targetUserId ID của người dùng được chia sẻ
-     * @param permissionLevel Mức độ quyền
-     */
-    private void shareSingleFile(FileItem fileItem, Long targetUserId, FilePermission.PermissionLevel permissionLevel) {
         FilePermission existingPermission = filePermissionRepository
                 .findByFileItemIdAndUserId(fileItem.getId(), targetUserId)
                 .orElse(null);
@@ -119,28 +198,70 @@ public class PermissionService {
 
             filePermissionRepository.save(permission);
         }
+
+        eventPublisher.publishEvent(new PermissionChangedEvent(fileItem.getId(), targetUserId));
     }
 
     /**
-     * Chia sẻ thư mục đệ quy cho người dùng
+     * Tính mức quyền hiệu lực của người dùng trên một file/thư mục
      * 
-     * Chia sẻ thư mục và tất cả file/thư mục con bên trong
+     * Các quyền trên chính item và trên mọi thư mục tổ tiên được lấy bằng một truy vấn
+     * (danh sách tổ tiên đọc từ path vật chất hóa). Quyền được cộng dồn: chỉ cần một
+     * quyền EDIT ở bất kỳ cấp nào là đủ để chỉnh sửa.
      * 
-     * @param folder Thư mục cần chia sẻ
-     * @param targetUserId ID của người dùng được chia sẻ
-     * @param permissionLevel Mức độ quyền
+     * @param userId ID của người dùng
+     * @param fileItem File/thư mục cần kiểm tra
+     * @return Mức quyền hiệu lực
      */
-    private void shareFolderRecursive(FileItem folder, Long targetUserId, FilePermission.PermissionLevel permissionLevel) {
-        shareSingleFile(folder, targetUserId, permissionLevel);
+    private PermissionCache.Level resolveLevel(Long userId, FileItem fileItem) {
+        // Owner has full access
+        if (fileItem.getOwner().getId().equals(userId)) {
+            return PermissionCache.Level.EDIT;
+        }
 
-        List<FileItem> children = fileItemRepository.findByParentIdAndIsDeletedFalse(folder.getId());
-        for (FileItem child : children) {
-            if (child.getType() == FileItem.FileType.FOLDER) {
-                shareFolderRecursive(child, targetUserId, permissionLevel);
-            } else {
-                shareSingleFile(child, targetUserId, permissionLevel);
+        // Grants on the item itself or on any ancestor folder apply
+        List<FilePermission.PermissionLevel> levels = filePermissionRepository
+                .findByUserIdAndFileItemIdIn(userId, getSelfAndAncestorIds(fileItem)).stream()
+                .map(FilePermission::getPermissionLevel)
+                .collect(Collectors.toList());
+        return toLevel(levels);
+    }
+
+    /**
+     * Gộp các quyền được cấp thành mức quyền hiệu lực
+     * 
+     * @param levels Các mức quyền được cấp trên item và tổ tiên
+     * @return EDIT nếu có quyền EDIT, VIEW nếu chỉ có VIEW, NONE nếu không có quyền nào
+     */
+    private PermissionCache.Level toLevel(List<FilePermission.PermissionLevel> levels) {
+        if (levels.isEmpty()) {
+            return PermissionCache.Level.NONE;
+        }
+        return levels.contains(FilePermission.PermissionLevel.EDIT)
+                ? PermissionCache.Level.EDIT
+                : PermissionCache.Level.VIEW;
+    }
+
+    /**
+     * Lấy ID của item và toàn bộ thư mục tổ tiên
+     * 
+     * Dùng path vật chất hóa nếu có; với dữ liệu cũ chưa được điền path
+     * thì đi ngược lên theo quan hệ parent
+     * 
+     * @param fileItem File/thư mục cần lấy
+     * @return Danh sách ID gồm tổ tiên và chính item
+     */
+    private List<Long> getSelfAndAncestorIds(FileItem fileItem) {
+        List<Long> ids;
+        if (fileItem.getPath() != null) {
+            ids = fileItem.ancestorIds();
+        } else {
+            ids = new ArrayList<>();
+            for (FileItem parent = fileItem.getParent(); parent != null; parent = parent.getParent()) {
+                ids.add(parent.getId());
             }
         }
+        ids.add(fileItem.getId());
+        return ids;
     }
 }
-
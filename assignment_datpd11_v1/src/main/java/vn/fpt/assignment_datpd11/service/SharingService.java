@@ -59,7 +59,7 @@ public class SharingService {
         FileItem fileItem = fileItemRepository.findByIdAndIsDeletedFalse(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        if (!permissionService.hasAccess(sharerId, fileId, true)) {
+        if (!permissionService.hasAccess(sharerId, fileItem, true)) {
             throw new RuntimeException("No permission to share this file");
         }
 
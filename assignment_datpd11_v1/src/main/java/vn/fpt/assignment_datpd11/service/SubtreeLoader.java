@@ -0,0 +1,98 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.FileNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Nạp toàn bộ cây con của một thư mục bằng một truy vấn duy nhất
+ * 
+ * - Tất cả con cháu được lấy theo tiền tố đường dẫn vật chất hóa dưới dạng FileNode
+ *   (id, cha, tên, loại, path, kích thước...), không tạo entity được quản lý
+ * - Cây được dựng trong bộ nhớ bằng cách nối mỗi node vào node cha theo parentId
+ * - Item nằm dưới một thư mục đã bị xóa không có cha trong kết quả nên bị bỏ qua
+ *   cùng toàn bộ cây con của nó
+ */
+@Service
+public class SubtreeLoader {
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    /**
+     * Nạp cây con của thư mục
+     * 
+     * @param folder Thư mục gốc
+     * @return Node gốc với danh sách con đã được điền đầy đủ
+     */
+    public FileNode load(FileItem folder) {
+        FileNode root = FileNode.of(folder);
+        List<FileNode> nodes = fileItemRepository.findSubtreeNodes(folder.childPath());
+
+        Map<Long, FileNode> folders = new HashMap<>();
+        folders.put(root.getId(), root);
+        // Sorted by path, so every parent is linked before its children
+        for (FileNode node : nodes) {
+            FileNode parent = folders.get(node.getParentId());
+            if (parent == null) {
+                // Parent folder is deleted - skip the whole subtree
+                continue;
+            }
+            parent.getChildren().add(node);
+            if (node.isFolder()) {
+                folders.put(node.getId(), node);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Duyệt cây con theo thứ tự trước (thư mục cha luôn được duyệt trước các item con)
+     * Dùng ngăn xếp thay cho đệ quy nên không giới hạn độ sâu của cây
+     * 
+     * @param root Node gốc (không được truyền cho visitor)
+     * @param visitor Nhận mỗi node cùng đường dẫn tương đối từ gốc (ví dụ: "a/b/file.txt")
+     */
+    public void walk(FileNode root, BiConsumer<FileNode, String> visitor) {
+        Deque<Visit> stack = new ArrayDeque<>();
+        pushChildren(stack, root, "");
+        while (!stack.isEmpty()) {
+            Visit visit = stack.pop();
+            visitor.accept(visit.node, visit.relativePath);
+            if (visit.node.isFolder()) {
+                pushChildren(stack, visit.node, visit.relativePath + "/");
+            }
+        }
+    }
+
+    /**
+     * Một node đang chờ duyệt cùng đường dẫn tương đối của nó
+     */
+    private static class Visit {
+        final FileNode node;
+        final String relativePath;
+
+        Visit(FileNode node, String relativePath) {
+            this.node = node;
+            this.relativePath = relativePath;
+        }
+    }
+
+    private void pushChildren(Deque<Visit> stack, FileNode folder, String prefix) {
+        List<FileNode> children = folder.getChildren();
+        // Reverse so children come off the stack in their original order
+        for (int i = children.size() - 1; i >= 0; i--) {
+            FileNode child = children.get(i);
+            stack.push(new Visit(child, prefix + child.getName()));
+        }
+    }
+}
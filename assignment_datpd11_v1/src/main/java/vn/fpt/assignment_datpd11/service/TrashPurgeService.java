@@ -0,0 +1,141 @@
+package vn.fpt.assignment_datpd11.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.repository.DownloadRequestRepository;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.FilePermissionRepository;
+import vn.fpt.assignment_datpd11.repository.PurgeItem;
+import vn.fpt.assignment_datpd11.repository.StoredBlobRepository;
+import vn.fpt.assignment_datpd11.repository.UploadSessionRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service xóa vĩnh viễn file/thư mục khỏi database theo từng lô
+ * 
+ * Mỗi lô chạy trong một transaction riêng với số câu lệnh cố định, không phụ thuộc số item:
+ * - Xóa các bản ghi tham chiếu tới item (quyền chia sẻ, yêu cầu tải xuống), gỡ phiên upload
+ * - Xóa các item bằng một câu lệnh, item sâu nhất trước
+ * - Trừ số liệu sử dụng và giảm refCount, gộp theo người dùng/blob
+ * 
+ * File vật lý không được xóa ở đây: location của các blob không còn tham chiếu được trả về
+ * để xóa sau khi transaction đã commit (xóa trước mà transaction lỗi sẽ mất nội dung).
+ */
+@Service
+public class TrashPurgeService {
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    @Autowired
+    private FilePermissionRepository filePermissionRepository;
+
+    @Autowired
+    private DownloadRequestRepository downloadRequestRepository;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private UsageService usageService;
+
+    /**
+     * Xóa vĩnh viễn một lô item
+     * 
+     * Người gọi phải bảo đảm mọi item con của các thư mục trong lô đã bị xóa trước hoặc
+     * nằm cùng lô. ID không còn tồn tại (đã bị xóa cùng thư mục cha) được bỏ qua.
+     * 
+     * @param ids Danh sách ID cần xóa
+     * @return Kết quả của lô: số item đã xóa và các file vật lý cần xóa
+     */
+    @Transactional
+    public PurgeBatch purge(Collection<Long> ids) {
+        List<PurgeItem> items = fileItemRepository.findPurgeItems(ids);
+        if (items.isEmpty()) {
+            return new PurgeBatch(0, 0, List.of(), List.of());
+        }
+        List<Long> itemIds = items.stream().map(PurgeItem::getId).collect(Collectors.toList());
+
+        // Rows referencing the items go first (foreign keys)
+        filePermissionRepository.deleteByFileItemIds(itemIds);
+        downloadRequestRepository.deleteByFileItemIds(itemIds);
+        List<String> abortedSessionIds = uploadSessionRepository.findActiveSessionIdsByParentIds(itemIds);
+        if (!abortedSessionIds.isEmpty()) {
+            uploadSessionRepository.abortByParentIds(itemIds, LocalDateTime.now());
+        }
+        uploadSessionRepository.detachFromParents(itemIds);
+
+        int deleted = fileItemRepository.deleteAllChildFirst(itemIds);
+        usageService.recordPurged(items);
+
+        // One refcount update per distinct blob, however many purged files share it
+        Map<String, Long> references = new LinkedHashMap<>();
+        List<String> locations = new ArrayList<>();
+        for (PurgeItem item : items) {
+            if (item.getContentHash() != null) {
+                references.merge(item.getContentHash(), 1L, Long::sum);
+            } else if (item.getFilePath() != null) {
+                // Stored before the blob store - the file belongs to this item alone
+                locations.add(item.getFilePath());
+            }
+        }
+
+        int releasedBlobs = 0;
+        if (!references.isEmpty()) {
+            references.forEach(storedBlobRepository::decrementRefCount);
+            List<StoredBlob> unreferenced = storedBlobRepository.findUnreferenced(references.keySet());
+            if (!unreferenced.isEmpty()) {
+                storedBlobRepository.deleteAllByIdInBatch(unreferenced.stream()
+                        .map(StoredBlob::getHash)
+                        .collect(Collectors.toList()));
+                for (StoredBlob blob : unreferenced) {
+                    locations.add(blob.getStoragePath());
+                }
+                releasedBlobs = unreferenced.size();
+            }
+        }
+
+        return new PurgeBatch(deleted, releasedBlobs, locations, abortedSessionIds);
+    }
+
+    /**
+     * Kết quả xóa vĩnh viễn một lô item
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PurgeBatch {
+        /**
+         * Số item đã bị xóa khỏi database
+         */
+        private final int purgedItems;
+
+        /**
+         * Số blob không còn được tham chiếu và đã bị xóa khỏi database
+         */
+        private final int releasedBlobs;
+
+        /**
+         * Location của các file vật lý cần xóa (sau khi transaction đã commit)
+         */
+        private final List<String> locations;
+
+        /**
+         * ID các phiên upload bị hủy do thư mục đích bị xóa (cần xóa các phần đã nhận)
+         */
+        private final List<String> abortedSessionIds;
+    }
+}
@@ -0,0 +1,455 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.fpt.assignment_datpd11.dto.request.CreateUploadSessionRequest;
+import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
+import vn.fpt.assignment_datpd11.dto.response.UploadSessionResponse;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.entity.UploadSession;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.repository.UploadSessionRepository;
+import vn.fpt.assignment_datpd11.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Service xử lý upload file lớn theo từng phần (chunked upload)
+ * 
+ * Cung cấp các chức năng:
+ * - Tạo phiên upload
+ * - Nhận từng phần theo thứ tự bất kỳ (có thể song song, có thể gửi lại)
+ * - Liệt kê các phần đã nhận để client tiếp tục upload sau khi mất kết nối
+ * - Commit: ghép các phần vào blob store và tạo FileItem
+ * - Hủy phiên upload và dọn dẹp các phần đã nhận
+ */
+@Service
+public class UploadSessionService {
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Đường dẫn thư mục tạm để lưu các phần đã upload (đọc từ application.properties)
+     */
+    @Value("${file.storage.temp.path}")
+    private String tempPath;
+
+    /**
+     * Kích thước mặc định của mỗi phần tính bằng bytes (mặc định: 8 MB)
+     */
+    @Value("${file.upload.chunk-size:8388608}")
+    private long defaultChunkSize;
+
+    /**
+     * Kích thước tối đa của mỗi phần tính bằng bytes (mặc định: 64 MB)
+     */
+    @Value("${file.upload.max-chunk-size:67108864}")
+    private long maxChunkSize;
+
+    /**
+     * Kích thước tối đa của file upload theo từng phần tính bằng bytes (mặc định: 10 GB)
+     */
+    @Value("${file.upload.max-total-size:10737418240}")
+    private long maxTotalSize;
+
+    /**
+     * Tạo phiên upload mới
+     * 
+     * @param request Thông tin file cần upload (tên, kích thước, thư mục cha, kích thước mỗi phần)
+     * @param userId ID của người dùng upload
+     * @return UploadSessionResponse chứa sessionId và số phần cần upload
+     * @throws RuntimeException nếu người dùng không tồn tại, thư mục cha không hợp lệ hoặc kích thước phần không hợp lệ
+     */
+    @Transactional
+    public UploadSessionResponse createSession(CreateUploadSessionRequest request, Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        FileItem parent = fileService.resolveParentFolder(request.getParentId(), userId);
+
+        if (request.getTotalSize() > maxTotalSize) {
+            throw new RuntimeException("File size exceeds maximum allowed size of " + maxTotalSize + " bytes");
+        }
+        long chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize > maxChunkSize) {
+            throw new RuntimeException("Chunk size exceeds maximum allowed size of " + maxChunkSize + " bytes");
+        }
+        long totalChunks = (request.getTotalSize() + chunkSize - 1) / chunkSize;
+        if (totalChunks > Integer.MAX_VALUE) {
+            throw new RuntimeException("Too many chunks, increase the chunk size");
+        }
+
+        UploadSession session = UploadSession.builder()
+                .user(user)
+                .parent(parent)
+                .fileName(request.getFileName())
+                .mimeType(request.getMimeType())
+                .totalSize(request.getTotalSize())
+                .chunkSize(chunkSize)
+                .totalChunks((int) totalChunks)
+                .status(UploadSession.UploadStatus.ACTIVE)
+                .build();
+
+        session = uploadSessionRepository.save(session);
+        return mapToResponse(session);
+    }
+
+    /**
+     * Nhận một phần của file
+     * 
+     * Phần được ghi ra file tạm rồi đổi tên nguyên tử, nên một phần chỉ được
+     * tính là đã nhận khi đã ghi đầy đủ. Gửi lại một phần sẽ ghi đè phần cũ.
+     * Mỗi phần được nhận làm mới thời điểm cập nhật của phiên, nên phiên đang upload
+     * không bị tác vụ dọn dẹp hủy.
+     * 
+     * @param sessionId ID của phiên upload
+     * @param index Số thứ tự của phần (bắt đầu từ 0)
+     * @param data Nội dung của phần
+     * @param userId ID của người dùng upload
+     * @throws IOException nếu có lỗi khi ghi file
+     * @throws RuntimeException nếu phiên không tồn tại, không còn hoạt động, số thứ tự hoặc kích thước phần không hợp lệ
+     */
+    public void uploadChunk(String sessionId, int index, InputStream data, Long userId) throws IOException {
+        UploadSession session = getActiveSession(sessionId, userId);
+
+        if (index < 0 || index >= session.getTotalChunks()) {
+            throw new RuntimeException("Invalid chunk index: " + index);
+        }
+
+        Path sessionDir = getSessionDir(sessionId);
+        Files.createDirectories(sessionDir);
+        Path tempChunk = sessionDir.resolve(index + ".part." + UUID.randomUUID() + ".tmp");
+
+        Path chunk = getChunkPath(sessionId, index);
+        try {
+            long expected = getExpectedChunkSize(session, index);
+            long written = copyAtMost(data, tempChunk, expected);
+            if (written != expected) {
+                throw new RuntimeException("Chunk size mismatch: expected " + expected + " bytes but received " + written);
+            }
+            Files.move(tempChunk, chunk, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempChunk);
+        }
+
+        // Keep the session alive for the cleanup task; it may have been aborted while the chunk was in flight
+        if (uploadSessionRepository.touchActive(sessionId, LocalDateTime.now()) == 0) {
+            Files.deleteIfExists(chunk);
+            throw new RuntimeException("Upload session is not active");
+        }
+    }
+
+    /**
+     * Lấy trạng thái của phiên upload, bao gồm danh sách các phần đã nhận
+     * 
+     * @param sessionId ID của phiên upload
+     * @param userId ID của người dùng
+     * @return UploadSessionResponse chứa danh sách các phần đã nhận
+     * @throws RuntimeException nếu phiên không tồn tại
+     */
+    public UploadSessionResponse getSession(String sessionId, Long userId) {
+        return mapToResponse(getOwnedSession(sessionId, userId));
+    }
+
+    /**
+     * Commit phiên upload
+     * 
+     * Quy trình:
+     * 1. Kiểm tra đã nhận đủ tất cả các phần
+     * 2. Ghép các phần theo thứ tự vào blob store (tính mã băm trong lúc ghép)
+     * 3. Trong một transaction ngắn: tạo FileItem trong thư mục cha và đánh dấu phiên là COMMITTED
+     * 4. Sau khi transaction commit: xóa các phần tạm
+     * 
+     * Ghép file lớn có thể mất nhiều phút, nên phương thức không chạy trong transaction:
+     * không giữ kết nối database trong lúc băm và ghi nội dung (giống uploadContent).
+     * Nếu không tạo được FileItem (phiên đã bị commit hoặc hủy bởi request khác, thư mục cha
+     * bị xóa...), tham chiếu tới blob vừa lưu được giải phóng và các phần tạm được giữ lại.
+     * 
+     * @param sessionId ID của phiên upload
+     * @param userId ID của người dùng
+     * @return Thông tin file đã được tạo
+     * @throws IOException nếu có lỗi khi đọc các phần hoặc ghi file
+     * @throws RuntimeException nếu phiên không hợp lệ hoặc còn thiếu phần
+     */
+    public FileItemResponse commitSession(String sessionId, Long userId) throws IOException {
+        UploadSession session = getActiveSession(sessionId, userId);
+
+        List<Integer> received = listReceivedChunks(sessionId);
+        if (received.size() != session.getTotalChunks()) {
+            throw new RuntimeException("Upload is incomplete: received " + received.size()
+                    + " of " + session.getTotalChunks() + " chunks");
+        }
+
+        // Parent may have been deleted or unshared since the session was created
+        FileItem parent = session.getParent() != null
+                ? fileService.resolveParentFolder(session.getParent().getId().toString(), userId)
+                : null;
+
+        StoredBlob blob;
+        try (InputStream in = openChunks(sessionId, session.getTotalChunks())) {
+            blob = fileStorageService.storeContent(in, session.getTotalSize(), null,
+                    session.getMimeType(), session.getTotalSize());
+        }
+
+        FileItem fileItem;
+        try {
+            if (!blob.getSize().equals(session.getTotalSize())) {
+                throw new RuntimeException("Assembled file size does not match the declared total size");
+            }
+            fileItem = transactionTemplate.execute(status -> {
+                // Another commit or an abort may have finished while the chunks were assembled
+                if (uploadSessionRepository.markCommitted(sessionId, LocalDateTime.now()) == 0) {
+                    throw new RuntimeException("Upload session is not active");
+                }
+                return fileService.createFileItem(
+                        session.getFileName(), session.getMimeType(), blob, parent, session.getUser());
+            });
+        } catch (RuntimeException e) {
+            // The blob reference was already committed on its own
+            fileStorageService.releaseBlob(blob.getHash());
+            throw e;
+        }
+
+        deleteChunks(sessionId);
+        return fileService.mapToResponse(fileItem);
+    }
+
+    /**
+     * Hủy phiên upload và xóa các phần đã nhận
+     * 
+     * @param sessionId ID của phiên upload
+     * @param userId ID của người dùng
+     * @throws IOException nếu có lỗi khi xóa các phần
+     * @throws RuntimeException nếu phiên không tồn tại hoặc không còn hoạt động
+     */
+    @Transactional
+    public void abortSession(String sessionId, Long userId) throws IOException {
+        UploadSession session = getActiveSession(sessionId, userId);
+        session.setStatus(UploadSession.UploadStatus.ABORTED);
+        uploadSessionRepository.save(session);
+        deleteChunks(sessionId);
+    }
+
+    /**
+     * Xóa các phần đã nhận của một phiên upload
+     * 
+     * @param sessionId ID của phiên upload
+     * @throws IOException nếu có lỗi khi xóa file
+     */
+    public void deleteChunks(String sessionId) throws IOException {
+        Path sessionDir = getSessionDir(sessionId);
+        if (!Files.exists(sessionDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sessionDir)) {
+            for (Path chunk : stream) {
+                Files.deleteIfExists(chunk);
+            }
+        }
+        Files.deleteIfExists(sessionDir);
+    }
+
+    /**
+     * Tìm phiên upload thuộc về người dùng
+     * 
+     * @param sessionId ID của phiên upload
+     * @param userId ID của người dùng
+     * @return UploadSession
+     * @throws RuntimeException nếu phiên không tồn tại hoặc thuộc về người dùng khác
+     */
+    private UploadSession getOwnedSession(String sessionId, Long userId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Upload session not found"));
+        if (!session.getUser().getId().equals(userId)) {
+            throw new RuntimeException("Upload session not found");
+        }
+        return session;
+    }
+
+    /**
+     * Tìm phiên upload đang hoạt động thuộc về người dùng
+     * 
+     * @param sessionId ID của phiên upload
+     * @param userId ID của người dùng
+     * @return UploadSession có trạng thái ACTIVE
+     * @throws RuntimeException nếu phiên không tồn tại hoặc không còn hoạt động
+     */
+    private UploadSession getActiveSession(String sessionId, Long userId) {
+        UploadSession session = getOwnedSession(sessionId, userId);
+        if (session.getStatus() != UploadSession.UploadStatus.ACTIVE) {
+            throw new RuntimeException("Upload session is not active");
+        }
+        return session;
+    }
+
+    /**
+     * Tính kích thước mong đợi của một phần (phần cuối có thể nhỏ hơn)
+     * 
+     * @param session Phiên upload
+     * @param index Số thứ tự của phần
+     * @return Kích thước tính bằng bytes
+     */
+    private long getExpectedChunkSize(UploadSession session, int index) {
+        long offset = (long) index * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+    }
+
+    /**
+     * Ghi dữ liệu ra file, đọc tối đa limit + 1 bytes
+     * Dừng ngay khi dữ liệu vượt quá giới hạn thay vì ghi hết phần gửi lên
+     * 
+     * @param data Luồng dữ liệu cần ghi
+     * @param target File đích (chưa tồn tại)
+     * @param limit Số bytes mong đợi
+     * @return Số bytes đã ghi (tối đa limit)
+     * @throws IOException nếu có lỗi khi ghi file
+     * @throws RuntimeException nếu dữ liệu dài hơn limit
+     */
+    private long copyAtMost(InputStream data, Path target, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW)) {
+            int n;
+            while ((n = data.read(buffer, 0, (int) Math.min(buffer.length, limit + 1 - written))) > 0) {
+                written += n;
+                if (written > limit) {
+                    throw new RuntimeException("Chunk exceeds expected size of " + limit + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Liệt kê số thứ tự các phần đã nhận đầy đủ
+     * 
+     * @param sessionId ID của phiên upload
+     * @return Danh sách số thứ tự đã sắp xếp tăng dần
+     */
+    private List<Integer> listReceivedChunks(String sessionId) {
+        List<Integer> received = new ArrayList<>();
+        Path sessionDir = getSessionDir(sessionId);
+        if (!Files.exists(sessionDir)) {
+            return received;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sessionDir, "*.part")) {
+            for (Path chunk : stream) {
+                String name = chunk.getFileName().toString();
+                received.add(Integer.parseInt(name.substring(0, name.length() - ".part".length())));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read upload session chunks: " + e.getMessage());
+        }
+        Collections.sort(received);
+        return received;
+    }
+
+    /**
+     * Mở một luồng đọc nối tiếp tất cả các phần theo thứ tự
+     * Mỗi phần chỉ được mở khi phần trước đã đọc xong
+     * 
+     * @param sessionId ID của phiên upload
+     * @param totalChunks Tổng số phần
+     * @return InputStream đọc toàn bộ nội dung file
+     */
+    private InputStream openChunks(String sessionId, int totalChunks) {
+        Enumeration<InputStream> chunks = new Enumeration<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < totalChunks;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return Files.newInputStream(getChunkPath(sessionId, next++));
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot read chunk: " + e.getMessage());
+                }
+            }
+        };
+        return new SequenceInputStream(chunks);
+    }
+
+    /**
+     * Lấy thư mục chứa các phần của phiên upload
+     * 
+     * @param sessionId ID của phiên upload
+     * @return Đường dẫn {tempPath}/uploads/{sessionId}
+     */
+    private Path getSessionDir(String sessionId) {
+        return Paths.get(tempPath, "uploads", sessionId);
+    }
+
+    /**
+     * Lấy đường dẫn của một phần đã nhận
+     * 
+     * @param sessionId ID của phiên upload
+     * @param index Số thứ tự của phần
+     * @return Đường dẫn {tempPath}/uploads/{sessionId}/{index}.part
+     */
+    private Path getChunkPath(String sessionId, int index) {
+        return getSessionDir(sessionId).resolve(index + ".part");
+    }
+
+    /**
+     * Chuyển đổi UploadSession entity sang UploadSessionResponse DTO
+     * 
+     * @param session Entity cần chuyển đổi
+     * @return UploadSessionResponse DTO
+     */
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        List<Integer> received = session.getStatus() == UploadSession.UploadStatus.ACTIVE
+                ? listReceivedChunks(session.getSessionId())
+                : Collections.emptyList();
+
+        return UploadSessionResponse.builder()
+                .sessionId(session.getSessionId())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.getTotalChunks())
+                .receivedChunks(received)
+                .status(session.getStatus().name())
+                .build();
+    }
+}
@@ -0,0 +1,260 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.UserUsage;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.PurgeItem;
+import vn.fpt.assignment_datpd11.repository.UserMimeUsageRepository;
+import vn.fpt.assignment_datpd11.repository.UserUsageRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service duy trì số liệu sử dụng storage của người dùng
+ * 
+ * Số liệu (số file, số thư mục, dung lượng, phân bổ theo loại MIME) được cập nhật
+ * tăng/giảm trong cùng transaction với thao tác tạo hoặc xóa file/thư mục.
+ * Nếu người dùng chưa có bản ghi, số liệu được tính lại toàn bộ bằng truy vấn tổng hợp.
+ * 
+ * Lưu ý: file bị xóa vĩnh viễn (purge) đã được trừ khỏi số liệu từ lúc soft delete;
+ * chỉ các item con cháu của thư mục bị xóa (chưa bị xóa mềm) được trừ khi purge.
+ */
+@Service
+public class UsageService {
+
+    /**
+     * Loại MIME dùng cho file không có thông tin MIME
+     */
+    public static final String UNKNOWN_MIME_TYPE = "unknown";
+
+    @Autowired
+    private UserUsageRepository userUsageRepository;
+
+    @Autowired
+    private UserMimeUsageRepository userMimeUsageRepository;
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    /**
+     * Ghi nhận một file/thư mục mới (hoặc được khôi phục) vào số liệu của người sở hữu
+     * 
+     * @param fileItem File/thư mục vừa được tạo
+     */
+    @Transactional
+    public void recordCreated(FileItem fileItem) {
+        applyDelta(fileItem, 1);
+    }
+
+    /**
+     * Ghi nhận nhiều file/thư mục mới cùng lúc (upload nhiều file, tạo dữ liệu mẫu)
+     * 
+     * Thay đổi được gộp theo người sở hữu và loại MIME trước khi ghi, nên số câu lệnh
+     * chỉ phụ thuộc vào số người dùng/loại MIME chứ không phụ thuộc vào số item
+     * 
+     * @param fileItems Các file/thư mục vừa được tạo
+     */
+    @Transactional
+    public void recordCreated(List<FileItem> fileItems) {
+        UsageDelta delta = new UsageDelta();
+        for (FileItem fileItem : fileItems) {
+            delta.add(fileItem.getOwner().getId(), fileItem.getType(), fileItem.getMimeType(), fileItem.getFileSize());
+        }
+        applyDelta(delta, 1);
+    }
+
+    /**
+     * Trừ các item bị xóa vĩnh viễn khỏi số liệu của người sở hữu
+     * 
+     * Chỉ các item chưa bị xóa mềm được tính (item đã xóa mềm đã được trừ từ trước); đó là
+     * các item con cháu của thư mục bị xóa. Thay đổi được gộp theo người sở hữu và loại MIME.
+     * 
+     * @param items Các item vừa bị xóa vĩnh viễn
+     */
+    @Transactional
+    public void recordPurged(List<PurgeItem> items) {
+        UsageDelta delta = new UsageDelta();
+        for (PurgeItem item : items) {
+            if (!item.isDeleted()) {
+                delta.add(item.getOwnerId(), item.getType(), item.getMimeType(), item.getFileSize());
+            }
+        }
+        applyDelta(delta, -1);
+    }
+
+    /**
+     * Trừ một file/thư mục vừa bị xóa khỏi số liệu của người sở hữu
+     * 
+     * @param fileItem File/thư mục vừa bị xóa
+     */
+    @Transactional
+    public void recordDeleted(FileItem fileItem) {
+        applyDelta(fileItem, -1);
+    }
+
+    /**
+     * Lấy số liệu sử dụng của người dùng
+     * Tính lại bằng truy vấn tổng hợp nếu người dùng chưa có bản ghi
+     * 
+     * @param userId ID của người dùng
+     * @return Số liệu sử dụng
+     */
+    @Transactional
+    public UserUsage getUsage(Long userId) {
+        return userUsageRepository.findById(userId)
+                .orElseGet(() -> recompute(userId));
+    }
+
+    /**
+     * Tính lại toàn bộ số liệu sử dụng của người dùng từ bảng file_items
+     * và ghi đè bản ghi hiện có
+     * 
+     * @param userId ID của người dùng
+     * @return Số liệu sử dụng sau khi tính lại
+     */
+    @Transactional
+    public UserUsage recompute(Long userId) {
+        long files = 0;
+        long folders = 0;
+        long bytes = 0;
+        for (Object[] row : fileItemRepository.aggregateUsageByType(userId)) {
+            FileItem.FileType type = (FileItem.FileType) row[0];
+            long count = ((Number) row[1]).longValue();
+            if (type == FileItem.FileType.FOLDER) {
+                folders += count;
+            } else {
+                files += count;
+                bytes += ((Number) row[2]).longValue();
+            }
+        }
+        userUsageRepository.upsert(userId, files, folders, bytes);
+
+        userMimeUsageRepository.deleteByUserId(userId);
+        List<Object[]> mimeRows = fileItemRepository.aggregateUsageByMime(userId);
+        for (Object[] row : mimeRows) {
+            userMimeUsageRepository.addDelta(userId, normalizeMimeType((String) row[0]),
+                    ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+        }
+
+        return UserUsage.builder()
+                .userId(userId)
+                .fileCount(files)
+                .folderCount(folders)
+                .totalBytes(bytes)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Đối soát số liệu của người dùng: tính lại và cho biết số liệu cũ có bị lệch không
+     * 
+     * @param userId ID của người dùng
+     * @return true nếu số liệu cũ bị lệch so với dữ liệu thực tế
+     */
+    @Transactional
+    public boolean reconcile(Long userId) {
+        UserUsage before = userUsageRepository.findById(userId).orElse(null);
+        Long beforeFiles = before != null ? before.getFileCount() : null;
+        Long beforeFolders = before != null ? before.getFolderCount() : null;
+        Long beforeBytes = before != null ? before.getTotalBytes() : null;
+
+        UserUsage after = recompute(userId);
+        return !after.getFileCount().equals(beforeFiles)
+                || !after.getFolderCount().equals(beforeFolders)
+                || !after.getTotalBytes().equals(beforeBytes);
+    }
+
+    /**
+     * Chuẩn hóa loại MIME dùng làm khóa thống kê
+     * 
+     * @param mimeType Loại MIME (có thể null)
+     * @return Loại MIME, hoặc "unknown" nếu không có
+     */
+    public static String normalizeMimeType(String mimeType) {
+        return mimeType == null || mimeType.isEmpty() ? UNKNOWN_MIME_TYPE : mimeType;
+    }
+
+    /**
+     * Cộng dồn thay đổi của một file/thư mục vào số liệu của người sở hữu
+     * 
+     * @param fileItem File/thư mục thay đổi
+     * @param sign 1 khi thêm, -1 khi xóa
+     */
+    private void applyDelta(FileItem fileItem, int sign) {
+        Long userId = fileItem.getOwner().getId();
+        boolean isFile = fileItem.getType() == FileItem.FileType.FILE;
+        long bytes = isFile && fileItem.getFileSize() != null ? fileItem.getFileSize() : 0L;
+
+        int updated = userUsageRepository.addDelta(userId,
+                isFile ? sign : 0,
+                isFile ? 0 : sign,
+                sign * bytes);
+        if (updated == 0) {
+            // First change for this user - build the summary from the current rows instead
+            recompute(userId);
+            return;
+        }
+
+        if (isFile) {
+            userMimeUsageRepository.addDelta(userId, normalizeMimeType(fileItem.getMimeType()), sign, sign * bytes);
+        }
+    }
+
+    /**
+     * Ghi các thay đổi đã gộp: một câu lệnh cho mỗi người dùng và mỗi loại MIME
+     * 
+     * @param delta Các thay đổi đã gộp
+     * @param sign 1 khi thêm, -1 khi xóa
+     */
+    private void applyDelta(UsageDelta delta, int sign) {
+        for (Map.Entry<Long, long[]> entry : delta.totals.entrySet()) {
+            Long userId = entry.getKey();
+            long[] total = entry.getValue();
+            if (userUsageRepository.addDelta(userId, sign * total[0], sign * total[1], sign * total[2]) == 0) {
+                // First change for this user - build the summary from the current rows instead
+                recompute(userId);
+                continue;
+            }
+            for (Map.Entry<String, long[]> mime : delta.mimeTotals.getOrDefault(userId, Map.of()).entrySet()) {
+                userMimeUsageRepository.addDelta(userId, mime.getKey(), sign * mime.getValue()[0],
+                        sign * mime.getValue()[1]);
+            }
+        }
+    }
+
+    /**
+     * Thay đổi số liệu gộp theo người sở hữu và loại MIME
+     */
+    private static class UsageDelta {
+        /**
+         * Theo người dùng: số file, số thư mục, dung lượng
+         */
+        private final Map<Long, long[]> totals = new LinkedHashMap<>();
+
+        /**
+         * Theo người dùng và loại MIME: số file, dung lượng
+         */
+        private final Map<Long, Map<String, long[]>> mimeTotals = new LinkedHashMap<>();
+
+        void add(Long userId, FileItem.FileType type, String mimeType, Long fileSize) {
+            boolean isFile = type == FileItem.FileType.FILE;
+            long bytes = isFile && fileSize != null ? fileSize : 0L;
+
+            long[] total = totals.computeIfAbsent(userId, id -> new long[3]);
+            total[isFile ? 0 : 1]++;
+            total[2] += bytes;
+            if (isFile) {
+                long[] mime = mimeTotals.computeIfAbsent(userId, id -> new LinkedHashMap<>())
+                        .computeIfAbsent(normalizeMimeType(mimeType), t -> new long[2]);
+                mime[0]++;
+                mime[1] += bytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package vn.fpt.assignment_datpd11.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Gửi file tới client bằng sendfile của container (FileChannel.transferTo, zero-copy)
+ * 
+ * Thay vì đọc file vào bộ nhớ rồi ghi ra socket, controller chỉ đặt các thuộc tính
+ * sendfile lên request; sau khi header được gửi, Tomcat chuyển dữ liệu thẳng từ
+ * page cache ra socket mà không sao chép qua user space.
+ * 
+ * Chỉ dùng khi phản hồi được gửi nguyên vẹn, ngoài ra quay về cách sao chép thông thường:
+ * - Container không hỗ trợ sendfile (connector tắt sendfile hoặc không phải Tomcat)
+ * - Kết nối TLS (dữ liệu phải được mã hóa trong user space nên không có lợi ích)
+ * - Request có Range (206 một/nhiều đoạn được Spring xử lý)
+ * - Request HEAD, hoặc file nhỏ hơn ngưỡng (chi phí thiết lập sendfile lớn hơn lợi ích)
+ */
+@Service
+public class ZeroCopyFileSender {
+
+    /**
+     * Thuộc tính request do Tomcat đặt khi connector hỗ trợ sendfile
+     */
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Bật/tắt việc gửi file bằng sendfile
+     */
+    @Value("${download.sendfile.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Kích thước file tối thiểu để dùng sendfile (bytes), giống ngưỡng mặc định của Tomcat
+     */
+    @Value("${download.sendfile.min-size-bytes:49152}")
+    private long minSizeBytes;
+
+    /**
+     * Kiểm tra file có thể được gửi bằng sendfile cho request này không
+     * 
+     * @param request HTTP request hiện tại
+     * @param file File cần gửi
+     * @return true nếu có thể dùng sendfile
+     */
+    public boolean canSend(HttpServletRequest request, File file) {
+        return enabled
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))
+                && !request.isSecure()
+                && "GET".equals(request.getMethod())
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && file.length() >= minSizeBytes;
+    }
+
+    /**
+     * Giao toàn bộ file cho container gửi bằng sendfile
+     * Controller phải đặt Content-Length bằng kích thước file và không ghi body
+     * 
+     * @param request HTTP request hiện tại
+     * @param file File cần gửi
+     * @return Kích thước file (bytes) dùng làm Content-Length
+     * @throws IOException nếu không xác định được đường dẫn file
+     */
+    public long prepare(HttpServletRequest request, File file) throws IOException {
+        long length = file.length();
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+        request.setAttribute(SENDFILE_START_ATTR, 0L);
+        request.setAttribute(SENDFILE_END_ATTR, length);
+        return length;
+    }
+}
@@ -0,0 +1,272 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Đọc blob được nén theo khối (định dạng do BlockCompressedOutputStream ghi)
+ * 
+ * Định dạng file (số nguyên big-endian):
+ * - Header: magic "MDZ1" (4 bytes), kích thước khối (4 bytes)
+ * - Các khối: mỗi khối chứa tối đa blockSize bytes dữ liệu gốc, nén DEFLATE (raw) độc lập
+ *   hoặc lưu nguyên văn nếu nén không làm giảm kích thước
+ * - Bảng chỉ mục: mỗi khối một mục 13 bytes gồm vị trí (8), độ dài đã nén (4), cờ (1)
+ * - Footer: vị trí bảng chỉ mục (8), kích thước dữ liệu gốc (8), số khối (4), magic (4)
+ * 
+ * Nhờ các khối độc lập và bảng chỉ mục ở cuối file, việc đọc tại một vị trí bất kỳ
+ * (Range, skip, đọc song song khi tạo zip) chỉ giải nén đúng các khối cần thiết.
+ * Bảng chỉ mục không được nạp toàn bộ: mỗi mục được đọc khi cần.
+ */
+public class BlockCompressedFile implements Closeable {
+
+    /**
+     * Hậu tố tên file/khóa của blob được nén theo khối
+     */
+    public static final String SUFFIX = ".mdz";
+
+    static final int MAGIC = 0x4D445A31;
+
+    static final int HEADER_SIZE = 8;
+
+    static final int INDEX_ENTRY_SIZE = 13;
+
+    static final int FOOTER_SIZE = 24;
+
+    static final byte FLAG_STORED = 0;
+
+    static final byte FLAG_DEFLATED = 1;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final long indexOffset;
+    private final long size;
+    private final int blockCount;
+    private final Inflater inflater = new Inflater(true);
+
+    /**
+     * Khối vừa giải nén gần nhất (đọc tuần tự thường đọc nhiều lần trong cùng một khối)
+     */
+    private int cachedBlock = -1;
+    private byte[] cachedData;
+
+    private BlockCompressedFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = readAt(0, HEADER_SIZE);
+        ByteBuffer footer = readAt(channel.size() - FOOTER_SIZE, FOOTER_SIZE);
+        if (header.getInt() != MAGIC || footer.getInt(FOOTER_SIZE - 4) != MAGIC) {
+            throw new IOException("Not a block-compressed blob");
+        }
+        this.blockSize = header.getInt();
+        this.indexOffset = footer.getLong();
+        this.size = footer.getLong();
+        this.blockCount = footer.getInt();
+    }
+
+    /**
+     * Mở một blob nén theo khối để đọc
+     * 
+     * @param path Đường dẫn file
+     * @return BlockCompressedFile (người gọi phải đóng)
+     * @throws IOException nếu file không tồn tại hoặc sai định dạng
+     */
+    public static BlockCompressedFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BlockCompressedFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Kiểm tra một file có đúng định dạng nén theo khối không: hậu tố tên, magic ở header
+     * và footer, vị trí bảng chỉ mục nằm trong file
+     * Chỉ dùng cho blob chưa ghi nhận định dạng (StoredBlob.codec), vì nội dung gốc bất kỳ
+     * cũng có thể tình cờ có các dấu hiệu này
+     * 
+     * @param path Đường dẫn file (có thể null)
+     * @return true nếu file có định dạng nén theo khối
+     */
+    public static boolean isCompressedFormat(Path path) {
+        if (path == null || !path.getFileName().toString().endsWith(SUFFIX)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE + FOOTER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            channel.read(header, 0);
+            channel.read(footer, length - FOOTER_SIZE);
+            if (header.hasRemaining() || footer.hasRemaining()) {
+                return false;
+            }
+            long indexOffset = footer.getLong(0);
+            return header.getInt(0) == MAGIC && header.getInt(4) > 0
+                    && footer.getInt(FOOTER_SIZE - 4) == MAGIC
+                    && indexOffset >= HEADER_SIZE && indexOffset <= length - FOOTER_SIZE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kích thước dữ liệu gốc (chưa nén)
+     * 
+     * @return Số bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Đọc dữ liệu gốc tại một vị trí
+     * 
+     * @param position Vị trí trong dữ liệu gốc
+     * @param b Bộ đệm đích
+     * @param off Vị trí bắt đầu ghi trong bộ đệm
+     * @param len Số bytes tối đa cần đọc
+     * @return Số bytes đọc được, -1 nếu position đã ở cuối dữ liệu
+     * @throws IOException nếu có lỗi khi đọc hoặc dữ liệu bị hỏng
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (total < len && position < size) {
+            int blockIndex = (int) (position / blockSize);
+            int inBlock = (int) (position % blockSize);
+            byte[] data = block(blockIndex);
+            int n = Math.min(len - total, data.length - inBlock);
+            System.arraycopy(data, inBlock, b, off + total, n);
+            total += n;
+            position += n;
+        }
+        return total;
+    }
+
+    /**
+     * Mở luồng đọc tuần tự dữ liệu gốc
+     * skip() nhảy thẳng tới khối cần đọc mà không giải nén các khối bị bỏ qua.
+     * Đóng luồng sẽ đóng file.
+     * 
+     * @return InputStream dữ liệu gốc
+     */
+    public InputStream newInputStream() {
+        return new InputStream() {
+            private long position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int n = BlockCompressedFile.this.read(position, b, off, len);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0, Math.min(n, size - position));
+                position += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(Integer.MAX_VALUE, size - position);
+            }
+
+            @Override
+            public void close() throws IOException {
+                BlockCompressedFile.this.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * Lấy dữ liệu gốc của một khối (giải nén nếu cần)
+     */
+    private byte[] block(int blockIndex) throws IOException {
+        if (blockIndex == cachedBlock) {
+            return cachedData;
+        }
+        if (blockIndex >= blockCount) {
+            throw new EOFException("Block " + blockIndex + " is past the end of the blob");
+        }
+        ByteBuffer entry = readAt(indexOffset + (long) blockIndex * INDEX_ENTRY_SIZE, INDEX_ENTRY_SIZE);
+        long offset = entry.getLong();
+        int compressedLength = entry.getInt();
+        byte flag = entry.get();
+        int rawLength = (int) Math.min(blockSize, size - (long) blockIndex * blockSize);
+
+        byte[] compressed = readAt(offset, compressedLength).array();
+        byte[] data;
+        if (flag == FLAG_STORED) {
+            data = compressed;
+        } else {
+            data = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(compressed);
+            try {
+                int produced = 0;
+                while (produced < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(data, produced, rawLength - produced);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    produced += n;
+                }
+                if (produced != rawLength) {
+                    throw new IOException("Corrupted block " + blockIndex + " in compressed blob");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted block " + blockIndex + " in compressed blob", e);
+            }
+        }
+        if (data.length != rawLength) {
+            throw new IOException("Corrupted block " + blockIndex + " in compressed blob");
+        }
+        cachedBlock = blockIndex;
+        cachedData = data;
+        return data;
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of compressed blob");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
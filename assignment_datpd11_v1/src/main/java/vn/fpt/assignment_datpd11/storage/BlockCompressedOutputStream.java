@@ -0,0 +1,125 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Ghi dữ liệu dưới dạng nén theo khối (định dạng mô tả trong BlockCompressedFile)
+ * 
+ * Dữ liệu được nén ngay trong lúc ghi, từng khối độc lập, nên chỉ cần giữ một khối
+ * trong bộ nhớ. Khối không nén được (ví dụ đoạn dữ liệu nhị phân) được lưu nguyên văn,
+ * nên kích thước lưu trữ không bao giờ lớn hơn đáng kể so với dữ liệu gốc.
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final byte[] block;
+    private final byte[] compressed;
+    private int blockLength;
+
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(index);
+    private long position;
+    private long size;
+    private int blockCount;
+    private boolean closed;
+
+    /**
+     * @param out OutputStream đích (được đóng khi đóng luồng này)
+     * @param blockSize Kích thước dữ liệu gốc của mỗi khối (bytes)
+     * @param level Mức nén DEFLATE (1 nhanh nhất đến 9 nén tối đa)
+     * @throws IOException nếu có lỗi khi ghi header
+     */
+    public BlockCompressedOutputStream(OutputStream out, int blockSize, int level) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.deflater = new Deflater(level, true);
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize + blockSize / 1000 + 64];
+        this.out.writeInt(BlockCompressedFile.MAGIC);
+        this.out.writeInt(blockSize);
+        this.position = BlockCompressedFile.HEADER_SIZE;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == block.length) {
+                flushBlock();
+            }
+        }
+    }
+
+    /**
+     * Ghi khối cuối, bảng chỉ mục và footer rồi đóng luồng đích
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                flushBlock();
+            }
+            long indexOffset = position;
+            index.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(size);
+            out.writeInt(blockCount);
+            out.writeInt(BlockCompressedFile.MAGIC);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int produced = 0;
+        // Give up as soon as the output is no smaller than the input
+        while (!deflater.finished() && produced < blockLength) {
+            produced += deflater.deflate(compressed, produced, compressed.length - produced);
+        }
+
+        int length;
+        byte flag;
+        if (deflater.finished() && produced < blockLength) {
+            out.write(compressed, 0, produced);
+            length = produced;
+            flag = BlockCompressedFile.FLAG_DEFLATED;
+        } else {
+            // Incompressible block - keep it as-is
+            out.write(block, 0, blockLength);
+            length = blockLength;
+            flag = BlockCompressedFile.FLAG_STORED;
+        }
+        indexOut.writeLong(position);
+        indexOut.writeInt(length);
+        indexOut.writeByte(flag);
+
+        position += length;
+        size += blockLength;
+        blockCount++;
+        blockLength = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Resource trả về dữ liệu gốc của một blob nén theo khối
+ * 
+ * contentLength() là kích thước dữ liệu gốc và skip() của InputStream nhảy thẳng tới khối
+ * cần đọc, nên Spring phục vụ được Range (206, một hoặc nhiều đoạn) như với file thường,
+ * chỉ giải nén các khối nằm trong đoạn được yêu cầu.
+ */
+public class BlockCompressedResource extends AbstractResource {
+
+    private final Path path;
+
+    private long size = -1;
+
+    public BlockCompressedResource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return BlockCompressedFile.open(path).newInputStream();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (size < 0) {
+            try (BlockCompressedFile file = BlockCompressedFile.open(path)) {
+                size = file.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+
+    @Override
+    public String getFilename() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public String getDescription() {
+        return "block-compressed blob [" + path + "]";
+    }
+}
@@ -0,0 +1,96 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bloom filter cho tập chuỗi (location của blob), dùng khi thu gom blob mồ côi
+ * 
+ * Với tỉ lệ dương tính giả 1%, mỗi phần tử chỉ tốn khoảng 10 bit (100 triệu location
+ * khoảng 120 MB), thay vì hàng trăm byte mỗi chuỗi trong một HashSet.
+ * mightContain() không bao giờ trả về false cho phần tử đã thêm (không có âm tính giả),
+ * nên một blob được xác định là mồ côi chắc chắn không được database tham chiếu.
+ * 
+ * Không an toàn khi dùng từ nhiều thread.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long seed;
+
+    /**
+     * @param expectedItems Số phần tử dự kiến
+     * @param falsePositiveRate Tỉ lệ dương tính giả mong muốn (ví dụ 0.01)
+     * @param seed Hạt giống của hàm băm; đổi hạt giống giữa các lần chạy để các phần tử
+     *             bị dương tính giả không lặp lại mãi
+     */
+    public BloomFilter(long expectedItems, double falsePositiveRate, long seed) {
+        long n = Math.max(1, expectedItems);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+        this.bits = new long[words];
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * ln2));
+        this.seed = seed;
+    }
+
+    /**
+     * Thêm một phần tử
+     * 
+     * @param value Chuỗi cần thêm
+     */
+    public void put(String value) {
+        long h1 = hash(value, seed);
+        long h2 = hash(value, ~seed) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Kiểm tra một phần tử có thể đã được thêm chưa
+     * 
+     * @param value Chuỗi cần kiểm tra
+     * @return false nếu chắc chắn chưa được thêm, true nếu có thể đã được thêm
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value, seed);
+        long h2 = hash(value, ~seed) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dung lượng bộ nhớ của bảng bit
+     * 
+     * @return Số bytes
+     */
+    public long sizeInBytes() {
+        return (long) bits.length * 8;
+    }
+
+    /**
+     * Băm 64 bit: FNV-1a trên các byte UTF-8, trộn cuối bằng hàm fmix64 của MurmurHash3
+     */
+    private static long hash(String value, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Lưu blob trên đĩa cục bộ theo cây thư mục phân mảnh (fan-out)
+ * 
+ * Blob được đặt tại {storagePath}/blobs/{k[0..2]}/{k[2..4]}/.../{key}, mỗi cấp dùng
+ * 2 ký tự hex của khóa nên mỗi thư mục có tối đa 256 thư mục con. Với 2 cấp (mặc định),
+ * 100 triệu blob chỉ tạo ra khoảng 1.500 mục mỗi thư mục lá, giúp việc tạo/kiểm tra file
+ * luôn nhanh bất kể số lượng file của một người dùng.
+ * 
+ * Location là đường dẫn file, nên các bản ghi cũ (đường dẫn tuyệt đối hoặc tương đối)
+ * vẫn được đọc và xóa bình thường.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    /**
+     * Đường dẫn thư mục lưu trữ file (đọc từ application.properties)
+     */
+    @Value("${file.storage.path}")
+    private String storagePath;
+
+    /**
+     * Số cấp thư mục phân mảnh (mỗi cấp 2 ký tự hex của khóa)
+     */
+    @Value("${file.storage.local.fan-out-levels:2}")
+    private int fanOutLevels;
+
+    /**
+     * Di chuyển file tạm vào vị trí của khóa
+     * Idempotent: blob có cùng khóa đã tồn tại thì có cùng nội dung (file luôn được đặt vào
+     * bằng một lần đổi tên nguyên tử nên không bao giờ dở dang), chỉ cần xóa file tạm
+     */
+    @Override
+    public String put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(source);
+            return target.toString();
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return target.toString();
+    }
+
+    @Override
+    public InputStream open(String location) throws IOException {
+        return Files.newInputStream(Paths.get(location));
+    }
+
+    @Override
+    public boolean exists(String location) {
+        return Files.exists(Paths.get(location));
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Files.deleteIfExists(Paths.get(location));
+    }
+
+    @Override
+    public Path localPath(String location) {
+        return Paths.get(location);
+    }
+
+    /**
+     * Duyệt toàn bộ cây thư mục lưu trữ (kể cả file lưu theo cách cũ ngoài thư mục blobs)
+     * Bỏ qua thư mục ẩn (file tạm khi upload nằm trong blobs/.tmp) và file .part/.tmp
+     */
+    @Override
+    public void walk(BlobVisitor visitor) throws IOException {
+        Path root = Paths.get(storagePath);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && dir.getFileName().toString().startsWith(".")
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (attrs.isRegularFile() && !name.endsWith(".part") && !name.endsWith(".tmp")) {
+                    visitor.visit(canonicalLocation(file.toString()), attrs.size(),
+                            attrs.lastModifiedTime().toInstant());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Keep walking: a file removed or unreadable mid-walk must not abort the whole sweep
+                System.err.println("Cannot read " + file + " while walking storage: " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public String canonicalLocation(String location) {
+        return Paths.get(location).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Tính đường dẫn phân mảnh của blob theo khóa
+     * 
+     * @param key Khóa của blob (mã băm dạng hex)
+     * @return Đường dẫn {storagePath}/blobs/{k[0..2]}/{k[2..4]}/.../{key}
+     */
+    private Path resolve(String key) {
+        Path dir = Paths.get(storagePath, "blobs");
+        for (int level = 0; level < fanOutLevels && key.length() >= (level + 1) * 2; level++) {
+            dir = dir.resolve(key.substring(level * 2, level * 2 + 2));
+        }
+        return dir.resolve(key);
+    }
+}
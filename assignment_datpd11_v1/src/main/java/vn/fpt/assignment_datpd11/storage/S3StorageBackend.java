@@ -0,0 +1,559 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lưu blob trên dịch vụ lưu trữ đối tượng tương thích S3 (AWS S3, MinIO, Ceph RGW...)
+ * 
+ * - Dùng REST API của S3 qua java.net.http.HttpClient với chữ ký AWS Signature Version 4,
+ *   không cần thêm thư viện
+ * - Địa chỉ dạng path-style ({endpoint}/{bucket}/{key}) nên chạy được với MinIO cục bộ
+ *   khi phát triển và kiểm thử
+ * - Location có dạng "s3://{bucket}/{objectKey}"; location không có tiền tố này là file
+ *   cục bộ được lưu trước khi chuyển sang S3 và vẫn được đọc/xóa trên đĩa
+ * - Blob lớn hơn multipart-threshold-bytes được upload theo từng phần (multipart upload),
+ *   vì một request PUT chỉ nhận tối đa 5 GB
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    private static final String SCHEME = "s3://";
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    /**
+     * Kích thước tối thiểu của một phần (trừ phần cuối) và số phần tối đa của multipart upload
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    /**
+     * Địa chỉ dịch vụ, ví dụ https://s3.ap-southeast-1.amazonaws.com hoặc http://localhost:9000
+     */
+    @Value("${file.storage.s3.endpoint}")
+    private String endpoint;
+
+    @Value("${file.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${file.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${file.storage.s3.access-key}")
+    private String accessKey;
+
+    @Value("${file.storage.s3.secret-key}")
+    private String secretKey;
+
+    /**
+     * Tiền tố của khóa đối tượng
+     */
+    @Value("${file.storage.s3.key-prefix:blobs/}")
+    private String keyPrefix;
+
+    /**
+     * Thời gian chờ tối đa của một request (giây)
+     */
+    @Value("${file.storage.s3.request-timeout-seconds:300}")
+    private long requestTimeoutSeconds;
+
+    /**
+     * Blob lớn hơn ngưỡng này được upload theo từng phần (bytes)
+     */
+    @Value("${file.storage.s3.multipart-threshold-bytes:67108864}")
+    private long multipartThresholdBytes;
+
+    /**
+     * Kích thước mỗi phần của multipart upload (bytes, tối thiểu 5 MB)
+     */
+    @Value("${file.storage.s3.part-size-bytes:16777216}")
+    private long partSizeBytes;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        if (endpoint.endsWith("/")) {
+            endpoint = endpoint.substring(0, endpoint.length() - 1);
+        }
+        partSizeBytes = Math.max(partSizeBytes, MIN_PART_SIZE);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    public String put(String key, Path source) throws IOException {
+        String objectKey = keyPrefix + key;
+        long size = Files.size(source);
+        if (size > multipartThresholdBytes) {
+            putMultipart(objectKey, source, size);
+        } else {
+            HttpResponse<Void> response = send("PUT", objectKey, HttpRequest.BodyPublishers.ofFile(source),
+                    HttpResponse.BodyHandlers.discarding());
+            if (!isSuccess(response.statusCode())) {
+                throw new IOException("S3 upload failed for " + objectKey + " with status " + response.statusCode());
+            }
+        }
+        Files.deleteIfExists(source);
+        return SCHEME + bucket + "/" + objectKey;
+    }
+
+    /**
+     * Upload một file lớn theo từng phần: khởi tạo, upload tuần tự từng phần, rồi hoàn tất
+     * Nếu có lỗi, upload bị hủy để S3 không giữ lại các phần đã upload
+     * 
+     * @param objectKey Khóa đối tượng
+     * @param source File nguồn
+     * @param size Kích thước file (bytes)
+     * @throws IOException nếu có lỗi khi upload
+     */
+    private void putMultipart(String objectKey, Path source, long size) throws IOException {
+        String uploadId = initiateMultipartUpload(objectKey);
+        try {
+            // Grow parts for huge files so the upload stays within the part limit
+            long partSize = Math.max(partSizeBytes, (size + MAX_PARTS - 1) / MAX_PARTS);
+            byte[] buffer = new byte[(int) Math.min(partSize, size)];
+            List<String> etags = new ArrayList<>();
+            try (InputStream in = Files.newInputStream(source)) {
+                for (long offset = 0; offset < size; offset += buffer.length) {
+                    int length = (int) Math.min(buffer.length, size - offset);
+                    if (in.readNBytes(buffer, 0, length) != length) {
+                        throw new IOException("File changed during upload: " + source);
+                    }
+                    etags.add(uploadPart(objectKey, uploadId, etags.size() + 1, buffer, length));
+                }
+            }
+            completeMultipartUpload(objectKey, uploadId, etags);
+        } catch (IOException | RuntimeException e) {
+            abortMultipartUpload(objectKey, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * Khởi tạo multipart upload (POST ?uploads)
+     * 
+     * @return UploadId do S3 cấp
+     */
+    private String initiateMultipartUpload(String objectKey) throws IOException {
+        HttpResponse<InputStream> response = send("POST", objectUri(objectKey), canonicalQuery(Map.of("uploads", "")),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (!isSuccess(response.statusCode())) {
+                throw new IOException("S3 multipart initiation failed for " + objectKey
+                        + " with status " + response.statusCode());
+            }
+            String uploadId = readElement(body, "UploadId");
+            if (uploadId == null || uploadId.isBlank()) {
+                throw new IOException("S3 multipart initiation returned no UploadId for " + objectKey);
+            }
+            return uploadId;
+        }
+    }
+
+    /**
+     * Upload một phần (PUT ?partNumber&uploadId)
+     * 
+     * @return ETag của phần, cần khi hoàn tất upload
+     */
+    private String uploadPart(String objectKey, String uploadId, int partNumber, byte[] data, int length)
+            throws IOException {
+        Map<String, String> query = new TreeMap<>();
+        query.put("partNumber", Integer.toString(partNumber));
+        query.put("uploadId", uploadId);
+        HttpResponse<Void> response = send("PUT", objectUri(objectKey), canonicalQuery(query),
+                HttpRequest.BodyPublishers.ofByteArray(data, 0, length), HttpResponse.BodyHandlers.discarding());
+        if (!isSuccess(response.statusCode())) {
+            throw new IOException("S3 upload of part " + partNumber + " failed for " + objectKey
+                    + " with status " + response.statusCode());
+        }
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new IOException("S3 returned no ETag for part " + partNumber + " of " + objectKey));
+    }
+
+    /**
+     * Hoàn tất multipart upload (POST ?uploadId) với danh sách ETag của các phần
+     * S3 có thể trả về 200 kèm phần thân là lỗi, nên phần thân luôn được kiểm tra
+     */
+    private void completeMultipartUpload(String objectKey, String uploadId, List<String> etags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(escapeXml(etags.get(i))).append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+
+        HttpResponse<InputStream> response = send("POST", objectUri(objectKey),
+                canonicalQuery(Map.of("uploadId", uploadId)),
+                HttpRequest.BodyPublishers.ofString(xml.toString(), StandardCharsets.UTF_8),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (!isSuccess(response.statusCode())) {
+                throw new IOException("S3 multipart completion failed for " + objectKey
+                        + " with status " + response.statusCode());
+            }
+            String errorCode = readElement(body, "Code");
+            if (errorCode != null) {
+                throw new IOException("S3 multipart completion failed for " + objectKey + ": " + errorCode);
+            }
+        }
+    }
+
+    /**
+     * Hủy multipart upload (DELETE ?uploadId); lỗi chỉ được ghi log vì lỗi gốc quan trọng hơn
+     */
+    private void abortMultipartUpload(String objectKey, String uploadId) {
+        try {
+            HttpResponse<Void> response = send("DELETE", objectUri(objectKey),
+                    canonicalQuery(Map.of("uploadId", uploadId)), HttpRequest.BodyPublishers.noBody(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (!isSuccess(response.statusCode()) && response.statusCode() != 404) {
+                System.err.println("S3 multipart abort failed for " + objectKey + " with status " + response.statusCode());
+            }
+        } catch (IOException e) {
+            System.err.println("S3 multipart abort failed for " + objectKey + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream open(String location) throws IOException {
+        Path local = localPath(location);
+        if (local != null) {
+            return Files.newInputStream(local);
+        }
+        HttpResponse<InputStream> response = send("GET", objectKey(location), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (!isSuccess(response.statusCode())) {
+            response.body().close();
+            if (response.statusCode() == 404) {
+                throw new FileNotFoundException("Blob not found: " + location);
+            }
+            throw new IOException("S3 download failed for " + location + " with status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    @Override
+    public boolean exists(String location) throws IOException {
+        Path local = localPath(location);
+        if (local != null) {
+            return Files.exists(local);
+        }
+        HttpResponse<Void> response = send("HEAD", objectKey(location), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        if (!isSuccess(response.statusCode())) {
+            throw new IOException("S3 HEAD failed for " + location + " with status " + response.statusCode());
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Path local = localPath(location);
+        if (local != null) {
+            Files.deleteIfExists(local);
+            return;
+        }
+        HttpResponse<Void> response = send("DELETE", objectKey(location), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.discarding());
+        if (!isSuccess(response.statusCode()) && response.statusCode() != 404) {
+            throw new IOException("S3 delete failed for " + location + " with status " + response.statusCode());
+        }
+    }
+
+    @Override
+    public Path localPath(String location) {
+        // Files stored before the switch to S3 stay on local disk
+        return location.startsWith(SCHEME) ? null : Paths.get(location);
+    }
+
+    /**
+     * Liệt kê các đối tượng dưới key-prefix bằng ListObjectsV2 (mỗi trang tối đa 1000 đối tượng)
+     * File cục bộ lưu trước khi chuyển sang S3 không được liệt kê
+     */
+    @Override
+    public void walk(BlobVisitor visitor) throws IOException {
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", keyPrefix);
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            HttpResponse<InputStream> response = send("GET", "/" + encodePath(bucket), canonicalQuery(query),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (!isSuccess(response.statusCode())) {
+                    throw new IOException("S3 list failed for bucket " + bucket + " with status " + response.statusCode());
+                }
+                continuationToken = readListing(body, visitor);
+            }
+        } while (continuationToken != null);
+    }
+
+    @Override
+    public String canonicalLocation(String location) {
+        return location.startsWith(SCHEME) ? location : Paths.get(location).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Đọc một trang kết quả ListObjectsV2 (XML) theo kiểu streaming
+     * 
+     * @return Continuation token của trang tiếp theo, null nếu đây là trang cuối
+     */
+    private String readListing(InputStream body, BlobVisitor visitor) throws IOException {
+        try {
+            XMLStreamReader reader = newXmlReader(body);
+            boolean truncated = false;
+            String nextToken = null;
+            String key = null;
+            long size = 0;
+            Instant lastModified = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getEventType() == XMLStreamConstants.END_ELEMENT
+                            && reader.getLocalName().equals("Contents") && key != null) {
+                        visitor.visit(SCHEME + bucket + "/" + key, size, lastModified);
+                        key = null;
+                    }
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "Key" -> key = reader.getElementText();
+                    case "Size" -> size = Long.parseLong(reader.getElementText().trim());
+                    case "LastModified" -> lastModified = Instant.parse(reader.getElementText().trim());
+                    case "IsTruncated" -> truncated = Boolean.parseBoolean(reader.getElementText().trim());
+                    case "NextContinuationToken" -> nextToken = reader.getElementText();
+                    default -> {
+                    }
+                }
+            }
+            reader.close();
+            return truncated ? nextToken : null;
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("Cannot parse S3 listing: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đọc nội dung của phần tử đầu tiên có tên cho trước trong một phản hồi XML nhỏ
+     * 
+     * @return Nội dung phần tử, null nếu không có
+     */
+    private static String readElement(InputStream body, String name) throws IOException {
+        try {
+            XMLStreamReader reader = newXmlReader(body);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(name)) {
+                    return reader.getElementText();
+                }
+            }
+            reader.close();
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot parse S3 response: " + e.getMessage(), e);
+        }
+    }
+
+    private static XMLStreamReader newXmlReader(InputStream body) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(body);
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Lấy khóa đối tượng từ location dạng "s3://{bucket}/{objectKey}"
+     */
+    private String objectKey(String location) {
+        String path = location.substring(SCHEME.length());
+        int slash = path.indexOf('/');
+        if (slash < 0 || !path.substring(0, slash).equals(bucket)) {
+            throw new IllegalArgumentException("Location is not in bucket " + bucket + ": " + location);
+        }
+        return path.substring(slash + 1);
+    }
+
+    /**
+     * Gửi một request đã được ký tới đối tượng
+     */
+    private <T> HttpResponse<T> send(String method, String objectKey, HttpRequest.BodyPublisher body,
+                                     HttpResponse.BodyHandler<T> handler) throws IOException {
+        return send(method, objectUri(objectKey), "", body, handler);
+    }
+
+    /**
+     * Đường dẫn đã mã hóa của một đối tượng ("/{bucket}/{key}")
+     */
+    private String objectUri(String objectKey) {
+        return "/" + encodePath(bucket) + "/" + encodePath(objectKey);
+    }
+
+    /**
+     * Gửi một request đã được ký
+     * 
+     * @param canonicalUri Đường dẫn đã mã hóa (ví dụ "/{bucket}/{key}")
+     * @param canonicalQuery Query string đã mã hóa và sắp xếp theo tên tham số (rỗng nếu không có)
+     */
+    private <T> HttpResponse<T> send(String method, String canonicalUri, String canonicalQuery,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        URI uri = URI.create(endpoint + canonicalUri + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, body)
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", authorization(accessKey, secretKey, region,
+                        method, canonicalUri, canonicalQuery, host, amzDate, UNSIGNED_PAYLOAD))
+                .build();
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("S3 request interrupted", e);
+        }
+    }
+
+    /**
+     * Tạo header Authorization theo AWS Signature Version 4, ký các header
+     * host, x-amz-content-sha256 và x-amz-date
+     * Request của backend không ký payload (UNSIGNED-PAYLOAD); tính toàn vẹn của blob được
+     * đảm bảo bởi khóa là mã băm SHA-256 của nội dung
+     * 
+     * @param payloadHash Giá trị của header x-amz-content-sha256
+     */
+    static String authorization(String accessKey, String secretKey, String region,
+                                String method, String canonicalUri, String canonicalQuery, String host,
+                                String amzDate, String payloadHash) {
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n"
+                + canonicalUri + "\n"
+                + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + payloadHash + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + signedHeaders + "\n"
+                + payloadHash;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    /**
+     * Mã hóa URI theo quy tắc của SigV4 (giữ nguyên ký tự không dành riêng và dấu "/")
+     */
+    private static String encodePath(String path) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || c == '/') {
+                sb.append(c);
+            } else {
+                sb.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tạo query string dạng chuẩn của SigV4: tham số đã sắp xếp, tên và giá trị được mã hóa
+     * (kể cả dấu "/")
+     */
+    static String canonicalQuery(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(encodePath(param.getKey()).replace("/", "%2F"))
+                    .append('=')
+                    .append(encodePath(param.getValue()).replace("/", "%2F"));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Nơi lưu trữ nội dung các blob (SPI phía sau FileStorageService)
+ * 
+ * Mỗi blob được ghi một lần theo khóa (mã băm nội dung kèm hậu tố thế hệ) và không bao giờ bị sửa đổi.
+ * Backend trả về một "location" để lưu vào database (StoredBlob.storagePath, FileItem.filePath);
+ * các thao tác đọc/xóa sau đó đều dùng location này.
+ * 
+ * Backend được chọn bằng thuộc tính file.storage.backend:
+ * - local (mặc định): LocalStorageBackend, cây thư mục phân mảnh theo tiền tố mã băm
+ * - s3: S3StorageBackend, bất kỳ dịch vụ tương thích S3 nào (AWS S3, MinIO...)
+ */
+public interface StorageBackend {
+
+    /**
+     * Lưu nội dung của một file tạm dưới khóa cho trước
+     * File tạm thuộc về backend sau khi gọi (được di chuyển hoặc xóa sau khi tải lên)
+     * Phải idempotent: lưu lại một khóa đã tồn tại (cùng nội dung) vẫn thành công
+     * 
+     * @param key Khóa của blob (mã băm SHA-256 dạng hex, kèm hậu tố thế hệ)
+     * @param source File tạm chứa nội dung hoàn chỉnh
+     * @return Location của blob
+     * @throws IOException nếu có lỗi khi lưu
+     */
+    String put(String key, Path source) throws IOException;
+
+    /**
+     * Mở luồng đọc nội dung blob
+     * 
+     * @param location Location của blob
+     * @return InputStream nội dung (người gọi phải đóng)
+     * @throws IOException nếu blob không tồn tại hoặc có lỗi khi đọc
+     */
+    InputStream open(String location) throws IOException;
+
+    /**
+     * Kiểm tra blob có tồn tại không
+     * 
+     * @param location Location của blob
+     * @return true nếu blob tồn tại
+     * @throws IOException nếu có lỗi khi kiểm tra
+     */
+    boolean exists(String location) throws IOException;
+
+    /**
+     * Xóa blob (không báo lỗi nếu blob không tồn tại)
+     * 
+     * @param location Location của blob
+     * @throws IOException nếu có lỗi khi xóa
+     */
+    void delete(String location) throws IOException;
+
+    /**
+     * Lấy đường dẫn file cục bộ của blob, nếu nội dung nằm trên đĩa của node này
+     * Cho phép đọc ngẫu nhiên, Range và sendfile mà không cần tải về
+     * 
+     * @param location Location của blob
+     * @return Đường dẫn file, hoặc null nếu blob nằm ở nơi lưu trữ từ xa
+     */
+    Path localPath(String location);
+
+    /**
+     * Duyệt toàn bộ blob đang được lưu trong backend (dùng cho việc thu gom blob mồ côi)
+     * Kết quả được truyền dần cho visitor nên bộ nhớ không phụ thuộc số lượng blob;
+     * file tạm của các blob đang được ghi không được liệt kê
+     * 
+     * @param visitor Nhận location (dạng chuẩn, xem canonicalLocation), kích thước và thời điểm sửa đổi
+     * @throws IOException nếu có lỗi khi duyệt
+     */
+    void walk(BlobVisitor visitor) throws IOException;
+
+    /**
+     * Chuẩn hóa location để so sánh location lưu trong database với location khi duyệt
+     * (ví dụ đường dẫn tương đối và tuyệt đối của cùng một file)
+     * 
+     * @param location Location của blob
+     * @return Location dạng chuẩn
+     */
+    default String canonicalLocation(String location) {
+        return location;
+    }
+
+    /**
+     * Nhận từng blob khi duyệt backend
+     */
+    @FunctionalInterface
+    interface BlobVisitor {
+        /**
+         * @param location Location dạng chuẩn của blob
+         * @param size Kích thước lưu trữ (bytes)
+         * @param lastModified Thời điểm sửa đổi lần cuối
+         * @throws IOException nếu có lỗi khi xử lý blob (dừng việc duyệt)
+         */
+        void visit(String location, long size, Instant lastModified) throws IOException;
+    }
+}
@@ -0,0 +1,104 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Quyết định blob nào được nén khi lưu trữ (nén trong suốt, giải nén khi đọc)
+ * 
+ * Chỉ nén các loại dữ liệu văn bản (text, CSV, JSON, log...) vì đây là phần lớn dung lượng
+ * nén được; dữ liệu khác thường đã được nén sẵn. File nhỏ hơn ngưỡng không được nén vì
+ * tiết kiệm không đáng kể so với chi phí header và bảng chỉ mục.
+ */
+@Component
+public class StorageCompressionPolicy {
+
+    /**
+     * Bật/tắt nén khi lưu trữ
+     */
+    @Value("${file.storage.compression.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Danh sách MIME type được nén, phân tách bằng dấu phẩy (hỗ trợ ký tự đại diện ở cuối)
+     */
+    @Value("${file.storage.compression.mime-types:text/*,application/json,application/x-ndjson,application/xml,application/javascript,application/sql,application/x-yaml,application/yaml,image/svg+xml}")
+    private String mimeTypes;
+
+    /**
+     * Kích thước tối thiểu để nén (bytes)
+     */
+    @Value("${file.storage.compression.min-size-bytes:4096}")
+    private long minSizeBytes;
+
+    /**
+     * Kích thước dữ liệu gốc của mỗi khối nén (bytes); khối nhỏ giúp đọc Range nhanh hơn
+     */
+    @Getter
+    @Value("${file.storage.compression.block-size:65536}")
+    private int blockSize;
+
+    /**
+     * Mức nén DEFLATE; mặc định 1 (nhanh nhất) để việc nén không làm chậm upload
+     */
+    @Getter
+    @Value("${file.storage.compression.level:1}")
+    private int level;
+
+    private List<String> patterns;
+
+    /**
+     * Phân tích danh sách MIME type cấu hình một lần khi khởi tạo
+     */
+    @PostConstruct
+    public void init() {
+        patterns = Arrays.stream(mimeTypes.split(","))
+                .map(this::normalize)
+                .filter(t -> t != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Kiểm tra một nội dung có nên được nén khi lưu không
+     * 
+     * @param mimeType MIME type của file (có thể null)
+     * @param sizeHint Kích thước dự kiến (bytes), -1 nếu chưa biết
+     * @return true nếu nội dung nên được nén
+     */
+    public boolean shouldCompress(String mimeType, long sizeHint) {
+        if (!enabled || (sizeHint >= 0 && sizeHint < minSizeBytes)) {
+            return false;
+        }
+        String type = normalize(mimeType);
+        if (type == null) {
+            return false;
+        }
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*")
+                    ? type.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : type.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chuẩn hóa MIME type: bỏ tham số (ví dụ "; charset=utf-8"), chữ thường
+     */
+    private String normalize(String mimeType) {
+        if (mimeType == null) {
+            return null;
+        }
+        int semicolon = mimeType.indexOf(';');
+        String type = (semicolon >= 0 ? mimeType.substring(0, semicolon) : mimeType).trim().toLowerCase(Locale.ROOT);
+        return type.isEmpty() ? null : type;
+    }
+}
@@ -1,39 +1,65 @@
 package vn.fpt.assignment_datpd11.task;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import vn.fpt.assignment_datpd11.entity.FileItem;
 import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.PurgeItem;
 import vn.fpt.assignment_datpd11.service.FileStorageService;
+import vn.fpt.assignment_datpd11.service.TrashPurgeService;
+import vn.fpt.assignment_datpd11.service.UploadSessionService;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Scheduled task để dọn dẹp các file đã bị xóa
  * 
  * Chạy định kỳ để:
- * - Tìm các file đã bị xóa (soft delete) quá lâu
- * - Xóa file vật lý khỏi hệ thống
- * - Xóa record khỏi database
+ * - Tìm các file đã bị xóa (soft delete) quá lâu, từng trang theo ID
+ * - Xóa record khỏi database theo lô (kể cả toàn bộ con cháu của thư mục bị xóa),
+ *   item sâu nhất trước, mỗi lô một transaction
+ * - Xóa file vật lý song song sau khi lô đã commit, số file chờ xóa có giới hạn
+ *   (database chờ khi việc xóa file không theo kịp)
+ * - Ghi tiến độ định kỳ và tổng kết khi xong
  * 
+ * - Xóa các bản sao cục bộ của blob từ xa không còn được dùng
+ * 
+ * Lô bị lỗi được bỏ qua và thử lại ở lần chạy sau.
  * Mặc định chạy mỗi ngày lúc 2:00 AM
  */
 @Component
 public class FileCleanupTask {
 
+    /**
+     * Khoảng thời gian tối thiểu giữa hai lần ghi tiến độ (ms)
+     */
+    private static final long PROGRESS_INTERVAL_MS = 30_000;
+
     @Autowired
     private FileItemRepository fileItemRepository;
 
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private TrashPurgeService trashPurgeService;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    @Qualifier("purgeExecutor")
+    private AsyncTaskExecutor purgeExecutor;
+
     /**
      * Số ngày giữ lại file đã xóa trước khi xóa vĩnh viễn (mặc định: 30 ngày)
      */
@@ -41,9 +67,16 @@ public class FileCleanupTask {
     private int retentionDays;
 
     /**
-     * Thread pool để xử lý xóa file song song
+     * Số item tối đa trong mỗi lô xóa (mỗi lô một transaction)
      */
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    @Value("${file.cleanup.purge.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Số file vật lý tối đa đang chờ xóa
+     */
+    @Value("${file.cleanup.purge.max-in-flight-deletes:256}")
+    private int maxInFlightDeletes;
 
     /**
      * Dọn dẹp các file đã bị xóa quá lâu
@@ -52,25 +85,173 @@ public class FileCleanupTask {
      * Cron expression: "0 0 2 * * ?" (có thể cấu hình qua file.cleanup.cron)
      */
     @Scheduled(cron = "${file.cleanup.cron:0 0 2 * * ?}")
-    @Transactional
     public void cleanupDeletedFiles() {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(retentionDays);
-        List<FileItem> deletedFiles = fileItemRepository.findDeletedBefore(cutoffDate);
-
-        for (FileItem file : deletedFiles) {
-            executorService.submit(() -> {
-                try {
-                    // Delete physical file
-                    if (file.getFilePath() != null) {
-                        fileStorageService.deleteFile(file.getFilePath());
-                    }
-                    // Delete from database
-                    fileItemRepository.delete(file);
-                } catch (IOException e) {
-                    System.err.println("Error deleting file " + file.getId() + ": " + e.getMessage());
+        PurgeRun run = new PurgeRun();
+
+        long afterId = 0;
+        List<PurgeItem> expired;
+        do {
+            expired = fileItemRepository.findExpiredTrash(cutoffDate, afterId, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            afterId = expired.get(expired.size() - 1).getId();
+
+            // Empty the expired folders bottom-up, then drop the expired items themselves in one batch
+            List<Long> ids = new ArrayList<>();
+            for (PurgeItem item : expired) {
+                if (!item.isFolder() || purgeDescendants(item, run)) {
+                    ids.add(item.getId());
                 }
-            });
+            }
+            if (!ids.isEmpty()) {
+                purgeBatch(ids, run);
+            }
+        } while (expired.size() == batchSize);
+
+        run.awaitDeletes();
+        if (run.batches > 0 || run.failedBatches > 0) {
+            System.out.println("Trash purge finished: " + run.summary());
         }
     }
-}
 
+    /**
+     * Xóa các bản sao cục bộ của blob từ xa (S3) đã quá thời gian giữ
+     * Chạy cùng lịch với việc dọn dẹp file đã xóa
+     */
+    @Scheduled(cron = "${file.cleanup.cron:0 0 2 * * ?}")
+    public void cleanupLocalCopies() {
+        try {
+            int evicted = fileStorageService.evictLocalCopies();
+            if (evicted > 0) {
+                System.out.println("Evicted " + evicted + " local blob copies");
+            }
+        } catch (IOException e) {
+            System.err.println("Error evicting local blob copies: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa toàn bộ con cháu của một thư mục theo từng lô, item sâu nhất trước
+     * 
+     * @param folder Thư mục đã hết hạn trong thùng rác
+     * @param run Trạng thái của lần dọn dẹp
+     * @return true nếu đã xóa hết con cháu (thư mục có thể được xóa)
+     */
+    private boolean purgeDescendants(PurgeItem folder, PurgeRun run) {
+        List<Long> ids;
+        do {
+            ids = fileItemRepository.findPurgeBatch(folder.childPath(), PageRequest.of(0, batchSize));
+            if (!ids.isEmpty() && !purgeBatch(ids, run)) {
+                // Retry the whole subtree on the next run instead of spinning on the same batch
+                return false;
+            }
+        } while (ids.size() == batchSize);
+        return true;
+    }
+
+    /**
+     * Xóa một lô item khỏi database rồi đưa các file vật lý vào hàng đợi xóa
+     * 
+     * @param ids Danh sách ID cần xóa
+     * @param run Trạng thái của lần dọn dẹp
+     * @return true nếu lô đã được commit
+     */
+    private boolean purgeBatch(List<Long> ids, PurgeRun run) {
+        TrashPurgeService.PurgeBatch batch;
+        try {
+            batch = trashPurgeService.purge(ids);
+        } catch (RuntimeException e) {
+            run.failedBatches++;
+            System.err.println("Error purging batch starting at item " + ids.get(0) + ": " + e.getMessage());
+            return false;
+        }
+
+        run.batches++;
+        run.purgedItems += batch.getPurgedItems();
+        run.releasedBlobs += batch.getReleasedBlobs();
+        for (String sessionId : batch.getAbortedSessionIds()) {
+            try {
+                uploadSessionService.deleteChunks(sessionId);
+            } catch (IOException e) {
+                System.err.println("Error cleaning upload session " + sessionId + ": " + e.getMessage());
+            }
+        }
+        for (String location : batch.getLocations()) {
+            run.deleteAsync(location);
+        }
+        run.reportProgress();
+        return true;
+    }
+
+    /**
+     * Trạng thái và số liệu của một lần dọn dẹp thùng rác
+     * Các trường không atomic chỉ được cập nhật trên thread của scheduler
+     */
+    private class PurgeRun {
+        private final long startedAt = System.currentTimeMillis();
+        private long lastReportAt = startedAt;
+
+        /**
+         * Giới hạn số file đang chờ xóa: khi đầy, thread dọn dẹp chờ trước khi xóa lô tiếp theo
+         */
+        private final Semaphore inFlight = new Semaphore(maxInFlightDeletes);
+
+        private long batches;
+        private long failedBatches;
+        private long purgedItems;
+        private long releasedBlobs;
+        private final AtomicLong deletedFiles = new AtomicLong();
+        private final AtomicLong failedFiles = new AtomicLong();
+
+        /**
+         * Xóa một file vật lý trên purgeExecutor (chờ nếu đã có quá nhiều file đang chờ xóa)
+         */
+        void deleteAsync(String location) {
+            inFlight.acquireUninterruptibly();
+            try {
+                purgeExecutor.execute(() -> {
+                    try {
+                        fileStorageService.deleteFile(location);
+                        deletedFiles.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        failedFiles.incrementAndGet();
+                        System.err.println("Error deleting file " + location + ": " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                failedFiles.incrementAndGet();
+                System.err.println("Error scheduling deletion of " + location + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Chờ tất cả file vật lý đã đưa vào hàng đợi được xóa xong
+         */
+        void awaitDeletes() {
+            inFlight.acquireUninterruptibly(maxInFlightDeletes);
+            inFlight.release(maxInFlightDeletes);
+        }
+
+        void reportProgress() {
+            long now = System.currentTimeMillis();
+            if (now - lastReportAt >= PROGRESS_INTERVAL_MS) {
+                lastReportAt = now;
+                System.out.println("Trash purge in progress: " + summary());
+            }
+        }
+
+        String summary() {
+            long elapsedMs = Math.max(1, System.currentTimeMillis() - startedAt);
+            return purgedItems + " items in " + batches + " batches (" + failedBatches + " failed), "
+                    + releasedBlobs + " blobs released, "
+                    + deletedFiles.get() + " files deleted (" + failedFiles.get() + " failed, "
+                    + (maxInFlightDeletes - inFlight.availablePermits()) + " pending), "
+                    + (purgedItems * 1000 / elapsedMs) + " items/s, " + (elapsedMs / 1000) + "s elapsed";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package vn.fpt.assignment_datpd11.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.service.FileService;
+
+/**
+ * Task điền đường dẫn vật chất hóa (path) và kích thước cho dữ liệu cũ
+ * 
+ * Chạy một lần khi ứng dụng khởi động:
+ * - Item ở root nhận path "/"
+ * - Các item khác được điền lần lượt theo từng cấp, mỗi lô một transaction
+ * - Item chưa có kích thước (thư mục) nhận kích thước 0, mỗi lô một câu lệnh
+ * 
+ * Cần thiết cho dữ liệu được tạo trước khi có cột path hoặc được nạp bằng script SQL
+ */
+@Component
+public class FilePathBackfillTask {
+
+    /**
+     * Số lượng item được xử lý trong mỗi transaction
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileItemRepository fileItemRepository;
+
+    /**
+     * Điền path và kích thước cho tất cả item còn thiếu
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPaths() {
+        long total = 0;
+        int updated;
+        do {
+            updated = fileService.backfillPaths(BATCH_SIZE);
+            total += updated;
+        } while (updated > 0);
+
+        if (total > 0) {
+            System.out.println("Backfilled materialized path for " + total + " file items");
+        }
+
+        total = 0;
+        do {
+            updated = fileItemRepository.fillMissingFileSizes(BATCH_SIZE);
+            total += updated;
+        } while (updated > 0);
+
+        if (total > 0) {
+            System.out.println("Backfilled file size for " + total + " file items");
+        }
+    }
+}
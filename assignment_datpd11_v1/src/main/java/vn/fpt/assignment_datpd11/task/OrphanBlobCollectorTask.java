@@ -0,0 +1,39 @@
+package vn.fpt.assignment_datpd11.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.service.OrphanBlobCollector;
+
+import java.io.IOException;
+
+/**
+ * Scheduled task để thu gom blob mồ côi trong nơi lưu trữ
+ * 
+ * Chạy định kỳ để:
+ * - Tìm các blob không còn được database tham chiếu (ví dụ: upload bị lỗi sau khi đã ghi nội dung)
+ * - Báo cáo hoặc xóa các blob đó (mặc định chỉ báo cáo, xem file.storage.gc.dry-run)
+ * - Báo cáo các bản ghi trỏ tới blob không còn tồn tại
+ * 
+ * Mặc định chạy mỗi Chủ nhật lúc 4:00 AM
+ */
+@Component
+public class OrphanBlobCollectorTask {
+
+    @Autowired
+    private OrphanBlobCollector orphanBlobCollector;
+
+    /**
+     * Thu gom blob mồ côi
+     * 
+     * Chạy theo lịch định kỳ (có thể cấu hình qua file.storage.gc.cron)
+     */
+    @Scheduled(cron = "${file.storage.gc.cron:0 0 4 * * SUN}")
+    public void collectOrphanBlobs() {
+        try {
+            orphanBlobCollector.collect();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error collecting orphan blobs: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package vn.fpt.assignment_datpd11.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import vn.fpt.assignment_datpd11.entity.UploadSession;
+import vn.fpt.assignment_datpd11.repository.UploadSessionRepository;
+import vn.fpt.assignment_datpd11.service.UploadSessionService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Scheduled task để dọn dẹp các phiên upload bị bỏ dở
+ * 
+ * Chạy định kỳ để:
+ * - Tìm các phiên upload ACTIVE không có hoạt động quá lâu
+ * - Xóa các phần đã nhận trong thư mục tạm
+ * - Đánh dấu phiên là ABORTED
+ * 
+ * Mặc định chạy mỗi giờ
+ */
+@Component
+public class UploadSessionCleanupTask {
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    /**
+     * Số giờ giữ lại phiên upload không hoạt động (mặc định: 24 giờ)
+     */
+    @Value("${file.upload.session-expiry-hours:24}")
+    private int expiryHours;
+
+    /**
+     * Hủy các phiên upload không hoạt động quá lâu
+     * 
+     * Chạy theo lịch định kỳ (mặc định: đầu mỗi giờ)
+     */
+    @Scheduled(cron = "${file.upload.cleanup.cron:0 0 * * * ?}")
+    @Transactional
+    public void cleanupExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expiryHours);
+        List<UploadSession> expired = uploadSessionRepository
+                .findByStatusAndUpdatedAtBefore(UploadSession.UploadStatus.ACTIVE, cutoff);
+
+        for (UploadSession session : expired) {
+            try {
+                uploadSessionService.deleteChunks(session.getSessionId());
+                session.setStatus(UploadSession.UploadStatus.ABORTED);
+                uploadSessionRepository.save(session);
+            } catch (IOException e) {
+                System.err.println("Error cleaning upload session " + session.getSessionId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
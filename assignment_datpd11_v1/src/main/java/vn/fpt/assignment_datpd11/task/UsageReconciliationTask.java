@@ -0,0 +1,65 @@
+package vn.fpt.assignment_datpd11.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import vn.fpt.assignment_datpd11.repository.UserUsageRepository;
+import vn.fpt.assignment_datpd11.service.UsageService;
+
+import java.util.List;
+
+/**
+ * Scheduled task để đối soát số liệu sử dụng storage
+ * 
+ * Chạy định kỳ để:
+ * - Tính lại số liệu của từng người dùng từ bảng file_items
+ * - Sửa các sai lệch phát sinh (ví dụ: dữ liệu được sửa trực tiếp trong database)
+ * 
+ * Mỗi người dùng được đối soát trong một transaction riêng.
+ * Mặc định chạy mỗi ngày lúc 3:30 AM
+ */
+@Component
+public class UsageReconciliationTask {
+
+    /**
+     * Số lượng người dùng được đọc mỗi lần
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private UserUsageRepository userUsageRepository;
+
+    @Autowired
+    private UsageService usageService;
+
+    /**
+     * Đối soát số liệu sử dụng của tất cả người dùng đã có bản ghi
+     * 
+     * Chạy theo lịch định kỳ (có thể cấu hình qua usage.reconcile.cron)
+     */
+    @Scheduled(cron = "${usage.reconcile.cron:0 30 3 * * ?}")
+    public void reconcileUsage() {
+        long checked = 0;
+        long repaired = 0;
+        Long lastUserId = 0L;
+
+        List<Long> userIds;
+        do {
+            userIds = userUsageRepository.findUserIdsAfter(lastUserId, PageRequest.of(0, BATCH_SIZE));
+            for (Long userId : userIds) {
+                try {
+                    if (usageService.reconcile(userId)) {
+                        repaired++;
+                    }
+                    checked++;
+                } catch (Exception e) {
+                    System.err.println("Error reconciling usage of user " + userId + ": " + e.getMessage());
+                }
+                lastUserId = userId;
+            }
+        } while (userIds.size() == BATCH_SIZE);
+
+        System.out.println("Usage reconciliation finished: " + checked + " users checked, " + repaired + " repaired");
+    }
+}
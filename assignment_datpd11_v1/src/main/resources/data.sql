@@ -49,20 +49,20 @@ INSERT INTO users (id, email, password, full_name, created_at, updated_at) VALUE
 -- User 1: Items 1-1011
 -- Root folder
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
-(1, 'Root_user1@example.com', 'FOLDER', NULL, 1, NULL, NULL, NULL, 0, NOW(), NOW());
+(1, 'Root_user1@example.com', 'FOLDER', NULL, 1, NULL, 0, NULL, 0, NOW(), NOW());
 
 -- Subfolders (2-11)
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
-(2, 'Folder_0', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(3, 'Folder_1', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(4, 'Folder_2', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(5, 'Folder_3', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(6, 'Folder_4', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(7, 'Folder_5', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(8, 'Folder_6', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(9, 'Folder_7', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(10, 'Folder_8', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW()),
-(11, 'Folder_9', 'FOLDER', 1, 1, NULL, NULL, NULL, 0, NOW(), NOW());
+(2, 'Folder_0', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(3, 'Folder_1', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(4, 'Folder_2', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(5, 'Folder_3', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(6, 'Folder_4', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(7, 'Folder_5', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(8, 'Folder_6', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(9, 'Folder_7', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(10, 'Folder_8', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW()),
+(11, 'Folder_9', 'FOLDER', 1, 1, NULL, 0, NULL, 0, NOW(), NOW());
 
 -- Files in Folder_0 (12-111)
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
@@ -97,20 +97,20 @@ INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_siz
 -- User 2: Items 1012-2022
 -- Root folder
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
-(1012, 'Root_user2@example.com', 'FOLDER', NULL, 2, NULL, NULL, NULL, 0, NOW(), NOW());
+(1012, 'Root_user2@example.com', 'FOLDER', NULL, 2, NULL, 0, NULL, 0, NOW(), NOW());
 
 -- Subfolders (1013-1022)
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
-(1013, 'Folder_0', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1014, 'Folder_1', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1015, 'Folder_2', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1016, 'Folder_3', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1017, 'Folder_4', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1018, 'Folder_5', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1019, 'Folder_6', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1020, 'Folder_7', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1021, 'Folder_8', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW()),
-(1022, 'Folder_9', 'FOLDER', 1012, 2, NULL, NULL, NULL, 0, NOW(), NOW());
+(1013, 'Folder_0', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1014, 'Folder_1', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1015, 'Folder_2', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1016, 'Folder_3', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1017, 'Folder_4', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1018, 'Folder_5', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1019, 'Folder_6', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1020, 'Folder_7', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1021, 'Folder_8', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW()),
+(1022, 'Folder_9', 'FOLDER', 1012, 2, NULL, 0, NULL, 0, NOW(), NOW());
 
 -- Files in Folder_0 (1023-1122) - Sample
 INSERT INTO file_items (id, name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at) VALUES
@@ -2,22 +2,50 @@
 -- Script để generate đầy đủ ~10,000 files
 -- =====================================================
 -- Sử dụng stored procedure để tạo dữ liệu tự động
--- Chạy script này sau khi đã chạy data.sql
+-- Chạy script này sau khi đã chạy data.sql và ứng dụng đã khởi động ít nhất một lần
+-- (ID được cấp phát từ bảng id_generators, xem procedure allocate_ids)
 -- =====================================================
 
 DELIMITER $$
 
+-- Procedure cấp phát một khối ID liên tiếp từ bảng id_generators
+-- file_items và file_permissions không còn AUTO_INCREMENT: Hibernate lấy ID theo khối
+-- (pooled, mỗi khối 100 ID) từ id_generators, nên script phải lấy ID từ cùng nguồn
+-- và đẩy next_val lên để khối tiếp theo của Hibernate không trùng với ID đã chèn.
+-- Dòng của bảng được IdGeneratorInitializer tạo khi ứng dụng khởi động.
+DROP PROCEDURE IF EXISTS allocate_ids$$
+CREATE PROCEDURE allocate_ids(
+    IN p_table VARCHAR(64),
+    IN p_count INT,
+    OUT p_first_id BIGINT
+)
+BEGIN
+    DECLARE v_next BIGINT DEFAULT NULL;
+
+    START TRANSACTION;
+    SELECT next_val INTO v_next FROM id_generators WHERE sequence_name = p_table FOR UPDATE;
+    IF v_next IS NULL THEN
+        ROLLBACK;
+        SIGNAL SQLSTATE '45000'
+            SET MESSAGE_TEXT = 'id_generators has no row for this table, start the application once before running this script';
+    END IF;
+
+    -- IDs from next_val upwards have not been handed out; keep a full pooled block (100) above the new IDs
+    SET p_first_id = v_next;
+    UPDATE id_generators SET next_val = v_next + p_count + 100 WHERE sequence_name = p_table;
+    COMMIT;
+END$$
+
 -- Procedure để tạo files cho một user
 DROP PROCEDURE IF EXISTS generate_user_files$$
 CREATE PROCEDURE generate_user_files(
     IN p_user_id INT,
-    IN p_start_file_id INT,
     IN p_files_per_folder INT
 )
 BEGIN
-    DECLARE v_root_id INT;
-    DECLARE v_folder_id INT;
-    DECLARE v_file_id INT;
+    DECLARE v_next_id BIGINT;
+    DECLARE v_root_id BIGINT;
+    DECLARE v_folder_id BIGINT;
     DECLARE v_folder_index INT DEFAULT 0;
     DECLARE v_file_index INT DEFAULT 0;
     DECLARE v_file_size BIGINT;
@@ -26,31 +54,37 @@ BEGIN
     -- Lấy email của user
     SELECT email INTO v_user_email FROM users WHERE id = p_user_id;
     
-    -- Tạo root folder
-    INSERT INTO file_items (name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
-    VALUES (CONCAT('Root_', v_user_email), 'FOLDER', NULL, p_user_id, NULL, NULL, NULL, 0, NOW(), NOW());
+    -- 1 root folder + 10 subfolders + 10 * p_files_per_folder files
+    CALL allocate_ids('file_items', 11 + 10 * p_files_per_folder, v_next_id);
     
-    SET v_root_id = LAST_INSERT_ID();
-    SET v_file_id = p_start_file_id;
+    -- Tạo root folder
+    SET v_root_id = v_next_id;
+    SET v_next_id = v_next_id + 1;
+    INSERT INTO file_items (id, name, type, parent_id, path, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
+    VALUES (v_root_id, CONCAT('Root_', v_user_email), 'FOLDER', NULL, '/', p_user_id, NULL, 0, NULL, 0, NOW(), NOW());
     
     -- Tạo 10 subfolders
     WHILE v_folder_index < 10 DO
         -- Tạo folder
-        INSERT INTO file_items (name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
-        VALUES (CONCAT('Folder_', v_folder_index), 'FOLDER', v_root_id, p_user_id, NULL, NULL, NULL, 0, NOW(), NOW());
+        SET v_folder_id = v_next_id;
+        SET v_next_id = v_next_id + 1;
+        INSERT INTO file_items (id, name, type, parent_id, path, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
+        VALUES (v_folder_id, CONCAT('Folder_', v_folder_index), 'FOLDER', v_root_id, CONCAT('/', v_root_id, '/'),
+                p_user_id, NULL, 0, NULL, 0, NOW(), NOW());
         
-        SET v_folder_id = LAST_INSERT_ID();
         SET v_file_index = 0;
         
         -- Tạo files trong folder
         WHILE v_file_index < p_files_per_folder DO
             SET v_file_size = FLOOR(1000 + RAND() * 999000); -- Random size 1KB - 1MB
             
-            INSERT INTO file_items (name, type, parent_id, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
+            INSERT INTO file_items (id, name, type, parent_id, path, owner_id, file_path, file_size, mime_type, is_deleted, created_at, updated_at)
             VALUES (
+                v_next_id,
                 CONCAT('file_', v_folder_index, '_', v_file_index, '.txt'),
                 'FILE',
                 v_folder_id,
+                CONCAT('/', v_root_id, '/', v_folder_id, '/'),
                 p_user_id,
                 CONCAT('/mock/path/', p_user_id, '/file_', v_folder_index, '_', v_file_index, '.txt'),
                 v_file_size,
@@ -60,6 +94,7 @@ BEGIN
                 NOW()
             );
             
+            SET v_next_id = v_next_id + 1;
             SET v_file_index = v_file_index + 1;
         END WHILE;
         
@@ -71,13 +106,14 @@ END$$
 DROP PROCEDURE IF EXISTS generate_permissions$$
 CREATE PROCEDURE generate_permissions()
 BEGIN
-    DECLARE v_file_id INT;
+    DECLARE v_file_id BIGINT;
     DECLARE v_owner_id INT;
     DECLARE v_target_user_id INT;
     DECLARE v_permission VARCHAR(10);
     DECLARE v_count INT DEFAULT 0;
     DECLARE v_total_files INT;
     DECLARE v_files_to_share INT;
+    DECLARE v_next_id BIGINT;
     DECLARE done INT DEFAULT 0;
 
     -- Lưu ý: Trong MySQL, tất cả DECLARE (cursor/handler) phải đứng trước các câu lệnh thực thi
@@ -93,6 +129,9 @@ BEGIN
     -- Tính số files cần share (10%)
     SELECT COUNT(*) INTO v_total_files FROM file_items WHERE type = 'FILE' AND is_deleted = 0;
     SET v_files_to_share = FLOOR(v_total_files * 0.1);
+    
+    -- Một ID cho mỗi permission (ID của dòng bị INSERT IGNORE bỏ qua không được dùng lại)
+    CALL allocate_ids('file_permissions', v_files_to_share, v_next_id);
 
     OPEN file_cursor;
 
@@ -114,9 +153,10 @@ BEGIN
         SET v_permission = IF(RAND() > 0.5, 'VIEW', 'EDIT');
 
         -- Insert permission (ignore nếu đã tồn tại)
-        INSERT IGNORE INTO file_permissions (file_id, user_id, permission_level, created_at, updated_at)
-        VALUES (v_file_id, v_target_user_id, v_permission, NOW(), NOW());
+        INSERT IGNORE INTO file_permissions (id, file_id, user_id, permission_level, created_at, updated_at)
+        VALUES (v_next_id, v_file_id, v_target_user_id, v_permission, NOW(), NOW());
 
+        SET v_next_id = v_next_id + 1;
         SET v_count = v_count + 1;
     END LOOP;
 
@@ -136,35 +176,35 @@ DELIMITER ;
 -- TRUNCATE TABLE file_items;
 -- DELETE FROM users WHERE id > 0;
 
--- Generate files cho User 1 (bắt đầu từ ID 1)
-CALL generate_user_files(1, 1, 100);
+-- Generate files cho User 1
+CALL generate_user_files(1, 100);
 
--- Generate files cho User 2 (bắt đầu từ ID 1012)
-CALL generate_user_files(2, 1012, 100);
+-- Generate files cho User 2
+CALL generate_user_files(2, 100);
 
--- Generate files cho User 3 (bắt đầu từ ID 2023)
-CALL generate_user_files(3, 2023, 100);
+-- Generate files cho User 3
+CALL generate_user_files(3, 100);
 
--- Generate files cho User 4 (bắt đầu từ ID 3034)
-CALL generate_user_files(4, 3034, 100);
+-- Generate files cho User 4
+CALL generate_user_files(4, 100);
 
--- Generate files cho User 5 (bắt đầu từ ID 4045)
-CALL generate_user_files(5, 4045, 100);
+-- Generate files cho User 5
+CALL generate_user_files(5, 100);
 
--- Generate files cho User 6 (bắt đầu từ ID 5056)
-CALL generate_user_files(6, 5056, 100);
+-- Generate files cho User 6
+CALL generate_user_files(6, 100);
 
--- Generate files cho User 7 (bắt đầu từ ID 6067)
-CALL generate_user_files(7, 6067, 100);
+-- Generate files cho User 7
+CALL generate_user_files(7, 100);
 
--- Generate files cho User 8 (bắt đầu từ ID 7078)
-CALL generate_user_files(8, 7078, 100);
+-- Generate files cho User 8
+CALL generate_user_files(8, 100);
 
--- Generate files cho User 9 (bắt đầu từ ID 8089)
-CALL generate_user_files(9, 8089, 100);
+-- Generate files cho User 9
+CALL generate_user_files(9, 100);
 
--- Generate files cho User 10 (bắt đầu từ ID 9100)
-CALL generate_user_files(10, 9100, 100);
+-- Generate files cho User 10
+CALL generate_user_files(10, 100);
 
 -- Generate permissions (10% files)
 CALL generate_permissions();
@@ -210,4 +250,5 @@ ORDER BY u.id;
 -- =====================================================
 DROP PROCEDURE IF EXISTS generate_user_files;
 DROP PROCEDURE IF EXISTS generate_permissions;
+DROP PROCEDURE IF EXISTS allocate_ids;
 
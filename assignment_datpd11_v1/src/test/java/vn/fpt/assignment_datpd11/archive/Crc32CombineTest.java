@@ -0,0 +1,82 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Kiểm tra Crc32Combine cho kết quả giống CRC32 tính trên toàn bộ dữ liệu
+ */
+class Crc32CombineTest {
+
+    @Test
+    void combinedCrcMatchesCrcOfConcatenation() {
+        byte[] data = new byte[70_001];
+        new Random(7).nextBytes(data);
+
+        for (int split : new int[]{0, 1, 2, 3, 4, 7, 8, 255, 4096, 65_535, 65_536, 70_000, 70_001}) {
+            long first = crc(data, 0, split);
+            long second = crc(data, split, data.length - split);
+            assertEquals(crc(data, 0, data.length), Crc32Combine.combine(first, second, data.length - split),
+                    "split at " + split);
+        }
+    }
+
+    @Test
+    void combiningManyBlocksMatchesStreamingCrc() {
+        Random random = new Random(11);
+        byte[] data = new byte[1 << 20];
+        random.nextBytes(data);
+
+        CRC32 whole = new CRC32();
+        long combined = 0;
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, 1 + random.nextInt(50_000));
+            whole.update(data, offset, length);
+            combined = Crc32Combine.combine(combined, crc(data, offset, length), length);
+            offset += length;
+        }
+
+        assertEquals(whole.getValue(), combined);
+    }
+
+    @Test
+    void emptySecondBlockLeavesCrcUnchanged() {
+        assertEquals(0x12345678L, Crc32Combine.combine(0x12345678L, 0, 0));
+    }
+
+    @Test
+    void combiningLongZeroRunMatchesCrc32() {
+        // 48 MB: exercises many squaring rounds of the zero operator
+        byte[] zeros = new byte[1 << 20];
+        CRC32 whole = new CRC32();
+        long combined = crc(new byte[5], 0, 5);
+        whole.update(new byte[5]);
+        long blockCrc = crc(zeros, 0, zeros.length);
+        for (int i = 0; i < 48; i++) {
+            whole.update(zeros);
+            combined = Crc32Combine.combine(combined, blockCrc, zeros.length);
+        }
+        assertEquals(whole.getValue(), combined);
+
+        long doubled = blockCrc;
+        for (int i = 0; i < 5; i++) {
+            doubled = Crc32Combine.combine(doubled, doubled, (long) zeros.length << i);
+        }
+        CRC32 expected = new CRC32();
+        for (int i = 0; i < 32; i++) {
+            expected.update(zeros);
+        }
+        assertEquals(expected.getValue(), doubled);
+    }
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,147 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra ParallelZipArchiver chỉ mở nguồn của từng file khi bắt đầu ghi file đó
+ * và đóng ngay sau khi ghi xong
+ */
+class ParallelZipArchiverTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int MAX_IN_FLIGHT_BLOCKS = 4;
+
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2024, 3, 4, 5, 6, 8);
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final AtomicInteger maxOpen = new AtomicInteger();
+
+    private ParallelZipArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        CompressionPolicy compressionPolicy = new CompressionPolicy();
+        ReflectionTestUtils.setField(compressionPolicy, "storedMimeTypes", "application/zip");
+        ReflectionTestUtils.setField(compressionPolicy, "entropySampleBytes", 32768);
+        ReflectionTestUtils.setField(compressionPolicy, "entropyThreshold", 7.5);
+        compressionPolicy.init();
+
+        archiver = new ParallelZipArchiver();
+        ReflectionTestUtils.setField(archiver, "zipExecutor", new SimpleAsyncTaskExecutor());
+        ReflectionTestUtils.setField(archiver, "compressionPolicy", compressionPolicy);
+        ReflectionTestUtils.setField(archiver, "compressionLevel", -1);
+        ReflectionTestUtils.setField(archiver, "blockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(archiver, "maxInFlightBlocks", MAX_IN_FLIGHT_BLOCKS);
+    }
+
+    @Test
+    void sourcesAreOpenedLazilyAndClosedAfterTheirEntry() throws IOException {
+        int fileCount = 12;
+        List<byte[]> contents = new ArrayList<>();
+        List<ArchiveEntry> entries = new ArrayList<>();
+        entries.add(new ArchiveEntry("data/", null, MODIFIED, null, 0));
+        Random random = new Random(3);
+        for (int i = 0; i < fileCount; i++) {
+            byte[] data = new byte[3 * BLOCK_SIZE + i];
+            random.nextBytes(data);
+            contents.add(data);
+            entries.add(new ArchiveEntry("data/" + i + ".bin", tracked(write(i + ".bin", data)),
+                    MODIFIED, "application/zip", data.length));
+        }
+
+        Path zip = tempDir.resolve("lazy.zip");
+        int[] openedAtFirstByte = {-1};
+        try (OutputStream file = Files.newOutputStream(zip)) {
+            archiver.write(entries, new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (openedAtFirstByte[0] < 0) {
+                        openedAtFirstByte[0] = opened.get();
+                    }
+                    file.write(b, off, len);
+                }
+            });
+        }
+
+        assertTrue(openedAtFirstByte[0] > 0 && openedAtFirstByte[0] <= MAX_IN_FLIGHT_BLOCKS,
+                "opened before first byte: " + openedAtFirstByte[0]);
+        assertTrue(maxOpen.get() <= MAX_IN_FLIGHT_BLOCKS, "open at once: " + maxOpen.get());
+        assertEquals(fileCount, opened.get());
+        assertEquals(0, open.get());
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(fileCount + 1, file.size());
+            for (int i = 0; i < fileCount; i++) {
+                try (InputStream in = file.getInputStream(file.getEntry("data/" + i + ".bin"))) {
+                    assertArrayEquals(contents.get(i), in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    void failingSourceClosesSourcesAlreadyOpened() throws IOException {
+        byte[] data = new byte[2 * BLOCK_SIZE];
+        new Random(4).nextBytes(data);
+        List<ArchiveEntry> entries = List.of(
+                new ArchiveEntry("a.bin", tracked(write("a.bin", data)), MODIFIED, "application/zip", data.length),
+                new ArchiveEntry("b.bin", () -> {
+                    throw new IOException("download failed");
+                }, MODIFIED, "application/zip", data.length));
+
+        IOException e = assertThrows(IOException.class,
+                () -> archiver.write(entries, OutputStream.nullOutputStream()));
+
+        assertEquals("download failed", e.getMessage());
+        assertEquals(1, opened.get());
+        assertEquals(0, open.get());
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(tempDir.resolve(name), data);
+    }
+
+    /**
+     * Nguồn đếm số lần mở và số nguồn đang mở cùng lúc
+     */
+    private ArchiveSource tracked(Path path) {
+        return () -> {
+            opened.incrementAndGet();
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            return new ArchiveSource.Opened(path, false, open::decrementAndGet);
+        };
+    }
+}
@@ -0,0 +1,287 @@
+package vn.fpt.assignment_datpd11.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra ZipArchiveWriter bằng cách đọc lại archive với java.util.zip.ZipFile
+ */
+class ZipArchiveWriterTest {
+
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2024, 3, 4, 5, 6, 8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deflatedStoredAndDirectoryEntriesReadBack() throws IOException {
+        byte[] text = "hello zip ".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[100_000];
+        new Random(42).nextBytes(random);
+
+        Path zip = tempDir.resolve("mixed.zip");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(zip))) {
+            ZipArchiveWriter writer = new ZipArchiveWriter(out);
+            writer.writeDirectory("docs/", MODIFIED);
+            writeDeflated(writer, "docs/hello.txt", text);
+            writeStored(writer, "docs/random.bin", random);
+            writeStoredWithDescriptor(writer, "tiếng việt.bin", random);
+            writer.finish();
+            assertEquals(Files.size(zip), writer.getBytesWritten());
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(4, file.size());
+
+            ZipEntry dir = file.getEntry("docs/");
+            assertTrue(dir.isDirectory());
+
+            ZipEntry deflated = file.getEntry("docs/hello.txt");
+            assertEquals(ZipEntry.DEFLATED, deflated.getMethod());
+            assertEquals(text.length, deflated.getSize());
+            assertTrue(deflated.getCompressedSize() < text.length);
+            assertEquals(crc(text), deflated.getCrc());
+            assertArrayEquals(text, read(file, deflated));
+            assertEquals(MODIFIED, deflated.getTimeLocal());
+
+            ZipEntry stored = file.getEntry("docs/random.bin");
+            assertEquals(ZipEntry.STORED, stored.getMethod());
+            assertEquals(random.length, stored.getCompressedSize());
+            assertEquals(crc(random), stored.getCrc());
+            assertArrayEquals(random, read(file, stored));
+
+            ZipEntry utf8 = file.getEntry("tiếng việt.bin");
+            assertNotNull(utf8);
+            assertArrayEquals(random, read(file, utf8));
+        }
+    }
+
+    @Test
+    void emptyFilesReadBack() throws IOException {
+        Path zip = tempDir.resolve("empty.zip");
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            ZipArchiveWriter writer = new ZipArchiveWriter(out);
+            writeDeflated(writer, "empty-deflated.txt", new byte[0]);
+            writeStored(writer, "empty-stored.txt", new byte[0]);
+            writer.finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            for (String name : new String[]{"empty-deflated.txt", "empty-stored.txt"}) {
+                ZipEntry entry = file.getEntry(name);
+                assertEquals(0, entry.getSize());
+                assertEquals(0, entry.getCrc());
+                assertEquals(0, read(file, entry).length);
+            }
+        }
+    }
+
+    @Test
+    void emptyArchiveReadsBack() throws IOException {
+        Path zip = tempDir.resolve("nothing.zip");
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            new ZipArchiveWriter(out).finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(0, file.size());
+        }
+    }
+
+    @Test
+    void moreThan65535EntriesUseZip64End() throws IOException {
+        int count = 70_000;
+        Path zip = tempDir.resolve("many.zip");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(zip))) {
+            ZipArchiveWriter writer = new ZipArchiveWriter(out);
+            for (int i = 0; i < count; i++) {
+                writeStored(writer, "f/" + i, Integer.toString(i).getBytes(StandardCharsets.US_ASCII));
+            }
+            writer.finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(count, file.size());
+            ZipEntry last = file.getEntry("f/" + (count - 1));
+            assertArrayEquals(Integer.toString(count - 1).getBytes(StandardCharsets.US_ASCII), read(file, last));
+        }
+    }
+
+    @Test
+    void entryLargerThan4GbAndOffsetsBeyond4GbUseZip64() throws IOException {
+        long bigSize = 0x1_0000_0000L + 123;
+        byte[] tail = "after the big entry".getBytes(StandardCharsets.UTF_8);
+
+        // Zero blocks become holes, so the 4 GB entry costs almost no disk space
+        Path zip = tempDir.resolve("big.zip");
+        long bigCrc;
+        try (SparseFileOutputStream out = new SparseFileOutputStream(zip)) {
+            ZipArchiveWriter writer = new ZipArchiveWriter(out);
+            writeStored(writer, "head.txt", tail);
+
+            bigCrc = zerosCrc(bigSize);
+            writer.putStoredEntry("big.bin", MODIFIED, bigCrc, bigSize);
+            byte[] zeros = new byte[1 << 20];
+            long remaining = bigSize;
+            while (remaining > 0) {
+                int n = (int) Math.min(zeros.length, remaining);
+                writer.writeData(zeros, 0, n);
+                remaining -= n;
+            }
+            writer.closeEntry(bigCrc, bigSize, bigSize);
+
+            writeDeflated(writer, "tail.txt", tail);
+            writer.finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(3, file.size());
+
+            ZipEntry big = file.getEntry("big.bin");
+            assertEquals(bigSize, big.getSize());
+            assertEquals(bigSize, big.getCompressedSize());
+            assertEquals(bigCrc, big.getCrc());
+
+            // Local header offset of this entry only fits in the ZIP64 extra field
+            assertArrayEquals(tail, read(file, file.getEntry("tail.txt")));
+            assertArrayEquals(tail, read(file, file.getEntry("head.txt")));
+        }
+    }
+
+    @Test
+    void entryGrowingPast4GbWithoutZip64HeaderIsRejected() throws IOException {
+        ZipArchiveWriter writer = new ZipArchiveWriter(OutputStream.nullOutputStream());
+        writer.putEntry("grown.bin", MODIFIED, ZipArchiveWriter.METHOD_DEFLATED, 10);
+
+        assertThrows(IOException.class, () -> writer.closeEntry(0, 10, 0x1_0000_0000L));
+    }
+
+    @Test
+    void storedEntryMustMatchDeclaredValues() throws IOException {
+        ZipArchiveWriter writer = new ZipArchiveWriter(OutputStream.nullOutputStream());
+        byte[] data = {1, 2, 3};
+        writer.putStoredEntry("changed.bin", MODIFIED, crc(data), data.length);
+        writer.writeData(data, 0, data.length);
+
+        assertThrows(IOException.class, () -> writer.closeEntry(crc(data) ^ 1, data.length, data.length));
+    }
+
+    private static void writeDeflated(ZipArchiveWriter writer, String name, byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+
+        writer.putEntry(name, MODIFIED, ZipArchiveWriter.METHOD_DEFLATED, data.length);
+        writer.writeData(compressed.toByteArray(), 0, compressed.size());
+        writer.closeEntry(crc(data), compressed.size(), data.length);
+    }
+
+    private static void writeStored(ZipArchiveWriter writer, String name, byte[] data) throws IOException {
+        writer.putStoredEntry(name, MODIFIED, crc(data), data.length);
+        writer.writeData(data, 0, data.length);
+        writer.closeEntry(crc(data), data.length, data.length);
+    }
+
+    private static void writeStoredWithDescriptor(ZipArchiveWriter writer, String name, byte[] data) throws IOException {
+        writer.putEntry(name, MODIFIED, ZipArchiveWriter.METHOD_STORED, data.length);
+        writer.writeData(data, 0, data.length);
+        writer.closeEntry(crc(data), data.length, data.length);
+    }
+
+    private static byte[] read(ZipFile file, ZipEntry entry) throws IOException {
+        try (InputStream in = file.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * CRC-32 của length byte 0, ghép từ CRC của một khối 1 MB
+     */
+    private static long zerosCrc(long length) {
+        int block = 1 << 20;
+        long blockCrc = crc(new byte[block]);
+        long result = 0;
+        long remaining = length;
+        while (remaining >= block) {
+            result = Crc32Combine.combine(result, blockCrc, block);
+            remaining -= block;
+        }
+        return Crc32Combine.combine(result, crc(new byte[(int) remaining]), remaining);
+    }
+
+    /**
+     * OutputStream ghi file thưa: khối toàn byte 0 chỉ dời vị trí ghi, không chiếm đĩa
+     */
+    private static class SparseFileOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final byte[] zeros = new byte[1 << 20];
+        private long position;
+
+        SparseFileOutputStream(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len <= zeros.length && Arrays.mismatch(b, off, off + len, zeros, 0, len) < 0) {
+                position += len;
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.size() < position) {
+                // A trailing hole still has to count towards the file length
+                channel.write(ByteBuffer.wrap(new byte[1]), position - 1);
+            }
+            channel.close();
+        }
+    }
+}
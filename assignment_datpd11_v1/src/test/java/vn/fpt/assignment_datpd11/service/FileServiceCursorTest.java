@@ -0,0 +1,164 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.fpt.assignment_datpd11.dto.response.CursorPageResponse;
+import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra con trỏ phân trang của FileService.searchFilesPage: mã hóa/giải mã khứ hồi và con trỏ bị sửa
+ */
+class FileServiceCursorTest {
+
+    private final User owner = User.builder().id(1L).email("owner@example.com").fullName("Owner").build();
+
+    private final List<Object[]> keysetCalls = new ArrayList<>();
+
+    private List<FileItem> rows = new ArrayList<>();
+
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        // Only searchAccessible is used by searchFilesPage
+        FileItemRepository repository = (FileItemRepository) Proxy.newProxyInstance(
+                FileItemRepository.class.getClassLoader(), new Class<?>[]{FileItemRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("searchAccessible")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    keysetCalls.add(new Object[]{args[2], args[3]});
+                    int limit = (Integer) args[4];
+                    return new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+                });
+        fileService = new FileService();
+        ReflectionTestUtils.setField(fileService, "fileItemRepository", repository);
+        ReflectionTestUtils.setField(fileService, "searchDefaultLimit", 2);
+        ReflectionTestUtils.setField(fileService, "searchMaxLimit", 100);
+    }
+
+    @Test
+    void sizeCursorRoundTripsLastRowOfPage() {
+        rows = List.of(file(7L, "a.txt", 10L), file(3L, "b.txt", 20L), file(9L, "c.txt", 20L));
+
+        CursorPageResponse<FileItemResponse> first = search("size", "asc", null);
+        assertTrue(first.isHasMore());
+        assertEquals(2, first.getItems().size());
+        assertNull(keysetCalls.get(0)[0]);
+
+        search("size", "asc", first.getNextCursor());
+        assertEquals(20L, keysetCalls.get(1)[0]);
+        assertEquals(3L, keysetCalls.get(1)[1]);
+    }
+
+    @Test
+    void folderSizeIsEncodedAsZero() {
+        FileItem folder = file(5L, "docs", 0L);
+        folder.setType(FileItem.FileType.FOLDER);
+        rows = List.of(file(6L, "a.txt", 1L), folder, file(8L, "b.txt", 2L));
+
+        CursorPageResponse<FileItemResponse> first = search("size", "desc", null);
+        assertNull(first.getItems().get(1).getFileSize());
+
+        search("size", "desc", first.getNextCursor());
+        assertEquals(0L, keysetCalls.get(1)[0]);
+        assertEquals(5L, keysetCalls.get(1)[1]);
+    }
+
+    @Test
+    void nameCursorKeepsSeparatorInValue() {
+        rows = List.of(file(1L, "a|b|c", 1L), file(2L, "x|y", 1L), file(4L, "z", 1L));
+
+        CursorPageResponse<FileItemResponse> first = search("name", "asc", null);
+        search("name", "asc", first.getNextCursor());
+
+        assertEquals("x|y", keysetCalls.get(1)[0]);
+        assertEquals(2L, keysetCalls.get(1)[1]);
+    }
+
+    @Test
+    void createdAtCursorRoundTrips() {
+        FileItem last = file(11L, "b.txt", 1L);
+        last.setCreatedAt(LocalDateTime.of(2024, 5, 6, 7, 8, 9, 123_000_000));
+        rows = List.of(file(12L, "a.txt", 1L), last, file(10L, "c.txt", 1L));
+
+        CursorPageResponse<FileItemResponse> first = search(null, null, null);
+        search(null, null, first.getNextCursor());
+
+        assertEquals(last.getCreatedAt(), keysetCalls.get(1)[0]);
+        assertEquals(11L, keysetCalls.get(1)[1]);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        rows = List.of(file(1L, "a.txt", 1L));
+
+        CursorPageResponse<FileItemResponse> page = search("size", "asc", null);
+
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() {
+        assertInvalid("size", "not base64 !!!");
+        assertInvalid("size", encode("SIZE|ASC|12"));
+        assertInvalid("size", encode("SIZE|ASC|twelve|10"));
+        assertInvalid("size", encode("SIZE|ASC|12|ten"));
+        assertInvalid("createdAt", encode("CREATED_AT|ASC|12|yesterday"));
+        assertTrue(keysetCalls.isEmpty());
+    }
+
+    @Test
+    void cursorFromAnotherSortOrderIsRejected() {
+        RuntimeException field = assertThrows(RuntimeException.class,
+                () -> search("size", "asc", encode("NAME|ASC|12|a.txt")));
+        assertEquals("Cursor does not match sort order", field.getMessage());
+
+        RuntimeException direction = assertThrows(RuntimeException.class,
+                () -> search("size", "asc", encode("SIZE|DESC|12|10")));
+        assertEquals("Cursor does not match sort order", direction.getMessage());
+    }
+
+    private void assertInvalid(String sort, String cursor) {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> search(sort, "asc", cursor));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    private CursorPageResponse<FileItemResponse> search(String sort, String direction, String cursor) {
+        return fileService.searchFilesPage(owner.getId(), null, null, null, null, null, null,
+                sort, direction, null, cursor);
+    }
+
+    private FileItem file(Long id, String name, Long size) {
+        return FileItem.builder()
+                .id(id)
+                .name(name)
+                .type(FileItem.FileType.FILE)
+                .fileSize(size)
+                .owner(owner)
+                .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+                .build();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
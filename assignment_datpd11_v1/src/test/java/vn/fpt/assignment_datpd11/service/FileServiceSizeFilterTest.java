@@ -0,0 +1,109 @@
+package vn.fpt.assignment_datpd11.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.repository.FileItemRepository;
+import vn.fpt.assignment_datpd11.repository.FileItemRepositoryImpl;
+import vn.fpt.assignment_datpd11.repository.FileSearchCriteria;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra lọc theo kích thước của FileService.searchFilesPage chỉ áp dụng cho file
+ * (thư mục có kích thước 0 không được khớp với fromSize/toSize)
+ */
+class FileServiceSizeFilterTest {
+
+    private final List<String> queries = new ArrayList<>();
+
+    private final Map<String, Object> parameters = new HashMap<>();
+
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        // Real JPQL builder on top of an EntityManager that only records the query
+        EntityManager entityManager = (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(), new Class<?>[]{EntityManager.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("createQuery")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    queries.add((String) args[0]);
+                    return recordingQuery();
+                });
+        FileItemRepositoryImpl searchImpl = new FileItemRepositoryImpl();
+        ReflectionTestUtils.setField(searchImpl, "entityManager", entityManager);
+
+        FileItemRepository repository = (FileItemRepository) Proxy.newProxyInstance(
+                FileItemRepository.class.getClassLoader(), new Class<?>[]{FileItemRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("searchAccessible")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return searchImpl.searchAccessible((Long) args[0], (FileSearchCriteria) args[1],
+                            args[2], (Long) args[3], (Integer) args[4]);
+                });
+        fileService = new FileService();
+        ReflectionTestUtils.setField(fileService, "fileItemRepository", repository);
+        ReflectionTestUtils.setField(fileService, "searchDefaultLimit", 50);
+        ReflectionTestUtils.setField(fileService, "searchMaxLimit", 200);
+    }
+
+    @Test
+    void upperSizeBoundExcludesFolders() {
+        search(null, 1000L);
+
+        assertTrue(queries.get(0).contains("f.type = :fileType"));
+        assertEquals(FileItem.FileType.FILE, parameters.get("fileType"));
+        assertEquals(1000L, parameters.get("toSize"));
+    }
+
+    @Test
+    void lowerSizeBoundOfZeroExcludesFolders() {
+        search(0L, null);
+
+        assertTrue(queries.get(0).contains("f.type = :fileType"));
+        assertEquals(FileItem.FileType.FILE, parameters.get("fileType"));
+        assertEquals(0L, parameters.get("fromSize"));
+    }
+
+    @Test
+    void searchWithoutSizeBoundsKeepsFolders() {
+        search(null, null);
+
+        assertFalse(queries.get(0).contains(":fileType"));
+        assertFalse(parameters.containsKey("fileType"));
+    }
+
+    private void search(Long fromSize, Long toSize) {
+        fileService.searchFilesPage(1L, null, null, null, null, fromSize, toSize, "size", "asc", null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<FileItem> recordingQuery() {
+        return (TypedQuery<FileItem>) Proxy.newProxyInstance(
+                TypedQuery.class.getClassLoader(), new Class<?>[]{TypedQuery.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "setParameter" -> {
+                        parameters.put((String) args[0], args[1]);
+                        yield proxy;
+                    }
+                    case "setMaxResults" -> proxy;
+                    case "getResultList" -> new ArrayList<FileItem>();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
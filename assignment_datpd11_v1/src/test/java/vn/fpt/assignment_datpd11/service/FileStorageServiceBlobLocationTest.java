@@ -0,0 +1,266 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.repository.StoredBlobRepository;
+import vn.fpt.assignment_datpd11.storage.LocalStorageBackend;
+import vn.fpt.assignment_datpd11.storage.StorageCompressionPolicy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra location của blob khi cùng một nội dung được giải phóng và upload lại xen kẽ nhau
+ * 
+ * Dùng LocalStorageBackend thật trên thư mục tạm và một StoredBlobRepository giả lập trong bộ nhớ
+ * (mỗi phương thức tương ứng một câu lệnh nguyên tử trên bảng stored_blobs).
+ */
+class FileStorageServiceBlobLocationTest {
+
+    private static final byte[] CONTENT = "same content, uploaded again".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, StoredBlob> rows = new ConcurrentHashMap<>();
+
+    /**
+     * Chạy ngay trước câu lệnh tạo-hoặc-tăng refCount (giả lập một upload đồng thời)
+     */
+    private Runnable beforeUpsert = () -> {
+    };
+
+    /**
+     * Chạy ngay sau câu lệnh giảm refCount (giả lập một upload đồng thời cùng nội dung)
+     */
+    private Runnable afterDecrement = () -> {
+    };
+
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        StoredBlobRepository repository = (StoredBlobRepository) Proxy.newProxyInstance(
+                StoredBlobRepository.class.getClassLoader(), new Class<?>[]{StoredBlobRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "incrementRefCount" -> increment((String) args[0]);
+                    case "insertOrIncrementRefCount" -> {
+                        beforeUpsert.run();
+                        yield insertOrIncrement((String) args[0], (String) args[1], (Long) args[2]);
+                    }
+                    case "findById" -> Optional.ofNullable(rows.get((String) args[0]));
+                    case "decrementRefCount" -> {
+                        int updated = increment((String) args[0], -1);
+                        afterDecrement.run();
+                        yield updated;
+                    }
+                    case "findStoragePath" -> Optional.ofNullable(rows.get((String) args[0]))
+                            .map(StoredBlob::getStoragePath);
+                    case "deleteIfUnreferenced" -> rows.computeIfPresent((String) args[0],
+                            (hash, row) -> row.getRefCount() <= 0 ? null : row) == null
+                            && !rows.containsKey((String) args[0]) ? 1 : 0;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        LocalStorageBackend backend = new LocalStorageBackend();
+        ReflectionTestUtils.setField(backend, "storagePath", tempDir.resolve("files").toString());
+        ReflectionTestUtils.setField(backend, "fanOutLevels", 2);
+
+        StorageCompressionPolicy compressionPolicy = new StorageCompressionPolicy();
+        ReflectionTestUtils.setField(compressionPolicy, "enabled", false);
+
+        fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "storedBlobRepository", repository);
+        ReflectionTestUtils.setField(fileStorageService, "storageBackend", backend);
+        ReflectionTestUtils.setField(fileStorageService, "compressionPolicy", compressionPolicy);
+        ReflectionTestUtils.setField(fileStorageService, "storagePath", tempDir.resolve("files").toString());
+        ReflectionTestUtils.setField(fileStorageService, "tempPath", tempDir.resolve("temp").toString());
+    }
+
+    @Test
+    void delayedDeleteOfReleasedBlobKeepsReuploadedContent() throws IOException {
+        StoredBlob first = store();
+        String releasedLocation = first.getStoragePath();
+
+        // Purge commits: the row is gone, the physical delete is queued but has not run yet
+        rows.remove(first.getHash());
+
+        StoredBlob reuploaded = store();
+        assertNotEquals(releasedLocation, reuploaded.getStoragePath());
+
+        // The queued delete finally runs
+        fileStorageService.deleteFile(releasedLocation);
+
+        assertFalse(Files.exists(Paths.get(releasedLocation)));
+        assertEquals(reuploaded.getStoragePath(), rows.get(reuploaded.getHash()).getStoragePath());
+        assertArrayEquals(CONTENT, read(reuploaded.getStoragePath()));
+        assertEquals(List.of(reuploaded.getStoragePath()), blobFiles());
+    }
+
+    @Test
+    void concurrentUploadThatLosesTheInsertDeletesItsOwnCopy() throws IOException {
+        // Both uploads miss the existing-row check; the other one inserts first
+        beforeUpsert = () -> {
+            beforeUpsert = () -> {
+            };
+            try {
+                store();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        StoredBlob blob = store();
+
+        assertEquals(2L, (long) blob.getRefCount());
+        assertArrayEquals(CONTENT, read(blob.getStoragePath()));
+        assertEquals(List.of(blob.getStoragePath()), blobFiles());
+    }
+
+    @Test
+    void rollbackDeletesOnlyTheCopyOfTheRolledBackUpload() throws IOException {
+        StoredBlob first = store();
+        rows.remove(first.getHash());
+
+        TransactionSynchronizationManager.initSynchronization();
+        StoredBlob rolledBack;
+        List<TransactionSynchronization> synchronizations;
+        try {
+            rolledBack = store();
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        rows.remove(rolledBack.getHash());
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertFalse(Files.exists(Paths.get(rolledBack.getStoragePath())));
+        // The released copy is still waiting for its own queued delete
+        assertTrue(Files.exists(Paths.get(first.getStoragePath())));
+        assertEquals(List.of(first.getStoragePath()), blobFiles());
+    }
+
+    @Test
+    void releasedBlobFileIsDeletedOnlyAfterCommit() throws IOException {
+        StoredBlob blob = store();
+
+        List<TransactionSynchronization> synchronizations = releaseInTransaction(blob.getHash());
+        assertFalse(rows.containsKey(blob.getHash()));
+        // Still inside the transaction: the file must survive a rollback
+        assertTrue(Files.exists(Paths.get(blob.getStoragePath())));
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertFalse(Files.exists(Paths.get(blob.getStoragePath())));
+    }
+
+    @Test
+    void rolledBackReleaseKeepsTheFile() throws IOException {
+        StoredBlob blob = store();
+
+        List<TransactionSynchronization> synchronizations = releaseInTransaction(blob.getHash());
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(Files.exists(Paths.get(blob.getStoragePath())));
+    }
+
+    @Test
+    void uploadBetweenDecrementAndDeleteKeepsTheBlob() throws IOException {
+        StoredBlob blob = store();
+        afterDecrement = () -> {
+            afterDecrement = () -> {
+            };
+            try {
+                store();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        releaseInTransaction(blob.getHash()).forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(1L, (long) rows.get(blob.getHash()).getRefCount());
+        assertArrayEquals(CONTENT, read(blob.getStoragePath()));
+        assertEquals(List.of(blob.getStoragePath()), blobFiles());
+    }
+
+    /**
+     * Giải phóng blob trong một transaction giả lập, trả về các synchronization đã đăng ký
+     */
+    private List<TransactionSynchronization> releaseInTransaction(String hash) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            fileStorageService.releaseBlob(hash);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private StoredBlob store() throws IOException {
+        try (InputStream in = new ByteArrayInputStream(CONTENT)) {
+            return fileStorageService.storeContent(in);
+        }
+    }
+
+    private int increment(String hash) {
+        return increment(hash, 1);
+    }
+
+    private int increment(String hash, long delta) {
+        StoredBlob row = rows.get(hash);
+        if (row == null) {
+            return 0;
+        }
+        row.setRefCount(row.getRefCount() + delta);
+        return 1;
+    }
+
+    private int insertOrIncrement(String hash, String storagePath, long size) {
+        if (increment(hash) > 0) {
+            return 2;
+        }
+        rows.put(hash, StoredBlob.builder().hash(hash).storagePath(storagePath).size(size).storedSize(size)
+                .refCount(1L).build());
+        return 1;
+    }
+
+    private static byte[] read(String location) throws IOException {
+        return Files.readAllBytes(Paths.get(location));
+    }
+
+    /**
+     * Các file blob còn trên đĩa (bỏ qua thư mục file tạm)
+     */
+    private List<String> blobFiles() throws IOException {
+        Path blobs = tempDir.resolve("files").resolve("blobs");
+        try (Stream<Path> files = Files.walk(blobs)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> !blobs.relativize(path).toString().startsWith("."))
+                    .map(Path::toString)
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.fpt.assignment_datpd11.storage.StorageBackend;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra FileStorageService.openLocalCopy với nơi lưu trữ từ xa:
+ * bản sao tạm cho một lần đọc bị xóa khi đóng, bản sao đã có trong blob-copies được dùng lại
+ */
+class FileStorageServiceLocalCopyTest {
+
+    private static final byte[] CONTENT = "remote blob content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, byte[]> remote = new HashMap<>();
+
+    private int downloads;
+
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        // Remote backend: blobs are only reachable through open()
+        StorageBackend backend = new StorageBackend() {
+            @Override
+            public String put(String key, Path source) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public InputStream open(String location) throws IOException {
+                byte[] data = remote.get(location);
+                if (data == null) {
+                    throw new FileNotFoundException(location);
+                }
+                downloads++;
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public boolean exists(String location) {
+                return remote.containsKey(location);
+            }
+
+            @Override
+            public void delete(String location) {
+                remote.remove(location);
+            }
+
+            @Override
+            public Path localPath(String location) {
+                return null;
+            }
+
+            @Override
+            public void walk(BlobVisitor visitor) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        remote.put("s3://bucket/blobs/ab/cd/abcd-1", CONTENT);
+
+        fileStorageService = new FileStorageService();
+        ReflectionTestUtils.setField(fileStorageService, "storageBackend", backend);
+        ReflectionTestUtils.setField(fileStorageService, "tempPath", tempDir.toString());
+    }
+
+    @Test
+    void temporaryCopyIsDeletedWhenClosed() throws IOException {
+        Path path;
+        try (FileStorageService.LocalCopy copy = fileStorageService.openLocalCopy("s3://bucket/blobs/ab/cd/abcd-1")) {
+            assertTrue(copy.isTemporary());
+            path = copy.getPath();
+            assertArrayEquals(CONTENT, Files.readAllBytes(path));
+        }
+
+        assertFalse(Files.exists(path));
+        assertEquals(List.of(), localCopies());
+    }
+
+    @Test
+    void existingLocalCopyIsReusedAndKept() throws IOException {
+        Path cached = fileStorageService.getLocalPath("s3://bucket/blobs/ab/cd/abcd-1");
+
+        try (FileStorageService.LocalCopy copy = fileStorageService.openLocalCopy("s3://bucket/blobs/ab/cd/abcd-1")) {
+            assertFalse(copy.isTemporary());
+            assertEquals(cached, copy.getPath());
+        }
+
+        assertEquals(1, downloads);
+        assertEquals(List.of(cached), localCopies());
+    }
+
+    @Test
+    void missingBlobHasNoPath() throws IOException {
+        try (FileStorageService.LocalCopy copy = fileStorageService.openLocalCopy("s3://bucket/blobs/ff/ff/ffff-1")) {
+            assertNull(copy.getPath());
+        }
+
+        assertEquals(List.of(), localCopies());
+    }
+
+    private List<Path> localCopies() throws IOException {
+        Path dir = tempDir.resolve("blob-copies");
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package vn.fpt.assignment_datpd11.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.fpt.assignment_datpd11.dto.response.FileItemResponse;
+import vn.fpt.assignment_datpd11.entity.FileItem;
+import vn.fpt.assignment_datpd11.entity.StoredBlob;
+import vn.fpt.assignment_datpd11.entity.UploadSession;
+import vn.fpt.assignment_datpd11.entity.User;
+import vn.fpt.assignment_datpd11.repository.UploadSessionRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra UploadSessionService.commitSession: ghép file ngoài transaction,
+ * chỉ xóa các phần tạm sau khi transaction tạo FileItem đã commit
+ */
+class UploadSessionServiceCommitTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path tempDir;
+
+    private final User owner = User.builder().id(1L).email("owner@example.com").fullName("Owner").build();
+
+    private final List<String> events = new ArrayList<>();
+
+    private UploadSession session;
+
+    private boolean inTransaction;
+
+    /**
+     * Chạy khi nội dung vừa được lưu vào blob store (giả lập request khác hủy phiên trong lúc ghép)
+     */
+    private Runnable afterStore = () -> {
+    };
+
+    private UploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        session = UploadSession.builder()
+                .sessionId("session-1")
+                .user(owner)
+                .fileName("report.bin")
+                .totalSize((long) CONTENT.length)
+                .chunkSize(4L)
+                .totalChunks(3)
+                .status(UploadSession.UploadStatus.ACTIVE)
+                .build();
+        Path sessionDir = Files.createDirectories(tempDir.resolve("uploads").resolve(session.getSessionId()));
+        for (int i = 0; i < 3; i++) {
+            int from = i * 4;
+            Files.write(sessionDir.resolve(i + ".part"),
+                    Arrays.copyOfRange(CONTENT, from, Math.min(from + 4, CONTENT.length)));
+        }
+
+        UploadSessionRepository repository = (UploadSessionRepository) Proxy.newProxyInstance(
+                UploadSessionRepository.class.getClassLoader(), new Class<?>[]{UploadSessionRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.of(session);
+                    case "markCommitted" -> {
+                        assertTrue(inTransaction);
+                        if (session.getStatus() != UploadSession.UploadStatus.ACTIVE) {
+                            yield 0;
+                        }
+                        session.setStatus(UploadSession.UploadStatus.COMMITTED);
+                        yield 1;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        FileService fileService = new FileService() {
+            @Override
+            public FileItem createFileItem(String name, String mimeType, StoredBlob blob, FileItem parent, User user) {
+                assertTrue(inTransaction);
+                assertTrue(Files.exists(sessionDir()), "chunks must survive until the commit");
+                events.add("create " + name);
+                return FileItem.builder().id(10L).name(name).type(FileItem.FileType.FILE)
+                        .contentHash(blob.getHash()).fileSize(blob.getSize()).owner(user).build();
+            }
+
+            @Override
+            public FileItemResponse mapToResponse(FileItem fileItem) {
+                return FileItemResponse.builder().id(fileItem.getId()).name(fileItem.getName()).build();
+            }
+        };
+
+        FileStorageService fileStorageService = new FileStorageService() {
+            @Override
+            public StoredBlob storeContent(InputStream in, long maxSize, String expectedHash,
+                                           String mimeType, long sizeHint) throws IOException {
+                assertFalse(inTransaction, "assembling must not hold a transaction");
+                assertArrayEquals(CONTENT, in.readAllBytes());
+                events.add("store");
+                afterStore.run();
+                return StoredBlob.builder().hash("abc").storagePath("blob").size((long) CONTENT.length)
+                        .refCount(1L).build();
+            }
+
+            @Override
+            public void releaseBlob(String hash) {
+                events.add("release " + hash);
+            }
+        };
+
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                inTransaction = true;
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                inTransaction = false;
+                events.add("commit");
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                inTransaction = false;
+                events.add("rollback");
+            }
+        };
+
+        uploadSessionService = new UploadSessionService();
+        ReflectionTestUtils.setField(uploadSessionService, "uploadSessionRepository", repository);
+        ReflectionTestUtils.setField(uploadSessionService, "fileService", fileService);
+        ReflectionTestUtils.setField(uploadSessionService, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(uploadSessionService, "transactionTemplate",
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(uploadSessionService, "tempPath", tempDir.toString());
+    }
+
+    @Test
+    void chunksAreDeletedOnlyAfterTheFileItemIsCommitted() throws IOException {
+        FileItemResponse response = uploadSessionService.commitSession(session.getSessionId(), owner.getId());
+
+        assertEquals(10L, (long) response.getId());
+        assertEquals(List.of("store", "create report.bin", "commit"), events);
+        assertEquals(UploadSession.UploadStatus.COMMITTED, session.getStatus());
+        assertFalse(Files.exists(sessionDir()));
+    }
+
+    @Test
+    void sessionAbortedWhileAssemblingReleasesTheBlobAndKeepsChunks() {
+        afterStore = () -> session.setStatus(UploadSession.UploadStatus.ABORTED);
+
+        assertThrows(RuntimeException.class,
+                () -> uploadSessionService.commitSession(session.getSessionId(), owner.getId()));
+
+        assertEquals(List.of("store", "rollback", "release abc"), events);
+        assertTrue(Files.exists(sessionDir().resolve("0.part")));
+    }
+
+    private Path sessionDir() {
+        return tempDir.resolve("uploads").resolve(session.getSessionId());
+    }
+}
@@ -0,0 +1,189 @@
+package vn.fpt.assignment_datpd11.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra định dạng nén theo khối: ghi bằng BlockCompressedOutputStream, đọc lại bằng BlockCompressedFile
+ */
+class BlockCompressedFileTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sizesAroundBlockBoundariesRoundTrip() throws IOException {
+        for (int size : new int[]{1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 3 * BLOCK_SIZE, 3 * BLOCK_SIZE + 7}) {
+            byte[] data = text(size);
+            Path path = write("boundary-" + size + BlockCompressedFile.SUFFIX, data);
+
+            try (BlockCompressedFile file = BlockCompressedFile.open(path)) {
+                assertEquals(size, file.size());
+                assertArrayEquals(data, readAll(file.newInputStream()));
+            }
+            assertTrue(BlockCompressedFile.isCompressedFormat(path), "size " + size);
+        }
+    }
+
+    @Test
+    void incompressibleBlocksAreStoredAndMixWithDeflatedBlocks() throws IOException {
+        // Block 0 text, block 1 random, block 2 text, block 3 partial random
+        byte[] data = new byte[3 * BLOCK_SIZE + 100];
+        byte[] random = new byte[data.length];
+        new Random(1).nextBytes(random);
+        System.arraycopy(text(BLOCK_SIZE), 0, data, 0, BLOCK_SIZE);
+        System.arraycopy(random, 0, data, BLOCK_SIZE, BLOCK_SIZE);
+        System.arraycopy(text(BLOCK_SIZE), 0, data, 2 * BLOCK_SIZE, BLOCK_SIZE);
+        System.arraycopy(random, 0, data, 3 * BLOCK_SIZE, 100);
+        Path path = write("mixed" + BlockCompressedFile.SUFFIX, data);
+
+        assertEquals(BlockCompressedFile.FLAG_DEFLATED, blockFlag(path, 0, 4));
+        assertEquals(BlockCompressedFile.FLAG_STORED, blockFlag(path, 1, 4));
+        assertEquals(BlockCompressedFile.FLAG_DEFLATED, blockFlag(path, 2, 4));
+        assertEquals(BlockCompressedFile.FLAG_STORED, blockFlag(path, 3, 4));
+
+        try (BlockCompressedFile file = BlockCompressedFile.open(path)) {
+            assertArrayEquals(data, readAll(file.newInputStream()));
+        }
+    }
+
+    @Test
+    void emptyContentRoundTrips() throws IOException {
+        Path path = write("empty" + BlockCompressedFile.SUFFIX, new byte[0]);
+
+        assertEquals(BlockCompressedFile.HEADER_SIZE + BlockCompressedFile.FOOTER_SIZE, Files.size(path));
+        assertTrue(BlockCompressedFile.isCompressedFormat(path));
+        try (BlockCompressedFile file = BlockCompressedFile.open(path)) {
+            assertEquals(0, file.size());
+            assertEquals(-1, file.read(0, new byte[1], 0, 1));
+            assertEquals(-1, file.newInputStream().read());
+        }
+    }
+
+    @Test
+    void skipAndPositionalReadsReturnRanges() throws IOException {
+        byte[] data = new byte[5 * BLOCK_SIZE + 321];
+        new Random(2).nextBytes(data);
+        System.arraycopy(text(2 * BLOCK_SIZE), 0, data, BLOCK_SIZE, 2 * BLOCK_SIZE);
+        Path path = write("range" + BlockCompressedFile.SUFFIX, data);
+
+        int[][] ranges = {{0, 10}, {BLOCK_SIZE - 5, 10}, {BLOCK_SIZE, BLOCK_SIZE}, {2 * BLOCK_SIZE + 1, 2 * BLOCK_SIZE},
+                {data.length - 1, 1}, {3 * BLOCK_SIZE + 17, data.length - 3 * BLOCK_SIZE - 17}};
+        for (int[] range : ranges) {
+            byte[] expected = Arrays.copyOfRange(data, range[0], range[0] + range[1]);
+
+            try (BlockCompressedFile file = BlockCompressedFile.open(path); InputStream in = file.newInputStream()) {
+                assertEquals(range[0], in.skip(range[0]));
+                assertArrayEquals(expected, in.readNBytes(range[1]), "skip to " + range[0]);
+            }
+            try (BlockCompressedFile file = BlockCompressedFile.open(path)) {
+                byte[] buffer = new byte[range[1]];
+                int total = 0;
+                while (total < buffer.length) {
+                    total += file.read(range[0] + total, buffer, total, buffer.length - total);
+                }
+                assertArrayEquals(expected, buffer, "read at " + range[0]);
+            }
+        }
+
+        try (BlockCompressedFile file = BlockCompressedFile.open(path); InputStream in = file.newInputStream()) {
+            assertEquals(data.length, in.skip(Long.MAX_VALUE));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void plainFilesAreNotMistakenForCompressedBlobs() throws IOException {
+        Path compressed = write("real" + BlockCompressedFile.SUFFIX, text(3000));
+        byte[] bytes = Files.readAllBytes(compressed);
+
+        // Same bytes without the suffix
+        Path renamed = tempDir.resolve("real.bin");
+        Files.write(renamed, bytes);
+        assertFalse(BlockCompressedFile.isCompressedFormat(renamed));
+
+        // Suffix with content that only starts like a compressed blob
+        Path headerOnly = tempDir.resolve("header-only" + BlockCompressedFile.SUFFIX);
+        Files.write(headerOnly, Arrays.copyOf(bytes, bytes.length - 1));
+        assertFalse(BlockCompressedFile.isCompressedFormat(headerOnly));
+        assertThrows(IOException.class, () -> BlockCompressedFile.open(headerOnly).close());
+
+        Path text = tempDir.resolve("notes" + BlockCompressedFile.SUFFIX);
+        Files.write(text, "just some text that happens to end in .mdz".getBytes(StandardCharsets.UTF_8));
+        assertFalse(BlockCompressedFile.isCompressedFormat(text));
+
+        Path tiny = tempDir.resolve("tiny" + BlockCompressedFile.SUFFIX);
+        Files.write(tiny, new byte[]{0x4D, 0x44, 0x5A, 0x31});
+        assertFalse(BlockCompressedFile.isCompressedFormat(tiny));
+
+        assertFalse(BlockCompressedFile.isCompressedFormat(tempDir.resolve("missing" + BlockCompressedFile.SUFFIX)));
+        assertFalse(BlockCompressedFile.isCompressedFormat(null));
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = new BlockCompressedOutputStream(Files.newOutputStream(path), BLOCK_SIZE,
+                Deflater.DEFAULT_COMPRESSION)) {
+            // Uneven writes so blocks are filled across several calls
+            int offset = 0;
+            int step = 1;
+            while (offset < data.length) {
+                int n = Math.min(step, data.length - offset);
+                out.write(data, offset, n);
+                offset += n;
+                step = step * 3 + 1;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Đọc cờ (STORED/DEFLATED) của một khối từ bảng chỉ mục
+     */
+    private static byte blockFlag(Path path, int blockIndex, int blockCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer footer = ByteBuffer.allocate(BlockCompressedFile.FOOTER_SIZE);
+            channel.read(footer, channel.size() - BlockCompressedFile.FOOTER_SIZE);
+            assertEquals(blockCount, footer.getInt(16));
+            ByteBuffer entry = ByteBuffer.allocate(BlockCompressedFile.INDEX_ENTRY_SIZE);
+            channel.read(entry, footer.getLong(0) + (long) blockIndex * BlockCompressedFile.INDEX_ENTRY_SIZE);
+            return entry.get(BlockCompressedFile.INDEX_ENTRY_SIZE - 1);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] text(int size) {
+        byte[] pattern = "the quick brown fox jumps over the lazy dog ".getBytes(StandardCharsets.US_ASCII);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = pattern[i % pattern.length];
+        }
+        return data;
+    }
+}